@@ -0,0 +1,167 @@
+package com.capgemini.wsb.fitnesstracker.admission.internal;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control in front of the API controllers: every client has a token bucket, every request costs tokens
+ * according to its endpoint, and requests finding the bucket empty are rejected with {@code 429 Too Many Requests} and a
+ * {@code Retry-After} header instead of reaching the database.
+ * <p>
+ * A client is identified by its API key only if the key is one of the configured {@code admission.api-keys}, so that
+ * clients cannot get a fresh bucket per request by inventing keys. Otherwise the client is identified by its address:
+ * the remote address, or, when the request comes from one of the {@code admission.trusted-proxies}, the nearest address
+ * of the forwarded-for header not belonging to a trusted proxy.
+ * <p>
+ * Admitted and rejected requests are counted as {@code admission.requests}, tagged with the matched endpoint and the
+ * result; the number of tracked clients is exported as {@code admission.clients}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "admission", name = "enabled", havingValue = "true")
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@Slf4j
+class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final String API_PATH_PREFIX = "/v1/";
+    private static final String OTHER_ENDPOINT = "other";
+
+    private final AdmissionProperties properties;
+    private final TokenBucketLimiter limiter;
+    private final List<EndpointCost> costs = new ArrayList<>();
+    private final EndpointCost defaultCost;
+
+    AdmissionControlFilter(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.limiter = new TokenBucketLimiter(properties.getCapacity(), properties.getTokensPerSecond());
+        for (Map.Entry<String, Integer> cost : properties.getCosts().entrySet()) {
+            costs.add(EndpointCost.parse(cost.getKey(), cost.getValue(), meterRegistry));
+        }
+        this.defaultCost = new EndpointCost(OTHER_ENDPOINT, null, null, properties.getDefaultCost(), meterRegistry);
+        Gauge.builder("admission.clients", limiter, TokenBucketLimiter::size)
+                .description("Number of clients with a token bucket")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !pathOf(request).startsWith(API_PATH_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        EndpointCost endpoint = costOf(request);
+        long waitNanos = limiter.tryAcquire(clientOf(request), endpoint.cost(), System.nanoTime());
+        if (waitNanos == 0) {
+            endpoint.admitted().increment();
+            filterChain.doFilter(request, response);
+            return;
+        }
+        endpoint.rejected().increment();
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+    }
+
+    @Scheduled(fixedDelayString = "${admission.eviction-delay:60000}")
+    public void evictFullBuckets() {
+        int evicted = limiter.evictFull(System.nanoTime());
+        log.debug("Evicted {} full token buckets", evicted);
+    }
+
+    private String clientOf(HttpServletRequest request) {
+        String apiKey = request.getHeader(properties.getApiKeyHeader());
+        return apiKey != null && properties.getApiKeys().contains(apiKey) ? "key:" + apiKey : "ip:" + addressOf(request);
+    }
+
+    /**
+     * Walks the forwarded-for header from the right while the hops are trusted proxies, since only they can be relied on
+     * to have appended the address they received the request from.
+     */
+    private String addressOf(HttpServletRequest request) {
+        String address = request.getRemoteAddr();
+        String forwardedFor = request.getHeader(properties.getForwardedForHeader());
+        if (forwardedFor == null || !properties.getTrustedProxies().contains(address)) {
+            return address;
+        }
+        String[] hops = forwardedFor.split(",");
+        for (int i = hops.length - 1; i >= 0 && properties.getTrustedProxies().contains(address); i--) {
+            String hop = hops[i].trim();
+            if (!hop.isEmpty()) {
+                address = hop;
+            }
+        }
+        return address;
+    }
+
+    private EndpointCost costOf(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(pathOf(request));
+        for (EndpointCost cost : costs) {
+            if (cost.matches(request.getMethod(), path)) {
+                return cost;
+            }
+        }
+        return defaultCost;
+    }
+
+    private static String pathOf(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    /**
+     * Cost of the requests matching an HTTP method and a path pattern, with their counters.
+     */
+    private record EndpointCost(String name, @Nullable String method, @Nullable PathPattern pattern, int cost,
+                                Counter admitted, Counter rejected) {
+
+        private EndpointCost(String name, @Nullable String method, @Nullable PathPattern pattern, int cost,
+                             MeterRegistry meterRegistry) {
+            this(name, method, pattern, cost, counter(meterRegistry, name, "admitted"), counter(meterRegistry, name, "rejected"));
+        }
+
+        private static EndpointCost parse(String endpoint, int cost, MeterRegistry meterRegistry) {
+            String[] methodAndPattern = endpoint.trim().split("\\s+", 2);
+            if (methodAndPattern.length != 2) {
+                throw new IllegalArgumentException("Endpoint cost key '%s' is not in the 'METHOD /path' format".formatted(endpoint));
+            }
+            return new EndpointCost(endpoint, methodAndPattern[0], PathPatternParser.defaultInstance.parse(methodAndPattern[1]),
+                                    cost, meterRegistry);
+        }
+
+        private boolean matches(String requestMethod, PathContainer path) {
+            return method != null && pattern != null && method.equalsIgnoreCase(requestMethod) && pattern.matches(path);
+        }
+
+        private static Counter counter(MeterRegistry meterRegistry, String endpoint, String result) {
+            return Counter.builder("admission.requests")
+                    .description("Requests admitted or rejected by the admission control")
+                    .tag("endpoint", endpoint)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+    }
+}
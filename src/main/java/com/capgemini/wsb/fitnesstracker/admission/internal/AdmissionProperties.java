@@ -0,0 +1,83 @@
+package com.capgemini.wsb.fitnesstracker.admission.internal;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Configuration of the per-client admission control ({@link AdmissionControlFilter}).
+ */
+@ConfigurationProperties(prefix = "admission")
+@Getter
+@Setter
+class AdmissionProperties {
+
+    /**
+     * Whether requests to the API should be rate limited per client.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Maximum number of tokens in the bucket of a client, i.e. the allowed burst.
+     */
+    private long capacity = 100;
+
+    /**
+     * Number of tokens added to the bucket of a client per second.
+     */
+    private double tokensPerSecond = 50;
+
+    /**
+     * Header identifying the client. Requests without it, or with a key not in {@link #apiKeys}, are identified by their
+     * address.
+     */
+    private String apiKeyHeader = "X-API-Key";
+
+    /**
+     * API keys issued to the clients. Only these keys get a bucket of their own.
+     */
+    private Set<String> apiKeys = new HashSet<>();
+
+    /**
+     * Addresses of the load balancers and reverse proxies in front of the application. For requests coming from them the
+     * client address is taken from the {@link #forwardedForHeader}.
+     */
+    private Set<String> trustedProxies = new HashSet<>();
+
+    /**
+     * Header with the chain of client and proxy addresses, appended to by every trusted proxy.
+     */
+    private String forwardedForHeader = "X-Forwarded-For";
+
+    /**
+     * Cost in tokens of a request not matching any of the {@link #costs}.
+     */
+    private int defaultCost = 1;
+
+    /**
+     * Costs in tokens of the requests, by HTTP method and path pattern, e.g. {@code "[GET /v1/trainings]": 20}.
+     * The first matching entry wins, so specific paths precede the patterns they overlap with. List endpoints returning
+     * whole tables and streams holding a connection cost more than lookups by ID.
+     */
+    private Map<String, Integer> costs = defaultCosts();
+
+    private static Map<String, Integer> defaultCosts() {
+        Map<String, Integer> costs = new LinkedHashMap<>();
+        costs.put("GET /v1/trainings", 20);
+        costs.put("GET /v1/trainings/stream", 20);
+        costs.put("GET /v1/trainings/activityType", 10);
+        costs.put("GET /v1/trainings/finished/*", 10);
+        costs.put("GET /v1/trainings/*", 5);
+        costs.put("GET /v1/users", 10);
+        costs.put("GET /v1/users/simple", 10);
+        costs.put("GET /v1/users/older/*", 5);
+        costs.put("GET /v1/users/*/export", 40);
+        return costs;
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.capgemini.wsb.fitnesstracker.admission.internal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-client token buckets, implemented as the generic cell rate algorithm (GCRA).
+ * <p>
+ * Instead of a token count and a refill timestamp, every bucket keeps a single value: the theoretical arrival time
+ * ({@code tat}) at which the bucket will be full again. Taking {@code n} tokens moves it {@code n} emission intervals
+ * forward; the request is admitted if the bucket would not be "fuller than empty", i.e. {@code tat} stays within the
+ * burst tolerance ({@code capacity} intervals) ahead of now. Since the whole state is one {@code long}, a decision is a
+ * single compare-and-set without any lock, and buckets of different clients live in the striped
+ * {@link ConcurrentHashMap}.
+ */
+final class TokenBucketLimiter {
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final ConcurrentMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param capacity        maximum number of tokens in a bucket, i.e. the allowed burst
+     * @param tokensPerSecond rate at which an empty bucket is refilled
+     */
+    TokenBucketLimiter(long capacity, double tokensPerSecond) {
+        if (capacity < 1 || tokensPerSecond <= 0) {
+            throw new IllegalArgumentException("Token bucket capacity and refill rate must be positive");
+        }
+        this.emissionIntervalNanos = Math.max(1, (long) (1_000_000_000L / tokensPerSecond));
+        this.burstToleranceNanos = capacity * emissionIntervalNanos;
+    }
+
+    /**
+     * Takes {@code cost} tokens from the client's bucket if it has enough of them.
+     *
+     * @param client identifier of the client
+     * @param cost   number of tokens the request costs
+     * @param now    current time in nanoseconds ({@link System#nanoTime()})
+     * @return {@code 0} if the request was admitted, otherwise the number of nanoseconds until enough tokens are available
+     */
+    long tryAcquire(String client, int cost, long now) {
+        AtomicLong bucket = buckets.computeIfAbsent(client, key -> new AtomicLong(now));
+        long increment = cost * emissionIntervalNanos;
+        while (true) {
+            long tat = bucket.get();
+            long newTat = Math.max(tat, now) + increment;
+            long waitNanos = newTat - now - burstToleranceNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (bucket.compareAndSet(tat, newTat)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @return number of clients having a bucket
+     */
+    int size() {
+        return buckets.size();
+    }
+
+    /**
+     * Forgets the buckets which are full again; they would behave exactly like new buckets.
+     *
+     * @param now current time in nanoseconds ({@link System#nanoTime()})
+     * @return number of removed buckets
+     */
+    int evictFull(long now) {
+        int sizeBefore = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.get() <= now);
+        return sizeBefore - buckets.size();
+    }
+}
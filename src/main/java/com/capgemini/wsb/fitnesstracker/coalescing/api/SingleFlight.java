@@ -0,0 +1,126 @@
+package com.capgemini.wsb.fitnesstracker.coalescing.api;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical concurrent calls: the first caller of a key (the leader) runs the call, callers arriving while it
+ * is in flight wait for its result and share it instead of running the same query again. Results are not kept once
+ * the call completes; this is not a cache.
+ * <p>
+ * A waiting caller gives up waiting after the timeout and runs the call on its own, so a slow leader delays followers by
+ * at most the timeout. Failures of the leader are propagated to the waiting callers. Waiting blocks on a
+ * {@link CompletableFuture} without holding any monitor, so it is suitable for platform as well as virtual threads.
+ * <p>
+ * Calls are counted as {@code single.flight.calls}, tagged with the name and the result: {@code leader},
+ * {@code coalesced} or {@code timeout}.
+ *
+ * @param <K> type of the keys identifying identical calls
+ */
+public class SingleFlight<K> {
+
+    private final boolean enabled;
+    private final Duration timeout;
+    private final ConcurrentMap<K, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Counter leaders;
+    private final Counter coalesced;
+    private final Counter timeouts;
+
+    public SingleFlight(String name, boolean enabled, Duration timeout, MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.timeout = timeout;
+        this.leaders = counter(meterRegistry, name, "leader");
+        this.coalesced = counter(meterRegistry, name, "coalesced");
+        this.timeouts = counter(meterRegistry, name, "timeout");
+    }
+
+    /**
+     * Runs the call, or waits for the result of an identical call already in flight.
+     *
+     * @param key  identifies identical calls, e.g. the method and its arguments
+     * @param call the call to be run
+     * @param <V>  type of the result
+     * @return result of the call
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V execute(K key, Supplier<V> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        CompletableFuture<Object> own = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, own);
+        if (running != null) {
+            return (V) await(running, call);
+        }
+        leaders.increment();
+        try {
+            V result = call.get();
+            own.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    /**
+     * Lets subsequent callers start new calls instead of joining the ones in flight. To be called after a write, so that
+     * no caller arriving after the write shares a result read before it.
+     */
+    public void forgetInFlight() {
+        inFlight.clear();
+    }
+
+    /**
+     * Lets subsequent callers of the matching keys start new calls instead of joining the ones in flight, while calls
+     * of the other keys keep being coalesced. To be called after a write with the keys whose result it may change.
+     *
+     * @param affected selects the keys whose result may have changed
+     */
+    public void forgetInFlight(Predicate<? super K> affected) {
+        inFlight.keySet().removeIf(affected);
+    }
+
+    private Object await(CompletableFuture<Object> running, Supplier<?> call) {
+        try {
+            Object result = running.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            coalesced.increment();
+            return result;
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            return call.get();
+        } catch (ExecutionException e) {
+            coalesced.increment();
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a coalesced call", e);
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String name, String result) {
+        return Counter.builder("single.flight.calls")
+                .description("Calls run by a leader, coalesced with a call in flight, or run after a timed out wait")
+                .tag("name", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,15 @@
+package com.capgemini.wsb.fitnesstracker.coalescing.api;
+
+/**
+ * Creates {@link SingleFlight} instances configured by the {@code coalescing.*} properties.
+ */
+public interface SingleFlightFactory {
+
+    /**
+     * @param name name of the coalesced calls in the metrics
+     * @param <K>  type of the keys identifying identical calls
+     * @return new {@link SingleFlight}
+     */
+    <K> SingleFlight<K> create(String name);
+
+}
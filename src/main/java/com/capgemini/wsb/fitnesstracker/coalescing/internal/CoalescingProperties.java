@@ -0,0 +1,27 @@
+package com.capgemini.wsb.fitnesstracker.coalescing.internal;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the read coalescing ({@link com.capgemini.wsb.fitnesstracker.coalescing.api.SingleFlight}).
+ */
+@ConfigurationProperties(prefix = "coalescing")
+@Getter
+@Setter
+class CoalescingProperties {
+
+    /**
+     * Whether identical concurrent reads should share a single query.
+     */
+    private boolean enabled = true;
+
+    /**
+     * How long a read waits for an identical read in flight before running its own query.
+     */
+    private Duration timeout = Duration.ofSeconds(2);
+
+}
@@ -0,0 +1,21 @@
+package com.capgemini.wsb.fitnesstracker.coalescing.internal;
+
+import com.capgemini.wsb.fitnesstracker.coalescing.api.SingleFlight;
+import com.capgemini.wsb.fitnesstracker.coalescing.api.SingleFlightFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+class SingleFlightFactoryImpl implements SingleFlightFactory {
+
+    private final CoalescingProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public <K> SingleFlight<K> create(String name) {
+        return new SingleFlight<>(name, properties.isEnabled(), properties.getTimeout(), meterRegistry);
+    }
+
+}
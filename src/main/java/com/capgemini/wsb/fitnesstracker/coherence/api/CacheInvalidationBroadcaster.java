@@ -0,0 +1,27 @@
+package com.capgemini.wsb.fitnesstracker.coherence.api;
+
+/**
+ * API interface for broadcasting invalidations of local caches to the other application instances sharing the database.
+ * <p>
+ * Invalidations requested inside a transaction are sent only after it commits, so another instance never reloads the
+ * data before the change is visible. They are delivered as {@link RemoteCacheInvalidationEvent}s on every other instance,
+ * never on the broadcasting one, which is expected to have invalidated its own cache already.
+ */
+public interface CacheInvalidationBroadcaster {
+
+    /**
+     * Invalidates the entry of the given key in the cache region on the other instances.
+     *
+     * @param region name of the cache, e.g. {@code userSearch}
+     * @param key    key of the invalidated entry, in the format understood by the cache
+     */
+    void broadcast(String region, String key);
+
+    /**
+     * Invalidates all entries of the cache region on the other instances.
+     *
+     * @param region name of the cache
+     */
+    void broadcastRegion(String region);
+
+}
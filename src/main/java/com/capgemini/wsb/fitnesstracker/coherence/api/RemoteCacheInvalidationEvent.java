@@ -0,0 +1,39 @@
+package com.capgemini.wsb.fitnesstracker.coherence.api;
+
+import java.util.Set;
+
+/**
+ * Event published when another application instance invalidated cache entries, see {@link CacheInvalidationBroadcaster}.
+ * Invalidations are delivered in batches, one event per region.
+ *
+ * @param region      name of the cache, {@value #ALL_REGIONS} if every cache has to be invalidated
+ * @param keys        keys of the invalidated entries, empty if the whole region is invalidated
+ * @param wholeRegion whether all entries of the region have to be invalidated
+ */
+public record RemoteCacheInvalidationEvent(String region, Set<String> keys, boolean wholeRegion) {
+
+    public static final String ALL_REGIONS = "*";
+
+    public static RemoteCacheInvalidationEvent keys(String region, Set<String> keys) {
+        return new RemoteCacheInvalidationEvent(region, Set.copyOf(keys), false);
+    }
+
+    public static RemoteCacheInvalidationEvent region(String region) {
+        return new RemoteCacheInvalidationEvent(region, Set.of(), true);
+    }
+
+    /**
+     * Event invalidating every cache, published when invalidations may have been missed.
+     */
+    public static RemoteCacheInvalidationEvent everything() {
+        return region(ALL_REGIONS);
+    }
+
+    /**
+     * @return whether the event concerns the cache of the given region
+     */
+    public boolean appliesTo(String cacheRegion) {
+        return region.equals(cacheRegion) || region.equals(ALL_REGIONS);
+    }
+
+}
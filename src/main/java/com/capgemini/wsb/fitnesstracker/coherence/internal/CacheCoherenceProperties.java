@@ -0,0 +1,55 @@
+package com.capgemini.wsb.fitnesstracker.coherence.internal;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Configuration of the cross-instance cache invalidation ({@link CacheCoherenceWorker}). The send, poll and purge delays
+ * are configured in milliseconds as {@code coherence.flush-delay}, {@code coherence.poll-delay} and
+ * {@code coherence.purge-delay}.
+ */
+@ConfigurationProperties(prefix = "coherence")
+@Getter
+@Setter
+class CacheCoherenceProperties {
+
+    /**
+     * Whether cache invalidations should be exchanged with the other instances sharing the database.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Identifier of this instance, unique among the instances sharing the database. Random by default.
+     */
+    private String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * Maximum number of change-log rows read in a single query.
+     */
+    private int batchSize = 1000;
+
+    /**
+     * Number of keys of one region in a single poll above which the whole region is invalidated instead.
+     */
+    private int maxKeysPerRegion = 100;
+
+    /**
+     * Time after which a missing change-log id is considered to belong to a rolled back insert and is skipped.
+     */
+    private Duration gapTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Upper bound of the staleness: all caches are invalidated when the change-log could not be read for longer.
+     */
+    private Duration maxStaleness = Duration.ofSeconds(30);
+
+    /**
+     * Time after which change-log rows are deleted.
+     */
+    private Duration retention = Duration.ofHours(1);
+
+}
@@ -0,0 +1,135 @@
+package com.capgemini.wsb.fitnesstracker.coherence.internal;
+
+import com.capgemini.wsb.fitnesstracker.coherence.api.RemoteCacheInvalidationEvent;
+import com.capgemini.wsb.fitnesstracker.jobs.api.ClusterJobs;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Background worker exchanging cache invalidations with the other application instances.
+ * <p>
+ * Collected invalidations are sent every {@code coherence.flush-delay} milliseconds in a single batch. Invalidations
+ * of the other instances are received every {@code coherence.poll-delay} milliseconds and published as one
+ * {@link RemoteCacheInvalidationEvent} per region; regions with too many invalidated keys are invalidated whole. A cache
+ * entry is therefore stale for at most the sum of both delays after the change committed. If the invalidations could
+ * not be received for longer than {@link CacheCoherenceProperties#getMaxStaleness()}, all caches are invalidated, which
+ * keeps the staleness bounded even when invalidations were lost. Old change-log rows are purged by a single instance
+ * at a time ({@link ClusterJobs}).
+ * <p>
+ * Sent and received invalidations are counted as {@code cache.coherence.invalidations}, tagged with the direction.
+ */
+@Component
+@ConditionalOnProperty(prefix = "coherence", name = "enabled", havingValue = "true")
+@Slf4j
+class CacheCoherenceWorker {
+
+    private static final String PURGE_JOB = "coherence-purge";
+
+    private final CacheInvalidationBroadcasterImpl broadcaster;
+    private final InvalidationTransport transport;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CacheCoherenceProperties properties;
+    private final ClusterJobs clusterJobs;
+    private final Counter sent;
+    private final Counter received;
+
+    private Instant lastReceived = Instant.now();
+
+    CacheCoherenceWorker(CacheInvalidationBroadcasterImpl broadcaster,
+                         InvalidationTransport transport,
+                         ApplicationEventPublisher eventPublisher,
+                         CacheCoherenceProperties properties,
+                         ClusterJobs clusterJobs,
+                         MeterRegistry meterRegistry) {
+        this.broadcaster = broadcaster;
+        this.transport = transport;
+        this.eventPublisher = eventPublisher;
+        this.properties = properties;
+        this.clusterJobs = clusterJobs;
+        this.sent = counter(meterRegistry, "sent");
+        this.received = counter(meterRegistry, "received");
+    }
+
+    @Scheduled(fixedDelayString = "${coherence.flush-delay:100}")
+    public void send() {
+        List<Invalidation> invalidations = broadcaster.drain();
+        if (invalidations.isEmpty()) {
+            return;
+        }
+        try {
+            transport.send(invalidations);
+            sent.increment(invalidations.size());
+        } catch (DataAccessException e) {
+            broadcaster.requeue(invalidations);
+            log.warn("Could not send {} cache invalidations, retrying", invalidations.size(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${coherence.poll-delay:500}")
+    public void receive() {
+        Instant now = Instant.now();
+        List<Invalidation> invalidations;
+        try {
+            invalidations = transport.receive(properties.getBatchSize());
+        } catch (DataAccessException e) {
+            log.warn("Could not receive cache invalidations", e);
+            if (Duration.between(lastReceived, now).compareTo(properties.getMaxStaleness()) > 0) {
+                eventPublisher.publishEvent(RemoteCacheInvalidationEvent.everything());
+            }
+            return;
+        }
+        if (Duration.between(lastReceived, now).compareTo(properties.getMaxStaleness()) > 0) {
+            log.warn("Cache invalidations were not received since {}, invalidating all caches", lastReceived);
+            eventPublisher.publishEvent(RemoteCacheInvalidationEvent.everything());
+        }
+        lastReceived = now;
+        if (invalidations.isEmpty()) {
+            return;
+        }
+        received.increment(invalidations.size());
+        Map<String, Set<String>> keysByRegion = new LinkedHashMap<>();
+        for (Invalidation invalidation : invalidations) {
+            keysByRegion.computeIfAbsent(invalidation.region(), region -> new HashSet<>()).add(invalidation.key());
+        }
+        keysByRegion.forEach((region, keys) -> {
+            if (keys.contains(Invalidation.ALL_KEYS) || keys.size() > properties.getMaxKeysPerRegion()) {
+                eventPublisher.publishEvent(RemoteCacheInvalidationEvent.region(region));
+            } else {
+                eventPublisher.publishEvent(RemoteCacheInvalidationEvent.keys(region, keys));
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${coherence.purge-delay:600000}")
+    public void purge() {
+        try {
+            clusterJobs.runExclusively(PURGE_JOB, Duration.ofMinutes(1), Duration.ofMinutes(10), () -> {
+                int purged = transport.purge(Instant.now().minus(properties.getRetention()));
+                log.debug("Purged {} cache invalidations", purged);
+            });
+        } catch (DataAccessException e) {
+            log.warn("Could not purge cache invalidations", e);
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String direction) {
+        return Counter.builder("cache.coherence.invalidations")
+                .description("Cache invalidations exchanged with the other instances")
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,44 @@
+package com.capgemini.wsb.fitnesstracker.coherence.internal;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.Instant;
+
+/**
+ * Row of the change-log of cache invalidations shared by the application instances. Rows are written in batches by
+ * {@link ChangeLogInvalidationTransport} and read by the other instances in id order.
+ */
+@Entity
+@Table(name = "cache_invalidations", indexes = @Index(name = "idx_cache_invalidations_created_at", columnList = "created_at"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+class CacheInvalidation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "node_id", nullable = false, length = 64)
+    private String nodeId;
+
+    @Column(name = "region", nullable = false, length = 64)
+    private String region;
+
+    @Column(name = "cache_key", nullable = false)
+    private String cacheKey;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+}
@@ -0,0 +1,72 @@
+package com.capgemini.wsb.fitnesstracker.coherence.internal;
+
+import com.capgemini.wsb.fitnesstracker.coherence.api.CacheInvalidationBroadcaster;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects the broadcast invalidations until {@link CacheCoherenceWorker} sends them. Repeated invalidations of the same
+ * entry between two sends are merged. Nothing is collected unless the coherence is enabled.
+ */
+@Component
+class CacheInvalidationBroadcasterImpl implements CacheInvalidationBroadcaster {
+
+    private final boolean enabled;
+    private final Set<Invalidation> pending = ConcurrentHashMap.newKeySet();
+
+    CacheInvalidationBroadcasterImpl(CacheCoherenceProperties properties) {
+        this.enabled = properties.isEnabled();
+    }
+
+    @Override
+    public void broadcast(String region, String key) {
+        if (!enabled) {
+            return;
+        }
+        Invalidation invalidation = new Invalidation(region, key);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            pending.add(invalidation);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+            @Override
+            public void afterCommit() {
+                pending.add(invalidation);
+            }
+        });
+    }
+
+    @Override
+    public void broadcastRegion(String region) {
+        broadcast(region, Invalidation.ALL_KEYS);
+    }
+
+    /**
+     * Removes and returns the collected invalidations.
+     */
+    List<Invalidation> drain() {
+        List<Invalidation> drained = new ArrayList<>();
+        Iterator<Invalidation> iterator = pending.iterator();
+        while (iterator.hasNext()) {
+            drained.add(iterator.next());
+            iterator.remove();
+        }
+        return drained;
+    }
+
+    /**
+     * Puts back invalidations which could not be sent.
+     */
+    void requeue(Collection<Invalidation> invalidations) {
+        pending.addAll(invalidations);
+    }
+}
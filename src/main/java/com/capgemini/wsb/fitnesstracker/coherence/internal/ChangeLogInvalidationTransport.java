@@ -0,0 +1,105 @@
+package com.capgemini.wsb.fitnesstracker.coherence.internal;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * {@link InvalidationTransport} over the {@code cache_invalidations} table ({@link CacheInvalidation}): invalidations are
+ * inserted in batches and every instance polls the rows following its cursor, skipping its own.
+ * <p>
+ * Identity values are assigned at insert, but become visible at commit, so a poll may see id 12 before the concurrently
+ * inserted id 11. The cursor therefore stops at the first gap, and the rows read after it are remembered and not delivered
+ * again when the gap is filled. A gap still open after {@link CacheCoherenceProperties#getGapTimeout()} belongs to a
+ * rolled back insert and is skipped. This relies on the clocks of the instances being synchronized.
+ */
+@Component
+@Slf4j
+class ChangeLogInvalidationTransport implements InvalidationTransport {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String nodeId;
+    private final Duration gapTimeout;
+
+    private long cursor = -1;
+    private final NavigableSet<Long> deliveredAfterCursor = new TreeSet<>();
+
+    ChangeLogInvalidationTransport(JdbcTemplate jdbcTemplate, CacheCoherenceProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.nodeId = properties.getNodeId();
+        this.gapTimeout = properties.getGapTimeout();
+    }
+
+    @Override
+    public void send(Collection<Invalidation> invalidations) {
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate("insert into cache_invalidations (node_id, region, cache_key, created_at) values (?, ?, ?, ?)",
+                                 invalidations,
+                                 invalidations.size(),
+                                 (statement, invalidation) -> {
+                                     statement.setString(1, nodeId);
+                                     statement.setString(2, invalidation.region());
+                                     statement.setString(3, invalidation.key());
+                                     statement.setTimestamp(4, now);
+                                 });
+    }
+
+    @Override
+    public synchronized List<Invalidation> receive(int batchSize) {
+        if (cursor < 0) {
+            Long lastId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from cache_invalidations", Long.class);
+            cursor = lastId == null ? 0 : lastId;
+            log.info("Receiving cache invalidations after change-log id {} as node {}", cursor, nodeId);
+            return List.of();
+        }
+        Instant gapDeadline = Instant.now().minus(gapTimeout);
+        List<Invalidation> received = new ArrayList<>();
+        boolean contiguous = true;
+        long position = cursor;
+        List<ChangeLogRow> rows;
+        do {
+            rows = jdbcTemplate.query("""
+                                              select id, node_id, region, cache_key, created_at
+                                                from cache_invalidations
+                                               where id > ?
+                                               order by id
+                                               fetch first ? rows only""",
+                                      (resultSet, rowNumber) -> new ChangeLogRow(resultSet.getLong(1),
+                                                                                 resultSet.getString(2),
+                                                                                 new Invalidation(resultSet.getString(3), resultSet.getString(4)),
+                                                                                 resultSet.getTimestamp(5).toInstant()),
+                                      position, batchSize);
+            for (ChangeLogRow row : rows) {
+                position = row.id();
+                if (deliveredAfterCursor.add(row.id()) && !row.nodeId().equals(nodeId)) {
+                    received.add(row.invalidation());
+                }
+                if (contiguous && (row.id() == cursor + 1 || row.createdAt().isBefore(gapDeadline))) {
+                    cursor = row.id();
+                } else {
+                    contiguous = false;
+                }
+            }
+        } while (rows.size() == batchSize);
+        deliveredAfterCursor.headSet(cursor, true).clear();
+        return received;
+    }
+
+    @Override
+    public int purge(Instant sentBefore) {
+        return jdbcTemplate.update("delete from cache_invalidations where created_at < ?", Timestamp.from(sentBefore));
+    }
+
+    private record ChangeLogRow(long id, String nodeId, Invalidation invalidation, Instant createdAt) {
+
+    }
+}
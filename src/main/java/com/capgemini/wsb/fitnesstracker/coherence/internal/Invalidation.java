@@ -0,0 +1,17 @@
+package com.capgemini.wsb.fitnesstracker.coherence.internal;
+
+/**
+ * Invalidation of a cache entry, or of the whole region if the key is {@value #ALL_KEYS}.
+ *
+ * @param region name of the cache
+ * @param key    key of the invalidated entry
+ */
+record Invalidation(String region, String key) {
+
+    static final String ALL_KEYS = "*";
+
+    boolean wholeRegion() {
+        return key.equals(ALL_KEYS);
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.capgemini.wsb.fitnesstracker.coherence.internal;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Transport of cache invalidations between the application instances. The default implementation is the database
+ * change-log ({@link ChangeLogInvalidationTransport}), which needs nothing but the shared database; an implementation
+ * over a message broker can replace it without touching the caches.
+ */
+interface InvalidationTransport {
+
+    /**
+     * Sends the invalidations to the other instances.
+     */
+    void send(Collection<Invalidation> invalidations);
+
+    /**
+     * Receives the invalidations sent by the other instances since the previous call. An invalidation may be received
+     * more than once, invalidating a cache entry is idempotent.
+     *
+     * @param batchSize maximum number of invalidations read from the transport at once
+     * @return received invalidations, in the order they were sent
+     */
+    List<Invalidation> receive(int batchSize);
+
+    /**
+     * Deletes the invalidations sent before the given time, which every instance had enough time to receive.
+     *
+     * @return number of deleted invalidations
+     */
+    int purge(Instant sentBefore);
+
+}
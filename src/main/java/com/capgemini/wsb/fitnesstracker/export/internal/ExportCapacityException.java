@@ -0,0 +1,17 @@
+package com.capgemini.wsb.fitnesstracker.export.internal;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when the background export queue of this instance is full.
+ * Will resolve to the {@link HttpStatus#SERVICE_UNAVAILABLE}, the client should retry later.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+class ExportCapacityException extends RuntimeException {
+
+    ExportCapacityException(int maxQueued) {
+        super("Background exports are limited to %d waiting requests".formatted(maxQueued));
+    }
+
+}
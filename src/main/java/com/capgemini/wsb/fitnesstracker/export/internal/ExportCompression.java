@@ -0,0 +1,45 @@
+package com.capgemini.wsb.fitnesstracker.export.internal;
+
+import com.capgemini.wsb.fitnesstracker.exception.api.BusinessException;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Container of an export.
+ */
+enum ExportCompression {
+
+    /**
+     * A single gzip compressed document holding the profile followed by the trainings.
+     */
+    GZIP("gz", "application/gzip"),
+
+    /**
+     * A zip archive with the profile and the trainings as separate entries.
+     */
+    ZIP("zip", "application/zip");
+
+    private final String extension;
+    private final String mediaType;
+
+    ExportCompression(String extension, String mediaType) {
+        this.extension = extension;
+        this.mediaType = mediaType;
+    }
+
+    String extension() {
+        return extension;
+    }
+
+    String mediaType() {
+        return mediaType;
+    }
+
+    static ExportCompression of(String value) {
+        return Arrays.stream(values())
+                .filter(compression -> compression.name().equalsIgnoreCase(value) || compression.extension.equals(value.toLowerCase(Locale.ROOT)))
+                .findFirst()
+                .orElseThrow(() -> new BusinessException("Unknown export compression " + value + ", expected gzip or zip"));
+    }
+}
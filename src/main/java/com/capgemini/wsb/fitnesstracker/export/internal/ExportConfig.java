@@ -0,0 +1,10 @@
+package com.capgemini.wsb.fitnesstracker.export.internal;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ExportProperties.class)
+class ExportConfig {
+
+}
@@ -0,0 +1,39 @@
+package com.capgemini.wsb.fitnesstracker.export.internal;
+
+import com.capgemini.wsb.fitnesstracker.exception.api.BusinessException;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Format of the documents of an export.
+ */
+enum ExportFormat {
+
+    /**
+     * Comma separated values with a header row.
+     */
+    CSV("csv"),
+
+    /**
+     * Newline delimited JSON, one object with a {@code type} property per line.
+     */
+    NDJSON("ndjson");
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    String extension() {
+        return extension;
+    }
+
+    static ExportFormat of(String value) {
+        return Arrays.stream(values())
+                .filter(format -> format.extension.equals(value.toLowerCase(Locale.ROOT)))
+                .findFirst()
+                .orElseThrow(() -> new BusinessException("Unknown export format " + value + ", expected csv or ndjson"));
+    }
+}
@@ -0,0 +1,15 @@
+package com.capgemini.wsb.fitnesstracker.export.internal;
+
+import com.capgemini.wsb.fitnesstracker.exception.api.NotFoundException;
+
+/**
+ * Exception indicating that the export was not found, it was never requested, failed or already expired.
+ */
+@SuppressWarnings("squid:S110")
+class ExportNotFoundException extends NotFoundException {
+
+    ExportNotFoundException(Long userId, String exportId) {
+        super("Export %s of user with ID=%s was not found".formatted(exportId, userId));
+    }
+
+}
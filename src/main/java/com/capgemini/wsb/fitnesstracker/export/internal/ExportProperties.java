@@ -0,0 +1,45 @@
+package com.capgemini.wsb.fitnesstracker.export.internal;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Configuration of the user data exports ({@link UserDataExporter}, {@link UserExportFiles}). The delay of the removal
+ * of expired export files is configured in milliseconds as {@code export.cleanup-delay}.
+ */
+@ConfigurationProperties(prefix = "export")
+@Getter
+@Setter
+class ExportProperties {
+
+    /**
+     * Directory of the exports written in the background.
+     */
+    private Path directory = Path.of("data/exports");
+
+    /**
+     * Time after which a written export is deleted.
+     */
+    private Duration retention = Duration.ofHours(24);
+
+    /**
+     * Number of exports written in the background at the same time.
+     */
+    private int threads = 2;
+
+    /**
+     * Number of background exports waiting for a thread; further requests are rejected.
+     */
+    private int maxQueued = 32;
+
+    /**
+     * Number of exports streamed in responses at the same time. Each one holds a database connection for as long as the
+     * client takes to read it; further requests are written in the background instead.
+     */
+    private int maxStreaming = 4;
+
+}
@@ -0,0 +1,181 @@
+package com.capgemini.wsb.fitnesstracker.export.internal;
+
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingProvider;
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
+import com.capgemini.wsb.fitnesstracker.user.api.UserDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes the data of a user, the profile and all trainings, as CSV or NDJSON into a gzip or zip stream.
+ * <p>
+ * Trainings are passed from a database cursor ({@link TrainingProvider#forEachTrainingOfUser}) straight to the
+ * compressing stream, one row at a time, so the memory used is the same for a user with ten trainings and for a user with
+ * hundreds of thousands.
+ * <p>
+ * A zip archive holds the {@code profile} and {@code trainings} documents as separate entries. A gzip stream holds a
+ * single document: NDJSON lines are told apart by their {@code type} property, CSV has the profile table followed by an
+ * empty line and the trainings table.
+ */
+@Component
+@Slf4j
+class UserDataExporter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String PROFILE_HEADER = "id,first_name,last_name,birthdate,email";
+    private static final String TRAININGS_HEADER = "id,start_time,end_time,activity_type,distance,average_speed";
+
+    private final TrainingProvider trainingProvider;
+    private final ObjectWriter jsonWriter;
+
+    UserDataExporter(TrainingProvider trainingProvider, ObjectMapper objectMapper) {
+        this.trainingProvider = trainingProvider;
+        this.jsonWriter = objectMapper.writer();
+    }
+
+    /**
+     * Writes the export to the stream, which is finished but not closed.
+     *
+     * @return number of exported trainings
+     */
+    long export(UserDto user, ExportFormat format, ExportCompression compression, OutputStream output) throws IOException {
+        long start = System.nanoTime();
+        long trainings;
+        if (compression == ExportCompression.ZIP) {
+            ZipOutputStream zip = new ZipOutputStream(output, StandardCharsets.UTF_8);
+            Writer writer = writer(zip);
+            zip.putNextEntry(new ZipEntry("profile." + format.extension()));
+            writeProfile(user, format, writer);
+            writer.flush();
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("trainings." + format.extension()));
+            trainings = writeTrainings(user, format, writer);
+            writer.flush();
+            zip.closeEntry();
+            zip.finish();
+        } else {
+            GZIPOutputStream gzip = new GZIPOutputStream(output, BUFFER_SIZE);
+            Writer writer = writer(gzip);
+            writeProfile(user, format, writer);
+            if (format == ExportFormat.CSV) {
+                writer.write('\n');
+            }
+            trainings = writeTrainings(user, format, writer);
+            writer.flush();
+            gzip.finish();
+        }
+        output.flush();
+        log.info("Exported user {} with {} trainings as {} {} in {} ms",
+                 user.id(), trainings, format, compression, (System.nanoTime() - start) / 1_000_000);
+        return trainings;
+    }
+
+    private void writeProfile(UserDto user, ExportFormat format, Writer writer) throws IOException {
+        if (format == ExportFormat.NDJSON) {
+            writer.write(jsonWriter.writeValueAsString(new ExportedUser(
+                    "user", user.id(), user.firstName(), user.lastName(), user.birthdate(), user.email())));
+            writer.write('\n');
+            return;
+        }
+        writer.write(PROFILE_HEADER);
+        writer.write('\n');
+        writeCsvRow(writer, String.valueOf(user.id()), user.firstName(), user.lastName(), String.valueOf(user.birthdate()), user.email());
+    }
+
+    private long writeTrainings(UserDto user, ExportFormat format, Writer writer) throws IOException {
+        if (format == ExportFormat.CSV) {
+            writer.write(TRAININGS_HEADER);
+            writer.write('\n');
+        }
+        long[] count = {0};
+        try {
+            trainingProvider.forEachTrainingOfUser(user.id(), training -> {
+                try {
+                    if (format == ExportFormat.NDJSON) {
+                        writer.write(jsonWriter.writeValueAsString(ExportedTraining.of(training)));
+                        writer.write('\n');
+                    } else {
+                        writeCsvRow(writer,
+                                    String.valueOf(training.id()),
+                                    instant(training.startTime()),
+                                    instant(training.endTime()),
+                                    training.activityType().name(),
+                                    String.valueOf(training.distance()),
+                                    String.valueOf(training.averageSpeed()));
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return count[0];
+    }
+
+    private static void writeCsvRow(Writer writer, @Nullable String... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeCsvValue(writer, values[i]);
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * Writes the value, quoted if it contains a separator, a quote or a line break.
+     */
+    private static void writeCsvValue(Writer writer, @Nullable String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quoted = value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quoted) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static String instant(@Nullable Date date) {
+        return date != null ? date.toInstant().toString() : "";
+    }
+
+    private static Writer writer(OutputStream output) {
+        return new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    private record ExportedUser(String type, Long id, String firstName, String lastName, LocalDate birthdate, String email) {
+
+    }
+
+    private record ExportedTraining(String type, Long id, Date startTime, Date endTime, ActivityType activityType,
+                                    double distance, double averageSpeed) {
+
+        private static ExportedTraining of(TrainingDto training) {
+            return new ExportedTraining("training", training.id(), training.startTime(), training.endTime(),
+                                        training.activityType(), training.distance(), training.averageSpeed());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.capgemini.wsb.fitnesstracker.export.internal;
+
+import com.capgemini.wsb.fitnesstracker.user.api.UserDto;
+import com.capgemini.wsb.fitnesstracker.user.api.UserNotFoundException;
+import com.capgemini.wsb.fitnesstracker.user.api.UserProvider;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.nio.file.Path;
+import java.util.concurrent.Semaphore;
+
+/**
+ * REST controller exporting all data of a user, either streamed directly in the response or written in the background
+ * for a later download.
+ */
+@RestController
+@RequestMapping("/v1/users")
+class UserExportController {
+
+    private final UserProvider userProvider;
+    private final UserDataExporter exporter;
+    private final UserExportFiles exportFiles;
+    private final Semaphore streamingExports;
+
+    UserExportController(UserProvider userProvider, UserDataExporter exporter, UserExportFiles exportFiles,
+                         ExportProperties properties) {
+        this.userProvider = userProvider;
+        this.exporter = exporter;
+        this.exportFiles = exportFiles;
+        this.streamingExports = new Semaphore(properties.getMaxStreaming());
+    }
+
+    /**
+     * Streams the profile and all trainings of the user as a compressed archive. The response is written while the
+     * trainings are read from the database, so it starts immediately and uses constant memory whatever their number.
+     * <p>
+     * The database cursor stays open at the pace of the client, so at most {@link ExportProperties#getMaxStreaming()}
+     * exports are streamed at the same time. Beyond that the export is written in the background like
+     * {@link #startExport} does, and the response is the pending export with its location (202 Accepted, see
+     * {@link #exportInBackground}).
+     *
+     * @param id          the ID of the user
+     * @param format      {@code ndjson} or {@code csv}
+     * @param compression {@code gzip} or {@code zip}
+     * @return ResponseEntity streaming the archive as an attachment, or the pending background export
+     */
+    @GetMapping("/{id}/export")
+    public ResponseEntity<StreamingResponseBody> exportUser(@PathVariable Long id,
+                                                            @RequestParam(defaultValue = "ndjson") String format,
+                                                            @RequestParam(defaultValue = "gzip") String compression) {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        ExportCompression exportCompression = ExportCompression.of(compression);
+        UserDto user = userProvider.getUser(id).orElseThrow(() -> new UserNotFoundException(id));
+        if (!streamingExports.tryAcquire()) {
+            throw new StreamingExportsExhaustedException(user, exportFormat, exportCompression);
+        }
+        String fileName = "user-%d.%s.%s".formatted(id, exportFormat.extension(), exportCompression.extension());
+        StreamingResponseBody body = output -> {
+            try {
+                exporter.export(user, exportFormat, exportCompression, output);
+            } finally {
+                streamingExports.release();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportCompression.mediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+
+    /**
+     * Writes the export in the background when no more exports can be streamed. The streaming endpoint has to declare
+     * a {@link StreamingResponseBody} for its response to be streamed, so the pending export is answered from here.
+     *
+     * @param exhausted the export which could not be streamed
+     * @return ResponseEntity with the pending export and its location (202 Accepted)
+     */
+    @ExceptionHandler
+    ResponseEntity<UserExportDto> exportInBackground(StreamingExportsExhaustedException exhausted) {
+        String exportId = exportFiles.start(exhausted.user, exhausted.format, exhausted.compression);
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                                  .path("/v1/users/{id}/exports/{exportId}").buildAndExpand(exhausted.user.id(), exportId).toUri())
+                .body(new UserExportDto(exportId, UserExportDto.Status.PENDING));
+    }
+
+    /**
+     * Starts writing the export of the user in the background.
+     *
+     * @param id          the ID of the user
+     * @param format      {@code ndjson} or {@code csv}
+     * @param compression {@code gzip} or {@code zip}
+     * @return ResponseEntity with the pending export and its location (202 Accepted)
+     */
+    @PostMapping(value = "/{id}/exports", produces = "application/json")
+    public ResponseEntity<UserExportDto> startExport(@PathVariable Long id,
+                                                     @RequestParam(defaultValue = "ndjson") String format,
+                                                     @RequestParam(defaultValue = "gzip") String compression) {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        ExportCompression exportCompression = ExportCompression.of(compression);
+        UserDto user = userProvider.getUser(id).orElseThrow(() -> new UserNotFoundException(id));
+        String exportId = exportFiles.start(user, exportFormat, exportCompression);
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/{exportId}").buildAndExpand(exportId).toUri())
+                .body(new UserExportDto(exportId, UserExportDto.Status.PENDING));
+    }
+
+    /**
+     * Retrieves the state of an export written in the background.
+     *
+     * @param id       the ID of the user
+     * @param exportId the ID of the export
+     * @return ResponseEntity containing the export state, or NotFound status if it does not exist
+     */
+    @GetMapping(value = "/{id}/exports/{exportId}", produces = "application/json")
+    public ResponseEntity<UserExportDto> getExport(@PathVariable Long id, @PathVariable String exportId) {
+        return ResponseEntity.ok(exportFiles.status(id, exportId));
+    }
+
+    /**
+     * Downloads a complete export written in the background.
+     *
+     * @param id       the ID of the user
+     * @param exportId the ID of the export
+     * @return ResponseEntity containing the archive, or NotFound status if it does not exist or is not complete yet
+     */
+    @GetMapping("/{id}/exports/{exportId}/download")
+    public ResponseEntity<Resource> downloadExport(@PathVariable Long id, @PathVariable String exportId) {
+        Path file = exportFiles.download(id, exportId);
+        String fileName = file.getFileName().toString();
+        ExportCompression compression = ExportCompression.of(fileName.substring(fileName.lastIndexOf('.') + 1));
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(compression.mediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("user-%d%s".formatted(id, fileName.substring(fileName.indexOf('.')))).build().toString())
+                .body(new FileSystemResource(file));
+    }
+
+    /**
+     * Signals that the export of the user cannot be streamed because {@link ExportProperties#getMaxStreaming()} exports
+     * are streamed already.
+     */
+    static final class StreamingExportsExhaustedException extends RuntimeException {
+
+        private final UserDto user;
+        private final ExportFormat format;
+        private final ExportCompression compression;
+
+        StreamingExportsExhaustedException(UserDto user, ExportFormat format, ExportCompression compression) {
+            super("All streaming exports are in use, exporting user %d in the background".formatted(user.id()));
+            this.user = user;
+            this.format = format;
+            this.compression = compression;
+        }
+    }
+}
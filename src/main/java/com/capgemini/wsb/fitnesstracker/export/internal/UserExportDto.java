@@ -0,0 +1,15 @@
+package com.capgemini.wsb.fitnesstracker.export.internal;
+
+/**
+ * State of an export written in the background.
+ *
+ * @param id     export id
+ * @param status {@code PENDING} while being written, {@code READY} when it can be downloaded
+ */
+record UserExportDto(String id, Status status) {
+
+    enum Status {
+        PENDING,
+        READY
+    }
+}
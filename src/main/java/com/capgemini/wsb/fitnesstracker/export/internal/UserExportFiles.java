@@ -0,0 +1,178 @@
+package com.capgemini.wsb.fitnesstracker.export.internal;
+
+import com.capgemini.wsb.fitnesstracker.user.api.UserDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exports written in the background to the local {@link ExportProperties#getDirectory() directory} for a later
+ * download.
+ * <p>
+ * An export is written to {@code <user id>-<export id>.<extension>.part} and atomically renamed to
+ * {@code <user id>-<export id>.<extension>} when complete, so the files are the only state: a {@code .part} file is a
+ * pending export, a file without it a ready one, and an export which failed or expired has no file at all. Nothing is
+ * lost or left inconsistent by a restart except the pending exports, whose partial files are removed by the cleanup.
+ * <p>
+ * Exports are written by {@link ExportProperties#getThreads()} threads from a bounded queue, a full queue rejects the
+ * request with {@link ExportCapacityException}. Files older than {@link ExportProperties#getRetention()} are deleted
+ * every {@code export.cleanup-delay}.
+ */
+@Component
+@Slf4j
+class UserExportFiles implements DisposableBean {
+
+    private static final String PART_SUFFIX = ".part";
+
+    private final UserDataExporter exporter;
+    private final ExportProperties properties;
+    private final Path directory;
+    private final ThreadPoolExecutor executor;
+
+    UserExportFiles(UserDataExporter exporter, ExportProperties properties) throws IOException {
+        this.exporter = exporter;
+        this.properties = properties;
+        this.directory = Files.createDirectories(properties.getDirectory());
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(properties.getThreads(), properties.getThreads(), 0, TimeUnit.MILLISECONDS,
+                                               new ArrayBlockingQueue<>(properties.getMaxQueued()),
+                                               runnable -> {
+                                                   Thread thread = new Thread(runnable, "user-export-" + threadNumber.incrementAndGet());
+                                                   thread.setDaemon(true);
+                                                   return thread;
+                                               });
+    }
+
+    /**
+     * Starts writing the export of the user in the background.
+     *
+     * @return export id
+     */
+    String start(UserDto user, ExportFormat format, ExportCompression compression) {
+        String exportId = UUID.randomUUID().toString();
+        Path file = directory.resolve("%d-%s.%s.%s".formatted(user.id(), exportId, format.extension(), compression.extension()));
+        Path partFile = file.resolveSibling(file.getFileName() + PART_SUFFIX);
+        try {
+            Files.createFile(partFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            executor.execute(() -> write(user, format, compression, partFile, file));
+        } catch (RejectedExecutionException e) {
+            deleteQuietly(partFile);
+            throw new ExportCapacityException(properties.getMaxQueued());
+        }
+        return exportId;
+    }
+
+    /**
+     * Returns the state of the export.
+     *
+     * @throws ExportNotFoundException if the export does not exist
+     */
+    UserExportDto status(Long userId, String exportId) {
+        Path file = file(userId, exportId);
+        boolean ready = !file.getFileName().toString().endsWith(PART_SUFFIX);
+        return new UserExportDto(exportId, ready ? UserExportDto.Status.READY : UserExportDto.Status.PENDING);
+    }
+
+    /**
+     * Returns the file of a complete export.
+     *
+     * @throws ExportNotFoundException if the export does not exist or is still being written
+     */
+    Path download(Long userId, String exportId) {
+        Path file = file(userId, exportId);
+        if (file.getFileName().toString().endsWith(PART_SUFFIX)) {
+            throw new ExportNotFoundException(userId, exportId);
+        }
+        return file;
+    }
+
+    @Scheduled(fixedDelayString = "${export.cleanup-delay:3600000}")
+    void deleteExpired() {
+        Instant expiredBefore = Instant.now().minus(properties.getRetention());
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(expiredBefore) && Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Expired exports could not be deleted from {}", directory, e);
+        }
+        if (deleted > 0) {
+            log.info("Deleted {} expired exports", deleted);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private void write(UserDto user, ExportFormat format, ExportCompression compression, Path partFile, Path file) {
+        try {
+            try (OutputStream output = Files.newOutputStream(partFile)) {
+                exporter.export(user, format, compression, output);
+            }
+            Files.move(partFile, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            log.error("Export of user {} to {} failed", user.id(), file, e);
+            deleteQuietly(partFile);
+        }
+    }
+
+    private Path file(Long userId, String exportId) {
+        String id = exportId(userId, exportId);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, userId + "-" + id + ".*")) {
+            Optional<Path> found = Optional.empty();
+            for (Path file : files) {
+                if (found.isEmpty() || !file.getFileName().toString().endsWith(PART_SUFFIX)) {
+                    found = Optional.of(file);
+                }
+            }
+            return found.orElseThrow(() -> new ExportNotFoundException(userId, exportId));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the export id in canonical form, rejecting anything that is not an UUID before it becomes part of a path.
+     */
+    private static String exportId(Long userId, String exportId) {
+        try {
+            return UUID.fromString(exportId).toString();
+        } catch (IllegalArgumentException e) {
+            throw new ExportNotFoundException(userId, exportId);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("{} could not be deleted", file, e);
+        }
+    }
+}
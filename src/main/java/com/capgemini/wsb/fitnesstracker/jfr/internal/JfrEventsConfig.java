@@ -0,0 +1,95 @@
+package com.capgemini.wsb.fitnesstracker.jfr.internal;
+
+import com.capgemini.wsb.fitnesstracker.mail.api.EmailSender;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingProvider;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingService;
+import com.capgemini.wsb.fitnesstracker.user.api.UserProvider;
+import com.capgemini.wsb.fitnesstracker.user.api.UserService;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Emits custom Java Flight Recorder events around the business operations: {@link ServiceCallEvent} for the training and
+ * user services, {@link RepositoryQueryEvent} for every Spring Data repository and {@link MailSendEvent} for the email
+ * senders. The events are recorded only while a recording enables them, e.g.
+ * {@code jcmd <pid> JFR.start settings=profile} with the {@code com.capgemini.wsb.fitnesstracker.*} events enabled.
+ * <p>
+ * The advice is added to the existing (transactional) proxies in front of their other advisors, so the measured time
+ * includes the transaction commit. Setting {@code jfr.events.enabled} to {@code false} removes the advice altogether.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "jfr.events", name = "enabled", havingValue = "true", matchIfMissing = true)
+class JfrEventsConfig {
+
+    @Bean
+    static BeanPostProcessor trainingServiceCallEvents() {
+        return new EventAdvisingPostProcessor(
+                new ServiceCallInterceptor("TrainingService", false), TrainingService.class, TrainingProvider.class);
+    }
+
+    @Bean
+    static BeanPostProcessor userServiceCallEvents() {
+        return new EventAdvisingPostProcessor(
+                new ServiceCallInterceptor("UserService", true), UserService.class, UserProvider.class);
+    }
+
+    @Bean
+    static BeanPostProcessor mailSendEvents() {
+        return new EventAdvisingPostProcessor(new MailSendInterceptor(), EmailSender.class);
+    }
+
+    @Bean
+    static BeanPostProcessor repositoryQueryEvents() {
+        return new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> repositoryFactoryBean) {
+                    repositoryFactoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, repository) -> proxyFactory.addAdvice(
+                                    new RepositoryQueryInterceptor(repository.getRepositoryInterface().getSimpleName()))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Adds an event emitting interceptor to the beans implementing one of the given interfaces, advising only the
+     * methods declared by them. Beans without a proxy yet get a class based one, since the controllers inject the
+     * service implementations rather than their interfaces.
+     */
+    private static final class EventAdvisingPostProcessor extends AbstractBeanFactoryAwareAdvisingPostProcessor {
+
+        private EventAdvisingPostProcessor(MethodInterceptor interceptor, Class<?>... interfaces) {
+            this.advisor = advisor(interceptor, List.of(interfaces));
+            this.beforeExistingAdvisors = true;
+            setProxyTargetClass(true);
+        }
+
+        private static Advisor advisor(MethodInterceptor interceptor, List<Class<?>> interfaces) {
+            StaticMethodMatcherPointcut pointcut = new StaticMethodMatcherPointcut() {
+
+                @Override
+                public boolean matches(Method method, Class<?> targetClass) {
+                    return interfaces.stream().anyMatch(type -> type.isAssignableFrom(targetClass)
+                            && ReflectionUtils.findMethod(type, method.getName(), method.getParameterTypes()) != null);
+                }
+            };
+            pointcut.setClassFilter(targetClass -> interfaces.stream().anyMatch(type -> type.isAssignableFrom(targetClass)));
+            return new DefaultPointcutAdvisor(pointcut, interceptor);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.capgemini.wsb.fitnesstracker.jfr.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Sending of emails by an {@link com.capgemini.wsb.fitnesstracker.mail.api.EmailSender}. Only the number of messages
+ * is recorded, never the addresses or the content.
+ */
+@Name("com.capgemini.wsb.fitnesstracker.MailSend")
+@Label("Mail Send")
+@Category({"Fitness Tracker", "Mail"})
+@Description("Sending of emails")
+@StackTrace(false)
+class MailSendEvent extends Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Messages")
+    int messages;
+
+    @Label("Failed")
+    boolean failed;
+}
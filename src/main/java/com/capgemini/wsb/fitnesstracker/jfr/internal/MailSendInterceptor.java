@@ -0,0 +1,50 @@
+package com.capgemini.wsb.fitnesstracker.jfr.internal;
+
+import com.capgemini.wsb.fitnesstracker.mail.api.EmailDto;
+import jakarta.annotation.Nullable;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.util.Collection;
+
+/**
+ * Emits a {@link MailSendEvent} around every call of the advised email sender.
+ */
+final class MailSendInterceptor implements MethodInterceptor {
+
+    @Override
+    @Nullable
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        MailSendEvent event = new MailSendEvent();
+        if (!event.isEnabled()) {
+            return invocation.proceed();
+        }
+        event.begin();
+        boolean failed = true;
+        try {
+            Object result = invocation.proceed();
+            failed = false;
+            return result;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.method = invocation.getMethod().getName();
+                event.messages = messagesOf(invocation.getArguments());
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+
+    private static int messagesOf(Object[] arguments) {
+        int messages = 0;
+        for (Object argument : arguments) {
+            if (argument instanceof EmailDto) {
+                messages++;
+            } else if (argument instanceof Collection<?> emails) {
+                messages += emails.size();
+            }
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,32 @@
+package com.capgemini.wsb.fitnesstracker.jfr.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Invocation of a Spring Data repository method, including the query execution and the mapping of its results.
+ */
+@Name("com.capgemini.wsb.fitnesstracker.RepositoryQuery")
+@Label("Repository Query")
+@Category({"Fitness Tracker", "Repository"})
+@Description("Invocation of a Spring Data repository method")
+@StackTrace(false)
+class RepositoryQueryEvent extends Event {
+
+    @Label("Repository")
+    String repository;
+
+    @Label("Method")
+    String method;
+
+    @Label("Row Count")
+    @Description("Number of returned entities or rows, -1 if not known (e.g. for streams)")
+    long rowCount;
+
+    @Label("Failed")
+    boolean failed;
+}
@@ -0,0 +1,68 @@
+package com.capgemini.wsb.fitnesstracker.jfr.internal;
+
+import jakarta.annotation.Nullable;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.data.domain.Slice;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.stream.BaseStream;
+
+/**
+ * Emits a {@link RepositoryQueryEvent} around every invocation of the advised repository, with the number of returned
+ * rows.
+ */
+final class RepositoryQueryInterceptor implements MethodInterceptor {
+
+    private final String repository;
+
+    RepositoryQueryInterceptor(String repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    @Nullable
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        RepositoryQueryEvent event = new RepositoryQueryEvent();
+        if (!event.isEnabled()) {
+            return invocation.proceed();
+        }
+        event.begin();
+        Object result = null;
+        boolean failed = true;
+        try {
+            result = invocation.proceed();
+            failed = false;
+            return result;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.repository = repository;
+                event.method = invocation.getMethod().getName();
+                event.rowCount = rowCountOf(result);
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+
+    private static long rowCountOf(@Nullable Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Slice<?> slice) {
+            return slice.getNumberOfElements();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        if (result instanceof Iterable<?> || result instanceof BaseStream<?, ?>) {
+            return -1;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,39 @@
+package com.capgemini.wsb.fitnesstracker.jfr.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Call of a business service method, e.g. {@code TrainingService.findTrainingsByUserId}.
+ */
+@Name("com.capgemini.wsb.fitnesstracker.ServiceCall")
+@Label("Service Call")
+@Category({"Fitness Tracker", "Service"})
+@Description("Call of a training or user service method")
+@StackTrace(false)
+class ServiceCallEvent extends Event {
+
+    @Label("Service")
+    String service;
+
+    @Label("Method")
+    String method;
+
+    @Label("User Id")
+    @Description("Identifier of the user the call is about, 0 if not known")
+    long userId;
+
+    @Label("Activity Type")
+    String activityType;
+
+    @Label("Result Count")
+    @Description("Number of returned elements, -1 if the method does not return any")
+    int resultCount;
+
+    @Label("Failed")
+    boolean failed;
+}
@@ -0,0 +1,94 @@
+package com.capgemini.wsb.fitnesstracker.jfr.internal;
+
+import com.capgemini.wsb.fitnesstracker.training.api.CreateTrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
+import com.capgemini.wsb.fitnesstracker.user.api.UserDto;
+import jakarta.annotation.Nullable;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Emits a {@link ServiceCallEvent} around every call of the advised service. The arguments and the result are only
+ * inspected when the event is going to be committed, so with the event disabled the call costs an allocation which the
+ * JIT removes.
+ */
+final class ServiceCallInterceptor implements MethodInterceptor {
+
+    private final String service;
+    private final boolean userService;
+
+    /**
+     * @param service     name of the service, e.g. {@code TrainingService}
+     * @param userService whether plain {@code id} parameters of the service are user identifiers
+     */
+    ServiceCallInterceptor(String service, boolean userService) {
+        this.service = service;
+        this.userService = userService;
+    }
+
+    @Override
+    @Nullable
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        ServiceCallEvent event = new ServiceCallEvent();
+        if (!event.isEnabled()) {
+            return invocation.proceed();
+        }
+        event.begin();
+        Object result = null;
+        boolean failed = true;
+        try {
+            result = invocation.proceed();
+            failed = false;
+            return result;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.service = service;
+                event.method = invocation.getMethod().getName();
+                describeArguments(event, invocation.getMethod(), invocation.getArguments());
+                event.resultCount = countOf(result, invocation.getMethod());
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+
+    private void describeArguments(ServiceCallEvent event, Method method, Object[] arguments) {
+        Parameter[] parameters = method.getParameters();
+        for (int i = 0; i < arguments.length; i++) {
+            Object argument = arguments[i];
+            if (argument instanceof ActivityType activityType) {
+                event.activityType = activityType.name();
+            } else if (argument instanceof CreateTrainingDto training) {
+                event.userId = training.userId() != null ? training.userId() : 0;
+                event.activityType = training.activityType() != null ? training.activityType().name() : null;
+            } else if (argument instanceof UserDto user && user.id() != null) {
+                event.userId = user.id();
+            } else if (argument instanceof Long id && isUserId(parameters[i].getName())) {
+                event.userId = id;
+            }
+        }
+    }
+
+    private boolean isUserId(String parameterName) {
+        return parameterName.equals("userId") || userService && parameterName.equals("id");
+    }
+
+    private static int countOf(@Nullable Object result, Method method) {
+        if (method.getReturnType() == void.class || method.getReturnType() == boolean.class) {
+            return -1;
+        }
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        return result == null ? 0 : 1;
+    }
+}
@@ -0,0 +1,38 @@
+package com.capgemini.wsb.fitnesstracker.jobs.api;
+
+import java.time.Duration;
+
+/**
+ * API interface for running scheduled jobs once across all application instances sharing the database, instead of once
+ * on every instance.
+ * <p>
+ * Exclusive jobs are guarded by a lease row per job: the instance taking the lease runs the job, the others skip it.
+ * Partitioned jobs ({@link PartitionedJob}) are split into user id ranges which every idle instance claims and processes,
+ * so their throughput grows with the number of instances. Leases expire, so the work of a crashed instance is taken over
+ * by the others. Expiry relies on the clocks of the instances being synchronized.
+ */
+public interface ClusterJobs {
+
+    /**
+     * Runs the work unless another instance holds the lease of the job. The lease is held for at least {@code minLease}
+     * so the instances triggering the same schedule a little later, because of clock skew, skip it too; it is held at
+     * most {@code maxLease} if the instance dies while running the work.
+     *
+     * @param job      name of the job, unique in the cluster
+     * @param minLease minimal time between two runs of the job
+     * @param maxLease time after which the lease of a crashed instance is taken over, longer than any run of the job
+     * @param work     the job
+     * @return whether the work was run by this call
+     */
+    boolean runExclusively(String job, Duration minLease, Duration maxLease, Runnable work);
+
+    /**
+     * Starts a run of the partitioned job: the user id range of all users is split into partitions, which are then
+     * processed by the instances. Nothing is started while a previous run of the job still has unfinished partitions.
+     *
+     * @param job name of the {@link PartitionedJob}
+     * @return whether a run was started by this call
+     */
+    boolean schedulePartitioned(String job);
+
+}
@@ -0,0 +1,25 @@
+package com.capgemini.wsb.fitnesstracker.jobs.api;
+
+/**
+ * Job processing the users in independent id ranges, started by {@link ClusterJobs#schedulePartitioned(String)}. Every
+ * bean implementing this interface processes the partitions of its job claimed by the instance.
+ * <p>
+ * A partition is processed again if the instance processing it crashed or the processing failed, so processing has to
+ * be idempotent.
+ */
+public interface PartitionedJob {
+
+    /**
+     * @return name of the job, unique in the cluster
+     */
+    String name();
+
+    /**
+     * Processes the users with an id in the given range.
+     *
+     * @param fromUserId lower bound of the user id, inclusive
+     * @param toUserId   upper bound of the user id, exclusive
+     */
+    void processPartition(long fromUserId, long toUserId);
+
+}
@@ -0,0 +1,114 @@
+package com.capgemini.wsb.fitnesstracker.jobs.internal;
+
+import com.capgemini.wsb.fitnesstracker.jobs.api.ClusterJobs;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * {@link ClusterJobs} over the {@code job_leases} ({@link JobLease}) and {@code job_partitions} ({@link JobPartition})
+ * tables. A lease is taken by a conditional update of an expired lease row, or by inserting the row of a job run for the
+ * first time; the primary key lets only one of the racing instances win.
+ */
+@Component
+@Slf4j
+class ClusterJobsImpl implements ClusterJobs {
+
+    private static final String PLAN_LEASE_PREFIX = "plan:";
+    private static final Duration PLAN_MAX_LEASE = Duration.ofMinutes(5);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ClusterJobsProperties properties;
+
+    ClusterJobsImpl(JdbcTemplate jdbcTemplate, ClusterJobsProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+    }
+
+    @Override
+    public boolean runExclusively(String job, Duration minLease, Duration maxLease, Runnable work) {
+        Instant lockedAt = Instant.now();
+        String token = UUID.randomUUID().toString();
+        if (!acquire(job, token, lockedAt, lockedAt.plus(maxLease))) {
+            log.debug("Skipping job {}, its lease is held by another instance", job);
+            return false;
+        }
+        try {
+            work.run();
+        } finally {
+            release(job, token, lockedAt.plus(minLease));
+        }
+        return true;
+    }
+
+    @Override
+    public boolean schedulePartitioned(String job) {
+        boolean[] started = {false};
+        runExclusively(PLAN_LEASE_PREFIX + job, properties.getMinRunInterval(), PLAN_MAX_LEASE,
+                       () -> started[0] = plan(job));
+        return started[0];
+    }
+
+    private boolean plan(String job) {
+        Integer unfinished = jdbcTemplate.queryForObject(
+                "select count(*) from job_partitions where job = ? and status in ('PENDING', 'RUNNING')", Integer.class, job);
+        if (unfinished != null && unfinished > 0) {
+            log.info("Not starting job {}, {} partitions of its previous run are unfinished", job, unfinished);
+            return false;
+        }
+        List<long[]> ranges = jdbcTemplate.query("select min(id), max(id) from users", (resultSet, rowNumber) -> {
+            long min = resultSet.getLong(1);
+            return resultSet.wasNull() ? null : new long[]{min, resultSet.getLong(2)};
+        });
+        if (ranges.isEmpty() || ranges.get(0) == null) {
+            log.info("Not starting job {}, there are no users", job);
+            return false;
+        }
+        long min = ranges.get(0)[0];
+        long max = ranges.get(0)[1];
+        String runId = UUID.randomUUID().toString();
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> partitions = new ArrayList<>();
+        for (long from = min; from <= max; from += properties.getPartitionSize()) {
+            partitions.add(new Object[]{job, runId, from, Math.min(from + properties.getPartitionSize(), max + 1), now});
+        }
+        jdbcTemplate.batchUpdate("""
+                                         insert into job_partitions (job, run_id, range_from, range_to, status, attempts, created_at)
+                                         values (?, ?, ?, ?, 'PENDING', 0, ?)""", partitions);
+        log.info("Started run {} of job {} with {} partitions of user ids {} to {}", runId, job, partitions.size(), min, max);
+        return true;
+    }
+
+    private boolean acquire(String job, String token, Instant now, Instant until) {
+        int updated = jdbcTemplate.update("""
+                                                  update job_leases
+                                                     set owner = ?, lock_token = ?, locked_at = ?, locked_until = ?
+                                                   where name = ? and locked_until <= ?""",
+                                          properties.getNodeId(), token, Timestamp.from(now), Timestamp.from(until),
+                                          job, Timestamp.from(now));
+        if (updated == 1) {
+            return true;
+        }
+        try {
+            jdbcTemplate.update("insert into job_leases (name, owner, lock_token, locked_at, locked_until) values (?, ?, ?, ?, ?)",
+                                job, properties.getNodeId(), token, Timestamp.from(now), Timestamp.from(until));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    private void release(String job, String token, Instant minUntil) {
+        Instant now = Instant.now();
+        jdbcTemplate.update("update job_leases set locked_until = ? where name = ? and lock_token = ?",
+                            Timestamp.from(now.isAfter(minUntil) ? now : minUntil), job, token);
+    }
+}
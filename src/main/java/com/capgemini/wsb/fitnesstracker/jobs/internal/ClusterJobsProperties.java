@@ -0,0 +1,60 @@
+package com.capgemini.wsb.fitnesstracker.jobs.internal;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Configuration of the cluster-wide scheduled jobs ({@link ClusterJobsImpl}, {@link PartitionWorker}). The claim and
+ * purge delays of the worker are configured in milliseconds as {@code jobs.claim-delay} and {@code jobs.purge-delay}.
+ */
+@ConfigurationProperties(prefix = "jobs")
+@Getter
+@Setter
+class ClusterJobsProperties {
+
+    /**
+     * Whether this instance should process partitions of the partitioned jobs.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Identifier of this instance, unique among the instances sharing the database. Random by default.
+     */
+    private String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * Number of user ids in a single partition.
+     */
+    private long partitionSize = 10_000;
+
+    /**
+     * Time after which a partition claimed by a crashed instance is claimed again. Has to be longer than the processing of
+     * any partition.
+     */
+    private Duration partitionLease = Duration.ofMinutes(10);
+
+    /**
+     * Number of attempts after which a failing partition is given up.
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * Number of partitions processed in parallel by this instance.
+     */
+    private int workerThreads = 2;
+
+    /**
+     * Minimal time between two runs of a partitioned job, covering the clock skew of the instances triggering it.
+     */
+    private Duration minRunInterval = Duration.ofMinutes(1);
+
+    /**
+     * Time after which finished partitions are deleted.
+     */
+    private Duration retention = Duration.ofDays(7);
+
+}
@@ -0,0 +1,41 @@
+package com.capgemini.wsb.fitnesstracker.jobs.internal;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.Instant;
+
+/**
+ * Lease of an exclusive job ({@link ClusterJobsImpl#runExclusively}). The lease is free once {@code lockedUntil} passed;
+ * the token identifies a single acquisition, so an instance never releases a lease taken over by another one.
+ */
+@Entity
+@Table(name = "job_leases")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+class JobLease {
+
+    @Id
+    @Column(name = "name", length = 128)
+    private String name;
+
+    @Column(name = "owner", nullable = false, length = 64)
+    private String owner;
+
+    @Column(name = "lock_token", nullable = false, length = 36)
+    private String lockToken;
+
+    @Column(name = "locked_at", nullable = false)
+    private Instant lockedAt;
+
+    @Column(name = "locked_until", nullable = false)
+    private Instant lockedUntil;
+
+}
@@ -0,0 +1,75 @@
+package com.capgemini.wsb.fitnesstracker.jobs.internal;
+
+import jakarta.annotation.Nullable;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.Instant;
+
+/**
+ * User id range of a run of a partitioned job. Partitions are claimed by a conditional update of the status, owner and
+ * lease; the number of attempts doubles as the version of the claim.
+ */
+@Entity
+@Table(name = "job_partitions", indexes = @Index(name = "idx_job_partitions_job_status", columnList = "job, status"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+class JobPartition {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job", nullable = false, length = 128)
+    private String job;
+
+    @Column(name = "run_id", nullable = false, length = 36)
+    private String runId;
+
+    @Column(name = "range_from", nullable = false)
+    private long rangeFrom;
+
+    @Column(name = "range_to", nullable = false)
+    private long rangeTo;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private Status status;
+
+    @Nullable
+    @Column(name = "owner", length = 64)
+    private String owner;
+
+    @Nullable
+    @Column(name = "lease_until")
+    private Instant leaseUntil;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Nullable
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    enum Status {
+        PENDING,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+}
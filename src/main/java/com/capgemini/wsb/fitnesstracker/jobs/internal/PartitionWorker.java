@@ -0,0 +1,211 @@
+package com.capgemini.wsb.fitnesstracker.jobs.internal;
+
+import com.capgemini.wsb.fitnesstracker.jobs.api.ClusterJobs;
+import com.capgemini.wsb.fitnesstracker.jobs.api.PartitionedJob;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Processes the partitions of the {@link PartitionedJob}s known to this instance.
+ * <p>
+ * Every {@code jobs.claim-delay} milliseconds the worker claims pending partitions, or partitions whose lease expired
+ * because their instance crashed, until all its {@link ClusterJobsProperties#getWorkerThreads()} threads are busy. A claim
+ * is a conditional update of the partition expecting the number of attempts read before, so of the instances racing for
+ * a partition exactly one wins. Finished partitions are marked done; failed ones are released for another attempt, up to
+ * {@link ClusterJobsProperties#getMaxAttempts()}.
+ * <p>
+ * Processed partitions are counted as {@code jobs.partitions}, tagged with the job and the outcome.
+ */
+@Component
+@ConditionalOnProperty(prefix = "jobs", name = "enabled", havingValue = "true")
+@Slf4j
+class PartitionWorker implements DisposableBean {
+
+    private static final int CLAIM_CANDIDATES = 16;
+    private static final String PURGE_JOB = "jobs-purge";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ClusterJobs clusterJobs;
+    private final Map<String, PartitionedJob> jobs;
+    private final ClusterJobsProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor;
+    private final Semaphore idleThreads;
+
+    PartitionWorker(JdbcTemplate jdbcTemplate,
+                    ClusterJobs clusterJobs,
+                    List<PartitionedJob> jobs,
+                    ClusterJobsProperties properties,
+                    MeterRegistry meterRegistry) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.clusterJobs = clusterJobs;
+        this.jobs = jobs.stream().collect(Collectors.toMap(PartitionedJob::name, Function.identity()));
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(properties.getWorkerThreads(), task -> {
+            Thread thread = new Thread(task, "job-partition-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.idleThreads = new Semaphore(properties.getWorkerThreads());
+    }
+
+    @Scheduled(fixedDelayString = "${jobs.claim-delay:1000}")
+    public void claimPartitions() {
+        if (jobs.isEmpty()) {
+            return;
+        }
+        while (idleThreads.tryAcquire()) {
+            Optional<ClaimedPartition> partition;
+            try {
+                partition = claim();
+            } catch (DataAccessException e) {
+                idleThreads.release();
+                log.warn("Could not claim job partitions", e);
+                return;
+            }
+            if (partition.isEmpty()) {
+                idleThreads.release();
+                return;
+            }
+            executor.execute(() -> {
+                try {
+                    process(partition.get());
+                } finally {
+                    idleThreads.release();
+                }
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jobs.purge-delay:3600000}")
+    public void purge() {
+        clusterJobs.runExclusively(PURGE_JOB, Duration.ofMinutes(1), Duration.ofMinutes(10), () -> {
+            int purged = jdbcTemplate.update("""
+                                                     delete from job_partitions
+                                                      where status in ('DONE', 'FAILED') and finished_at < :before""",
+                                             new MapSqlParameterSource("before", Timestamp.from(Instant.now().minus(properties.getRetention()))));
+            log.debug("Purged {} finished job partitions", purged);
+        });
+    }
+
+    private Optional<ClaimedPartition> claim() {
+        Timestamp now = Timestamp.from(Instant.now());
+        List<ClaimedPartition> candidates = jdbcTemplate.query("""
+                                                                       select id, job, range_from, range_to, attempts
+                                                                         from job_partitions
+                                                                        where job in (:jobs)
+                                                                          and (status = 'PENDING' or (status = 'RUNNING' and lease_until < :now))
+                                                                        order by id
+                                                                        fetch first :limit rows only""",
+                                                               new MapSqlParameterSource("jobs", jobs.keySet())
+                                                                       .addValue("now", now)
+                                                                       .addValue("limit", CLAIM_CANDIDATES),
+                                                               (resultSet, rowNumber) -> new ClaimedPartition(resultSet.getLong(1),
+                                                                                                              resultSet.getString(2),
+                                                                                                              resultSet.getLong(3),
+                                                                                                              resultSet.getLong(4),
+                                                                                                              resultSet.getInt(5)));
+        for (ClaimedPartition candidate : candidates) {
+            MapSqlParameterSource parameters = new MapSqlParameterSource("id", candidate.id())
+                    .addValue("attempts", candidate.attempts())
+                    .addValue("owner", properties.getNodeId())
+                    .addValue("now", now);
+            if (candidate.attempts() >= properties.getMaxAttempts()) {
+                if (jdbcTemplate.update("""
+                                                update job_partitions
+                                                   set status = 'FAILED', owner = null, lease_until = null, finished_at = :now
+                                                 where id = :id and attempts = :attempts""", parameters) == 1) {
+                    log.warn("Gave up partition {} of job {} after {} attempts", candidate.id(), candidate.job(), candidate.attempts());
+                    count(candidate.job(), "failed");
+                }
+                continue;
+            }
+            int claimed = jdbcTemplate.update("""
+                                                      update job_partitions
+                                                         set status = 'RUNNING', owner = :owner, lease_until = :leaseUntil, attempts = attempts + 1
+                                                       where id = :id
+                                                         and attempts = :attempts
+                                                         and (status = 'PENDING' or (status = 'RUNNING' and lease_until < :now))""",
+                                              parameters.addValue("leaseUntil", Timestamp.from(now.toInstant().plus(properties.getPartitionLease()))));
+            if (claimed == 1) {
+                return Optional.of(candidate.claimed());
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void process(ClaimedPartition partition) {
+        long start = System.nanoTime();
+        MapSqlParameterSource parameters = new MapSqlParameterSource("id", partition.id())
+                .addValue("attempts", partition.attempts())
+                .addValue("owner", properties.getNodeId());
+        try {
+            jobs.get(partition.job()).processPartition(partition.rangeFrom(), partition.rangeTo());
+        } catch (RuntimeException e) {
+            log.warn("Partition {} of job {} (user ids {} to {}) failed in attempt {}",
+                     partition.id(), partition.job(), partition.rangeFrom(), partition.rangeTo(), partition.attempts(), e);
+            jdbcTemplate.update("""
+                                        update job_partitions
+                                           set status = 'PENDING', owner = null, lease_until = null
+                                         where id = :id and attempts = :attempts and owner = :owner""", parameters);
+            count(partition.job(), "retried");
+            return;
+        }
+        int finished = jdbcTemplate.update("""
+                                                   update job_partitions
+                                                      set status = 'DONE', owner = null, lease_until = null, finished_at = :now
+                                                    where id = :id and attempts = :attempts and owner = :owner""",
+                                           parameters.addValue("now", Timestamp.from(Instant.now())));
+        if (finished == 0) {
+            log.warn("Partition {} of job {} was taken over by another instance before it finished", partition.id(), partition.job());
+        }
+        log.debug("Processed partition {} of job {} (user ids {} to {}) in {} ms", partition.id(), partition.job(),
+                  partition.rangeFrom(), partition.rangeTo(), (System.nanoTime() - start) / 1_000_000);
+        count(partition.job(), "done");
+    }
+
+    private void count(String job, String outcome) {
+        Counter.builder("jobs.partitions")
+                .description("Processed partitions of the partitioned jobs")
+                .tag("job", job)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private record ClaimedPartition(long id, String job, long rangeFrom, long rangeTo, int attempts) {
+
+        private ClaimedPartition claimed() {
+            return new ClaimedPartition(id, job, rangeFrom, rangeTo, attempts + 1);
+        }
+    }
+}
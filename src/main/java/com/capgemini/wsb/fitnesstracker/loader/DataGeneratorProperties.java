@@ -0,0 +1,52 @@
+package com.capgemini.wsb.fitnesstracker.loader;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.LocalDate;
+
+/**
+ * Configuration of the {@link SyntheticDataGenerator}.
+ */
+@ConfigurationProperties(prefix = "data.generator")
+@Getter
+@Setter
+public class DataGeneratorProperties {
+
+    /**
+     * Number of generated users.
+     */
+    private int users = 10;
+
+    /**
+     * Number of generated trainings.
+     */
+    private long trainings = 100;
+
+    /**
+     * Seed of the generator. The same seed (and the same {@link #until} date) always produces the same data set.
+     */
+    private long seed = 42;
+
+    /**
+     * Trainings are spread over this many days before {@link #until}.
+     */
+    private int days = 730;
+
+    /**
+     * Last day of the generated trainings, today if not set.
+     */
+    private LocalDate until;
+
+    /**
+     * Number of rows sent to the database in one JDBC batch.
+     */
+    private int batchSize = 1000;
+
+    /**
+     * Number of threads generating and inserting trainings.
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+}
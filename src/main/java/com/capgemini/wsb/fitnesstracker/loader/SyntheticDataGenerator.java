@@ -0,0 +1,270 @@
+package com.capgemini.wsb.fitnesstracker.loader;
+
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generator of realistic, production sized data sets of users and trainings.
+ * <p>
+ * The data is deterministic by seed: trainings are generated in fixed-size chunks and every chunk has its own random
+ * generator derived from the seed and the chunk number, so the result does not depend on the number of threads or the
+ * order in which chunks finish. Chunks are generated and inserted in parallel with JDBC batch inserts, bypassing JPA.
+ * <p>
+ * Distributions:
+ * <ul>
+ *     <li>users are 16 to 80 years old, normally distributed around 35,</li>
+ *     <li>a minority of users records most of the trainings (quadratic skew),</li>
+ *     <li>trainings start in the morning or in the evening, uniformly over {@link DataGeneratorProperties#getDays()},</li>
+ *     <li>activity types, durations and speeds follow typical amateur values per {@link ActivityType}.</li>
+ * </ul>
+ * Every training starts at a millisecond of its own ({@link #startTime}), so the skewed user assignment never produces
+ * two trainings of a user with the same start time and activity type, which the unique index would reject.
+ */
+@Slf4j
+public class SyntheticDataGenerator {
+
+    private static final int CHUNK_SIZE = 50_000;
+
+    private static final long MORNING_START = 6 * 3_600_000L;
+    private static final long MORNING_LENGTH = 3 * 3_600_000L;
+    private static final long EVENING_START = 17 * 3_600_000L;
+    private static final long EVENING_LENGTH = 4 * 3_600_000L;
+    private static final long SLOTS_PER_DAY = MORNING_LENGTH + EVENING_LENGTH;
+
+    /**
+     * Prime stride scattering consecutive trainings over the start time slots. It is coprime to the number of slots as
+     * long as there are fewer days than its value, which makes the mapping of trainings to slots a bijection.
+     */
+    private static final long SLOT_STRIDE = 7_368_787;
+
+    private static final String[] FIRST_NAMES = {
+            "Emma", "Ethan", "Olivia", "Daniel", "Sophia", "Liam", "Ava", "Noah", "Grace", "Oliver",
+            "Anna", "Jakub", "Zofia", "Jan", "Maja", "Antoni", "Julia", "Filip", "Lena", "Szymon",
+            "Mia", "Lucas", "Amelia", "Leo", "Chloe", "Mason", "Ella", "Logan", "Nina", "Adam"};
+
+    private static final String[] LAST_NAMES = {
+            "Johnson", "Taylor", "Davis", "Thomas", "Baker", "Jones", "Williams", "Miller", "Anderson", "Swift",
+            "Nowak", "Kowalski", "Wisniewski", "Wojcik", "Kowalczyk", "Kaminski", "Lewandowski", "Zielinski", "Smith", "Brown",
+            "Wilson", "Moore", "Clark", "Lewis", "Walker", "Hall", "Young", "King", "Wright", "Scott"};
+
+    /**
+     * Cumulative probabilities of activity types, in {@link ActivityType} order.
+     */
+    private static final double[] ACTIVITY_DISTRIBUTION = {0.35, 0.60, 0.85, 0.95, 1.0};
+    private static final ActivityType[] ACTIVITY_TYPES = ActivityType.values();
+
+    /**
+     * Mean speed (km/h), speed deviation, minimal and maximal duration (minutes), in {@link ActivityType} order.
+     */
+    private static final double[][] ACTIVITY_PROFILES = {
+            {10.0, 1.5, 20, 90},
+            {22.0, 4.0, 30, 180},
+            {5.0, 0.6, 20, 120},
+            {2.5, 0.5, 20, 60},
+            {4.0, 1.0, 45, 120}};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataGeneratorProperties properties;
+
+    public SyntheticDataGenerator(JdbcTemplate jdbcTemplate, DataGeneratorProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+    }
+
+    /**
+     * Generates and inserts the configured number of users and trainings.
+     */
+    public void generate() {
+        long start = System.nanoTime();
+        long[] userIds = insertUsers();
+        long usersInserted = System.nanoTime();
+        insertTrainings(userIds);
+        log.info("Generated {} users in {} ms and {} trainings in {} ms (seed {})",
+                 userIds.length, (usersInserted - start) / 1_000_000,
+                 properties.getTrainings(), (System.nanoTime() - usersInserted) / 1_000_000,
+                 properties.getSeed());
+    }
+
+    private long[] insertUsers() {
+        Long maxIdBefore = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from users", Long.class);
+        SplittableRandom random = new SplittableRandom(properties.getSeed());
+        LocalDate until = until();
+        int count = properties.getUsers();
+        for (int from = 0; from < count; from += properties.getBatchSize()) {
+            int batchStart = from;
+            int batchSize = Math.min(properties.getBatchSize(), count - from);
+            String[][] names = new String[batchSize][];
+            LocalDate[] birthdates = new LocalDate[batchSize];
+            for (int i = 0; i < batchSize; i++) {
+                names[i] = new String[]{pick(random, FIRST_NAMES), pick(random, LAST_NAMES)};
+                int age = (int) Math.round(Math.max(16, Math.min(80, 35 + gaussian(random) * 12)));
+                birthdates[i] = until.minusYears(age).minusDays(random.nextInt(365));
+            }
+            jdbcTemplate.batchUpdate("insert into users (first_name, last_name, birthdate, email) values (?, ?, ?, ?)",
+                                     new BatchPreparedStatementSetter() {
+
+                                         @Override
+                                         public void setValues(PreparedStatement statement, int i) throws SQLException {
+                                             statement.setString(1, names[i][0]);
+                                             statement.setString(2, names[i][1]);
+                                             statement.setDate(3, Date.valueOf(birthdates[i]));
+                                             statement.setString(4, "%s.%s.%d@domain.com".formatted(
+                                                     names[i][0], names[i][1], batchStart + i).toLowerCase(Locale.ROOT));
+                                         }
+
+                                         @Override
+                                         public int getBatchSize() {
+                                             return batchSize;
+                                         }
+                                     });
+        }
+        return jdbcTemplate.queryForList("select id from users where id > ? order by id", Long.class, maxIdBefore)
+                .stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+    private void insertTrainings(long[] userIds) {
+        if (userIds.length == 0 || properties.getTrainings() <= 0) {
+            return;
+        }
+        long trainings = properties.getTrainings();
+        long slots = Math.max(1, properties.getDays()) * SLOTS_PER_DAY;
+        if (properties.getDays() >= SLOT_STRIDE || trainings > slots) {
+            throw new IllegalArgumentException("Cannot generate %d trainings with distinct start times within %d days"
+                                                       .formatted(trainings, properties.getDays()));
+        }
+        int chunks = (int) ((trainings + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        List<Callable<Void>> tasks = new ArrayList<>(chunks);
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int chunkNumber = chunk;
+            int rows = (int) Math.min(CHUNK_SIZE, trainings - (long) chunk * CHUNK_SIZE);
+            tasks.add(() -> {
+                insertTrainingChunk(chunkNumber, rows, userIds);
+                return null;
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, properties.getThreads()));
+        try {
+            for (Future<Void> result : executor.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Training generation was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Training generation failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void insertTrainingChunk(int chunk, int rows, long[] userIds) {
+        SplittableRandom random = new SplittableRandom(properties.getSeed() * 0x9E3779B97F4A7C15L + chunk);
+        long firstDay = until().minusDays(properties.getDays()).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+        long[] users = new long[rows];
+        long[] startTimes = new long[rows];
+        long[] endTimes = new long[rows];
+        int[] activityTypes = new int[rows];
+        double[] distances = new double[rows];
+        double[] averageSpeeds = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            double skew = random.nextDouble();
+            users[i] = userIds[(int) (skew * skew * userIds.length)];
+
+            int activityType = activityType(random.nextDouble());
+            double[] profile = ACTIVITY_PROFILES[activityType];
+            long startTime = startTime(firstDay, (long) chunk * CHUNK_SIZE + i);
+            double minutes = profile[2] + random.nextDouble() * (profile[3] - profile[2]);
+            double speed = Math.max(0.5, profile[0] + gaussian(random) * profile[1]);
+
+            startTimes[i] = startTime;
+            endTimes[i] = startTime + (long) (minutes * 60_000);
+            activityTypes[i] = activityType;
+            averageSpeeds[i] = Math.round(speed * 10) / 10.0;
+            distances[i] = Math.round(speed * minutes / 60 * 100) / 100.0;
+        }
+
+        for (int from = 0; from < rows; from += properties.getBatchSize()) {
+            int batchStart = from;
+            int batchSize = Math.min(properties.getBatchSize(), rows - from);
+            jdbcTemplate.batchUpdate("""
+                                             insert into trainings (user_id, start_time, end_time, activity_type, distance, average_speed)
+                                             values (?, ?, ?, ?, ?, ?)""",
+                                     new BatchPreparedStatementSetter() {
+
+                                         @Override
+                                         public void setValues(PreparedStatement statement, int i) throws SQLException {
+                                             int row = batchStart + i;
+                                             statement.setLong(1, users[row]);
+                                             statement.setTimestamp(2, new Timestamp(startTimes[row]));
+                                             statement.setTimestamp(3, new Timestamp(endTimes[row]));
+                                             statement.setInt(4, activityTypes[row]);
+                                             statement.setDouble(5, distances[row]);
+                                             statement.setDouble(6, averageSpeeds[row]);
+                                         }
+
+                                         @Override
+                                         public int getBatchSize() {
+                                             return batchSize;
+                                         }
+                                     });
+        }
+    }
+
+    /**
+     * Start time of the n-th training: a slot of the morning or evening windows of all days, picked by a stride through
+     * the slots. Distinct trainings get distinct slots, which are spread evenly over the days.
+     */
+    private long startTime(long firstDay, long training) {
+        long slots = Math.max(1, properties.getDays()) * SLOTS_PER_DAY;
+        long slot = training * SLOT_STRIDE % slots;
+        long day = slot / SLOTS_PER_DAY;
+        long timeOfDay = slot % SLOTS_PER_DAY;
+        timeOfDay = timeOfDay < MORNING_LENGTH ? MORNING_START + timeOfDay : EVENING_START + timeOfDay - MORNING_LENGTH;
+        return firstDay + day * 86_400_000L + timeOfDay;
+    }
+
+    private LocalDate until() {
+        return properties.getUntil() != null ? properties.getUntil() : LocalDate.now();
+    }
+
+    private static int activityType(double probability) {
+        int activityType = 0;
+        while (activityType < ACTIVITY_TYPES.length - 1 && probability >= ACTIVITY_DISTRIBUTION[activityType]) {
+            activityType++;
+        }
+        return activityType;
+    }
+
+    /**
+     * Standard normal value by the Box-Muller transform; {@link SplittableRandom} has no Gaussian method on Java 17.
+     */
+    private static double gaussian(SplittableRandom random) {
+        double u = 1.0 - random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    private static String pick(SplittableRandom random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
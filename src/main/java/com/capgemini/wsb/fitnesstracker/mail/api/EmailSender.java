@@ -1,5 +1,7 @@
 package com.capgemini.wsb.fitnesstracker.mail.api;
 
+import java.util.List;
+
 /**
  * API interface for component responsible for sending emails.
  */
@@ -12,4 +14,13 @@ public interface EmailSender {
      */
     void send(EmailDto email);
 
+    /**
+     * Sends many email messages, reusing the connections to the mail server between them. Messages which fail are
+     * retried; a failed message does not stop the others.
+     *
+     * @param emails information on emails to be sent
+     * @return emails which could not be sent, in the order of {@code emails}
+     */
+    List<EmailDto> send(List<EmailDto> emails);
+
 }
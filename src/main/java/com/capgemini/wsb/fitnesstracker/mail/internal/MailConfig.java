@@ -1,10 +1,29 @@
 package com.capgemini.wsb.fitnesstracker.mail.internal;
 
+import com.capgemini.wsb.fitnesstracker.mail.api.EmailSender;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
 
 @Configuration
-@EnableConfigurationProperties(MailProperties.class)
+@EnableConfigurationProperties({MailProperties.class, SmtpPoolProperties.class})
 class MailConfig {
 
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.mail", name = "host")
+    SmtpConnectionPool smtpConnectionPool(JavaMailSenderImpl mailSender, SmtpPoolProperties properties,
+                                          MeterRegistry meterRegistry) {
+        return new SmtpConnectionPool(mailSender, properties, meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.mail", name = "host")
+    EmailSender emailSender(SmtpConnectionPool smtpConnectionPool, MailProperties mailProperties,
+                            SmtpPoolProperties properties, MeterRegistry meterRegistry) {
+        return new PooledSmtpEmailSender(smtpConnectionPool, mailProperties.getFrom(), properties, meterRegistry);
+    }
+
 }
@@ -0,0 +1,207 @@
+package com.capgemini.wsb.fitnesstracker.mail.internal;
+
+import com.capgemini.wsb.fitnesstracker.mail.api.EmailDto;
+import com.capgemini.wsb.fitnesstracker.mail.api.EmailSender;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nullable;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.mail.MailSendException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link EmailSender} sending over the connections of the {@link SmtpConnectionPool}.
+ * <p>
+ * A batch is shared by up to {@link SmtpPoolProperties#getMaxConnections()} workers. Every worker borrows one connection
+ * and keeps it while it takes the next messages of the batch, so each connection sends many messages in one SMTP session
+ * and the connections send in parallel.
+ * <p>
+ * A message whose recipients are rejected by the server is given up at once. Other failures (a dropped connection, a
+ * temporary server error, no free connection) are retried up to {@link SmtpPoolProperties#getMaxAttempts()} times in
+ * all, after {@link SmtpPoolProperties#getInitialBackoff()} doubled with every retry. Retries are counted as
+ * {@code mail.smtp.retries}.
+ */
+@Slf4j
+class PooledSmtpEmailSender implements EmailSender, DisposableBean {
+
+    private final SmtpConnectionPool pool;
+    @Nullable
+    private final String from;
+    private final SmtpPoolProperties properties;
+    private final ExecutorService executor;
+    private final Counter retries;
+
+    PooledSmtpEmailSender(SmtpConnectionPool pool, @Nullable String from, SmtpPoolProperties properties,
+                          MeterRegistry meterRegistry) {
+        this.pool = pool;
+        this.from = from;
+        this.properties = properties;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(pool.size(), runnable -> {
+            Thread thread = new Thread(runnable, "smtp-sender-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.retries = Counter.builder("mail.smtp.retries")
+                .description("Retried attempts to send a message over a pooled SMTP connection")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void send(EmailDto email) {
+        Worker worker = new Worker();
+        try {
+            Exception failure = worker.deliver(email);
+            if (failure != null) {
+                throw new MailSendException("Could not send the email \"%s\"".formatted(email.subject()), failure);
+            }
+        } finally {
+            worker.releaseConnection();
+        }
+    }
+
+    @Override
+    public List<EmailDto> send(List<EmailDto> emails) {
+        if (emails.isEmpty()) {
+            return List.of();
+        }
+        long start = System.nanoTime();
+        AtomicInteger next = new AtomicInteger();
+        boolean[] sent = new boolean[emails.size()];
+        int workers = Math.min(pool.size(), emails.size());
+        List<Future<?>> running = new ArrayList<>(workers - 1);
+        for (int i = 1; i < workers; i++) {
+            running.add(executor.submit(() -> new Worker().run(emails, next, sent)));
+        }
+        new Worker().run(emails, next, sent);
+        for (Future<?> worker : running) {
+            try {
+                worker.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running.forEach(other -> other.cancel(true));
+                break;
+            } catch (ExecutionException e) {
+                log.warn("Email sending worker failed", e.getCause());
+            }
+        }
+
+        List<EmailDto> failed = new ArrayList<>();
+        for (int i = 0; i < sent.length; i++) {
+            if (!sent[i]) {
+                failed.add(emails.get(i));
+            }
+        }
+        log.info("Sent {} of {} emails over {} connections in {} ms", emails.size() - failed.size(), emails.size(), workers,
+                 (System.nanoTime() - start) / 1_000_000);
+        return failed;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Whether the server rejected the recipients of the message, so that sending it again cannot succeed.
+     */
+    static boolean isRejected(Exception e) {
+        return e instanceof SendFailedException failed
+                && failed.getInvalidAddresses() != null
+                && failed.getInvalidAddresses().length > 0;
+    }
+
+    private MimeMessage message(EmailDto email) throws MessagingException {
+        MimeMessage message = new MimeMessage(pool.session());
+        if (from != null) {
+            message.setFrom(new InternetAddress(from, true));
+        } else {
+            message.setFrom();
+        }
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress(email.toAddress(), true));
+        message.setSubject(email.subject(), StandardCharsets.UTF_8.name());
+        message.setText(email.content(), StandardCharsets.UTF_8.name());
+        message.setSentDate(new Date());
+        message.saveChanges();
+        return message;
+    }
+
+    /**
+     * Sends messages over one borrowed connection, which it keeps until it is done.
+     */
+    private final class Worker {
+
+        @Nullable
+        private SmtpConnectionPool.Connection connection;
+
+        private void run(List<EmailDto> emails, AtomicInteger next, boolean[] sent) {
+            try {
+                for (int index = next.getAndIncrement(); index < emails.size(); index = next.getAndIncrement()) {
+                    sent[index] = deliver(emails.get(index)) == null;
+                }
+            } finally {
+                releaseConnection();
+            }
+        }
+
+        /**
+         * @return the last failure if the email could not be sent, {@code null} if it was sent
+         */
+        @Nullable
+        private Exception deliver(EmailDto email) {
+            MimeMessage message;
+            try {
+                message = message(email);
+            } catch (MessagingException | RuntimeException e) {
+                log.warn("Could not create the email \"{}\": {}", email.subject(), e.getMessage());
+                return e;
+            }
+            long backoff = properties.getInitialBackoff().toMillis();
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    if (connection == null) {
+                        connection = pool.borrow();
+                    }
+                    connection.send(message);
+                    return null;
+                } catch (MessagingException | RuntimeException e) {
+                    if (isRejected(e) || attempt >= properties.getMaxAttempts()) {
+                        log.warn("Could not send the email \"{}\" in {} attempts: {}", email.subject(), attempt, e.getMessage());
+                        return e;
+                    }
+                    log.debug("Retrying the email \"{}\" after attempt {} failed: {}", email.subject(), attempt, e.getMessage());
+                    retries.increment();
+                    try {
+                        Thread.sleep(backoff);
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                        return e;
+                    }
+                    backoff = Math.min(backoff * 2, properties.getMaxBackoff().toMillis());
+                }
+            }
+        }
+
+        private void releaseConnection() {
+            if (connection != null) {
+                pool.release(connection);
+                connection = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.capgemini.wsb.fitnesstracker.mail.internal;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Nullable;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of open SMTP connections, reused for many messages instead of connecting, greeting and authenticating
+ * once per message.
+ * <p>
+ * The pool has {@link SmtpPoolProperties#getMaxConnections()} slots. Free slots are kept in a deque and borrowed from its
+ * head, so the most recently used connections are reused first while the others become idle and are closed by
+ * {@link #closeIdle()} ({@code mail.pool.idle-check-delay}). A slot connects lazily before it sends, and reconnects when
+ * its connection failed or was closed by the server, or after {@link SmtpPoolProperties#getMaxMessagesPerConnection()}
+ * messages. A connection unused for {@link SmtpPoolProperties#getValidateAfter()} is checked with a {@code NOOP} first.
+ * <p>
+ * Sent and failed messages are counted per slot as {@code mail.smtp.messages} with the {@code connection} and
+ * {@code outcome} tags and timed as {@code mail.smtp.send}. Opened connections are counted as
+ * {@code mail.smtp.connections.opened}, borrowed slots are exported as {@code mail.smtp.connections.busy}.
+ */
+@Slf4j
+class SmtpConnectionPool implements AutoCloseable {
+
+    private final Session session;
+    private final String protocol;
+    @Nullable
+    private final String host;
+    private final int port;
+    @Nullable
+    private final String username;
+    @Nullable
+    private final String password;
+    private final SmtpPoolProperties properties;
+
+    private final Connection[] connections;
+    private final BlockingDeque<Connection> free = new LinkedBlockingDeque<>();
+    private final AtomicInteger busy = new AtomicInteger();
+    private final Counter opened;
+    private volatile boolean closed;
+
+    SmtpConnectionPool(JavaMailSenderImpl mailSender, SmtpPoolProperties properties, MeterRegistry meterRegistry) {
+        this.session = mailSender.getSession();
+        this.protocol = mailSender.getProtocol() != null ? mailSender.getProtocol() : JavaMailSenderImpl.DEFAULT_PROTOCOL;
+        this.host = mailSender.getHost();
+        this.port = mailSender.getPort();
+        this.username = mailSender.getUsername();
+        this.password = mailSender.getPassword();
+        this.properties = properties;
+        this.connections = new Connection[Math.max(1, properties.getMaxConnections())];
+        for (int slot = 0; slot < connections.length; slot++) {
+            connections[slot] = new Connection(slot, meterRegistry);
+            free.offerLast(connections[slot]);
+        }
+        this.opened = Counter.builder("mail.smtp.connections.opened")
+                .description("SMTP connections opened by the pool")
+                .register(meterRegistry);
+        Gauge.builder("mail.smtp.connections.busy", busy, AtomicInteger::get)
+                .description("SMTP connections borrowed from the pool")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return number of slots, i.e. the maximum number of connections
+     */
+    int size() {
+        return connections.length;
+    }
+
+    Session session() {
+        return session;
+    }
+
+    /**
+     * Borrows a slot, waiting up to {@link SmtpPoolProperties#getBorrowTimeout()} for a free one. The slot has to be
+     * {@link #release(Connection) released} afterwards.
+     *
+     * @throws MessagingException if no slot became free in time
+     */
+    Connection borrow() throws MessagingException {
+        if (closed) {
+            throw new MessagingException("SMTP connection pool is closed");
+        }
+        Connection connection;
+        try {
+            connection = free.pollFirst(properties.getBorrowTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for an SMTP connection", e);
+        }
+        if (connection == null) {
+            throw new MessagingException("No SMTP connection became free within " + properties.getBorrowTimeout());
+        }
+        busy.incrementAndGet();
+        return connection;
+    }
+
+    void release(Connection connection) {
+        busy.decrementAndGet();
+        if (closed) {
+            connection.close();
+        }
+        free.offerFirst(connection);
+    }
+
+    /**
+     * Closes the connections which have not been used for {@link SmtpPoolProperties#getIdleTimeout()}.
+     */
+    @Scheduled(fixedDelayString = "${mail.pool.idle-check-delay:30000}")
+    void closeIdle() {
+        List<Connection> idle = new ArrayList<>(connections.length);
+        free.drainTo(idle);
+        long now = System.nanoTime();
+        for (Connection connection : idle) {
+            if (connection.isIdle(now)) {
+                connection.close();
+            }
+            free.offerLast(connection);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        List<Connection> idle = new ArrayList<>(connections.length);
+        free.drainTo(idle);
+        for (Connection connection : idle) {
+            connection.close();
+            free.offerLast(connection);
+        }
+    }
+
+    /**
+     * Slot of the pool holding at most one open SMTP connection. Used by one thread at a time, between
+     * {@link #borrow()} and {@link #release(Connection)}.
+     */
+    final class Connection {
+
+        private final String slot;
+        private final Counter sent;
+        private final Counter failed;
+        private final Timer sendTime;
+
+        @Nullable
+        private Transport transport;
+        private long lastUsed;
+        private int messages;
+        private boolean broken;
+
+        private Connection(int slot, MeterRegistry meterRegistry) {
+            this.slot = String.valueOf(slot);
+            this.sent = messageCounter("sent", meterRegistry);
+            this.failed = messageCounter("failed", meterRegistry);
+            this.sendTime = Timer.builder("mail.smtp.send")
+                    .description("Time of sending one message over a pooled SMTP connection")
+                    .tag("connection", this.slot)
+                    .register(meterRegistry);
+        }
+
+        /**
+         * Sends the message to its recipients, connecting first if needed. After a failure other than rejected
+         * recipients the connection is closed and the next message is sent over a new one.
+         */
+        void send(MimeMessage message) throws MessagingException {
+            long start = System.nanoTime();
+            try {
+                Transport connected = connect(start);
+                connected.sendMessage(message, message.getAllRecipients());
+                messages++;
+                sent.increment();
+            } catch (MessagingException | RuntimeException e) {
+                failed.increment();
+                broken = !PooledSmtpEmailSender.isRejected(e);
+                throw e;
+            } finally {
+                lastUsed = System.nanoTime();
+                sendTime.record(lastUsed - start, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private Transport connect(long now) throws MessagingException {
+            if (transport != null && (broken
+                    || messages >= properties.getMaxMessagesPerConnection()
+                    || isIdle(now)
+                    || now - lastUsed > properties.getValidateAfter().toNanos() && !transport.isConnected())) {
+                close();
+            }
+            if (transport == null) {
+                Transport connecting = session.getTransport(protocol);
+                connecting.connect(host, port, username, password);
+                transport = connecting;
+                messages = 0;
+                broken = false;
+                opened.increment();
+            }
+            return transport;
+        }
+
+        private boolean isIdle(long now) {
+            return transport != null && now - lastUsed > properties.getIdleTimeout().toNanos();
+        }
+
+        private void close() {
+            if (transport == null) {
+                return;
+            }
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                log.debug("Could not close SMTP connection {}", slot, e);
+            }
+            transport = null;
+        }
+
+        private Counter messageCounter(String outcome, MeterRegistry meterRegistry) {
+            return Counter.builder("mail.smtp.messages")
+                    .description("Messages sent over pooled SMTP connections")
+                    .tag("connection", slot)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+    }
+}
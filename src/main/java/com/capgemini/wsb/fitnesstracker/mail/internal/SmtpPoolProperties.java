@@ -0,0 +1,58 @@
+package com.capgemini.wsb.fitnesstracker.mail.internal;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the pooled SMTP delivery ({@link SmtpConnectionPool}, {@link PooledSmtpEmailSender}). The delay of the
+ * closing of idle connections is configured in milliseconds as {@code mail.pool.idle-check-delay}.
+ */
+@ConfigurationProperties(prefix = "mail.pool")
+@Getter
+@Setter
+class SmtpPoolProperties {
+
+    /**
+     * Maximum number of open SMTP connections, which is also the maximum number of messages sent at the same time.
+     */
+    private int maxConnections = 8;
+
+    /**
+     * Maximum time to wait for a free connection when all of them are in use.
+     */
+    private Duration borrowTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Time after which an unused connection is closed.
+     */
+    private Duration idleTimeout = Duration.ofSeconds(60);
+
+    /**
+     * Time of inactivity after which a connection is checked with a {@code NOOP} command before it is used again.
+     */
+    private Duration validateAfter = Duration.ofSeconds(5);
+
+    /**
+     * Number of messages after which a connection is closed and reopened; servers limit the messages per session.
+     */
+    private int maxMessagesPerConnection = 500;
+
+    /**
+     * Number of attempts to send a message before it is given up, the first attempt included.
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * Delay before the first retry of a message, doubled with every further retry.
+     */
+    private Duration initialBackoff = Duration.ofMillis(200);
+
+    /**
+     * Maximum delay between the retries of a message.
+     */
+    private Duration maxBackoff = Duration.ofSeconds(5);
+
+}
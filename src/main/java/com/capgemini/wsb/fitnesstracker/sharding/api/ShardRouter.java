@@ -0,0 +1,68 @@
+package com.capgemini.wsb.fitnesstracker.sharding.api;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * API interface for routing the work on sharded tables (trainings) to the database shards.
+ * <p>
+ * Rows are placed on the shard of their user ({@link #shardOf(long)}), so all trainings of a user live on one shard.
+ * Work routed by {@link #onShard(int, Supplier)} runs against the given shard: every connection obtained from the
+ * application data source, including the ones of the transactions started inside, belongs to that shard. A transaction
+ * is bound to a single shard, so the routing has to happen outside of it.
+ * <p>
+ * Without sharding there is a single shard {@code 0}, the application database, and the work runs unchanged.
+ */
+public interface ShardRouter {
+
+    /**
+     * @return number of shards, at least {@code 1}
+     */
+    int shardCount();
+
+    /**
+     * Shard holding the rows of the given user. The placement uses jump consistent hashing, so adding a shard moves only
+     * the rows of about {@code 1 / shardCount} of the users.
+     *
+     * @param userId identifier of the user
+     * @return shard number, from {@code 0} to {@code shardCount() - 1}
+     */
+    int shardOf(long userId);
+
+    /**
+     * Shard on which the row with the given generated id was inserted. Every shard generates ids from its own range, so
+     * this is where the row is, unless it was moved by resharding since.
+     *
+     * @param id generated identifier of a row of a sharded table
+     * @return shard number, from {@code 0} to {@code shardCount() - 1}
+     */
+    int shardOfId(long id);
+
+    /**
+     * Runs the work against the given shard.
+     *
+     * @throws IllegalStateException if called inside a transaction bound to another shard
+     */
+    <T> T onShard(int shard, Supplier<T> work);
+
+    /**
+     * Runs the work against the shard of the given user.
+     */
+    default <T> T onShardOf(long userId, Supplier<T> work) {
+        return onShard(shardOf(userId), work);
+    }
+
+    /**
+     * Runs the query against every shard in parallel and merges the results, which have to be sorted by the given order
+     * on every shard, into one sorted stream.
+     *
+     * @param query query of a single shard, receiving the shard number
+     * @param order order of the query results
+     * @return merged results
+     */
+    <T> Stream<T> fanOut(IntFunction<List<T>> query, Comparator<? super T> order);
+
+}
@@ -0,0 +1,68 @@
+package com.capgemini.wsb.fitnesstracker.sharding.internal;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazy merge of sorted sequences: a heap holds the head of every sequence, so every element costs {@code O(log k)} for
+ * {@code k} sequences and nothing is copied or sorted again.
+ */
+final class KWayMerge {
+
+    private KWayMerge() {
+    }
+
+    static <T> Stream<T> merge(List<? extends Iterator<? extends T>> sorted, Comparator<? super T> order) {
+        Iterator<T> merged = new MergingIterator<>(sorted, order);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED), false);
+    }
+
+    private static final class MergingIterator<T> implements Iterator<T> {
+
+        private final PriorityQueue<Head<T>> heads;
+
+        private MergingIterator(List<? extends Iterator<? extends T>> sorted, Comparator<? super T> order) {
+            Comparator<Head<T>> byValue = Comparator.comparing(Head::value, order);
+            this.heads = new PriorityQueue<>(Math.max(1, sorted.size()), byValue.thenComparingInt(Head::source));
+            for (int source = 0; source < sorted.size(); source++) {
+                advance(sorted.get(source), source);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            Head<T> head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            advance(head.rest(), head.source());
+            return head.value();
+        }
+
+        private void advance(Iterator<? extends T> sequence, int source) {
+            if (sequence.hasNext()) {
+                heads.add(new Head<>(sequence.next(), source, sequence));
+            }
+        }
+    }
+
+    /**
+     * Current element of a sequence; equal elements are taken from the sequences in their order, which keeps the merge
+     * stable.
+     */
+    private record Head<T>(T value, int source, Iterator<? extends T> rest) {
+
+    }
+}
@@ -0,0 +1,135 @@
+package com.capgemini.wsb.fitnesstracker.sharding.internal;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves the trainings which are not on the shard of their user, e.g. after shards were added or after sharding was
+ * enabled on an existing database. Every shard is scanned by keyset pagination; the misplaced rows of a batch are copied
+ * with their ids, idempotency keys and encoded samples to the target shards and deleted from the source afterwards. A
+ * copy first deletes the ids it writes, so an interrupted run can simply be repeated.
+ * <p>
+ * Trainings keep their ids, which stay unique because every shard generates ids from its own range. Reads racing with a
+ * move may see a training twice or not at all, so resharding should run while the application does not serve writes,
+ * e.g. with the {@code reshard} profile ({@link ReshardingRunner}).
+ */
+@Component
+@ConditionalOnProperty(prefix = "sharding", name = "enabled", havingValue = "true")
+@Slf4j
+class Resharder {
+
+    private static final String SELECT = """
+            select id, user_id, start_time, end_time, activity_type, distance, average_speed, idempotency_key
+              from trainings
+             where id > ?
+             order by id
+             fetch first ? rows only""";
+    private static final String INSERT = """
+            insert into trainings (id, user_id, start_time, end_time, activity_type, distance, average_speed, idempotency_key)
+            values (?, ?, ?, ?, ?, ?, ?, ?)""";
+    private static final String DELETE = "delete from trainings where id = ?";
+    private static final String SELECT_SAMPLES = "select training_id, sample_count, data from training_samples where training_id in (%s)";
+    private static final String INSERT_SAMPLES = "insert into training_samples (training_id, sample_count, data) values (?, ?, ?)";
+    private static final String DELETE_SAMPLES = "delete from training_samples where training_id = ?";
+
+    private final ShardDataSources shards;
+    private final ShardRouterImpl shardRouter;
+    private final ShardUserReplicator userReplicator;
+    private final int batchSize;
+
+    Resharder(ShardDataSources shards, ShardRouterImpl shardRouter, ShardUserReplicator userReplicator,
+              ShardingProperties properties) {
+        this.shards = shards;
+        this.shardRouter = shardRouter;
+        this.userReplicator = userReplicator;
+        this.batchSize = properties.getReshardBatchSize();
+    }
+
+    /**
+     * Moves every misplaced training to the shard of its user.
+     *
+     * @return number of moved trainings
+     */
+    public long reshard() {
+        long start = System.nanoTime();
+        userReplicator.replicateAll();
+        long scanned = 0;
+        long moved = 0;
+        for (int source = 0; source < shards.count(); source++) {
+            JdbcTemplate sourceTemplate = new JdbcTemplate(shards.get(source));
+            long lastId = 0;
+            List<Object[]> rows;
+            do {
+                rows = sourceTemplate.query(SELECT, (resultSet, rowNumber) -> new Object[]{
+                        resultSet.getLong(1),
+                        resultSet.getObject(2, Long.class),
+                        resultSet.getTimestamp(3),
+                        resultSet.getTimestamp(4),
+                        resultSet.getInt(5),
+                        resultSet.getDouble(6),
+                        resultSet.getDouble(7),
+                        resultSet.getString(8)}, lastId, batchSize);
+                moved += move(source, sourceTemplate, rows);
+                scanned += rows.size();
+                if (!rows.isEmpty()) {
+                    lastId = (Long) rows.get(rows.size() - 1)[0];
+                }
+            } while (rows.size() == batchSize);
+        }
+        log.info("Resharded {} of {} trainings over {} shards in {} ms",
+                 moved, scanned, shards.count(), (System.nanoTime() - start) / 1_000_000);
+        return moved;
+    }
+
+    private int move(int source, JdbcTemplate sourceTemplate, List<Object[]> rows) {
+        Map<Integer, List<Object[]>> misplaced = new HashMap<>();
+        for (Object[] row : rows) {
+            Long userId = (Long) row[1];
+            int target = userId != null ? shardRouter.shardOf(userId) : 0;
+            if (target != source) {
+                misplaced.computeIfAbsent(target, shard -> new ArrayList<>()).add(row);
+            }
+        }
+        List<Object[]> movedIds = new ArrayList<>();
+        misplaced.forEach((target, targetRows) -> {
+            List<Object[]> ids = targetRows.stream().map(row -> new Object[]{row[0]}).toList();
+            List<Object[]> samples = samples(sourceTemplate, ids);
+            JdbcTemplate targetTemplate = new JdbcTemplate(shards.get(target));
+            new TransactionTemplate(new DataSourceTransactionManager(shards.get(target))).executeWithoutResult(status -> {
+                targetTemplate.batchUpdate(DELETE_SAMPLES, ids);
+                targetTemplate.batchUpdate(DELETE, ids);
+                targetTemplate.batchUpdate(INSERT, targetRows);
+                targetTemplate.batchUpdate(INSERT_SAMPLES, samples);
+            });
+            movedIds.addAll(ids);
+        });
+        if (!movedIds.isEmpty()) {
+            new TransactionTemplate(new DataSourceTransactionManager(shards.get(source))).executeWithoutResult(status -> {
+                sourceTemplate.batchUpdate(DELETE_SAMPLES, movedIds);
+                sourceTemplate.batchUpdate(DELETE, movedIds);
+            });
+        }
+        return movedIds.size();
+    }
+
+    /**
+     * Reads the encoded samples of the trainings, which move together with their training.
+     */
+    private static List<Object[]> samples(JdbcTemplate sourceTemplate, List<Object[]> ids) {
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return sourceTemplate.query(SELECT_SAMPLES.formatted(placeholders), (resultSet, rowNumber) -> new Object[]{
+                resultSet.getLong(1),
+                resultSet.getInt(2),
+                resultSet.getBytes(3)}, ids.stream().map(id -> id[0]).toArray());
+    }
+}
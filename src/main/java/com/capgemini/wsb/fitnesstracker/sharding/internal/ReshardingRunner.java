@@ -0,0 +1,27 @@
+package com.capgemini.wsb.fitnesstracker.sharding.internal;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the {@link Resharder} when the application is started with the {@code reshard} profile, e.g. after a shard was
+ * added to {@code sharding.shards}.
+ */
+@Component
+@Profile("reshard")
+@RequiredArgsConstructor
+@Slf4j
+class ReshardingRunner {
+
+    private final Resharder resharder;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reshard() {
+        log.info("Resharding trainings");
+        resharder.reshard();
+    }
+}
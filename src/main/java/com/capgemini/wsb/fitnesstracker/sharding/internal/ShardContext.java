@@ -0,0 +1,28 @@
+package com.capgemini.wsb.fitnesstracker.sharding.internal;
+
+/**
+ * Shard the current thread works against, read by {@link ShardRoutingDataSource}.
+ */
+final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    /**
+     * @return shard of the current thread, {@code 0} if none was set
+     */
+    static int current() {
+        Integer shard = CURRENT.get();
+        return shard == null ? 0 : shard;
+    }
+
+    static void set(int shard) {
+        CURRENT.set(shard);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+}
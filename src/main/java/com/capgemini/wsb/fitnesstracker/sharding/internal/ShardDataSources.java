@@ -0,0 +1,64 @@
+package com.capgemini.wsb.fitnesstracker.sharding.internal;
+
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data sources of all shards by shard number. The further shards are pooled like the application data source; shard
+ * {@code 0} is the application data source itself, attached when it is created.
+ */
+@Slf4j
+class ShardDataSources implements Closeable {
+
+    private final List<DataSource> shards = new ArrayList<>();
+    @Nullable
+    private DataSource primary;
+
+    ShardDataSources(ShardingProperties properties) {
+        for (ShardingProperties.Shard shard : properties.getShards()) {
+            shards.add(DataSourceBuilder.create()
+                               .url(shard.getUrl())
+                               .username(shard.getUsername())
+                               .password(shard.getPassword())
+                               .build());
+        }
+    }
+
+    void attachPrimary(DataSource dataSource) {
+        this.primary = dataSource;
+    }
+
+    int count() {
+        return shards.size() + 1;
+    }
+
+    DataSource get(int shard) {
+        if (shard == 0) {
+            if (primary == null) {
+                throw new IllegalStateException("Application data source was not created yet");
+            }
+            return primary;
+        }
+        return shards.get(shard - 1);
+    }
+
+    @Override
+    public void close() {
+        for (DataSource shard : shards) {
+            if (shard instanceof Closeable closeable) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    log.warn("Could not close shard data source {}", shard, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.capgemini.wsb.fitnesstracker.sharding.internal;
+
+import com.capgemini.wsb.fitnesstracker.sharding.api.ShardRouter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * {@link ShardRouter} setting the {@link ShardContext} read by the {@link ShardRoutingDataSource}. Fan-out queries run on
+ * a fixed pool of threads and are merged by {@link KWayMerge}.
+ */
+class ShardRouterImpl implements ShardRouter, Closeable {
+
+    /**
+     * Number of low id bits available to a single shard: shard {@code n} generates ids from {@code n << ID_RANGE_BITS}.
+     */
+    static final int ID_RANGE_BITS = 40;
+
+    private final int shardCount;
+    private final ExecutorService fanOutExecutor;
+
+    ShardRouterImpl(int shardCount, int fanOutThreads) {
+        this.shardCount = shardCount;
+        AtomicInteger threads = new AtomicInteger();
+        this.fanOutExecutor = Executors.newFixedThreadPool(fanOutThreads > 0 ? fanOutThreads : shardCount, task -> {
+            Thread thread = new Thread(task, "shard-fan-out-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public int shardCount() {
+        return shardCount;
+    }
+
+    @Override
+    public int shardOf(long userId) {
+        return jumpConsistentHash(userId, shardCount);
+    }
+
+    @Override
+    public int shardOfId(long id) {
+        long shard = id >>> ID_RANGE_BITS;
+        return shard < shardCount ? (int) shard : 0;
+    }
+
+    @Override
+    public <T> T onShard(int shard, Supplier<T> work) {
+        if (shard < 0 || shard >= shardCount) {
+            throw new IllegalArgumentException("Shard %d does not exist, there are %d shards".formatted(shard, shardCount));
+        }
+        if (shardCount == 1) {
+            return work.get();
+        }
+        int previous = ShardContext.current();
+        if (previous != shard && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Cannot switch from shard %d to shard %d inside a transaction".formatted(previous, shard));
+        }
+        ShardContext.set(shard);
+        try {
+            return work.get();
+        } finally {
+            ShardContext.set(previous);
+        }
+    }
+
+    @Override
+    public <T> Stream<T> fanOut(IntFunction<List<T>> query, Comparator<? super T> order) {
+        if (shardCount == 1) {
+            return query.apply(0).stream();
+        }
+        List<Future<List<T>>> results = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int target = shard;
+            results.add(fanOutExecutor.submit(() -> onShard(target, () -> query.apply(target))));
+        }
+        List<Iterator<T>> sorted = new ArrayList<>(shardCount);
+        try {
+            for (Future<List<T>> result : results) {
+                sorted.add(result.get().iterator());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Fan-out query was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Fan-out query failed", e.getCause());
+        } finally {
+            results.forEach(result -> result.cancel(true));
+        }
+        return KWayMerge.merge(sorted, order);
+    }
+
+    @Override
+    public void close() {
+        fanOutExecutor.shutdownNow();
+    }
+
+    /**
+     * Jump consistent hash (Lamping, Veach): maps the key to one of the buckets such that growing the number of buckets
+     * from {@code n} to {@code n + 1} moves only {@code 1 / (n + 1)} of the keys, all of them to the new bucket.
+     */
+    static int jumpConsistentHash(long key, int buckets) {
+        long bucket = -1;
+        long next = 0;
+        while (next < buckets) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+}
@@ -0,0 +1,57 @@
+package com.capgemini.wsb.fitnesstracker.sharding.internal;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Application data source handing out connections of the shard set in the {@link ShardContext} of the calling thread,
+ * of shard {@code 0} by default. Unwrapping and closing are delegated to the application data source of shard
+ * {@code 0}, so its pool metrics and shutdown keep working.
+ */
+class ShardRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    private final ShardDataSources shards;
+
+    ShardRoutingDataSource(ShardDataSources shards) {
+        this.shards = shards;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return shards.get(ShardContext.current()).getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return shards.get(ShardContext.current()).getConnection(username, password);
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return primary().unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary().isWrapperFor(iface);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (primary() instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+
+    private DataSource primary() {
+        return shards.get(0);
+    }
+}
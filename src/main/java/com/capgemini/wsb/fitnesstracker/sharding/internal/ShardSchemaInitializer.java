@@ -0,0 +1,85 @@
+package com.capgemini.wsb.fitnesstracker.sharding.internal;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Creates the schema of the further shards from the entity model. Hibernate writes its create script while the entity
+ * manager factory is built, and the script is then run on every shard but {@code 0}, skipping the objects that already
+ * exist. The identity of the trainings of a shard is restarted after the last id of the shard id range (see
+ * {@link ShardRouterImpl#ID_RANGE_BITS}), so ids stay unique over all shards.
+ */
+@Component
+@ConditionalOnProperty(prefix = "sharding", name = "enabled", havingValue = "true")
+@Slf4j
+class ShardSchemaInitializer implements HibernatePropertiesCustomizer, SmartInitializingSingleton {
+
+    private final ShardDataSources shards;
+    private final boolean enabled;
+    private final Path script;
+
+    ShardSchemaInitializer(ShardDataSources shards, ShardingProperties properties) {
+        this.shards = shards;
+        this.enabled = properties.isInitializeSchema();
+        try {
+            this.script = Files.createTempFile("shard-schema", ".sql");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create the shard schema script", e);
+        }
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        if (!enabled) {
+            return;
+        }
+        // Hibernate ignores hbm2ddl.auto once a script action is set, so shard 0 keeps its schema through the database action
+        Object schemaAction = hibernateProperties.getOrDefault("hibernate.hbm2ddl.auto", "none");
+        hibernateProperties.putIfAbsent("jakarta.persistence.schema-generation.database.action", schemaAction);
+        hibernateProperties.put("jakarta.persistence.schema-generation.scripts.action", "create");
+        hibernateProperties.put("jakarta.persistence.schema-generation.scripts.create-target", script.toString());
+        hibernateProperties.put("hibernate.hbm2ddl.delimiter", ";");
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            deleteScript();
+            return;
+        }
+        try {
+            ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new FileSystemResource(script));
+            populator.setContinueOnError(true);
+            for (int shard = 1; shard < shards.count(); shard++) {
+                populator.execute(shards.get(shard));
+                JdbcTemplate jdbcTemplate = new JdbcTemplate(shards.get(shard));
+                long rangeStart = (long) shard << ShardRouterImpl.ID_RANGE_BITS;
+                Long maxId = jdbcTemplate.queryForObject("select max(id) from trainings where id > ?", Long.class, rangeStart);
+                jdbcTemplate.execute("alter table trainings alter column id restart with " + ((maxId != null ? maxId : rangeStart) + 1));
+                log.info("Initialized the schema of shard {}", shard);
+            }
+        } finally {
+            deleteScript();
+        }
+    }
+
+    private void deleteScript() {
+        try {
+            Files.deleteIfExists(script);
+        } catch (IOException e) {
+            log.warn("Could not delete the shard schema script {}", script, e);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.capgemini.wsb.fitnesstracker.sharding.internal;
+
+import com.capgemini.wsb.fitnesstracker.user.api.UserChangedEvent;
+import com.capgemini.wsb.fitnesstracker.user.api.UserDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a copy of the users table on every shard but {@code 0}, so the trainings of a shard keep their foreign key and
+ * can be joined with their users locally. Users are written through JPA on shard {@code 0} and copied on every
+ * {@link UserChangedEvent}; the whole table is copied when the application is ready.
+ * <p>
+ * Failed copies are logged and repaired by the next full copy, the trainings of a shard are never written for a user
+ * missing there because the user is copied before the event's transaction returns.
+ */
+@Component
+@ConditionalOnProperty(prefix = "sharding", name = "enabled", havingValue = "true")
+@Slf4j
+class ShardUserReplicator {
+
+    private static final int BATCH_SIZE = 1_000;
+
+    private static final String SELECT = """
+            select id, first_name, last_name, birthdate, email
+              from users
+             where id > ?
+             order by id
+             fetch first ? rows only""";
+    private static final String UPDATE = "update users set first_name = ?, last_name = ?, birthdate = ?, email = ? where id = ?";
+    private static final String INSERT = "insert into users (id, first_name, last_name, birthdate, email) values (?, ?, ?, ?, ?)";
+
+    private final ShardDataSources shards;
+
+    ShardUserReplicator(ShardDataSources shards) {
+        this.shards = shards;
+    }
+
+    /**
+     * Copies all users of shard {@code 0} to the other shards.
+     *
+     * @return number of copied users
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public long replicateAll() {
+        if (shards.count() == 1) {
+            return 0;
+        }
+        JdbcTemplate primary = new JdbcTemplate(shards.get(0));
+        long copied = 0;
+        long lastId = 0;
+        List<UserDto> users;
+        do {
+            users = primary.query(SELECT,
+                                  (resultSet, rowNumber) -> new UserDto(resultSet.getLong(1),
+                                                                        resultSet.getString(2),
+                                                                        resultSet.getString(3),
+                                                                        resultSet.getDate(4).toLocalDate(),
+                                                                        resultSet.getString(5)),
+                                  lastId, BATCH_SIZE);
+            for (int shard = 1; shard < shards.count(); shard++) {
+                upsert(new JdbcTemplate(shards.get(shard)), users);
+            }
+            if (!users.isEmpty()) {
+                lastId = users.get(users.size() - 1).id();
+                copied += users.size();
+            }
+        } while (users.size() == BATCH_SIZE);
+        log.info("Copied {} users to {} shards", copied, shards.count() - 1);
+        return copied;
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        for (int shard = 1; shard < shards.count(); shard++) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(shards.get(shard));
+            try {
+                if (event.current() != null) {
+                    upsert(jdbcTemplate, List.of(event.current()));
+                } else {
+                    jdbcTemplate.update("delete from users where id = ?", event.userId());
+                }
+            } catch (DataAccessException e) {
+                log.warn("Could not copy user {} to shard {}", event.userId(), shard, e);
+            }
+        }
+    }
+
+    private static void upsert(JdbcTemplate jdbcTemplate, List<UserDto> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE, users.stream()
+                .map(user -> new Object[]{user.firstName(), user.lastName(), Date.valueOf(user.birthdate()), user.email(), user.id()})
+                .toList());
+        List<Object[]> missing = new ArrayList<>();
+        for (int i = 0; i < users.size(); i++) {
+            if (updated[i] == 0) {
+                UserDto user = users.get(i);
+                missing.add(new Object[]{user.id(), user.firstName(), user.lastName(), Date.valueOf(user.birthdate()), user.email()});
+            }
+        }
+        if (!missing.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT, missing);
+        }
+    }
+}
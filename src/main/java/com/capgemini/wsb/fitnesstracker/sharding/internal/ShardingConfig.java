@@ -0,0 +1,59 @@
+package com.capgemini.wsb.fitnesstracker.sharding.internal;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+class ShardingConfig {
+
+    private static final String APPLICATION_DATA_SOURCE = "dataSource";
+
+    @Bean(destroyMethod = "close")
+    ShardRouterImpl shardRouter(ShardingProperties properties) {
+        int shardCount = properties.isEnabled() ? properties.getShards().size() + 1 : 1;
+        return new ShardRouterImpl(shardCount, properties.getFanOutThreads());
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "sharding", name = "enabled", havingValue = "true")
+    ShardDataSources shardDataSources(ShardingProperties properties) {
+        return new ShardDataSources(properties);
+    }
+
+    /**
+     * Replaces the application data source by the {@link ShardRoutingDataSource}. It runs before the other data source
+     * post-processors, so their wrappers (e.g. the SQL instrumentation) see the statements of every shard.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "sharding", name = "enabled", havingValue = "true")
+    static BeanPostProcessor shardRoutingDataSourcePostProcessor(ObjectProvider<ShardDataSources> shardDataSources) {
+        return new ShardRoutingDataSourcePostProcessor(shardDataSources);
+    }
+
+    private record ShardRoutingDataSourcePostProcessor(ObjectProvider<ShardDataSources> shardDataSources)
+            implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && beanName.equals(APPLICATION_DATA_SOURCE)) {
+                ShardDataSources shards = shardDataSources.getObject();
+                shards.attachPrimary(dataSource);
+                return new ShardRoutingDataSource(shards);
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
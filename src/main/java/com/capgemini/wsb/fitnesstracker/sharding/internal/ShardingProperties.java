@@ -0,0 +1,62 @@
+package com.capgemini.wsb.fitnesstracker.sharding.internal;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration of the user-id sharding of the trainings ({@link ShardRouterImpl}). Shard {@code 0} is the application
+ * data source ({@code spring.datasource.*}), the further shards are listed in {@link #getShards()}.
+ * <p>
+ * A persistence context must not outlive the transactions routed to a shard, so sharding requires
+ * {@code spring.jpa.open-in-view=false}.
+ */
+@ConfigurationProperties(prefix = "sharding")
+@Getter
+@Setter
+class ShardingProperties {
+
+    /**
+     * Whether the trainings should be distributed over the shards.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Shards following the application data source, in shard number order. Shards must never be reordered, a shard is
+     * added by appending it and running the resharding ({@code reshard} profile).
+     */
+    private List<Shard> shards = new ArrayList<>();
+
+    /**
+     * Whether the schema of the further shards should be created from the entity model on start.
+     */
+    private boolean initializeSchema = true;
+
+    /**
+     * Number of threads running the fan-out queries, {@code 0} for one per shard.
+     */
+    private int fanOutThreads = 0;
+
+    /**
+     * Number of rows moved in a single batch by the resharding.
+     */
+    private int reshardBatchSize = 1000;
+
+    @Getter
+    @Setter
+    static class Shard {
+
+        /**
+         * JDBC URL of the shard database.
+         */
+        private String url;
+
+        private String username;
+
+        private String password;
+
+    }
+}
@@ -0,0 +1,209 @@
+package com.capgemini.wsb.fitnesstracker.similarity.internal;
+
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Training profiles of users, stored column-wise in primitive arrays indexed by a dense slot per user.
+ * <p>
+ * For every user the running totals of the trainings are kept per {@link ActivityType} (number, distance, hours) with
+ * the first and the last start time, so that a training can be added or subtracted without reading the others. From the
+ * totals the feature vector of {@value #DIMENSIONS} floats is derived, every feature roughly in {@code [0, 1]}:
+ * <ul>
+ *     <li>share of the trainings of every activity type,</li>
+ *     <li>trainings and kilometres per week, on a logarithmic scale,</li>
+ *     <li>average speed of every activity type relative to a typical amateur speed, {@code 0} if never trained,</li>
+ *     <li>age, from the birthdate.</li>
+ * </ul>
+ * Slots of removed users are reused. Not thread-safe, guarded by {@link SimilarAthleteIndex}.
+ */
+final class AthleteProfiles {
+
+    private static final ActivityType[] ACTIVITY_TYPES = ActivityType.values();
+    private static final int ACTIVITIES = ACTIVITY_TYPES.length;
+
+    static final int DIMENSIONS = 2 * ACTIVITIES + 3;
+
+    private static final int TRAININGS_PER_WEEK = ACTIVITIES;
+    private static final int KILOMETRES_PER_WEEK = ACTIVITIES + 1;
+    private static final int SPEEDS = ACTIVITIES + 2;
+    private static final int AGE = 2 * ACTIVITIES + 2;
+
+    private static final long WEEK_MILLIS = 7 * 24 * 3_600_000L;
+    private static final double MAX_TRAININGS_PER_WEEK = 14;
+    private static final double MAX_KILOMETRES_PER_WEEK = 200;
+    private static final int UNKNOWN_BIRTHDATE = Integer.MIN_VALUE;
+
+    /**
+     * Typical speed (km/h), in {@link ActivityType} order; a speed of twice as much is the maximal feature value.
+     */
+    private static final double[] TYPICAL_SPEEDS = {10.0, 22.0, 5.0, 2.5, 4.0};
+
+    private final Map<Long, Integer> slots = new HashMap<>();
+    private int[] freeSlots = new int[16];
+    private int freeSlotCount;
+    private int slotCount;
+
+    private long[] userIds;
+    private int[] birthEpochDays;
+    private int[] trainings;
+    private int[] counts;
+    private float[] distances;
+    private float[] hours;
+    private long[] firstStarts;
+    private long[] lastStarts;
+    private float[] vectors;
+
+    AthleteProfiles(int expectedUsers) {
+        int capacity = Math.max(16, expectedUsers);
+        userIds = new long[capacity];
+        birthEpochDays = new int[capacity];
+        trainings = new int[capacity];
+        counts = new int[capacity * ACTIVITIES];
+        distances = new float[capacity * ACTIVITIES];
+        hours = new float[capacity * ACTIVITIES];
+        firstStarts = new long[capacity];
+        lastStarts = new long[capacity];
+        vectors = new float[capacity * DIMENSIONS];
+    }
+
+    /**
+     * @return slot of the user, {@code -1} if the user has no profile
+     */
+    int slotOf(long userId) {
+        Integer slot = slots.get(userId);
+        return slot != null ? slot : -1;
+    }
+
+    /**
+     * @return slot of the user, a new empty profile is added if the user has none
+     */
+    int getOrAdd(long userId) {
+        Integer existing = slots.get(userId);
+        if (existing != null) {
+            return existing;
+        }
+        int slot = freeSlotCount > 0 ? freeSlots[--freeSlotCount] : slotCount++;
+        if (slot == userIds.length) {
+            grow(slot * 2);
+        }
+        clear(slot);
+        userIds[slot] = userId;
+        slots.put(userId, slot);
+        return slot;
+    }
+
+    /**
+     * Removes the profile of the user.
+     *
+     * @return freed slot, {@code -1} if the user had no profile
+     */
+    int remove(long userId) {
+        Integer slot = slots.remove(userId);
+        if (slot == null) {
+            return -1;
+        }
+        clear(slot);
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+        }
+        freeSlots[freeSlotCount++] = slot;
+        return slot;
+    }
+
+    void setBirthdate(int slot, LocalDate birthdate) {
+        birthEpochDays[slot] = (int) birthdate.toEpochDay();
+    }
+
+    /**
+     * Adds ({@code sign} {@code 1}) or subtracts ({@code sign} {@code -1}) a training to the totals of the profile.
+     * First and last start times only grow, a subtracted training leaves them as they are until the next rebuild.
+     */
+    void addTraining(int slot, int sign, ActivityType activityType, long startTime, long endTime, double distance) {
+        int column = slot * ACTIVITIES + activityType.ordinal();
+        trainings[slot] += sign;
+        counts[column] += sign;
+        distances[column] += (float) (sign * distance);
+        hours[column] += (float) (sign * Math.max(0, endTime - startTime) / 3_600_000.0);
+        if (sign > 0) {
+            firstStarts[slot] = trainings[slot] == 1 || startTime < firstStarts[slot] ? startTime : firstStarts[slot];
+            lastStarts[slot] = Math.max(lastStarts[slot], startTime);
+        }
+    }
+
+    /**
+     * @return number of slots in use or freed, all slots are below it
+     */
+    int slotCount() {
+        return slotCount;
+    }
+
+    int trainings(int slot) {
+        return trainings[slot];
+    }
+
+    long userId(int slot) {
+        return userIds[slot];
+    }
+
+    /**
+     * Feature vectors of all slots, the vector of a slot starts at {@code slot * DIMENSIONS}.
+     */
+    float[] vectors() {
+        return vectors;
+    }
+
+    /**
+     * Recomputes the feature vector of the slot from its totals.
+     */
+    void updateVector(int slot, long todayEpochDay) {
+        int offset = slot * DIMENSIONS;
+        int total = Math.max(1, trainings[slot]);
+        double weeks = Math.max(1, (double) (lastStarts[slot] - firstStarts[slot]) / WEEK_MILLIS + 1);
+        double kilometres = 0;
+        for (int activity = 0; activity < ACTIVITIES; activity++) {
+            int column = slot * ACTIVITIES + activity;
+            kilometres += Math.max(0, distances[column]);
+            vectors[offset + activity] = (float) Math.max(0, counts[column]) / total;
+            double speed = counts[column] > 0 && hours[column] > 0 ? distances[column] / hours[column] : 0;
+            vectors[offset + SPEEDS + activity] = (float) Math.min(1, Math.max(0, speed / (2 * TYPICAL_SPEEDS[activity])));
+        }
+        vectors[offset + TRAININGS_PER_WEEK] = logScale(trainings[slot] / weeks, MAX_TRAININGS_PER_WEEK);
+        vectors[offset + KILOMETRES_PER_WEEK] = logScale(kilometres / weeks, MAX_KILOMETRES_PER_WEEK);
+        vectors[offset + AGE] = birthEpochDays[slot] == UNKNOWN_BIRTHDATE
+                ? 0.5f
+                : (float) Math.min(1, Math.max(0, ((todayEpochDay - birthEpochDays[slot]) / 365.25 - 10) / 80));
+    }
+
+    private static float logScale(double value, double maximum) {
+        return (float) Math.min(1, Math.log1p(Math.max(0, value)) / Math.log1p(maximum));
+    }
+
+    private void clear(int slot) {
+        userIds[slot] = 0;
+        birthEpochDays[slot] = UNKNOWN_BIRTHDATE;
+        trainings[slot] = 0;
+        Arrays.fill(counts, slot * ACTIVITIES, (slot + 1) * ACTIVITIES, 0);
+        Arrays.fill(distances, slot * ACTIVITIES, (slot + 1) * ACTIVITIES, 0);
+        Arrays.fill(hours, slot * ACTIVITIES, (slot + 1) * ACTIVITIES, 0);
+        firstStarts[slot] = 0;
+        lastStarts[slot] = 0;
+        Arrays.fill(vectors, slot * DIMENSIONS, (slot + 1) * DIMENSIONS, 0);
+    }
+
+    private void grow(int capacity) {
+        userIds = Arrays.copyOf(userIds, capacity);
+        birthEpochDays = Arrays.copyOf(birthEpochDays, capacity);
+        trainings = Arrays.copyOf(trainings, capacity);
+        counts = Arrays.copyOf(counts, capacity * ACTIVITIES);
+        distances = Arrays.copyOf(distances, capacity * ACTIVITIES);
+        hours = Arrays.copyOf(hours, capacity * ACTIVITIES);
+        firstStarts = Arrays.copyOf(firstStarts, capacity);
+        lastStarts = Arrays.copyOf(lastStarts, capacity);
+        vectors = Arrays.copyOf(vectors, capacity * DIMENSIONS);
+    }
+}
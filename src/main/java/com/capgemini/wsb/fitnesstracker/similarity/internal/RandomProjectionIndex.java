@@ -0,0 +1,195 @@
+package com.capgemini.wsb.fitnesstracker.similarity.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Locality-sensitive hash index of vectors by Euclidean distance (random projection LSH).
+ * <p>
+ * Every table hashes a vector with {@code hashes} random projections {@code floor((a · v + b) / w)}, {@code a} with
+ * Gaussian components and {@code b} uniform in {@code [0, w)}, and stores its slot in the bucket of the combined key.
+ * Vectors close to each other fall into the same bucket of a table with a high probability, distant ones rarely, so the
+ * union of the buckets of a query over all tables is a small candidate set containing most of its nearest neighbours.
+ * If the buckets yield too few candidates, the neighbouring buckets differing by one step in a single projection are
+ * probed as well (multi-probe).
+ * <p>
+ * Vectors are inserted and removed one at a time, the bucket keys of every slot are kept for the removal. Not
+ * thread-safe, guarded by {@link SimilarAthleteIndex}.
+ */
+final class RandomProjectionIndex {
+
+    private final int tables;
+    private final int hashes;
+    private final int dimensions;
+    private final float bucketWidth;
+    private final float[] projections;
+    private final float[] offsets;
+    private final List<Map<Long, Bucket>> buckets;
+    private final BitSet indexed = new BitSet();
+    private long[] slotKeys = new long[0];
+    private int size;
+
+    RandomProjectionIndex(int tables, int hashes, int dimensions, float bucketWidth, long seed) {
+        this.tables = tables;
+        this.hashes = hashes;
+        this.dimensions = dimensions;
+        this.bucketWidth = bucketWidth;
+        SplittableRandom random = new SplittableRandom(seed);
+        projections = new float[tables * hashes * dimensions];
+        for (int i = 0; i < projections.length; i++) {
+            projections[i] = (float) gaussian(random);
+        }
+        offsets = new float[tables * hashes];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = (float) (random.nextDouble() * bucketWidth);
+        }
+        buckets = new ArrayList<>(tables);
+        for (int table = 0; table < tables; table++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Indexes the vector of the slot, which starts at {@code slot * dimensions} of {@code vectors}.
+     */
+    void insert(int slot, float[] vectors) {
+        remove(slot);
+        if ((long) (slot + 1) * tables > slotKeys.length) {
+            slotKeys = Arrays.copyOf(slotKeys, Math.max((slot + 1) * tables, slotKeys.length * 2));
+        }
+        int[] values = new int[hashes];
+        for (int table = 0; table < tables; table++) {
+            long key = key(hash(table, vectors, slot * dimensions, values));
+            buckets.get(table).computeIfAbsent(key, bucket -> new Bucket()).add(slot);
+            slotKeys[slot * tables + table] = key;
+        }
+        indexed.set(slot);
+        size++;
+    }
+
+    void remove(int slot) {
+        if (!indexed.get(slot)) {
+            return;
+        }
+        for (int table = 0; table < tables; table++) {
+            long key = slotKeys[slot * tables + table];
+            Map<Long, Bucket> tableBuckets = buckets.get(table);
+            Bucket bucket = tableBuckets.get(key);
+            if (bucket != null && bucket.remove(slot) && bucket.size == 0) {
+                tableBuckets.remove(key);
+            }
+        }
+        indexed.clear(slot);
+        size--;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * All indexed slots.
+     */
+    BitSet indexed() {
+        return indexed;
+    }
+
+    /**
+     * Collects the slots sharing a bucket with the query vector, probing the neighbouring buckets as well if they hold
+     * fewer than {@code minimum}.
+     *
+     * @param query  vectors array holding the query vector
+     * @param offset start of the query vector in {@code query}
+     * @return candidate slots, possibly including the slot of the query itself
+     */
+    BitSet candidates(float[] query, int offset, int minimum) {
+        BitSet candidates = new BitSet();
+        int[][] values = new int[tables][hashes];
+        int found = 0;
+        for (int table = 0; table < tables; table++) {
+            found += collect(table, key(hash(table, query, offset, values[table])), candidates);
+        }
+        if (found < minimum) {
+            for (int table = 0; table < tables; table++) {
+                for (int hash = 0; hash < hashes; hash++) {
+                    for (int step = -1; step <= 1; step += 2) {
+                        values[table][hash] += step;
+                        collect(table, key(values[table]), candidates);
+                        values[table][hash] -= step;
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private int collect(int table, long key, BitSet candidates) {
+        Bucket bucket = buckets.get(table).get(key);
+        if (bucket == null) {
+            return 0;
+        }
+        for (int i = 0; i < bucket.size; i++) {
+            candidates.set(bucket.slots[i]);
+        }
+        return bucket.size;
+    }
+
+    private int[] hash(int table, float[] vectors, int offset, int[] values) {
+        for (int hash = 0; hash < hashes; hash++) {
+            int projection = (table * hashes + hash) * dimensions;
+            float dot = offsets[table * hashes + hash];
+            for (int dimension = 0; dimension < dimensions; dimension++) {
+                dot += projections[projection + dimension] * vectors[offset + dimension];
+            }
+            values[hash] = (int) Math.floor(dot / bucketWidth);
+        }
+        return values;
+    }
+
+    private static long key(int[] values) {
+        long key = 1;
+        for (int value : values) {
+            key = key * 0x9E3779B97F4A7C15L + value;
+        }
+        return key;
+    }
+
+    /**
+     * Standard normal value by the Box-Muller transform; {@link SplittableRandom} has no Gaussian method on Java 17.
+     */
+    private static double gaussian(SplittableRandom random) {
+        double u = 1.0 - random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    /**
+     * Growable unordered list of slots.
+     */
+    private static final class Bucket {
+
+        private int[] slots = new int[4];
+        private int size;
+
+        private void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+
+        private boolean remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    slots[i] = slots[--size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
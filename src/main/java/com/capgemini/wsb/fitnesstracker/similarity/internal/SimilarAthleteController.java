@@ -0,0 +1,52 @@
+package com.capgemini.wsb.fitnesstracker.similarity.internal;
+
+import com.capgemini.wsb.fitnesstracker.exception.api.BusinessException;
+import com.capgemini.wsb.fitnesstracker.user.api.UserNotFoundException;
+import com.capgemini.wsb.fitnesstracker.user.api.UserProvider;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * REST controller suggesting athletes who train like a given user.
+ */
+@RestController
+@RequestMapping("/v1/users")
+@ConditionalOnProperty(prefix = "similarity", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+class SimilarAthleteController {
+
+    private final SimilarAthleteIndex similarAthleteIndex;
+    private final UserProvider userProvider;
+    private final SimilarityProperties properties;
+
+    /**
+     * Retrieves the athletes whose training profiles (activity mix, weekly volume, speeds and age) are most similar to
+     * the profile of the user.
+     *
+     * @param id    the ID of the user
+     * @param limit maximum number of returned athletes
+     * @return ResponseEntity containing the similar athletes, most similar first; empty if the user has no training
+     */
+    @GetMapping(value = "/{id}/similar", produces = "application/json")
+    public ResponseEntity<List<SimilarAthleteDto>> getSimilarAthletes(@PathVariable Long id,
+                                                                      @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > properties.getMaxLimit()) {
+            throw new BusinessException("Limit must be between 1 and %d".formatted(properties.getMaxLimit()));
+        }
+        userProvider.getUser(id).orElseThrow(() -> new UserNotFoundException(id));
+        List<SimilarAthleteDto> athletes = similarAthleteIndex.similar(id, limit).stream()
+                .flatMap(athlete -> userProvider.getUser(athlete.userId())
+                        .map(user -> new SimilarAthleteDto(user.id(), user.firstName(), user.lastName(), 1 / (1 + athlete.distance())))
+                        .stream())
+                .toList();
+        return ResponseEntity.ok(athletes);
+    }
+}
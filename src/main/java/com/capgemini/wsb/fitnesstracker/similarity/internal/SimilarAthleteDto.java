@@ -0,0 +1,13 @@
+package com.capgemini.wsb.fitnesstracker.similarity.internal;
+
+/**
+ * Athlete with a training profile similar to the profile of the requesting user.
+ *
+ * @param userId     ID of the similar user
+ * @param firstName  first name of the similar user
+ * @param lastName   last name of the similar user
+ * @param similarity {@code 1} for an identical profile, approaching {@code 0} for very different profiles
+ */
+record SimilarAthleteDto(Long userId, String firstName, String lastName, double similarity) {
+
+}
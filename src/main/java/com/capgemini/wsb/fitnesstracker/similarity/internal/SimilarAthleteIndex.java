@@ -0,0 +1,312 @@
+package com.capgemini.wsb.fitnesstracker.similarity.internal;
+
+import com.capgemini.wsb.fitnesstracker.sharding.api.ShardRouter;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingChangedEvent;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
+import com.capgemini.wsb.fitnesstracker.user.api.UserChangedEvent;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory nearest neighbour index of the training profiles of all users ({@link AthleteProfiles}), answering "athletes
+ * like you" queries without reading the database.
+ * <p>
+ * Up to {@link SimilarityProperties#getExactScanThreshold()} profiles a query compares all of them. Above, the
+ * candidates are taken from the buckets of a {@link RandomProjectionIndex} and only those are compared, which keeps a
+ * query in the range of milliseconds for millions of users at the price of occasionally missing a true neighbour. The
+ * candidates are ranked by the Euclidean distance of the profile vectors.
+ * <p>
+ * The index is built from streaming scans of the users and of the trainings of every shard when the application is
+ * ready and every {@code similarity.rebuild-cron}, without blocking the queries ({@link #rebuild()}). It is kept
+ * current with {@link TrainingChangedEvent}s, which add and subtract trainings to the profile totals and rehash the
+ * profile, and {@link UserChangedEvent}s. Users without any training are not indexed.
+ */
+@Component
+@ConditionalOnProperty(prefix = "similarity", name = "enabled", havingValue = "true")
+@Slf4j
+class SimilarAthleteIndex {
+
+    private static final int FETCH_SIZE = 1_000;
+    private static final int CANDIDATES_PER_RESULT = 4;
+    private static final ActivityType[] ACTIVITY_TYPES = ActivityType.values();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final SimilarityProperties properties;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private AthleteProfiles profiles;
+    private RandomProjectionIndex index;
+
+    /**
+     * Changes applied while the index is rebuilt, {@code null} when it is not.
+     */
+    @Nullable
+    private List<Object> changesDuringRebuild;
+
+    SimilarAthleteIndex(JdbcTemplate jdbcTemplate, ShardRouter shardRouter, SimilarityProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.properties = properties;
+        this.profiles = new AthleteProfiles(0);
+        this.index = newIndex();
+    }
+
+    /**
+     * Builds new profiles and a new index from the database and swaps them in. The scans run without the lock, so
+     * queries and changes keep being served by the current index meanwhile; the changes are recorded as well and
+     * replayed on the new index after the swap. A change committed just before the scans started may thus be counted
+     * twice, until the next rebuild.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${similarity.rebuild-cron:-}")
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        AthleteProfiles rebuilt = null;
+        RandomProjectionIndex rebuiltIndex = null;
+        int replayed = 0;
+        try {
+            rebuilt = loadProfiles();
+            rebuiltIndex = indexOf(rebuilt);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                List<Object> changes = changesDuringRebuild;
+                changesDuringRebuild = null;
+                if (rebuiltIndex != null) {
+                    profiles = rebuilt;
+                    index = rebuiltIndex;
+                    changes.forEach(this::apply);
+                    replayed = changes.size();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        log.info("Indexed training profiles of {} users in {} ms, replayed {} changes", rebuiltIndex.size(),
+                 (System.nanoTime() - start) / 1_000_000, replayed);
+    }
+
+    @EventListener
+    public void onTrainingChanged(TrainingChangedEvent event) {
+        onChange(event);
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        onChange(event);
+    }
+
+    /**
+     * Applies the change to the current index, and records it for the index being rebuilt.
+     */
+    private void onChange(Object change) {
+        lock.writeLock().lock();
+        try {
+            apply(change);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(Object change) {
+        if (change instanceof TrainingChangedEvent event) {
+            int previousSlot = apply(event.previous(), -1);
+            int currentSlot = apply(event.current(), 1);
+            refresh(previousSlot);
+            if (currentSlot != previousSlot) {
+                refresh(currentSlot);
+            }
+        } else if (change instanceof UserChangedEvent event) {
+            if (event.current() == null) {
+                int slot = profiles.slotOf(event.userId());
+                if (slot >= 0) {
+                    index.remove(slot);
+                    profiles.remove(event.userId());
+                }
+                return;
+            }
+            int slot = profiles.getOrAdd(event.userId());
+            profiles.setBirthdate(slot, event.current().birthdate());
+            refresh(slot);
+        }
+    }
+
+    /**
+     * Reads the users and the trainings of every shard with streaming scans.
+     */
+    private AthleteProfiles loadProfiles() {
+        Integer userCount = jdbcTemplate.queryForObject("select count(*) from users", Integer.class);
+        AthleteProfiles rebuilt = new AthleteProfiles(userCount == null ? 0 : userCount);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement("select id, birthdate from users");
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, resultSet -> {
+            rebuilt.setBirthdate(rebuilt.getOrAdd(resultSet.getLong(1)), resultSet.getDate(2).toLocalDate());
+        });
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            shardRouter.onShard(shard, () -> {
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement("""
+                            select user_id, start_time, end_time, activity_type, distance
+                              from trainings
+                             where user_id is not null""");
+                    statement.setFetchSize(FETCH_SIZE);
+                    return statement;
+                }, resultSet -> {
+                    int slot = rebuilt.getOrAdd(resultSet.getLong(1));
+                    long startTime = resultSet.getTimestamp(2).getTime();
+                    long endTime = resultSet.getTimestamp(3) != null ? resultSet.getTimestamp(3).getTime() : startTime;
+                    rebuilt.addTraining(slot, 1, ACTIVITY_TYPES[resultSet.getInt(4)], startTime, endTime, resultSet.getDouble(5));
+                });
+                return null;
+            });
+        }
+        return rebuilt;
+    }
+
+    private RandomProjectionIndex indexOf(AthleteProfiles rebuilt) {
+        RandomProjectionIndex rebuiltIndex = newIndex();
+        long today = LocalDate.now().toEpochDay();
+        for (int slot = 0; slot < rebuilt.slotCount(); slot++) {
+            if (rebuilt.trainings(slot) > 0) {
+                rebuilt.updateVector(slot, today);
+                rebuiltIndex.insert(slot, rebuilt.vectors());
+            }
+        }
+        return rebuiltIndex;
+    }
+
+    /**
+     * Finds the users whose training profiles are most similar to the profile of the user.
+     *
+     * @param userId user to find similar athletes for
+     * @param limit  maximum number of returned users
+     * @return similar users, most similar first; empty if the user has no training
+     */
+    List<SimilarAthlete> similar(long userId, int limit) {
+        lock.readLock().lock();
+        try {
+            int slot = profiles.slotOf(userId);
+            if (slot < 0 || profiles.trainings(slot) <= 0 || limit <= 0) {
+                return List.of();
+            }
+            BitSet candidates = index.size() <= properties.getExactScanThreshold()
+                    ? index.indexed()
+                    : index.candidates(profiles.vectors(), slot * AthleteProfiles.DIMENSIONS, (limit + 1) * CANDIDATES_PER_RESULT);
+            PriorityQueue<SimilarAthlete> best = new PriorityQueue<>(SimilarAthlete.WORST_FIRST);
+            float[] vectors = profiles.vectors();
+            for (int candidate = candidates.nextSetBit(0); candidate >= 0; candidate = candidates.nextSetBit(candidate + 1)) {
+                if (candidate == slot) {
+                    continue;
+                }
+                best.add(new SimilarAthlete(profiles.userId(candidate), Math.sqrt(squaredDistance(vectors, slot, candidate))));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+            List<SimilarAthlete> result = new ArrayList<>(best);
+            result.sort(SimilarAthlete.WORST_FIRST.reversed());
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or subtracts the training to the profile of its user.
+     *
+     * @return slot of the user, {@code -1} if there is no training or it has no user
+     */
+    private int apply(@Nullable TrainingDto training, int sign) {
+        if (training == null || training.user() == null || training.startTime() == null || training.activityType() == null) {
+            return -1;
+        }
+        long userId = training.user().getId();
+        int slot = profiles.slotOf(userId);
+        if (slot < 0) {
+            if (sign < 0) {
+                return -1;
+            }
+            slot = profiles.getOrAdd(userId);
+            List<Date> birthdates = jdbcTemplate.queryForList("select birthdate from users where id = ?", Date.class, userId);
+            if (!birthdates.isEmpty() && birthdates.get(0) != null) {
+                profiles.setBirthdate(slot, birthdates.get(0).toLocalDate());
+            }
+        }
+        long startTime = training.startTime().getTime();
+        long endTime = training.endTime() != null ? training.endTime().getTime() : startTime;
+        profiles.addTraining(slot, sign, training.activityType(), startTime, endTime, training.distance());
+        return slot;
+    }
+
+    /**
+     * Recomputes the vector of the slot and moves it to its new buckets.
+     */
+    private void refresh(int slot) {
+        if (slot < 0) {
+            return;
+        }
+        index.remove(slot);
+        if (profiles.trainings(slot) > 0) {
+            profiles.updateVector(slot, LocalDate.now().toEpochDay());
+            index.insert(slot, profiles.vectors());
+        }
+    }
+
+    private RandomProjectionIndex newIndex() {
+        return new RandomProjectionIndex(properties.getTables(), properties.getHashesPerTable(), AthleteProfiles.DIMENSIONS,
+                                         properties.getBucketWidth(), properties.getSeed());
+    }
+
+    private static float squaredDistance(float[] vectors, int first, int second) {
+        int firstOffset = first * AthleteProfiles.DIMENSIONS;
+        int secondOffset = second * AthleteProfiles.DIMENSIONS;
+        float sum = 0;
+        for (int dimension = 0; dimension < AthleteProfiles.DIMENSIONS; dimension++) {
+            float difference = vectors[firstOffset + dimension] - vectors[secondOffset + dimension];
+            sum += difference * difference;
+        }
+        return sum;
+    }
+
+    /**
+     * @param userId   ID of the similar user
+     * @param distance Euclidean distance of the profile vectors, {@code 0} for identical profiles
+     */
+    record SimilarAthlete(long userId, double distance) {
+
+        private static final Comparator<SimilarAthlete> WORST_FIRST = Comparator.comparingDouble(SimilarAthlete::distance)
+                .reversed()
+                .thenComparing(Comparator.comparingLong(SimilarAthlete::userId).reversed());
+
+    }
+}
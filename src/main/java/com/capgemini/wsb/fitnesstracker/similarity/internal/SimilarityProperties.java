@@ -0,0 +1,51 @@
+package com.capgemini.wsb.fitnesstracker.similarity.internal;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the similar athlete search ({@link SimilarAthleteIndex}). The periodic rebuild of the index is
+ * scheduled by the cron expression {@code similarity.rebuild-cron}.
+ */
+@ConfigurationProperties(prefix = "similarity")
+@Getter
+@Setter
+class SimilarityProperties {
+
+    /**
+     * Whether the training profiles of all users are indexed and searchable.
+     */
+    private boolean enabled;
+
+    /**
+     * Number of hash tables; more tables find more of the true nearest neighbours at the cost of memory.
+     */
+    private int tables = 16;
+
+    /**
+     * Number of random projections combined into the bucket key of a table; more projections make smaller buckets.
+     */
+    private int hashesPerTable = 6;
+
+    /**
+     * Width of the projection buckets, in units of the profile features.
+     */
+    private float bucketWidth = 0.5f;
+
+    /**
+     * Number of indexed users up to which all of them are compared exactly instead of using the hash tables.
+     */
+    private int exactScanThreshold = 10_000;
+
+    /**
+     * Maximum number of similar athletes returned by a single request.
+     */
+    private int maxLimit = 100;
+
+    /**
+     * Seed of the random projections; instances with the same seed hash profiles alike.
+     */
+    private long seed = 42;
+
+}
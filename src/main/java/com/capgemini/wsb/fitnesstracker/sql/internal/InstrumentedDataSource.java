@@ -0,0 +1,178 @@
+package com.capgemini.wsb.fitnesstracker.sql.internal;
+
+import jakarta.annotation.Nullable;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * Wraps a {@link DataSource} in dynamic proxies which time every executed statement and report it, with its bind
+ * parameters, to a {@link StatementListener}. Everything else is delegated unchanged, including
+ * {@link java.sql.Wrapper#unwrap}, so the pool behind the proxy can still be reached (e.g. for its metrics), and
+ * {@code close}, so the pool is still shut down with the application context.
+ */
+final class InstrumentedDataSource {
+
+    private static final int MAX_PARAMETERS = 16;
+
+    private InstrumentedDataSource() {
+    }
+
+    /**
+     * Receives the executed statements.
+     */
+    @FunctionalInterface
+    interface StatementListener {
+
+        /**
+         * @param sql        executed SQL
+         * @param nanos      execution time
+         * @param parameters bind parameters of the last execution (of the last batch entry), by index starting at 0,
+         *                   truncated to {@value #MAX_PARAMETERS}
+         * @param batchSize  number of batched executions, {@code 1} if the statement was not batched
+         * @param failed     whether the execution threw an exception
+         */
+        void statementExecuted(String sql, long nanos, Object[] parameters, int batchSize, boolean failed);
+    }
+
+    static DataSource wrap(DataSource dataSource, StatementListener listener) {
+        return proxy(DataSource.class, dataSource, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (result instanceof Connection connection && method.getName().equals("getConnection")) {
+                return wrapConnection(connection, listener);
+            }
+            return result;
+        });
+    }
+
+    private static Connection wrapConnection(Connection connection, StatementListener listener) {
+        return proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            String name = method.getName();
+            if (result instanceof CallableStatement statement && name.equals("prepareCall")) {
+                return new StatementHandler(statement, (String) args[0], listener).proxy(CallableStatement.class);
+            }
+            if (result instanceof PreparedStatement statement && name.equals("prepareStatement")) {
+                return new StatementHandler(statement, (String) args[0], listener).proxy(PreparedStatement.class);
+            }
+            if (result instanceof Statement statement && name.equals("createStatement")) {
+                return new StatementHandler(statement, null, listener).proxy(Statement.class);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Tracks the bind parameters of one statement and times its executions.
+     */
+    private static final class StatementHandler {
+
+        private final Statement statement;
+        private final StatementListener listener;
+        @Nullable
+        private String sql;
+        private Object[] parameters = new Object[0];
+        private int batchSize;
+
+        private StatementHandler(Statement statement, @Nullable String sql, StatementListener listener) {
+            this.statement = statement;
+            this.sql = sql;
+            this.listener = listener;
+        }
+
+        private <T extends Statement> T proxy(Class<T> type) {
+            return InstrumentedDataSource.proxy(type, type.cast(statement), this::handle);
+        }
+
+        private Object handle(Object target, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                bind(index, name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameters = new Object[0];
+            } else if (name.equals("clearBatch")) {
+                batchSize = 0;
+            } else if (name.equals("addBatch")) {
+                if (args != null && args.length == 1 && args[0] instanceof String batchSql) {
+                    sql = batchSql;
+                }
+                batchSize++;
+            } else if (name.startsWith("execute")) {
+                return execute(target, method, args);
+            }
+            return invoke(target, method, args);
+        }
+
+        private Object execute(Object target, Method method, Object[] args) throws Throwable {
+            String executedSql = args != null && args.length >= 1 && args[0] instanceof String statementSql ? statementSql : sql;
+            boolean batch = method.getName().equals("executeBatch") || method.getName().equals("executeLargeBatch");
+            int executions = batch ? Math.max(1, batchSize) : 1;
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object result = invoke(target, method, args);
+                failed = false;
+                return result;
+            } finally {
+                if (executedSql != null) {
+                    listener.statementExecuted(executedSql, System.nanoTime() - start, parameters, executions, failed);
+                }
+                if (batch) {
+                    batchSize = 0;
+                }
+            }
+        }
+
+        private void bind(int index, @Nullable Object value) {
+            if (index < 1 || index > MAX_PARAMETERS) {
+                return;
+            }
+            if (index > parameters.length) {
+                parameters = Arrays.copyOf(parameters, index);
+            }
+            parameters[index - 1] = value;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+
+        Object handle(Object target, Method method, Object[] args) throws Throwable;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, Handler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "toString" -> "Instrumented " + target;
+                    default -> invoke(target, method, args);
+                };
+            }
+            return handler.handle(target, method, args);
+        };
+        Class<?>[] interfaces = target instanceof AutoCloseable && !AutoCloseable.class.isAssignableFrom(type)
+                ? new Class<?>[]{type, target instanceof Closeable ? Closeable.class : AutoCloseable.class}
+                : new Class<?>[]{type};
+        return (T) Proxy.newProxyInstance(InstrumentedDataSource.class.getClassLoader(), interfaces, invocationHandler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
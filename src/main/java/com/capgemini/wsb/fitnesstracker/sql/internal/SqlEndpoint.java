@@ -0,0 +1,43 @@
+package com.capgemini.wsb.fitnesstracker.sql.internal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.List;
+
+/**
+ * Actuator endpoint {@code /actuator/sql} listing the most expensive query shapes and the number of statements executed
+ * per request of every endpoint. {@code DELETE} resets the statistics, e.g. before a load test.
+ * <p>
+ * The endpoint is not exposed over HTTP by default, since anyone reaching it could reset the statistics. It is meant to
+ * be added to {@code management.endpoints.web.exposure.include} where the actuator is reachable by operators only.
+ */
+@Endpoint(id = "sql")
+@RequiredArgsConstructor
+public class SqlEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final SqlStatementRecorder recorder;
+
+    @ReadOperation
+    public SqlReport report() {
+        return new SqlReport(recorder.shapes(DEFAULT_LIMIT), recorder.endpoints());
+    }
+
+    @DeleteOperation
+    public void reset() {
+        recorder.reset();
+    }
+
+    /**
+     * @param shapes    query shapes by total execution time, descending
+     * @param endpoints statement counts per endpoint
+     */
+    public record SqlReport(List<SqlStatementRecorder.ShapeSnapshot> shapes,
+                            List<SqlStatementRecorder.EndpointSnapshot> endpoints) {
+
+    }
+}
@@ -0,0 +1,62 @@
+package com.capgemini.wsb.fitnesstracker.sql.internal;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.function.SingletonSupplier;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.util.function.Supplier;
+
+/**
+ * Wraps every {@link DataSource} bean in an {@link InstrumentedDataSource} reporting to the {@link SqlStatementRecorder}.
+ * The recorder is looked up on the first statement, since data sources are created before the meter registry.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "sql.instrumentation", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(SqlInstrumentationProperties.class)
+class SqlInstrumentationConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<SqlStatementRecorder> recorder;
+
+    SqlInstrumentationConfig(ObjectProvider<SqlStatementRecorder> recorder) {
+        this.recorder = recorder;
+    }
+
+    @Bean
+    static BeanPostProcessor instrumentedDataSourcePostProcessor(ObjectProvider<SqlStatementRecorder> recorder) {
+        Supplier<SqlStatementRecorder> listener = SingletonSupplier.of(recorder::getObject);
+        return new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource) {
+                    return InstrumentedDataSource.wrap(dataSource, (sql, nanos, parameters, batchSize, failed) ->
+                            listener.get().statementExecuted(sql, nanos, parameters, batchSize, failed));
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    SqlStatementRecorder sqlStatementRecorder(SqlInstrumentationProperties properties, MeterRegistry meterRegistry) {
+        return new SqlStatementRecorder(properties, meterRegistry);
+    }
+
+    @Bean
+    SqlEndpoint sqlEndpoint(SqlStatementRecorder sqlStatementRecorder) {
+        return new SqlEndpoint(sqlStatementRecorder);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new SqlRequestInterceptor(recorder.getObject())).addPathPatterns("/v1/**");
+    }
+}
@@ -0,0 +1,42 @@
+package com.capgemini.wsb.fitnesstracker.sql.internal;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the SQL statement instrumentation ({@link SqlStatementRecorder}).
+ */
+@ConfigurationProperties(prefix = "sql.instrumentation")
+@Getter
+@Setter
+class SqlInstrumentationProperties {
+
+    /**
+     * Whether the data source should be wrapped to measure the executed statements.
+     */
+    private boolean enabled;
+
+    /**
+     * Statements running longer than this are logged as slow.
+     */
+    private Duration slowQueryThreshold = Duration.ofMillis(200);
+
+    /**
+     * Share of the slow statements which are logged, between 0 and 1.
+     */
+    private double slowQuerySampleRate = 1.0;
+
+    /**
+     * Maximum number of distinct query shapes tracked; statements of further shapes are counted as "other".
+     */
+    private int maxShapes = 500;
+
+    /**
+     * Whether the application method issuing each statement should be determined from the call stack.
+     */
+    private boolean captureCaller = true;
+
+}
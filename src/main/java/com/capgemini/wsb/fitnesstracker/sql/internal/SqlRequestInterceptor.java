@@ -0,0 +1,36 @@
+package com.capgemini.wsb.fitnesstracker.sql.internal;
+
+import jakarta.annotation.Nullable;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Attributes the statements executed while handling a request to its endpoint, the HTTP method and the matched path
+ * pattern (e.g. {@code GET /v1/trainings/{userId}}), so that the endpoint tag has a bounded number of values.
+ */
+@RequiredArgsConstructor
+class SqlRequestInterceptor implements AsyncHandlerInterceptor {
+
+    private final SqlStatementRecorder recorder;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        recorder.beginRequest(request.getMethod() + " " + (pattern != null ? pattern : "unmatched"));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                @Nullable Exception ex) {
+        recorder.endRequest();
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        recorder.endRequest();
+    }
+}
@@ -0,0 +1,38 @@
+package com.capgemini.wsb.fitnesstracker.sql.internal;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalization of SQL statements into query shapes: literals are replaced by {@code ?}, lists of values and placeholders
+ * are collapsed and whitespace is squeezed, so that statements differing only in their parameters share one shape.
+ */
+final class SqlShape {
+
+    private static final Pattern STRING_LITERALS = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERALS = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern VALUE_LISTS = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private SqlShape() {
+    }
+
+    static String of(String sql) {
+        String shape = STRING_LITERALS.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERALS.matcher(shape).replaceAll("?");
+        shape = VALUE_LISTS.matcher(shape).replaceAll("(?...)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+
+    /**
+     * @return the first keyword of the statement, e.g. {@code select}
+     */
+    static String operationOf(String sql) {
+        String trimmed = sql.stripLeading();
+        int end = 0;
+        while (end < trimmed.length() && Character.isLetter(trimmed.charAt(end))) {
+            end++;
+        }
+        return end == 0 ? "other" : trimmed.substring(0, end).toLowerCase(Locale.ROOT);
+    }
+}
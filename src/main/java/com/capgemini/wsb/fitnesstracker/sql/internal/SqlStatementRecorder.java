@@ -0,0 +1,323 @@
+package com.capgemini.wsb.fitnesstracker.sql.internal;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.temporal.TemporalAccessor;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records every statement executed through the {@link InstrumentedDataSource}.
+ * <p>
+ * Each statement is attributed to the HTTP endpoint being handled on the current thread (set by
+ * {@link SqlRequestInterceptor}, {@code none} outside of requests) and to the application method which issued it, found
+ * by walking the call stack up to the first frame in the application packages. Statements are exported as the
+ * {@code sql.statements} timer, the number of statements per request as the {@code sql.statements.per.request}
+ * summary, both tagged with the endpoint.
+ * <p>
+ * Besides the metrics, statistics are kept per query shape ({@link SqlShape}) with a latency histogram, for the
+ * {@code sql} actuator endpoint. Statements slower than the configured threshold are logged, with a summary of their
+ * bind parameters, at the configured sample rate. The summary shows numbers, booleans and dates; strings, which may hold
+ * e-mail addresses, names or keys, are masked down to their length, other values to their type.
+ */
+@Slf4j
+class SqlStatementRecorder implements InstrumentedDataSource.StatementListener {
+
+    static final String NO_ENDPOINT = "none";
+    static final String OTHER_SHAPE = "other";
+
+    private static final String APPLICATION_PACKAGE = "com.capgemini.wsb.fitnesstracker.";
+    /**
+     * Packages of the application's own instrumentation, whose frames are skipped when looking for the caller.
+     */
+    private static final List<String> INSTRUMENTATION_PACKAGES = List.of(
+            SqlStatementRecorder.class.getPackageName() + ".", APPLICATION_PACKAGE + "jfr.");
+    private static final String UNKNOWN_CALLER = "unknown";
+    private static final int MAX_CALLERS_PER_SHAPE = 8;
+    private static final int MAX_LOGGED_PARAMETERS = 10;
+    private static final int MAX_LOGGED_VALUE_LENGTH = 32;
+    private static final long MAX_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final SqlInstrumentationProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final StackWalker stackWalker = StackWalker.getInstance();
+    private final ThreadLocal<RequestStatements> currentRequest = new ThreadLocal<>();
+    private final Map<StatementKey, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, ShapeStatistics> shapes = new ConcurrentHashMap<>();
+    private final Map<String, EndpointStatistics> endpoints = new ConcurrentHashMap<>();
+
+    SqlStatementRecorder(SqlInstrumentationProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Starts attributing the statements executed on the current thread to the given endpoint.
+     */
+    void beginRequest(String endpoint) {
+        currentRequest.set(new RequestStatements(endpoint));
+    }
+
+    /**
+     * Stops attributing statements to the endpoint of the current thread and records the number of its statements.
+     */
+    void endRequest() {
+        RequestStatements request = currentRequest.get();
+        if (request == null) {
+            return;
+        }
+        currentRequest.remove();
+        endpoints.computeIfAbsent(request.endpoint, endpoint -> new EndpointStatistics(endpoint, meterRegistry))
+                .record(request.statements, request.nanos);
+    }
+
+    @Override
+    public void statementExecuted(String sql, long nanos, Object[] parameters, int batchSize, boolean failed) {
+        RequestStatements request = currentRequest.get();
+        String endpoint = NO_ENDPOINT;
+        if (request != null) {
+            endpoint = request.endpoint;
+            request.statements += batchSize;
+            request.nanos += nanos;
+        }
+        String caller = properties.isCaptureCaller() ? caller() : UNKNOWN_CALLER;
+        String operation = SqlShape.operationOf(sql);
+        timers.computeIfAbsent(new StatementKey(endpoint, caller, operation), this::timer).record(nanos, TimeUnit.NANOSECONDS);
+
+        String shape = SqlShape.of(sql);
+        shapeStatistics(shape).record(nanos, batchSize, failed, caller);
+
+        if (nanos >= properties.getSlowQueryThreshold().toNanos()
+                && ThreadLocalRandom.current().nextDouble() < properties.getSlowQuerySampleRate()) {
+            log.warn("Slow SQL statement took {} ms in {} ({}): {} [{}]",
+                     TimeUnit.NANOSECONDS.toMillis(nanos), caller, endpoint, shape, describe(parameters));
+        }
+    }
+
+    /**
+     * @return statistics of the query shapes, by total execution time, descending
+     */
+    List<ShapeSnapshot> shapes(int limit) {
+        return shapes.values().stream()
+                .map(ShapeStatistics::snapshot)
+                .sorted(Comparator.comparingDouble(ShapeSnapshot::totalMillis).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * @return statement counts of the handled requests, by endpoint
+     */
+    List<EndpointSnapshot> endpoints() {
+        return endpoints.values().stream()
+                .map(EndpointStatistics::snapshot)
+                .sorted(Comparator.comparing(EndpointSnapshot::endpoint))
+                .toList();
+    }
+
+    /**
+     * Forgets the statistics of the query shapes and endpoints; the exported metrics are not affected.
+     */
+    void reset() {
+        shapes.clear();
+        endpoints.clear();
+    }
+
+    private ShapeStatistics shapeStatistics(String shape) {
+        ShapeStatistics statistics = shapes.get(shape);
+        if (statistics != null) {
+            return statistics;
+        }
+        if (shapes.size() >= properties.getMaxShapes()) {
+            return shapes.computeIfAbsent(OTHER_SHAPE, ShapeStatistics::new);
+        }
+        return shapes.computeIfAbsent(shape, ShapeStatistics::new);
+    }
+
+    private Timer timer(StatementKey key) {
+        return Timer.builder("sql.statements")
+                .description("Executed SQL statements")
+                .tag("endpoint", key.endpoint())
+                .tag("caller", key.caller())
+                .tag("operation", key.operation())
+                .register(meterRegistry);
+    }
+
+    private String caller() {
+        return stackWalker.walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(APPLICATION_PACKAGE)
+                        && INSTRUMENTATION_PACKAGES.stream().noneMatch(frame.getClassName()::startsWith)
+                        && !frame.getClassName().contains("$$")
+                        && !frame.getClassName().contains("$Proxy"))
+                .findFirst()
+                .map(frame -> simpleName(frame.getClassName()) + "." + frame.getMethodName())
+                .orElse(UNKNOWN_CALLER));
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    static String describe(Object[] parameters) {
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < Math.min(parameters.length, MAX_LOGGED_PARAMETERS); i++) {
+            if (i > 0) {
+                description.append(", ");
+            }
+            description.append(i + 1).append('=');
+            Object value = parameters[i];
+            if (value == null) {
+                description.append("null");
+                continue;
+            }
+            description.append(value.getClass().getSimpleName()).append(':');
+            if (value instanceof Number || value instanceof Boolean || value instanceof Date || value instanceof TemporalAccessor) {
+                String text = String.valueOf(value);
+                description.append(text.length() > MAX_LOGGED_VALUE_LENGTH ? text.substring(0, MAX_LOGGED_VALUE_LENGTH) + "..." : text);
+            } else if (value instanceof CharSequence text) {
+                description.append("***(").append(text.length()).append(" chars)");
+            } else {
+                description.append("***");
+            }
+        }
+        if (parameters.length > MAX_LOGGED_PARAMETERS) {
+            description.append(", ...");
+        }
+        return description.toString();
+    }
+
+    /**
+     * Statistics of a single query shape.
+     *
+     * @param shape       normalized statement
+     * @param count       number of executions, counting every batched execution
+     * @param errors      number of failed executions
+     * @param totalMillis total execution time
+     * @param meanMillis  mean execution time of a statement or batch
+     * @param p99Millis   99th percentile of the execution time of a statement or batch
+     * @param maxMillis   maximal execution time of a statement or batch
+     * @param callers     application methods executing the statement
+     */
+    record ShapeSnapshot(String shape, long count, long errors, double totalMillis, double meanMillis, double p99Millis,
+                         double maxMillis, Set<String> callers) {
+
+    }
+
+    /**
+     * Statement counts of a single endpoint.
+     *
+     * @param endpoint             HTTP method and path pattern
+     * @param requests             number of handled requests
+     * @param statements           number of statements executed by them
+     * @param statementsPerRequest mean number of statements per request
+     * @param maxStatements        maximal number of statements executed by a single request
+     * @param totalMillis          total execution time of the statements
+     */
+    record EndpointSnapshot(String endpoint, long requests, long statements, double statementsPerRequest,
+                            long maxStatements, double totalMillis) {
+
+    }
+
+    private record StatementKey(String endpoint, String caller, String operation) {
+
+    }
+
+    private static final class RequestStatements {
+
+        private final String endpoint;
+        private long statements;
+        private long nanos;
+
+        private RequestStatements(String endpoint) {
+            this.endpoint = endpoint;
+        }
+    }
+
+    private static final class ShapeStatistics {
+
+        private final String shape;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final Histogram histogram = new ConcurrentHistogram(MAX_TRACKABLE_NANOS, 2);
+        private final Set<String> callers = ConcurrentHashMap.newKeySet();
+
+        private ShapeStatistics(String shape) {
+            this.shape = shape;
+        }
+
+        private void record(long nanos, int executions, boolean failed, String caller) {
+            count.add(executions);
+            if (failed) {
+                errors.add(executions);
+            }
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            histogram.recordValue(Math.min(Math.max(nanos, 1), MAX_TRACKABLE_NANOS));
+            if (callers.size() < MAX_CALLERS_PER_SHAPE) {
+                callers.add(caller);
+            }
+        }
+
+        private ShapeSnapshot snapshot() {
+            long executions = histogram.getTotalCount();
+            double total = totalNanos.sum();
+            return new ShapeSnapshot(shape, count.sum(), errors.sum(), millis(total),
+                                     executions == 0 ? 0 : millis(total / executions),
+                                     millis(histogram.getValueAtPercentile(99)), millis(maxNanos.get()),
+                                     Set.copyOf(callers));
+        }
+    }
+
+    private static final class EndpointStatistics {
+
+        private final String endpoint;
+        private final DistributionSummary statementsPerRequest;
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder statements = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxStatements = new LongAccumulator(Math::max, 0);
+
+        private EndpointStatistics(String endpoint, MeterRegistry meterRegistry) {
+            this.endpoint = endpoint;
+            this.statementsPerRequest = DistributionSummary.builder("sql.statements.per.request")
+                    .description("Number of SQL statements executed while handling a request")
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry);
+        }
+
+        private void record(long requestStatements, long requestNanos) {
+            statementsPerRequest.record(requestStatements);
+            requests.increment();
+            statements.add(requestStatements);
+            totalNanos.add(requestNanos);
+            maxStatements.accumulate(requestStatements);
+        }
+
+        private EndpointSnapshot snapshot() {
+            long requestCount = requests.sum();
+            long statementCount = statements.sum();
+            return new EndpointSnapshot(endpoint, requestCount, statementCount,
+                                        requestCount == 0 ? 0 : (double) statementCount / requestCount,
+                                        maxStatements.get(), millis(totalNanos.sum()));
+        }
+    }
+
+    private static double millis(double nanos) {
+        return Math.round(nanos / 10_000) / 100.0;
+    }
+}
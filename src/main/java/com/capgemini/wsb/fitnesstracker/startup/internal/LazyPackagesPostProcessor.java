@@ -0,0 +1,61 @@
+package com.capgemini.wsb.fitnesstracker.startup.internal;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Marks the beans of non-critical packages as lazy, so they are created on their first use instead of during the context
+ * refresh. The packages are configured with the {@code startup.lazy-packages} property and nothing is changed if it is empty.
+ * <p>
+ * Unlike {@code spring.main.lazy-initialization}, which defers every bean and moves the cost (and the configuration errors)
+ * into the first requests, only the listed packages are affected. With Spring AOT the processor runs at build time and
+ * the lazy flag is recorded in the generated bean definitions.
+ */
+@Component
+@Slf4j
+class LazyPackagesPostProcessor implements BeanFactoryPostProcessor, EnvironmentAware {
+
+    private List<String> lazyPackages = List.of();
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        lazyPackages = Binder.get(environment)
+                .bind("startup.lazy-packages", Bindable.listOf(String.class))
+                .orElse(List.of());
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+        if (lazyPackages.isEmpty()) {
+            return;
+        }
+        int lazyBeans = 0;
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(beanName);
+            if (definition.isSingleton() && !definition.isLazyInit() && !definition.isAbstract() && isLazy(beanFactory, beanName)) {
+                definition.setLazyInit(true);
+                lazyBeans++;
+            }
+        }
+        log.info("Marked {} beans of packages {} as lazy", lazyBeans, lazyPackages);
+    }
+
+    private boolean isLazy(ConfigurableListableBeanFactory beanFactory, String beanName) {
+        Class<?> type = beanFactory.getType(beanName, false);
+        if (type == null) {
+            return false;
+        }
+        String typeName = type.getName();
+        return lazyPackages.stream().anyMatch(lazyPackage -> typeName.startsWith(lazyPackage + "."));
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.capgemini.wsb.fitnesstracker.startup.internal;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reports how long the instance took to become useful, measured from the JVM start: the time until the application was
+ * ready (also published by Spring Boot as {@code application.ready.time}) and the time until the first HTTP request was
+ * served, published as {@code application.first.request.time}.
+ * <p>
+ * Both values are logged once, so cold starts of different builds (e.g. with and without the {@code fast-startup}
+ * profile) can be compared directly from the logs.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+class StartupTimeReporter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicBoolean firstRequestServed = new AtomicBoolean();
+
+    @EventListener
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        log.info("Application ready {} ms after JVM start (context started in {} ms)",
+                 sinceJvmStart(), event.getTimeTaken().toMillis());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        filterChain.doFilter(request, response);
+        if (!firstRequestServed.get() && firstRequestServed.compareAndSet(false, true)) {
+            long timeToFirstRequest = sinceJvmStart();
+            TimeGauge.builder("application.first.request.time", () -> timeToFirstRequest, TimeUnit.MILLISECONDS)
+                    .description("Time from the JVM start until the first HTTP request was served")
+                    .register(meterRegistry);
+            log.info("First request {} {} served {} ms after JVM start",
+                     request.getMethod(), request.getRequestURI(), timeToFirstRequest);
+        }
+    }
+
+    private static long sinceJvmStart() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+}
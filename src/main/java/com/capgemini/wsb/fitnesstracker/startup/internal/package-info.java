@@ -0,0 +1,4 @@
+@NonNullByDefault
+package com.capgemini.wsb.fitnesstracker.startup.internal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
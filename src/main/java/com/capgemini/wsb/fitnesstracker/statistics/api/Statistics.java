@@ -3,9 +3,11 @@ package com.capgemini.wsb.fitnesstracker.statistics.api;
 import com.capgemini.wsb.fitnesstracker.user.api.User;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
 
 @Entity
-@Table(name = "statistics")
+@Table(name = "statistics", uniqueConstraints = @UniqueConstraint(name = "uk_statistics_user_id", columnNames = "user_id"))
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
@@ -18,6 +20,7 @@ public class Statistics {
 
     @ManyToOne
     @JoinColumn(name = "user_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
     private User user;
 
     @Column(name = "total_trainings", nullable = false)
@@ -29,4 +32,15 @@ public class Statistics {
     @Column(name = "total_calories_burned")
     private int totalCaloriesBurned;
 
+    public Statistics(
+            final User user,
+            final int totalTrainings,
+            final double totalDistance,
+            final int totalCaloriesBurned) {
+        this.user = user;
+        this.totalTrainings = totalTrainings;
+        this.totalDistance = totalDistance;
+        this.totalCaloriesBurned = totalCaloriesBurned;
+    }
+
 }
\ No newline at end of file
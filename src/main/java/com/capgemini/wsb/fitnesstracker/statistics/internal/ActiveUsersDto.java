@@ -0,0 +1,25 @@
+package com.capgemini.wsb.fitnesstracker.statistics.internal;
+
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
+import jakarta.annotation.Nullable;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Estimated numbers of distinct users who trained in a period, in total and per day.
+ *
+ * @param activityType   activity type of the counted trainings, {@code null} for all of them
+ * @param distinctUsers  users who trained at least once in the period
+ * @param days           every day of the period
+ */
+record ActiveUsersDto(LocalDate from,
+                      LocalDate to,
+                      @Nullable ActivityType activityType,
+                      long distinctUsers,
+                      List<Day> days) {
+
+    record Day(LocalDate day, long activeUsers, long trainings) {
+
+    }
+}
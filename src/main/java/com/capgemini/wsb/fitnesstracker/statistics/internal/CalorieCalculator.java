@@ -0,0 +1,94 @@
+package com.capgemini.wsb.fitnesstracker.statistics.internal;
+
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
+
+/**
+ * MET (metabolic equivalent of task) based estimation of calories burned during a training.
+ * <p>
+ * The MET value of an activity is looked up from speed thresholds taken from the Compendium of Physical Activities, then
+ * {@code kcal = MET * weight * hours} is scaled by an age factor, because the resting metabolic rate declines with age.
+ * The user model has no body weight, so a reference weight of {@value #REFERENCE_WEIGHT_KG} kg is used.
+ * <p>
+ * The calculation works on primitives only, so the same code serves the single training path and the batch recalculation
+ * over primitive arrays ({@link CaloriesRecalculation}).
+ */
+final class CalorieCalculator {
+
+    static final double REFERENCE_WEIGHT_KG = 70.0;
+
+    private static final double DAYS_PER_YEAR = 365.2425;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    /**
+     * Speed thresholds (km/h) per activity type ordinal; MET_VALUES[type][i] applies below SPEED_THRESHOLDS[type][i],
+     * the last MET value applies above all thresholds.
+     */
+    private static final double[][] SPEED_THRESHOLDS = new double[ActivityType.values().length][];
+    private static final double[][] MET_VALUES = new double[ActivityType.values().length][];
+
+    static {
+        define(ActivityType.RUNNING, new double[]{6.4, 8.0, 9.7, 11.3, 12.9, 14.5, 16.1},
+               new double[]{6.0, 8.3, 9.8, 11.0, 11.8, 12.8, 14.5, 16.0});
+        define(ActivityType.CYCLING, new double[]{16.0, 19.2, 22.4, 25.6, 30.6},
+               new double[]{4.0, 6.8, 8.0, 10.0, 12.0, 15.8});
+        define(ActivityType.WALKING, new double[]{3.2, 4.0, 4.8, 5.6, 6.4},
+               new double[]{2.0, 2.8, 3.5, 4.3, 5.0, 7.0});
+        define(ActivityType.SWIMMING, new double[]{}, new double[]{7.0});
+        define(ActivityType.TENNIS, new double[]{}, new double[]{7.3});
+    }
+
+    private CalorieCalculator() {
+    }
+
+    /**
+     * Estimates calories burned during a single training.
+     *
+     * @param activityType     ordinal of the {@link ActivityType}
+     * @param durationMillis   duration of the training in milliseconds
+     * @param averageSpeed     average speed in km/h, {@code 0} if unknown
+     * @param ageInYears       age of the user at the time of the training
+     * @return estimated burned calories in kcal
+     */
+    static double calories(int activityType, long durationMillis, double averageSpeed, int ageInYears) {
+        if (durationMillis <= 0) {
+            return 0;
+        }
+        double hours = durationMillis / 3_600_000.0;
+        return met(activityType, averageSpeed) * REFERENCE_WEIGHT_KG * hours * ageFactor(ageInYears);
+    }
+
+    /**
+     * @param birthEpochDay   birthdate of the user as {@link java.time.LocalDate#toEpochDay()}
+     * @param timeEpochMillis point in time in epoch milliseconds
+     * @return full years the user had at the given time
+     */
+    static int ageAt(long birthEpochDay, long timeEpochMillis) {
+        long days = Math.floorDiv(timeEpochMillis, MILLIS_PER_DAY) - birthEpochDay;
+        return (int) Math.max(0, days / DAYS_PER_YEAR);
+    }
+
+    private static double met(int activityType, double averageSpeed) {
+        double[] thresholds = SPEED_THRESHOLDS[activityType];
+        double[] values = MET_VALUES[activityType];
+        if (averageSpeed <= 0) {
+            return values[(values.length - 1) / 2];
+        }
+        int i = 0;
+        while (i < thresholds.length && averageSpeed >= thresholds[i]) {
+            i++;
+        }
+        return values[i];
+    }
+
+    /**
+     * Resting metabolism drops by roughly 0.5 % per year after 30 and is slightly higher for young adults.
+     */
+    private static double ageFactor(int ageInYears) {
+        return Math.max(0.75, Math.min(1.1, 1.0 - 0.005 * (ageInYears - 30)));
+    }
+
+    private static void define(ActivityType activityType, double[] thresholds, double[] values) {
+        SPEED_THRESHOLDS[activityType.ordinal()] = thresholds;
+        MET_VALUES[activityType.ordinal()] = values;
+    }
+}
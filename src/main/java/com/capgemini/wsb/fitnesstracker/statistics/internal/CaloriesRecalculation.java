@@ -0,0 +1,374 @@
+package com.capgemini.wsb.fitnesstracker.statistics.internal;
+
+import com.capgemini.wsb.fitnesstracker.jobs.api.ClusterJobs;
+import com.capgemini.wsb.fitnesstracker.jobs.api.PartitionedJob;
+import com.capgemini.wsb.fitnesstracker.sharding.api.ShardRouter;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingProvider;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingsBulkLoadedEvent;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Batch recalculation of the statistics (including {@code totalCaloriesBurned}) of all users, e.g. after the
+ * {@link CalorieCalculator} formula changed.
+ * <p>
+ * Trainings are read by keyset pagination in chunks of {@value #CHUNK_SIZE} rows into primitive column arrays. Calories
+ * of a chunk are computed in parallel by splitting the arrays into fork-join tasks, then summed up per user into dense
+ * arrays indexed by {@link LongIndex}. The results are written back with JDBC batch updates, bypassing the persistence
+ * context entirely.
+ * <p>
+ * Archived trainings are no longer in the {@code trainings} table; they are read from the archive
+ * ({@link TrainingProvider#forEachArchivedTraining}) and counted as well, just like the incremental updates of
+ * {@link StatisticsServiceImpl} keep counting a training after it was archived. Both paths round the calories of every
+ * training to whole kcal before summing them up, so a recalculation reproduces the incrementally maintained values.
+ * <p>
+ * With sharding, the trainings are read from every shard in turn ({@link ShardRouter#onShard}), while the users and
+ * the statistics are read and written on shard {@code 0}, in a transaction of their own once all shards were read.
+ * <p>
+ * The nightly recalculation ({@code statistics.recalculation.cron}) runs as a partitioned cluster job: every instance
+ * recalculates the statistics of the user id ranges it claims ({@link ClusterJobs}).
+ */
+@Component
+@Slf4j
+class CaloriesRecalculation implements PartitionedJob {
+
+    static final String JOB = "statistics-recalculation";
+
+    private static final int CHUNK_SIZE = 500_000;
+    private static final int FORK_THRESHOLD = 8_192;
+    private static final int WRITE_BATCH_SIZE = 1_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ClusterJobs clusterJobs;
+    private final TrainingProvider trainingProvider;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transaction;
+
+    CaloriesRecalculation(JdbcTemplate jdbcTemplate,
+                          ClusterJobs clusterJobs,
+                          TrainingProvider trainingProvider,
+                          ShardRouter shardRouter,
+                          PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clusterJobs = clusterJobs;
+        this.trainingProvider = trainingProvider;
+        this.shardRouter = shardRouter;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(cron = "${statistics.recalculation.cron:-}")
+    void scheduleRecalculation() {
+        clusterJobs.schedulePartitioned(JOB);
+    }
+
+    /**
+     * Bulk loaded trainings bypass the incremental updates, so the statistics are recalculated from scratch.
+     */
+    @EventListener
+    public void onTrainingsBulkLoaded(TrainingsBulkLoadedEvent event) {
+        log.info("Recalculating statistics after {} trainings were bulk loaded", event.trainings());
+        recalculate();
+    }
+
+    @Override
+    public String name() {
+        return JOB;
+    }
+
+    /**
+     * Recalculates and stores the statistics of every user.
+     *
+     * @return number of processed trainings
+     */
+    public long recalculate() {
+        return recalculate(null);
+    }
+
+    @Override
+    public void processPartition(long fromUserId, long toUserId) {
+        recalculate(new UserRange(fromUserId, toUserId));
+    }
+
+    /**
+     * Recalculates and stores the statistics of the users in the range, of every user if it is {@code null}.
+     */
+    private long recalculate(@Nullable UserRange range) {
+        long start = System.nanoTime();
+        UserRange userRange = range != null ? range : UserRange.ALL;
+        Users users = shardRouter.onShard(0, () -> loadUsers(userRange));
+        int userCount = users.index().size();
+        double[] calories = new double[userCount];
+        double[] distances = new double[userCount];
+        int[] trainings = new int[userCount];
+
+        TrainingChunk chunk = new TrainingChunk(CHUNK_SIZE);
+        long processed = 0;
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            processed += shardRouter.onShard(shard, () -> addTrainings(chunk, range, users, trainings, distances, calories));
+        }
+        processed += addArchivedTrainings(userRange, users, trainings, distances, calories);
+
+        Integer written = shardRouter.onShard(0, () -> transaction.execute(
+                status -> writeStatistics(userRange, users, trainings, distances, calories)));
+        log.info("Recalculated statistics of {} users from {} trainings in {} ms",
+                 written, processed, (System.nanoTime() - start) / 1_000_000);
+        return processed;
+    }
+
+    /**
+     * Adds the trainings of the current shard, chunk by chunk.
+     *
+     * @return number of read trainings
+     */
+    private long addTrainings(TrainingChunk chunk, @Nullable UserRange range, Users users,
+                              int[] trainings, double[] distances, double[] calories) {
+        long lastId = 0;
+        long processed = 0;
+        int rows;
+        while ((rows = chunk.load(jdbcTemplate, lastId, range, users.index())) > 0) {
+            ForkJoinPool.commonPool().invoke(new CaloriesTask(chunk, users.birthEpochDays(), 0, rows));
+            for (int i = 0; i < rows; i++) {
+                int user = chunk.userIndexes[i];
+                if (user >= 0) {
+                    calories[user] += Math.round(chunk.calories[i]);
+                    distances[user] += chunk.distances[i];
+                    trainings[user]++;
+                }
+            }
+            lastId = chunk.ids[rows - 1];
+            processed += rows;
+        }
+        return processed;
+    }
+
+    private long addArchivedTrainings(UserRange range, Users users, int[] trainings, double[] distances, double[] calories) {
+        long[] archived = {0};
+        trainingProvider.forEachArchivedTraining(range.from(), range.to(), (userId, startTime, endTime, activityType, distance, averageSpeed) -> {
+            int user = users.index().indexOf(userId);
+            if (user < 0) {
+                return;
+            }
+            int age = CalorieCalculator.ageAt(users.birthEpochDays()[user], startTime);
+            calories[user] += Math.round(CalorieCalculator.calories(activityType.ordinal(), endTime - startTime, averageSpeed, age));
+            distances[user] += distance;
+            trainings[user]++;
+            archived[0]++;
+        });
+        return archived[0];
+    }
+
+    private Users loadUsers(UserRange range) {
+        Integer count = jdbcTemplate.queryForObject("select count(*) from users where id >= ? and id < ?", Integer.class,
+                                                    range.from(), range.to());
+        Users users = new Users(count == null ? 0 : count);
+        jdbcTemplate.query("select id, birthdate from users where id >= ? and id < ?", resultSet -> {
+            users.add(resultSet.getLong(1), resultSet.getDate(2).toLocalDate().toEpochDay());
+        }, range.from(), range.to());
+        return users;
+    }
+
+    private int writeStatistics(UserRange range, Users users, int[] trainings, double[] distances, double[] calories) {
+        LongIndex existing = new LongIndex(users.index().size());
+        jdbcTemplate.query("select user_id from statistics where user_id >= ? and user_id < ?",
+                           resultSet -> {
+                               existing.add(resultSet.getLong(1));
+                           },
+                           range.from(), range.to());
+
+        int userCount = users.index().size();
+        int[] updates = new int[userCount];
+        int[] inserts = new int[userCount];
+        int updateCount = 0;
+        int insertCount = 0;
+        for (int user = 0; user < userCount; user++) {
+            if (existing.indexOf(users.ids()[user]) >= 0) {
+                updates[updateCount++] = user;
+            } else if (trainings[user] > 0) {
+                inserts[insertCount++] = user;
+            }
+        }
+        writeBatched("update statistics set total_trainings = ?, total_distance = ?, total_calories_burned = ? where user_id = ?",
+                     updates, updateCount, users, trainings, distances, calories);
+        writeBatched("insert into statistics (total_trainings, total_distance, total_calories_burned, user_id) values (?, ?, ?, ?)",
+                     inserts, insertCount, users, trainings, distances, calories);
+        return updateCount + insertCount;
+    }
+
+    private void writeBatched(String sql, int[] userIndexes, int count, Users users,
+                              int[] trainings, double[] distances, double[] calories) {
+        for (int from = 0; from < count; from += WRITE_BATCH_SIZE) {
+            int batchStart = from;
+            int batchSize = Math.min(WRITE_BATCH_SIZE, count - from);
+            jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+
+                @Override
+                public void setValues(PreparedStatement statement, int i) throws SQLException {
+                    int user = userIndexes[batchStart + i];
+                    statement.setInt(1, trainings[user]);
+                    statement.setDouble(2, distances[user]);
+                    statement.setInt(3, (int) Math.round(calories[user]));
+                    statement.setLong(4, users.ids()[user]);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return batchSize;
+                }
+            });
+        }
+    }
+
+    /**
+     * Range of user ids, {@code from} inclusive and {@code to} exclusive.
+     */
+    private record UserRange(long from, long to) {
+
+        private static final UserRange ALL = new UserRange(Long.MIN_VALUE, Long.MAX_VALUE);
+
+    }
+
+    /**
+     * Users by dense {@link LongIndex} index: {@code ids[index]} and {@code birthEpochDays[index]}.
+     */
+    private static final class Users {
+
+        private final LongIndex index;
+        private long[] ids;
+        private long[] birthEpochDays;
+
+        private Users(int expectedSize) {
+            index = new LongIndex(expectedSize);
+            ids = new long[Math.max(16, expectedSize)];
+            birthEpochDays = new long[ids.length];
+        }
+
+        private void add(long id, long birthEpochDay) {
+            int user = index.add(id);
+            if (user >= ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+                birthEpochDays = Arrays.copyOf(birthEpochDays, ids.length);
+            }
+            ids[user] = id;
+            birthEpochDays[user] = birthEpochDay;
+        }
+
+        private LongIndex index() {
+            return index;
+        }
+
+        private long[] ids() {
+            return ids;
+        }
+
+        private long[] birthEpochDays() {
+            return birthEpochDays;
+        }
+    }
+
+    /**
+     * Column arrays of one chunk of trainings, reused between chunks.
+     */
+    private static final class TrainingChunk {
+
+        private final long[] ids;
+        private final int[] userIndexes;
+        private final long[] startTimes;
+        private final long[] durations;
+        private final int[] activityTypes;
+        private final double[] averageSpeeds;
+        private final double[] distances;
+        private final double[] calories;
+
+        private TrainingChunk(int size) {
+            ids = new long[size];
+            userIndexes = new int[size];
+            startTimes = new long[size];
+            durations = new long[size];
+            activityTypes = new int[size];
+            averageSpeeds = new double[size];
+            distances = new double[size];
+            calories = new double[size];
+        }
+
+        private int load(JdbcTemplate jdbcTemplate, long afterId, @Nullable UserRange range, LongIndex users) {
+            int[] rows = {0};
+            RowCallbackHandler handler = resultSet -> {
+                int row = rows[0]++;
+                ids[row] = resultSet.getLong(1);
+                long userId = resultSet.getLong(2);
+                userIndexes[row] = resultSet.wasNull() ? -1 : users.indexOf(userId);
+                startTimes[row] = resultSet.getTimestamp(3).getTime();
+                durations[row] = resultSet.getTimestamp(4).getTime() - startTimes[row];
+                activityTypes[row] = resultSet.getInt(5);
+                distances[row] = resultSet.getDouble(6);
+                averageSpeeds[row] = resultSet.getDouble(7);
+            };
+            if (range == null) {
+                jdbcTemplate.query("""
+                                           select id, user_id, start_time, end_time, activity_type, distance, average_speed
+                                             from trainings
+                                            where id > ?
+                                            order by id
+                                            fetch first ? rows only""",
+                                   handler, afterId, ids.length);
+            } else {
+                jdbcTemplate.query("""
+                                           select id, user_id, start_time, end_time, activity_type, distance, average_speed
+                                             from trainings
+                                            where user_id >= ? and user_id < ? and id > ?
+                                            order by id
+                                            fetch first ? rows only""",
+                                   handler, range.from(), range.to(), afterId, ids.length);
+            }
+            return rows[0];
+        }
+    }
+
+    /**
+     * Computes the calories of a range of chunk rows, splitting the range in halves until it is small enough.
+     */
+    private static final class CaloriesTask extends RecursiveAction {
+
+        private final TrainingChunk chunk;
+        private final long[] birthEpochDays;
+        private final int from;
+        private final int to;
+
+        private CaloriesTask(TrainingChunk chunk, long[] birthEpochDays, int from, int to) {
+            this.chunk = chunk;
+            this.birthEpochDays = birthEpochDays;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > FORK_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new CaloriesTask(chunk, birthEpochDays, from, middle),
+                          new CaloriesTask(chunk, birthEpochDays, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                int user = chunk.userIndexes[i];
+                int age = user >= 0 ? CalorieCalculator.ageAt(birthEpochDays[user], chunk.startTimes[i]) : 30;
+                chunk.calories[i] = CalorieCalculator.calories(chunk.activityTypes[i], chunk.durations[i],
+                                                               chunk.averageSpeeds[i], age);
+            }
+        }
+    }
+}
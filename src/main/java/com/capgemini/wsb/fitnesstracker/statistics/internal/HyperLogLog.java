@@ -0,0 +1,142 @@
+package com.capgemini.wsb.fitnesstracker.statistics.internal;
+
+import java.nio.ByteBuffer;
+
+/**
+ * HyperLogLog sketch estimating the number of distinct values in {@code 2^precision} bytes, with a standard error of
+ * about {@code 1.04 / sqrt(2^precision)}: 1.6 % at precision 12.
+ * <p>
+ * Values are hashed with the SplitMix64 finalizer. The first {@code precision} bits of the hash select a register, which
+ * keeps the highest position of the first one bit seen in the remaining bits. Sketches of the same precision are merged
+ * by the register-wise maximum, so the sketches of several days or application instances combine into the sketch of
+ * their union. Small cardinalities are estimated by linear counting of the empty registers instead.
+ * <p>
+ * The serialized form lists only the non-empty registers while they are less than a third of all of them, so the sketch
+ * of a quiet day takes three bytes per distinct value.
+ */
+final class HyperLogLog {
+
+    private static final byte DENSE = 1;
+    private static final byte SPARSE = 2;
+
+    private final int precision;
+    private final byte[] registers;
+
+    HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("Precision must be between 4 and 16: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    void add(long value) {
+        long hash = mix(value);
+        int register = (int) (hash >>> (Long.SIZE - precision));
+        byte rank = (byte) (Long.numberOfLeadingZeros(hash << precision | 1L << (precision - 1)) + 1);
+        if (rank > registers[register]) {
+            registers[register] = rank;
+        }
+    }
+
+    /**
+     * Adds all values of the other sketch to this one.
+     *
+     * @return this sketch
+     */
+    HyperLogLog merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge sketches of precision %d and %d".formatted(precision, other.precision));
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return estimated number of distinct added values
+     */
+    long estimate() {
+        int size = registers.length;
+        double sum = 0;
+        int empty = 0;
+        for (byte rank : registers) {
+            sum += Math.scalb(1.0, -rank);
+            if (rank == 0) {
+                empty++;
+            }
+        }
+        double estimate = alpha(size) * size * size / sum;
+        if (estimate <= 2.5 * size && empty > 0) {
+            estimate = size * Math.log((double) size / empty);
+        }
+        return Math.round(estimate);
+    }
+
+    int serializedSize() {
+        int nonEmpty = nonEmpty();
+        return isSparse(nonEmpty) ? 2 + Integer.BYTES + nonEmpty * 3 : 2 + registers.length;
+    }
+
+    void writeTo(ByteBuffer buffer) {
+        int nonEmpty = nonEmpty();
+        if (isSparse(nonEmpty)) {
+            buffer.put(SPARSE).put((byte) precision).putInt(nonEmpty);
+            for (int i = 0; i < registers.length; i++) {
+                if (registers[i] != 0) {
+                    buffer.putChar((char) i).put(registers[i]);
+                }
+            }
+        } else {
+            buffer.put(DENSE).put((byte) precision).put(registers);
+        }
+    }
+
+    static HyperLogLog readFrom(ByteBuffer buffer) {
+        byte format = buffer.get();
+        HyperLogLog sketch = new HyperLogLog(buffer.get());
+        if (format == DENSE) {
+            buffer.get(sketch.registers);
+        } else if (format == SPARSE) {
+            for (int i = buffer.getInt(); i > 0; i--) {
+                sketch.registers[buffer.getChar()] = buffer.get();
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown HyperLogLog format " + format);
+        }
+        return sketch;
+    }
+
+    private int nonEmpty() {
+        int nonEmpty = 0;
+        for (byte rank : registers) {
+            if (rank != 0) {
+                nonEmpty++;
+            }
+        }
+        return nonEmpty;
+    }
+
+    private boolean isSparse(int nonEmpty) {
+        return nonEmpty * 3 < registers.length;
+    }
+
+    private static double alpha(int size) {
+        return switch (size) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / size);
+        };
+    }
+
+    private static long mix(long value) {
+        long hash = value + 0x9E3779B97F4A7C15L;
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+}
@@ -0,0 +1,85 @@
+package com.capgemini.wsb.fitnesstracker.statistics.internal;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from {@code long} keys to dense {@code int} indexes ({@code 0..size-1}, in insertion order).
+ * Used to aggregate per-user values in primitive arrays without boxing millions of IDs.
+ */
+final class LongIndex {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int[] indexes;
+    private int size;
+
+    LongIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        indexes = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * @param key key to add
+     * @return index of the key, newly assigned if the key was not present
+     */
+    int add(long key) {
+        if (size * 2 >= keys.length) {
+            grow();
+        }
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return indexes[slot];
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        keys[slot] = key;
+        indexes[slot] = size;
+        return size++;
+    }
+
+    /**
+     * @param key key to find
+     * @return index of the key, {@code -1} if not present
+     */
+    int indexOf(long key) {
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return indexes[slot];
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        return -1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & (keys.length - 1);
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldIndexes = indexes;
+        keys = new long[oldKeys.length * 2];
+        indexes = new int[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & (keys.length - 1);
+                }
+                keys[slot] = oldKeys[i];
+                indexes[slot] = oldIndexes[i];
+            }
+        }
+    }
+}
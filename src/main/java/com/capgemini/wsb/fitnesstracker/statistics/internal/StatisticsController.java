@@ -0,0 +1,39 @@
+package com.capgemini.wsb.fitnesstracker.statistics.internal;
+
+import com.capgemini.wsb.fitnesstracker.statistics.api.Statistics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST controller for the training statistics of users.
+ */
+@RestController
+@RequestMapping("/v1/statistics")
+@RequiredArgsConstructor
+class StatisticsController {
+
+    private final StatisticsServiceImpl statisticsService;
+    private final CaloriesRecalculation caloriesRecalculation;
+
+    /**
+     * Retrieves statistics by their ID.
+     *
+     * @param id the ID of the statistics to retrieve.
+     * @return ResponseEntity containing the Statistics if found, or NotFound status if not found.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<Statistics> getStatistics(@PathVariable Long id) {
+        return statisticsService.getStatistics(id).map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Recalculates the statistics, including burned calories, of all users from all their trainings.
+     *
+     * @return ResponseEntity containing the number of processed trainings and the HTTP status code.
+     */
+    @PostMapping("/recalculate")
+    public ResponseEntity<Long> recalculate() {
+        return ResponseEntity.ok(caloriesRecalculation.recalculate());
+    }
+}
@@ -0,0 +1,34 @@
+package com.capgemini.wsb.fitnesstracker.statistics.internal;
+
+import com.capgemini.wsb.fitnesstracker.statistics.api.Statistics;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+interface StatisticsRepository extends JpaRepository<Statistics, Long> {
+
+    /**
+     * Atomically adds the given values to the statistics of the user, so that concurrent training writes of the same
+     * user do not overwrite each other. The statement is native, since Hibernate renders the numeric parameters of the
+     * equivalent HQL update with a {@code cast(? as float(p))} which H2 rejects.
+     *
+     * @param userId    ID of the user whose statistics are updated
+     * @param trainings number of trainings to add (negative to subtract)
+     * @param distance  distance to add in kilometers
+     * @param calories  calories to add in kcal
+     * @return number of updated rows, {@code 0} if the user has no statistics yet
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            update statistics
+               set total_trainings = total_trainings + :trainings,
+                   total_distance = total_distance + :distance,
+                   total_calories_burned = total_calories_burned + :calories
+             where user_id = :userId""")
+    int addToUserStatistics(@Param("userId") Long userId,
+                            @Param("trainings") int trainings,
+                            @Param("distance") double distance,
+                            @Param("calories") int calories);
+
+}
@@ -0,0 +1,93 @@
+package com.capgemini.wsb.fitnesstracker.statistics.internal;
+
+import com.capgemini.wsb.fitnesstracker.statistics.api.Statistics;
+import com.capgemini.wsb.fitnesstracker.statistics.api.StatisticsProvider;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingChangedEvent;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
+import com.capgemini.wsb.fitnesstracker.user.api.User;
+import com.capgemini.wsb.fitnesstracker.user.internal.UserRepository;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+
+@Service
+@Slf4j
+class StatisticsServiceImpl implements StatisticsProvider {
+
+    private final StatisticsRepository statisticsRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate newTransaction;
+
+    StatisticsServiceImpl(StatisticsRepository statisticsRepository, UserRepository userRepository,
+                          PlatformTransactionManager transactionManager) {
+        this.statisticsRepository = statisticsRepository;
+        this.userRepository = userRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public Optional<Statistics> getStatistics(Long statisticsId) {
+        return statisticsRepository.findById(statisticsId);
+    }
+
+    /**
+     * Keeps the statistics of the affected users current: the previous state of the training is subtracted and
+     * the current one is added, including its estimated calories. Archiving a training does not publish an event, so
+     * the statistics keep counting archived trainings, as {@link CaloriesRecalculation} does.
+     *
+     * @param event training change
+     */
+    @EventListener
+    @Transactional
+    public void onTrainingChanged(TrainingChangedEvent event) {
+        apply(event.previous(), -1);
+        apply(event.current(), 1);
+    }
+
+    private void apply(@Nullable TrainingDto training, int sign) {
+        if (training == null || training.user() == null || training.user().getId() == null) {
+            return;
+        }
+        Optional<User> user = userRepository.findById(training.user().getId());
+        if (user.isEmpty()) {
+            return;
+        }
+        int calories = (int) Math.round(caloriesOf(training, user.get()));
+        int updated = statisticsRepository.addToUserStatistics(user.get().getId(), sign, sign * training.distance(), sign * calories);
+        if (updated == 0 && sign > 0) {
+            createEmptyStatistics(user.get());
+            statisticsRepository.addToUserStatistics(user.get().getId(), sign, sign * training.distance(), sign * calories);
+        }
+    }
+
+    /**
+     * Inserts empty statistics of the user in a separate transaction. If the first trainings of the user are processed
+     * concurrently, only one insert passes the unique constraint on {@code user_id}; the others fail without affecting
+     * the calling transaction, and every caller then adds its training to the single row with the atomic update.
+     */
+    private void createEmptyStatistics(User user) {
+        try {
+            newTransaction.executeWithoutResult(status -> statisticsRepository.saveAndFlush(new Statistics(user, 0, 0, 0)));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Statistics of user {} were created concurrently", user.getId());
+        }
+    }
+
+    private static double caloriesOf(TrainingDto training, User user) {
+        long startTime = training.startTime().getTime();
+        return CalorieCalculator.calories(
+                training.activityType().ordinal(),
+                training.endTime().getTime() - startTime,
+                training.averageSpeed(),
+                CalorieCalculator.ageAt(user.getBirthdate().toEpochDay(), startTime));
+    }
+}
@@ -0,0 +1,246 @@
+package com.capgemini.wsb.fitnesstracker.statistics.internal;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Merging t-digest estimating quantiles of a distribution of values in space bounded by the {@code compression}.
+ * <p>
+ * The distribution is summarized by centroids (mean and weight), sorted by mean. Added values are buffered and merged
+ * into the centroids in one sorted pass when the buffer is full. The pass limits the weight of a centroid by the
+ * {@code k1} scale function {@code k(q) = compression / (2 pi) * asin(2q - 1)}: a centroid may only span one unit of
+ * {@code k}, so centroids near the tails hold few values and the extreme quantiles are the most accurate. Quantiles are
+ * interpolated between the centers of the neighbouring centroids, and between the minimum or maximum and the outermost
+ * centroids.
+ * <p>
+ * Digests are merged by adding the centroids of the other digest as weighted values, so the digests of several days or
+ * application instances combine into the digest of all their values. The serialized form holds the centroids as float
+ * means and integer weights, at most about {@code compression} of them.
+ */
+final class TDigest {
+
+    private final double compression;
+
+    private double[] means;
+    private double[] weights;
+    private int centroids;
+
+    private final double[] bufferedMeans;
+    private final double[] bufferedWeights;
+    private int buffered;
+
+    private double totalWeight;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    TDigest(double compression) {
+        if (compression < 10) {
+            throw new IllegalArgumentException("Compression must be at least 10: " + compression);
+        }
+        this.compression = compression;
+        int capacity = (int) Math.ceil(compression) + 10;
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+        this.bufferedMeans = new double[4 * capacity];
+        this.bufferedWeights = new double[bufferedMeans.length];
+    }
+
+    void add(double value) {
+        if (!Double.isNaN(value)) {
+            add(value, 1);
+        }
+    }
+
+    /**
+     * Adds all values of the other digest to this one.
+     *
+     * @return this digest
+     */
+    TDigest merge(TDigest other) {
+        other.compress();
+        for (int i = 0; i < other.centroids; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    /**
+     * @return number of added values
+     */
+    long count() {
+        return Math.round(totalWeight);
+    }
+
+    /**
+     * Estimates the value below which the given fraction of the added values lies.
+     *
+     * @param quantile fraction between 0 and 1
+     * @return estimated value, {@link Double#NaN} if no value was added
+     */
+    double quantile(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + quantile);
+        }
+        compress();
+        if (centroids == 0) {
+            return Double.NaN;
+        }
+        if (centroids == 1) {
+            return means[0];
+        }
+        double index = quantile * totalWeight;
+        if (index <= weights[0] / 2) {
+            return min + (means[0] - min) * index / (weights[0] / 2);
+        }
+        int last = centroids - 1;
+        if (index >= totalWeight - weights[last] / 2) {
+            return max - (max - means[last]) * (totalWeight - index) / (weights[last] / 2);
+        }
+        double center = weights[0] / 2;
+        for (int i = 0; i < last; i++) {
+            double nextCenter = center + (weights[i] + weights[i + 1]) / 2;
+            if (index <= nextCenter) {
+                return means[i] + (means[i + 1] - means[i]) * (index - center) / (nextCenter - center);
+            }
+            center = nextCenter;
+        }
+        return max;
+    }
+
+    int serializedSize() {
+        compress();
+        return Double.BYTES * 3 + Integer.BYTES + centroids * (Float.BYTES + Integer.BYTES);
+    }
+
+    void writeTo(ByteBuffer buffer) {
+        compress();
+        buffer.putDouble(compression).putDouble(min).putDouble(max).putInt(centroids);
+        for (int i = 0; i < centroids; i++) {
+            buffer.putFloat((float) means[i]).putInt((int) Math.round(weights[i]));
+        }
+    }
+
+    static TDigest readFrom(ByteBuffer buffer) {
+        TDigest digest = new TDigest(buffer.getDouble());
+        double min = buffer.getDouble();
+        double max = buffer.getDouble();
+        for (int i = buffer.getInt(); i > 0; i--) {
+            digest.add(buffer.getFloat(), buffer.getInt());
+        }
+        digest.min = min;
+        digest.max = max;
+        return digest;
+    }
+
+    private void add(double mean, double weight) {
+        if (buffered == bufferedMeans.length) {
+            compress();
+        }
+        bufferedMeans[buffered] = mean;
+        bufferedWeights[buffered] = weight;
+        buffered++;
+        totalWeight += weight;
+        min = Math.min(min, mean);
+        max = Math.max(max, mean);
+    }
+
+    private void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        int count = centroids + buffered;
+        double[] allMeans = new double[count];
+        double[] allWeights = new double[count];
+        System.arraycopy(means, 0, allMeans, 0, centroids);
+        System.arraycopy(weights, 0, allWeights, 0, centroids);
+        System.arraycopy(bufferedMeans, 0, allMeans, centroids, buffered);
+        System.arraycopy(bufferedWeights, 0, allWeights, centroids, buffered);
+        sort(allMeans, allWeights, 0, count - 1);
+
+        int merged = 0;
+        double mean = allMeans[0];
+        double weight = allWeights[0];
+        double weightSoFar = 0;
+        double weightLimit = totalWeight * quantileOf(scale(0) + 1);
+        for (int i = 1; i < count; i++) {
+            if (weightSoFar + weight + allWeights[i] <= weightLimit) {
+                weight += allWeights[i];
+                mean += allWeights[i] * (allMeans[i] - mean) / weight;
+            } else {
+                merged = store(merged, mean, weight);
+                weightSoFar += weight;
+                weightLimit = totalWeight * quantileOf(scale(weightSoFar / totalWeight) + 1);
+                mean = allMeans[i];
+                weight = allWeights[i];
+            }
+        }
+        centroids = store(merged, mean, weight);
+        buffered = 0;
+    }
+
+    private int store(int index, double mean, double weight) {
+        if (index == means.length) {
+            means = Arrays.copyOf(means, index * 2);
+            weights = Arrays.copyOf(weights, index * 2);
+        }
+        means[index] = mean;
+        weights[index] = weight;
+        return index + 1;
+    }
+
+    private double scale(double quantile) {
+        return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1, Math.max(0, quantile)) - 1);
+    }
+
+    private double quantileOf(double scale) {
+        if (scale >= compression / 4) {
+            return 1;
+        }
+        return (Math.sin(scale * 2 * Math.PI / compression) + 1) / 2;
+    }
+
+    /**
+     * Sorts the parallel arrays by mean, in place.
+     */
+    private static void sort(double[] means, double[] weights, int from, int to) {
+        while (to - from > 16) {
+            double pivot = means[(from + to) >>> 1];
+            int left = from;
+            int right = to;
+            while (left <= right) {
+                while (means[left] < pivot) {
+                    left++;
+                }
+                while (means[right] > pivot) {
+                    right--;
+                }
+                if (left <= right) {
+                    swap(means, weights, left++, right--);
+                }
+            }
+            if (right - from < to - left) {
+                sort(means, weights, from, right);
+                from = left;
+            } else {
+                sort(means, weights, left, to);
+                to = right;
+            }
+        }
+        for (int i = from + 1; i <= to; i++) {
+            for (int j = i; j > from && means[j - 1] > means[j]; j--) {
+                swap(means, weights, j - 1, j);
+            }
+        }
+    }
+
+    private static void swap(double[] means, double[] weights, int i, int j) {
+        double mean = means[i];
+        means[i] = means[j];
+        means[j] = mean;
+        double weight = weights[i];
+        weights[i] = weights[j];
+        weights[j] = weight;
+    }
+}
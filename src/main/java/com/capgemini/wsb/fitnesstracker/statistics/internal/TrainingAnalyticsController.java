@@ -0,0 +1,60 @@
+package com.capgemini.wsb.fitnesstracker.statistics.internal;
+
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
+import jakarta.annotation.Nullable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * REST controller for the approximate analytics of all trainings, answered from {@link TrainingSketches}.
+ */
+@RestController
+@RequestMapping("/v1/statistics")
+@ConditionalOnProperty(prefix = "statistics.sketches", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+class TrainingAnalyticsController {
+
+    private final TrainingSketches trainingSketches;
+
+    /**
+     * Retrieves the estimated number of distinct users who trained in the period, in total and per day.
+     *
+     * @param from         first day of the period (yyyy-MM-dd), today by default
+     * @param to           last day of the period (yyyy-MM-dd), {@code from} by default
+     * @param activityType activity type of the counted trainings, all of them by default
+     * @return ResponseEntity containing the active user counts, or BadRequest status if the period is invalid
+     */
+    @GetMapping("/active-users")
+    public ResponseEntity<ActiveUsersDto> getActiveUsers(@RequestParam(required = false) @Nullable @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate from,
+                                                         @RequestParam(required = false) @Nullable @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate to,
+                                                         @RequestParam(required = false) @Nullable ActivityType activityType) {
+        LocalDate first = from != null ? from : LocalDate.now();
+        return ResponseEntity.ok(trainingSketches.activeUsers(first, to != null ? to : first, activityType));
+    }
+
+    /**
+     * Retrieves the estimated median, 90th and 99th percentile of the distance and average speed of the trainings
+     * started in the period, per activity type.
+     *
+     * @param from         first day of the period (yyyy-MM-dd), today by default
+     * @param to           last day of the period (yyyy-MM-dd), {@code from} by default
+     * @param activityType the only reported activity type, all of them by default
+     * @return ResponseEntity containing the percentiles of the activity types with trainings in the period
+     */
+    @GetMapping("/percentiles")
+    public ResponseEntity<List<TrainingPercentilesDto>> getPercentiles(@RequestParam(required = false) @Nullable @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate from,
+                                                                       @RequestParam(required = false) @Nullable @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate to,
+                                                                       @RequestParam(required = false) @Nullable ActivityType activityType) {
+        LocalDate first = from != null ? from : LocalDate.now();
+        return ResponseEntity.ok(trainingSketches.percentiles(first, to != null ? to : first, activityType));
+    }
+}
@@ -0,0 +1,16 @@
+package com.capgemini.wsb.fitnesstracker.statistics.internal;
+
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
+
+/**
+ * Estimated percentiles of the distance (km) and average speed (km/h) of the trainings of one activity type in a period.
+ */
+record TrainingPercentilesDto(ActivityType activityType,
+                              long trainings,
+                              Percentiles distance,
+                              Percentiles averageSpeed) {
+
+    record Percentiles(double p50, double p90, double p99) {
+
+    }
+}
@@ -0,0 +1,78 @@
+package com.capgemini.wsb.fitnesstracker.statistics.internal;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Sketches of a set of trainings, e.g. of one activity type on one day: the distinct users ({@link HyperLogLog}) and
+ * the distributions of distance and average speed ({@link TDigest}). Mergeable and serializable like its parts.
+ */
+final class TrainingSketch {
+
+    private static final byte VERSION = 1;
+
+    private final HyperLogLog users;
+    private final TDigest distances;
+    private final TDigest averageSpeeds;
+
+    TrainingSketch(int precision, double compression) {
+        this(new HyperLogLog(precision), new TDigest(compression), new TDigest(compression));
+    }
+
+    private TrainingSketch(HyperLogLog users, TDigest distances, TDigest averageSpeeds) {
+        this.users = users;
+        this.distances = distances;
+        this.averageSpeeds = averageSpeeds;
+    }
+
+    void add(long userId, double distance, double averageSpeed) {
+        users.add(userId);
+        distances.add(distance);
+        averageSpeeds.add(averageSpeed);
+    }
+
+    /**
+     * Adds all trainings of the other sketch to this one.
+     *
+     * @return this sketch
+     */
+    TrainingSketch merge(TrainingSketch other) {
+        users.merge(other.users);
+        distances.merge(other.distances);
+        averageSpeeds.merge(other.averageSpeeds);
+        return this;
+    }
+
+    long trainings() {
+        return distances.count();
+    }
+
+    HyperLogLog users() {
+        return users;
+    }
+
+    TDigest distances() {
+        return distances;
+    }
+
+    TDigest averageSpeeds() {
+        return averageSpeeds;
+    }
+
+    byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + users.serializedSize() + distances.serializedSize() + averageSpeeds.serializedSize());
+        buffer.put(VERSION);
+        users.writeTo(buffer);
+        distances.writeTo(buffer);
+        averageSpeeds.writeTo(buffer);
+        return buffer.array();
+    }
+
+    static TrainingSketch fromBytes(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unknown training sketch version " + version);
+        }
+        return new TrainingSketch(HyperLogLog.readFrom(buffer), TDigest.readFrom(buffer), TDigest.readFrom(buffer));
+    }
+}
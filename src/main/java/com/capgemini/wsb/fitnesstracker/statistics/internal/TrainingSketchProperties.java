@@ -0,0 +1,52 @@
+package com.capgemini.wsb.fitnesstracker.statistics.internal;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Configuration of the approximate training analytics ({@link TrainingSketches}). The delay of writing the recorded
+ * sketches to the database is configured in milliseconds as {@code statistics.sketches.flush-delay}, the schedule of
+ * the compaction of stale rows as {@code statistics.sketches.compaction-cron}.
+ */
+@ConfigurationProperties(prefix = "statistics.sketches")
+@Getter
+@Setter
+class TrainingSketchProperties {
+
+    /**
+     * Whether new trainings are recorded in sketches and the analytics endpoints are available.
+     */
+    private boolean enabled;
+
+    /**
+     * Identifier of this instance, unique among the instances sharing the database. Random by default, so every start
+     * writes rows of its own; they are compacted once stale ({@link #compactAfter}).
+     */
+    private String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * Time after which rows not updated anymore are merged into a single row per day and activity type.
+     */
+    private Duration compactAfter = Duration.ofDays(1);
+
+    /**
+     * HyperLogLog precision of the distinct user counts: {@code 2^precision} registers, a standard error of
+     * {@code 1.04 / sqrt(2^precision)}.
+     */
+    private int precision = 12;
+
+    /**
+     * T-digest compression of the percentiles: the approximate maximum number of centroids per distribution.
+     */
+    private double compression = 100;
+
+    /**
+     * Maximum number of days of a single analytics query.
+     */
+    private int maxDays = 366;
+
+}
@@ -0,0 +1,37 @@
+package com.capgemini.wsb.fitnesstracker.statistics.internal;
+
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+interface TrainingSketchRepository extends JpaRepository<TrainingSketchRow, Long> {
+
+    Optional<TrainingSketchRow> findByDayAndActivityTypeAndNodeId(LocalDate day, ActivityType activityType, String nodeId);
+
+    /**
+     * @return sketches of all instances for the days from {@code from} to {@code to}, both inclusive
+     */
+    List<TrainingSketchRow> findByDayBetween(LocalDate from, LocalDate to);
+
+    /**
+     * @return sketches last updated before {@code cutoff}, except those of the given node
+     */
+    List<TrainingSketchRow> findByUpdatedAtBeforeAndNodeIdNot(Instant cutoff, String nodeId);
+
+    /**
+     * Deletes the sketch unless it was updated since it was read.
+     *
+     * @return number of deleted rows, {@code 0} if the sketch was updated or deleted meanwhile
+     */
+    @Modifying
+    @Query("delete from TrainingSketchRow r where r.id = :id and r.updatedAt = :updatedAt")
+    int deleteUnchanged(@Param("id") Long id, @Param("updatedAt") Instant updatedAt);
+
+}
@@ -0,0 +1,72 @@
+package com.capgemini.wsb.fitnesstracker.statistics.internal;
+
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Serialized {@link TrainingSketch} of the trainings of one activity type started on one day, as recorded by one
+ * application instance. The sketches of all instances for a day are merged when they are read.
+ */
+@Entity
+@Table(name = "training_sketches",
+       uniqueConstraints = @UniqueConstraint(name = "uk_training_sketches_day_type_node", columnNames = {"training_day", "activity_type", "node_id"}),
+       indexes = @Index(name = "idx_training_sketches_training_day", columnList = "training_day"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString(exclude = "data")
+class TrainingSketchRow {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "training_day", nullable = false)
+    private LocalDate day;
+
+    @Enumerated(EnumType.ORDINAL)
+    @Column(name = "activity_type", nullable = false)
+    private ActivityType activityType;
+
+    @Column(name = "node_id", nullable = false, length = 64)
+    private String nodeId;
+
+    @Column(name = "trainings", nullable = false)
+    private long trainings;
+
+    @Lob
+    @Column(name = "data", nullable = false)
+    private byte[] data;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    TrainingSketchRow(final LocalDate day, final ActivityType activityType, final String nodeId) {
+        this.day = day;
+        this.activityType = activityType;
+        this.nodeId = nodeId;
+    }
+
+    void update(final TrainingSketch sketch, final Instant updatedAt) {
+        this.trainings = sketch.trainings();
+        this.data = sketch.toBytes();
+        this.updatedAt = updatedAt;
+    }
+
+}
@@ -0,0 +1,272 @@
+package com.capgemini.wsb.fitnesstracker.statistics.internal;
+
+import com.capgemini.wsb.fitnesstracker.exception.api.BusinessException;
+import com.capgemini.wsb.fitnesstracker.jobs.api.ClusterJobs;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingChangedEvent;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Approximate training analytics answered from sketches instead of scanning the trainings table: distinct active users
+ * per day ({@link HyperLogLog}) and percentiles of distance and average speed ({@link TDigest}), per activity type.
+ * <p>
+ * Every new training is added to the {@link TrainingSketch} of its activity type and start day in memory. The recorded
+ * sketches are merged into the rows of this instance in the {@code training_sketches} table periodically
+ * ({@code statistics.sketches.flush-delay}); a query merges the rows of all instances for the requested days with the
+ * sketches not written yet. Sketches cannot forget values, so updated and deleted trainings are not reflected. The
+ * sketches recorded since the last flush are written on shutdown as well.
+ * <p>
+ * Every instance writes rows under its own node id, which is random by default. Rows not updated for
+ * {@link TrainingSketchProperties#getCompactAfter()}, mostly those of instances which are gone, are merged into a single
+ * {@value #COMPACTED_NODE_ID} row per day and activity type by the {@code statistics.sketches.compaction-cron} job,
+ * running on one instance at a time ({@link ClusterJobs}).
+ */
+@Component
+@ConditionalOnProperty(prefix = "statistics.sketches", name = "enabled", havingValue = "true")
+@Slf4j
+class TrainingSketches implements DisposableBean {
+
+    static final String COMPACTED_NODE_ID = "compacted";
+
+    private static final String COMPACTION_JOB = "training-sketch-compaction";
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99};
+
+    private final TrainingSketchRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final TrainingSketchProperties properties;
+    private final ClusterJobs clusterJobs;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    /**
+     * Held while sketches are written, so that a query sees them either in memory or in the database.
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private Map<SketchKey, TrainingSketch> recorded = new HashMap<>();
+
+    TrainingSketches(TrainingSketchRepository repository, PlatformTransactionManager transactionManager,
+                     TrainingSketchProperties properties, ClusterJobs clusterJobs) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.clusterJobs = clusterJobs;
+    }
+
+    @EventListener
+    public void onTrainingChanged(TrainingChangedEvent event) {
+        TrainingDto training = event.current();
+        if (event.previous() != null || training == null || training.user() == null || training.user().getId() == null) {
+            return;
+        }
+        SketchKey key = new SketchKey(LocalDate.ofInstant(training.startTime().toInstant(), zone), training.activityType());
+        synchronized (this) {
+            recorded.computeIfAbsent(key, ignored -> newSketch())
+                    .add(training.user().getId(), training.distance(), training.averageSpeed());
+        }
+    }
+
+    /**
+     * Merges the sketches recorded since the last flush into the rows of this instance.
+     */
+    @Scheduled(fixedDelayString = "${statistics.sketches.flush-delay:10000}")
+    void flush() {
+        flushLock.lock();
+        try {
+            Map<SketchKey, TrainingSketch> flushed;
+            synchronized (this) {
+                if (recorded.isEmpty()) {
+                    return;
+                }
+                flushed = recorded;
+                recorded = new HashMap<>();
+            }
+            try {
+                Instant now = Instant.now();
+                transactionTemplate.executeWithoutResult(status -> flushed.forEach((key, sketch) -> write(key, sketch, now)));
+                log.debug("Wrote {} training sketches", flushed.size());
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    flushed.forEach((key, sketch) -> recorded.computeIfAbsent(key, ignored -> newSketch()).merge(sketch));
+                }
+                log.warn("Could not write {} training sketches, retrying with the next flush", flushed.size(), e);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the sketches recorded since the last flush, which would be lost otherwise.
+     */
+    @Override
+    public void destroy() {
+        flush();
+    }
+
+    @Scheduled(cron = "${statistics.sketches.compaction-cron:-}")
+    void compactStaleRows() {
+        clusterJobs.runExclusively(COMPACTION_JOB, Duration.ofMinutes(10), Duration.ofHours(1),
+                                   () -> compact(Instant.now().minus(properties.getCompactAfter())));
+    }
+
+    /**
+     * Merges the rows last updated before the cutoff into the {@value #COMPACTED_NODE_ID} row of their day and activity
+     * type, one transaction per day and activity type. A group with a row updated meanwhile is left for the next run.
+     *
+     * @return number of removed rows
+     */
+    int compact(Instant cutoff) {
+        Map<SketchKey, List<TrainingSketchRow>> stale = repository.findByUpdatedAtBeforeAndNodeIdNot(cutoff, COMPACTED_NODE_ID)
+                .stream()
+                .collect(Collectors.groupingBy(row -> new SketchKey(row.getDay(), row.getActivityType())));
+        int removed = 0;
+        for (Map.Entry<SketchKey, List<TrainingSketchRow>> group : stale.entrySet()) {
+            Integer groupRemoved = transactionTemplate.execute(status -> compact(group.getKey(), group.getValue(), status));
+            removed += groupRemoved != null ? groupRemoved : 0;
+        }
+        if (removed > 0) {
+            log.info("Compacted {} training sketch rows last updated before {}", removed, cutoff);
+        }
+        return removed;
+    }
+
+    private int compact(SketchKey key, List<TrainingSketchRow> rows, TransactionStatus status) {
+        TrainingSketchRow compacted = repository.findByDayAndActivityTypeAndNodeId(key.day(), key.activityType(), COMPACTED_NODE_ID)
+                .orElseGet(() -> new TrainingSketchRow(key.day(), key.activityType(), COMPACTED_NODE_ID));
+        TrainingSketch merged = compacted.getData() != null ? TrainingSketch.fromBytes(compacted.getData()) : newSketch();
+        for (TrainingSketchRow row : rows) {
+            if (repository.deleteUnchanged(row.getId(), row.getUpdatedAt()) == 0) {
+                status.setRollbackOnly();
+                return 0;
+            }
+            merged.merge(TrainingSketch.fromBytes(row.getData()));
+        }
+        compacted.update(merged, Instant.now());
+        repository.save(compacted);
+        return rows.size();
+    }
+
+    /**
+     * Estimates the number of distinct users who trained in the period.
+     *
+     * @param from         first day of the period
+     * @param to           last day of the period
+     * @param activityType activity type of the counted trainings, {@code null} for all of them
+     */
+    ActiveUsersDto activeUsers(LocalDate from, LocalDate to, @Nullable ActivityType activityType) {
+        Map<SketchKey, TrainingSketch> sketches = sketches(from, to);
+        HyperLogLog periodUsers = new HyperLogLog(properties.getPrecision());
+        List<ActiveUsersDto.Day> days = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            HyperLogLog dayUsers = new HyperLogLog(properties.getPrecision());
+            long trainings = 0;
+            for (ActivityType type : ActivityType.values()) {
+                TrainingSketch sketch = sketches.get(new SketchKey(day, type));
+                if (sketch != null && (activityType == null || activityType == type)) {
+                    dayUsers.merge(sketch.users());
+                    trainings += sketch.trainings();
+                }
+            }
+            periodUsers.merge(dayUsers);
+            days.add(new ActiveUsersDto.Day(day, dayUsers.estimate(), trainings));
+        }
+        return new ActiveUsersDto(from, to, activityType, periodUsers.estimate(), days);
+    }
+
+    /**
+     * Estimates the median, 90th and 99th percentile of the distance and average speed per activity type.
+     *
+     * @param from         first day of the period
+     * @param to           last day of the period
+     * @param activityType the only reported activity type, {@code null} for all of them
+     * @return percentiles of the activity types with trainings in the period, in {@link ActivityType} order
+     */
+    List<TrainingPercentilesDto> percentiles(LocalDate from, LocalDate to, @Nullable ActivityType activityType) {
+        Map<ActivityType, TrainingSketch> byType = new EnumMap<>(ActivityType.class);
+        sketches(from, to).forEach((key, sketch) -> {
+            if (activityType == null || activityType == key.activityType()) {
+                byType.computeIfAbsent(key.activityType(), ignored -> newSketch()).merge(sketch);
+            }
+        });
+        List<TrainingPercentilesDto> percentiles = new ArrayList<>(byType.size());
+        byType.forEach((type, sketch) -> percentiles.add(new TrainingPercentilesDto(
+                type, sketch.trainings(), percentiles(sketch.distances()), percentiles(sketch.averageSpeeds()))));
+        return percentiles;
+    }
+
+    /**
+     * @return merged sketches of all instances per day and activity type, for the days with trainings in the period
+     */
+    private Map<SketchKey, TrainingSketch> sketches(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new BusinessException("The period must not end before it starts");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= properties.getMaxDays()) {
+            throw new BusinessException("The period must not be longer than %d days".formatted(properties.getMaxDays()));
+        }
+        Map<SketchKey, TrainingSketch> sketches = new HashMap<>();
+        flushLock.lock();
+        try {
+            for (TrainingSketchRow row : repository.findByDayBetween(from, to)) {
+                sketches.computeIfAbsent(new SketchKey(row.getDay(), row.getActivityType()), ignored -> newSketch())
+                        .merge(TrainingSketch.fromBytes(row.getData()));
+            }
+            synchronized (this) {
+                recorded.forEach((key, sketch) -> {
+                    if (!key.day().isBefore(from) && !key.day().isAfter(to)) {
+                        sketches.computeIfAbsent(key, ignored -> newSketch()).merge(sketch);
+                    }
+                });
+            }
+        } finally {
+            flushLock.unlock();
+        }
+        return sketches;
+    }
+
+    private void write(SketchKey key, TrainingSketch sketch, Instant now) {
+        TrainingSketchRow row = repository.findByDayAndActivityTypeAndNodeId(key.day(), key.activityType(), properties.getNodeId())
+                .orElseGet(() -> new TrainingSketchRow(key.day(), key.activityType(), properties.getNodeId()));
+        TrainingSketch merged = row.getData() != null ? TrainingSketch.fromBytes(row.getData()).merge(sketch) : sketch;
+        row.update(merged, now);
+        repository.save(row);
+    }
+
+    private TrainingSketch newSketch() {
+        return new TrainingSketch(properties.getPrecision(), properties.getCompression());
+    }
+
+    private static TrainingPercentilesDto.Percentiles percentiles(TDigest digest) {
+        double[] values = new double[PERCENTILES.length];
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            values[i] = Math.round(digest.quantile(PERCENTILES[i]) * 100) / 100.0;
+        }
+        return new TrainingPercentilesDto.Percentiles(values[0], values[1], values[2]);
+    }
+
+    private record SketchKey(LocalDate day, ActivityType activityType) {
+
+    }
+}
@@ -18,12 +18,19 @@ import java.util.Date;
  * @see ActivityType
  */
 @Entity
-@Table(name = "trainings")
+@Table(name = "trainings", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_trainings_user_start_activity", columnNames = {"user_id", "start_time", "activity_type"}),
+        @UniqueConstraint(name = "uk_trainings_user_idempotency_key", columnNames = {"user_id", "idempotency_key"})})
 @Getter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString
 public class Training {
 
+    /**
+     * Maximum length of the idempotency key of an upload.
+     */
+    public static final int MAX_IDEMPOTENCY_KEY_LENGTH = 128;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -48,6 +55,9 @@ public class Training {
     @Column(name = "average_speed")
     private double averageSpeed;
 
+    @Column(name = "idempotency_key", length = MAX_IDEMPOTENCY_KEY_LENGTH)
+    private String idempotencyKey;
+
     public Training(
             final User user,
             final Date startTime,
@@ -116,4 +126,13 @@ public class Training {
     public void setAverageSpeed(double averageSpeed) {
         this.averageSpeed = averageSpeed;
     }
-}
\ No newline at end of file
+
+    /**
+     * Sets the idempotency key of the upload which created the training session.
+     *
+     * @param idempotencyKey The key sent by the client, unique per user.
+     */
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+}
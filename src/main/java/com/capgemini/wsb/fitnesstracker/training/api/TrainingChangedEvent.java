@@ -0,0 +1,26 @@
+package com.capgemini.wsb.fitnesstracker.training.api;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Application event published after a training was created, updated or deleted.
+ * Lets other modules keep derived data (statistics, caches, indexes) up to date without depending on the training internals.
+ *
+ * @param previous State of the training before the change, {@code null} if the training was created.
+ * @param current  State of the training after the change, {@code null} if the training was deleted.
+ */
+public record TrainingChangedEvent(@Nullable TrainingDto previous, @Nullable TrainingDto current) {
+
+    public static TrainingChangedEvent created(TrainingDto training) {
+        return new TrainingChangedEvent(null, training);
+    }
+
+    public static TrainingChangedEvent updated(TrainingDto previous, TrainingDto current) {
+        return new TrainingChangedEvent(previous, current);
+    }
+
+    public static TrainingChangedEvent deleted(TrainingDto training) {
+        return new TrainingChangedEvent(training, null);
+    }
+
+}
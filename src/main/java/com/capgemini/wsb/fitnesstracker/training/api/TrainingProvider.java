@@ -1,8 +1,10 @@
 package com.capgemini.wsb.fitnesstracker.training.api;
 
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
 import com.capgemini.wsb.fitnesstracker.user.api.User;
 
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface TrainingProvider {
 
@@ -15,4 +17,34 @@ public interface TrainingProvider {
      */
     Optional<TrainingDto> getTraining(Long trainingId);
 
+    /**
+     * Passes all trainings of a user, archived ones first, to the action one at a time. Trainings are read from a
+     * database cursor and never collected, so the memory used does not depend on the number of trainings.
+     * The passed trainings have no user set.
+     *
+     * @param userId id of the user whose trainings are read
+     * @param action receiver of the trainings
+     */
+    void forEachTrainingOfUser(Long userId, Consumer<TrainingDto> action);
+
+    /**
+     * Passes the archived trainings of the users with ids from {@code fromUserId} (inclusive) to {@code toUserId}
+     * (exclusive) to the action one at a time. Archived trainings are no longer in the trainings table, so jobs reading
+     * the table directly cover them with this method.
+     *
+     * @param fromUserId lowest user id of the range
+     * @param toUserId   user id following the range
+     * @param action     receiver of the trainings
+     */
+    void forEachArchivedTraining(long fromUserId, long toUserId, ArchivedTrainingAction action);
+
+    /**
+     * Receiver of archived trainings as primitive values, see {@link #forEachArchivedTraining}.
+     */
+    @FunctionalInterface
+    interface ArchivedTrainingAction {
+
+        void accept(long userId, long startTime, long endTime, ActivityType activityType, double distance, double averageSpeed);
+
+    }
 }
@@ -0,0 +1,21 @@
+package com.capgemini.wsb.fitnesstracker.training.api;
+
+import java.time.Instant;
+
+/**
+ * Single measurement recorded by a device during a training session, typically once per second.
+ *
+ * @param timestamp The time of the measurement.
+ * @param latitude  Latitude of the position in degrees.
+ * @param longitude Longitude of the position in degrees.
+ * @param heartRate Heart rate in beats per minute.
+ * @param pace      Current pace in minutes per kilometer.
+ */
+public record TrainingSample(
+        Instant timestamp,
+        double latitude,
+        double longitude,
+        int heartRate,
+        double pace) {
+
+}
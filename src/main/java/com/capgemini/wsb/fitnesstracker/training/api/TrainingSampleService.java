@@ -0,0 +1,44 @@
+package com.capgemini.wsb.fitnesstracker.training.api;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Interface defining the operations on the per-second sample data (GPS position, heart rate, pace) of a training.
+ */
+public interface TrainingSampleService {
+
+    /**
+     * Stores the samples of a training, replacing any samples stored before. The distance and average speed of the
+     * training are recalculated from the samples.
+     *
+     * @param trainingId The ID of the training the samples belong to.
+     * @param samples    The samples recorded during the training.
+     * @return TrainingDto with the recalculated summary fields.
+     * @throws TrainingNotFoundException if the training does not exist.
+     * @throws com.capgemini.wsb.fitnesstracker.exception.api.BusinessException if the list is empty or a sample has no
+     *         timestamp, a position off the globe, a negative heart rate or an invalid pace.
+     */
+    TrainingDto saveSamples(Long trainingId, List<TrainingSample> samples);
+
+    /**
+     * Streams all samples of a training in chronological order. The stream decodes samples lazily and should be closed
+     * after use.
+     *
+     * @param trainingId The ID of the training.
+     * @return Stream of samples, empty if the training has no samples.
+     */
+    Stream<TrainingSample> streamSamples(Long trainingId);
+
+    /**
+     * Retrieves the samples of a training reduced to at most the given number of points, suitable for charting.
+     * Every point averages the heart rate and pace of a continuous run of samples.
+     *
+     * @param trainingId The ID of the training.
+     * @param maxPoints  The maximum number of returned points.
+     * @return List of downsampled samples in chronological order.
+     * @throws com.capgemini.wsb.fitnesstracker.exception.api.BusinessException if the number of points is not positive.
+     */
+    List<TrainingSample> findDownsampledSamples(Long trainingId, int maxPoints);
+
+}
@@ -14,10 +14,12 @@ public interface TrainingService {
 
     /**
      * Creates a new training session based on the provided data transfer object.
-     * This method is responsible for validation and persistence of the training session data.
+     * This method is responsible for validation and persistence of the training session data. The training is inserted
+     * before the method returns, also when uploads are buffered in the ingest journal.
      *
      * @param newTrainingDto The training data transfer object containing all necessary information to register a new training.
-     * @return TrainingDto representing the newly created training session.
+     * @return TrainingDto representing the newly created training session, or the training uploaded before with the
+     * same user, start time and activity type.
      * @throws IllegalArgumentException if the training data includes an ID, indicating it is not new.
      */
     TrainingDto createTraining(CreateTrainingDto newTrainingDto);
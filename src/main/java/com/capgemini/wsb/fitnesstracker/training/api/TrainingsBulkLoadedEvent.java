@@ -0,0 +1,12 @@
+package com.capgemini.wsb.fitnesstracker.training.api;
+
+/**
+ * Application event published after trainings were inserted in bulk, bypassing the training service, e.g. by the
+ * synthetic data loader. No {@link TrainingChangedEvent} is published for such trainings, so listeners deriving data
+ * from the trainings rebuild it from the database instead.
+ *
+ * @param trainings Number of inserted trainings.
+ */
+public record TrainingsBulkLoadedEvent(long trainings) {
+
+}
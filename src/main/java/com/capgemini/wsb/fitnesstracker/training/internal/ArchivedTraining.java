@@ -0,0 +1,24 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+/**
+ * Flat, user-id based representation of a {@link com.capgemini.wsb.fitnesstracker.training.api.Training} that was moved
+ * out of the database into the archive tier. Times are stored as epoch milliseconds to keep the segment columns primitive.
+ *
+ * @param id           database identifier the training had before it was archived
+ * @param userId       identifier of the user who performed the training
+ * @param startTime    start time of the training in epoch milliseconds
+ * @param endTime      end time of the training in epoch milliseconds
+ * @param activityType type of the performed activity
+ * @param distance     distance covered in kilometers
+ * @param averageSpeed average speed in km/h
+ */
+record ArchivedTraining(
+        long id,
+        long userId,
+        long startTime,
+        long endTime,
+        ActivityType activityType,
+        double distance,
+        double averageSpeed) {
+
+}
@@ -0,0 +1,42 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * All samples of a single training, stored as one blob encoded by {@link TrainingSampleCodec} instead of one row per sample.
+ */
+@Entity
+@Table(name = "training_samples")
+@Getter
+@Setter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString(exclude = "data")
+class EncodedTrainingSamples {
+
+    @Id
+    @Column(name = "training_id")
+    private Long trainingId;
+
+    @Column(name = "sample_count", nullable = false)
+    private int sampleCount;
+
+    @Lob
+    @Column(name = "data", nullable = false)
+    private byte[] data;
+
+    EncodedTrainingSamples(final Long trainingId, final int sampleCount, final byte[] data) {
+        this.trainingId = trainingId;
+        this.sampleCount = sampleCount;
+        this.data = data;
+    }
+
+}
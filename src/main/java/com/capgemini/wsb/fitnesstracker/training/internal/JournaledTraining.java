@@ -0,0 +1,27 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Training accepted by the {@link TrainingJournal}, but not necessarily applied to the database yet.
+ *
+ * @param sequence       position of the entry in the journal, starting at 1 and increasing without gaps
+ * @param userId         identifier of the user who performed the training
+ * @param startTime      start time of the training in epoch milliseconds
+ * @param endTime        end time of the training in epoch milliseconds
+ * @param activityType   type of the performed activity
+ * @param distance       distance covered in kilometers
+ * @param averageSpeed   average speed in km/h
+ * @param idempotencyKey key of the upload chosen by the client, {@code null} if there was none
+ */
+record JournaledTraining(
+        long sequence,
+        long userId,
+        long startTime,
+        long endTime,
+        ActivityType activityType,
+        double distance,
+        double averageSpeed,
+        @Nullable String idempotencyKey) {
+
+}
@@ -0,0 +1,301 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import com.capgemini.wsb.fitnesstracker.coherence.api.CacheInvalidationBroadcaster;
+import com.capgemini.wsb.fitnesstracker.coherence.api.RemoteCacheInvalidationEvent;
+import com.capgemini.wsb.fitnesstracker.jobs.api.ClusterJobs;
+import com.capgemini.wsb.fitnesstracker.sharding.api.ShardRouter;
+import com.capgemini.wsb.fitnesstracker.training.api.Training;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Cold tier for trainings. Trainings that ended more than {@link TrainingArchiveProperties#getMaxAge()} ago are moved out
+ * of the {@code trainings} table into immutable {@link TrainingSegment} files, one per month of the training start time.
+ * The hot table therefore only holds the recent working set, while the read queries of {@link TrainingServiceImpl} merge
+ * both tiers transparently.
+ * <p>
+ * A run archives one month after another. The old trainings of a month are read from every shard by keyset pagination
+ * in pages of {@link TrainingArchiveProperties#getBatchSize()} rows, so a run holds the compact rows of a single month in
+ * memory, and the segment of the month is then written once: a month that already has a segment is rewritten with the
+ * old rows plus the newly archived ones and swapped in atomically. Rows are deleted from the database only after their
+ * segment is durable, and segments deduplicate by id, so an interrupted run is simply repeated by the next one. The
+ * per-second samples of archived trainings are deleted with them, the archive keeps the summary only.
+ * <p>
+ * All application instances have to share the segment directory, e.g. on a network file system. The scheduled run is a
+ * cluster job ({@link ClusterJobs}) so a single instance writes segments; it then broadcasts the {@value #REGION} region
+ * ({@link CacheInvalidationBroadcaster}) and the other instances reopen the segments. Until they did, they do not see the
+ * trainings archived by the run, for at most the staleness bound of the cache coherence.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+class TrainingArchive {
+
+    private static final String SEGMENT_PREFIX = "trainings-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    static final String REGION = "trainingArchive";
+
+    private static final String JOB = "training-archive";
+
+    private final TrainingRepository trainingRepository;
+    private final EncodedTrainingSamplesRepository samplesRepository;
+    private final TrainingArchiveProperties properties;
+    private final ClusterJobs clusterJobs;
+    private final CacheInvalidationBroadcaster broadcaster;
+    private final ShardRouter shardRouter;
+
+    private final Map<YearMonth, TrainingSegment> segments = new ConcurrentSkipListMap<>();
+
+    @PostConstruct
+    void openSegments() throws IOException {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Files.createDirectories(properties.getDirectory());
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(properties.getDirectory(),
+                                                                    SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                segments.put(monthOf(file), TrainingSegment.open(file));
+            }
+        }
+        log.info("Opened {} training archive segments from {}", segments.size(), properties.getDirectory());
+    }
+
+    /**
+     * Reopens the segments after another instance archived trainings.
+     */
+    @EventListener
+    public void onRemoteInvalidation(RemoteCacheInvalidationEvent event) {
+        if (!event.appliesTo(REGION)) {
+            return;
+        }
+        synchronized (this) {
+            try {
+                openSegments();
+            } catch (IOException e) {
+                log.warn("Could not reopen the training archive segments", e);
+            }
+        }
+    }
+
+    /**
+     * Periodically moves trainings older than the configured age to the archive.
+     */
+    @Scheduled(cron = "${training.archive.cron:0 0 3 * * *}")
+    void archiveOldTrainings() {
+        if (properties.isEnabled()) {
+            clusterJobs.runExclusively(JOB, Duration.ofMinutes(10), Duration.ofHours(6),
+                                       () -> archiveEndedBefore(Date.from(Instant.now().minus(properties.getMaxAge()))));
+        }
+    }
+
+    /**
+     * Moves all trainings that ended before the given time from the database to segment files, month by month, collecting
+     * the trainings of a month from all shards ({@link ShardRouter}) before its segment is written.
+     *
+     * @param cutoff trainings with the end time before this one are archived
+     * @return number of archived trainings
+     */
+    synchronized int archiveEndedBefore(Date cutoff) {
+        int archived = 0;
+        Optional<YearMonth> month = nextMonthToArchive(cutoff, null);
+        while (month.isPresent()) {
+            archived += archiveMonth(month.get(), cutoff);
+            month = nextMonthToArchive(cutoff, startOf(month.get().plusMonths(1)));
+        }
+        if (archived > 0) {
+            broadcaster.broadcastRegion(REGION);
+        }
+        log.info("Archived {} trainings ended before {}", archived, cutoff);
+        return archived;
+    }
+
+    /**
+     * @param from lower bound of the training start time, {@code null} for none
+     * @return earliest month, over all shards, with a training that started at or after {@code from} and ended before the
+     * cutoff
+     */
+    private Optional<YearMonth> nextMonthToArchive(Date cutoff, Date from) {
+        Optional<Date> first = Optional.empty();
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            Optional<Date> onShard = shardRouter.onShard(shard, () -> from == null
+                    ? trainingRepository.findFirstStartTimeEndedBefore(cutoff)
+                    : trainingRepository.findFirstStartTimeEndedBefore(cutoff, from));
+            if (onShard.isPresent() && (first.isEmpty() || onShard.get().before(first.get()))) {
+                first = onShard;
+            }
+        }
+        return first.map(startTime -> monthOf(startTime.getTime()));
+    }
+
+    private int archiveMonth(YearMonth month, Date cutoff) {
+        Date from = startOf(month);
+        Date to = startOf(month.plusMonths(1));
+        List<ArchivedTraining> rows = new ArrayList<>();
+        List<List<Long>> idsByShard = new ArrayList<>();
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            idsByShard.add(shardRouter.onShard(shard, () -> collectMonth(cutoff, from, to, rows)));
+        }
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        appendToSegment(month, rows);
+        for (int shard = 0; shard < idsByShard.size(); shard++) {
+            List<Long> ids = idsByShard.get(shard);
+            shardRouter.onShard(shard, () -> {
+                for (int i = 0; i < ids.size(); i += properties.getBatchSize()) {
+                    List<Long> batch = ids.subList(i, Math.min(i + properties.getBatchSize(), ids.size()));
+                    samplesRepository.deleteAllByIdInBatch(batch);
+                    trainingRepository.deleteAllByIdInBatch(batch);
+                }
+                return null;
+            });
+        }
+        log.debug("Archived {} trainings of {}", rows.size(), month);
+        return rows.size();
+    }
+
+    /**
+     * Adds the trainings of the current shard which started in {@code [from, to)} and ended before the cutoff to the rows,
+     * page by page.
+     *
+     * @return IDs of the collected trainings
+     */
+    private List<Long> collectMonth(Date cutoff, Date from, Date to, List<ArchivedTraining> rows) {
+        List<Long> ids = new ArrayList<>();
+        long lastId = 0;
+        List<Training> page;
+        do {
+            page = trainingRepository.findEndedBeforeStartedBetweenAfterId(
+                    cutoff, from, to, lastId, PageRequest.of(0, properties.getBatchSize()));
+            if (!page.isEmpty()) {
+                lastId = page.get(page.size() - 1).getId();
+            }
+            for (Training training : page) {
+                if (training.getUser() != null) {
+                    rows.add(toArchived(training));
+                    ids.add(training.getId());
+                }
+            }
+        } while (page.size() == properties.getBatchSize());
+        return ids;
+    }
+
+    List<ArchivedTraining> findAll() {
+        return scan(segment -> true, TrainingSegment.RowFilter.ALL);
+    }
+
+    List<ArchivedTraining> findByUserId(long userId) {
+        return scan(segment -> segment.mayContainUsers(userId, userId + 1),
+                    (user, startTime, endTime, activityType) -> user == userId);
+    }
+
+    /**
+     * Passes the archived trainings of the user to the action segment by segment, without collecting them.
+     */
+    void forEachByUserId(long userId, Consumer<ArchivedTraining> action) {
+        forEachByUserRange(userId, userId + 1, action);
+    }
+
+    /**
+     * Passes the archived trainings of the users with ids in {@code [fromUserId, toUserId)} to the action segment by
+     * segment, without collecting them.
+     */
+    void forEachByUserRange(long fromUserId, long toUserId, Consumer<ArchivedTraining> action) {
+        for (TrainingSegment segment : segments.values()) {
+            if (segment.mayContainUsers(fromUserId, toUserId)) {
+                segment.forEach((user, startTime, endTime, activityType) -> user >= fromUserId && user < toUserId, action);
+            }
+        }
+    }
+
+    List<ArchivedTraining> findByActivity(ActivityType activity) {
+        return scan(segment -> segment.mayContain(activity),
+                    (user, startTime, endTime, activityType) -> activityType == activity);
+    }
+
+    List<ArchivedTraining> findEndedAfter(Date date) {
+        long time = date.getTime();
+        return scan(segment -> segment.mayEndAfter(time),
+                    (user, startTime, endTime, activityType) -> endTime > time);
+    }
+
+    private List<ArchivedTraining> scan(Predicate<TrainingSegment> segmentFilter, TrainingSegment.RowFilter rowFilter) {
+        if (segments.isEmpty()) {
+            return List.of();
+        }
+        List<ArchivedTraining> result = new ArrayList<>();
+        for (TrainingSegment segment : segments.values()) {
+            if (segmentFilter.test(segment)) {
+                result.addAll(segment.scan(rowFilter));
+            }
+        }
+        return result;
+    }
+
+    private void appendToSegment(YearMonth month, Collection<ArchivedTraining> trainings) {
+        Path file = properties.getDirectory().resolve(SEGMENT_PREFIX + month + SEGMENT_SUFFIX);
+        Map<Long, ArchivedTraining> rows = new TreeMap<>();
+        TrainingSegment existing = segments.get(month);
+        if (existing != null) {
+            existing.scan(TrainingSegment.RowFilter.ALL).forEach(row -> rows.put(row.id(), row));
+        }
+        trainings.forEach(row -> rows.put(row.id(), row));
+        try {
+            Files.createDirectories(properties.getDirectory());
+            segments.put(month, TrainingSegment.write(file, new ArrayList<>(rows.values())));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write training segment " + file, e);
+        }
+    }
+
+    private static ArchivedTraining toArchived(Training training) {
+        return new ArchivedTraining(
+                training.getId(),
+                training.getUser().getId(),
+                training.getStartTime().getTime(),
+                training.getEndTime().getTime(),
+                training.getActivityType(),
+                training.getDistance(),
+                training.getAverageSpeed());
+    }
+
+    private static YearMonth monthOf(long epochMillis) {
+        return YearMonth.from(Instant.ofEpochMilli(epochMillis).atZone(ZoneOffset.UTC));
+    }
+
+    private static Date startOf(YearMonth month) {
+        return Date.from(month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant());
+    }
+
+    private static YearMonth monthOf(Path file) {
+        String name = file.getFileName().toString();
+        return YearMonth.parse(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,38 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Configuration of the training archive tier ({@link TrainingArchive}).
+ */
+@ConfigurationProperties(prefix = "training.archive")
+@Getter
+@Setter
+class TrainingArchiveProperties {
+
+    /**
+     * Whether old trainings should be moved out of the database into segment files.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Directory holding the monthly segment files, shared by all application instances.
+     */
+    private Path directory = Path.of("data", "archive");
+
+    /**
+     * Trainings that ended longer ago than this are moved to the archive.
+     */
+    private Duration maxAge = Duration.ofDays(180);
+
+    /**
+     * Number of trainings read from the database and archived at once.
+     */
+    private int batchSize = 10_000;
+
+}
@@ -0,0 +1,338 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingChangedEvent;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Live feed of the training changes of this instance, served as Server-Sent Events by {@code GET /v1/trainings/stream}.
+ * <p>
+ * Every {@link TrainingChangedEvent} is serialized once into an SSE frame with a sequential id, which is then shared by
+ * all matching subscribers. Subscribers are indexed by their filter (user, activity type or none), so an event visits
+ * only the subscribers it may match. Each subscriber has a bounded queue, written to the connection by a small pool of
+ * dispatch threads; a subscriber whose queue is full is disconnected instead of slowing down the others. Connections are
+ * asynchronous requests, so no thread is held per subscriber.
+ * <p>
+ * The last {@link TrainingStreamProperties#getReplaySize()} frames are kept in a ring buffer. A client reconnecting with
+ * {@code Last-Event-ID} receives the frames it missed; if they are no longer available, it receives a {@code gap} event
+ * and should reload the trainings.
+ * <p>
+ * The number of subscribers is exported as {@code training.stream.subscribers}, disconnected slow subscribers are
+ * counted as {@code training.stream.dropped}.
+ */
+@Component
+@Slf4j
+class TrainingChangeFeed implements DisposableBean {
+
+    private static final Set<DataWithMediaType> HEARTBEAT = SseEmitter.event().comment("heartbeat").build();
+    private static final Set<DataWithMediaType> GAP = SseEmitter.event().name("gap").data("{}").build();
+
+    private final ObjectMapper objectMapper;
+    private final TrainingStreamProperties properties;
+    private final ExecutorService dispatcher;
+    private final Counter dropped;
+
+    private final Lock lock = new ReentrantLock();
+    private final Frame[] replay;
+    private long sequence;
+
+    private final Set<Subscriber> unfiltered = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Set<Subscriber>> byUser = new ConcurrentHashMap<>();
+    private final Map<ActivityType, Set<Subscriber>> byActivity = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    TrainingChangeFeed(ObjectMapper objectMapper, TrainingStreamProperties properties, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.replay = new Frame[properties.getReplaySize()];
+        AtomicInteger threads = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(properties.getDispatchThreads(), task -> {
+            Thread thread = new Thread(task, "training-stream-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dropped = Counter.builder("training.stream.dropped")
+                .description("Subscribers of the training stream disconnected for falling behind")
+                .register(meterRegistry);
+        Gauge.builder("training.stream.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Subscribers of the training stream")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Subscribes to the training changes matching the filter.
+     *
+     * @param userId       only changes of trainings of this user, if given
+     * @param activityType only changes of trainings of this activity type, if given
+     * @param lastEventId  id of the last event received before reconnecting, if any
+     * @return emitter of the events
+     * @throws TrainingStreamCapacityException if there are too many subscribers already
+     */
+    SseEmitter subscribe(@Nullable Long userId, @Nullable ActivityType activityType, @Nullable Long lastEventId) {
+        if (subscriberCount.incrementAndGet() > properties.getMaxSubscribers()) {
+            subscriberCount.decrementAndGet();
+            throw new TrainingStreamCapacityException(properties.getMaxSubscribers());
+        }
+        SseEmitter emitter = new SseEmitter(properties.getTimeout().toMillis());
+        Subscriber subscriber = new Subscriber(emitter, userId, activityType, properties.getBufferSize());
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(error -> unsubscribe(subscriber));
+
+        lock.lock();
+        try {
+            if (lastEventId != null) {
+                replayAfter(subscriber, lastEventId);
+            }
+            register(subscriber);
+        } finally {
+            lock.unlock();
+        }
+        schedule(subscriber);
+        return emitter;
+    }
+
+    /**
+     * @return id of the last published event, {@code 0} before the first one
+     */
+    long lastEventId() {
+        lock.lock();
+        try {
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTrainingChanged(TrainingChangedEvent event) {
+        TrainingDto training = event.current() != null ? event.current() : event.previous();
+        if (training == null) {
+            return;
+        }
+        String type = event.previous() == null ? "created" : event.current() == null ? "deleted" : "updated";
+        String data;
+        try {
+            data = objectMapper.writeValueAsString(TrainingFeedEvent.of(type, training));
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize the change of training {} for the stream", training.id(), e);
+            return;
+        }
+        List<Subscriber> receivers = new ArrayList<>();
+        lock.lock();
+        try {
+            long id = ++sequence;
+            Frame frame = new Frame(id, userIdOf(event.previous()), userIdOf(event.current()),
+                                    activityOf(event.previous()), activityOf(event.current()),
+                                    SseEmitter.event().id(String.valueOf(id)).name(type).data(data).build());
+            replay[(int) (id % replay.length)] = frame;
+            offer(unfiltered, frame, receivers);
+            offer(subscribersOf(byUser, frame.previousUserId()), frame, receivers);
+            if (!Objects.equals(frame.previousUserId(), frame.currentUserId())) {
+                offer(subscribersOf(byUser, frame.currentUserId()), frame, receivers);
+            }
+            offer(subscribersOf(byActivity, frame.previousActivity()), frame, receivers);
+            if (frame.previousActivity() != frame.currentActivity()) {
+                offer(subscribersOf(byActivity, frame.currentActivity()), frame, receivers);
+            }
+        } finally {
+            lock.unlock();
+        }
+        receivers.forEach(this::schedule);
+    }
+
+    /**
+     * Keeps idle connections open through proxies and detects the closed ones.
+     */
+    @Scheduled(fixedDelayString = "${training.stream.heartbeat-delay:15000}")
+    public void sendHeartbeats() {
+        List<Subscriber> receivers = new ArrayList<>();
+        offerHeartbeat(unfiltered, receivers);
+        byUser.values().forEach(subscribers -> offerHeartbeat(subscribers, receivers));
+        byActivity.values().forEach(subscribers -> offerHeartbeat(subscribers, receivers));
+        receivers.forEach(this::schedule);
+    }
+
+    @Override
+    public void destroy() {
+        dispatcher.shutdownNow();
+    }
+
+    private void replayAfter(Subscriber subscriber, long lastEventId) {
+        long oldest = Math.max(1, sequence - replay.length + 1);
+        if (lastEventId > sequence || lastEventId + 1 < oldest) {
+            subscriber.queue().offer(GAP);
+            return;
+        }
+        for (long id = lastEventId + 1; id <= sequence; id++) {
+            Frame frame = replay[(int) (id % replay.length)];
+            if (subscriber.matches(frame) && !subscriber.queue().offer(frame.data())) {
+                subscriber.queue().clear();
+                subscriber.queue().offer(GAP);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Subscribers filtering on the key; a created or deleted training has no previous or current key, which a
+     * {@link ConcurrentHashMap} cannot be asked for.
+     */
+    @Nullable
+    private static <K> Set<Subscriber> subscribersOf(Map<K, Set<Subscriber>> subscribers, @Nullable K key) {
+        return key == null ? null : subscribers.get(key);
+    }
+
+    private void offer(@Nullable Set<Subscriber> subscribers, Frame frame, List<Subscriber> receivers) {
+        if (subscribers == null) {
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.matches(frame)) {
+                continue;
+            }
+            if (subscriber.queue().offer(frame.data())) {
+                receivers.add(subscriber);
+            } else {
+                dropped.increment();
+                log.debug("Disconnecting training stream subscriber {} falling behind", subscriber);
+                unsubscribe(subscriber);
+                subscriber.emitter().complete();
+            }
+        }
+    }
+
+    private static void offerHeartbeat(Set<Subscriber> subscribers, List<Subscriber> receivers) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.queue().isEmpty() && subscriber.queue().offer(HEARTBEAT)) {
+                receivers.add(subscriber);
+            }
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (!subscriber.queue().isEmpty() && subscriber.dispatching().compareAndSet(false, true)) {
+            dispatcher.execute(() -> dispatch(subscriber));
+        }
+    }
+
+    private void dispatch(Subscriber subscriber) {
+        try {
+            Set<DataWithMediaType> data;
+            while ((data = subscriber.queue().poll()) != null) {
+                subscriber.emitter().send(data);
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Training stream subscriber {} disconnected", subscriber, e);
+            unsubscribe(subscriber);
+            subscriber.queue().clear();
+            return;
+        } finally {
+            subscriber.dispatching().set(false);
+        }
+        schedule(subscriber);
+    }
+
+    private void register(Subscriber subscriber) {
+        if (subscriber.userId() != null) {
+            byUser.compute(subscriber.userId(), (userId, subscribers) -> with(subscribers, subscriber));
+        } else if (subscriber.activityType() != null) {
+            byActivity.compute(subscriber.activityType(), (activityType, subscribers) -> with(subscribers, subscriber));
+        } else {
+            unfiltered.add(subscriber);
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.registered().compareAndSet(true, false)) {
+            return;
+        }
+        subscriberCount.decrementAndGet();
+        if (subscriber.userId() != null) {
+            byUser.computeIfPresent(subscriber.userId(), (userId, subscribers) -> without(subscribers, subscriber));
+        } else if (subscriber.activityType() != null) {
+            byActivity.computeIfPresent(subscriber.activityType(), (activityType, subscribers) -> without(subscribers, subscriber));
+        } else {
+            unfiltered.remove(subscriber);
+        }
+    }
+
+    private static Set<Subscriber> with(@Nullable Set<Subscriber> subscribers, Subscriber subscriber) {
+        Set<Subscriber> result = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+        result.add(subscriber);
+        return result;
+    }
+
+    @Nullable
+    private static Set<Subscriber> without(Set<Subscriber> subscribers, Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        return subscribers.isEmpty() ? null : subscribers;
+    }
+
+    @Nullable
+    private static Long userIdOf(@Nullable TrainingDto training) {
+        return training != null && training.user() != null ? training.user().getId() : null;
+    }
+
+    @Nullable
+    private static ActivityType activityOf(@Nullable TrainingDto training) {
+        return training != null ? training.activityType() : null;
+    }
+
+    /**
+     * Serialized event with the values the subscriber filters are matched against, in the state before and after the
+     * change.
+     */
+    private record Frame(long id,
+                         @Nullable Long previousUserId, @Nullable Long currentUserId,
+                         @Nullable ActivityType previousActivity, @Nullable ActivityType currentActivity,
+                         Set<DataWithMediaType> data) {
+
+    }
+
+    private record Subscriber(SseEmitter emitter, @Nullable Long userId, @Nullable ActivityType activityType,
+                              Queue<Set<DataWithMediaType>> queue, AtomicBoolean dispatching, AtomicBoolean registered) {
+
+        private Subscriber(SseEmitter emitter, @Nullable Long userId, @Nullable ActivityType activityType, int bufferSize) {
+            this(emitter, userId, activityType, new ArrayBlockingQueue<>(bufferSize), new AtomicBoolean(), new AtomicBoolean(true));
+        }
+
+        private boolean matches(Frame frame) {
+            return matches(frame.previousUserId(), frame.previousActivity()) || matches(frame.currentUserId(), frame.currentActivity());
+        }
+
+        private boolean matches(@Nullable Long trainingUserId, @Nullable ActivityType trainingActivity) {
+            return (userId == null || userId.equals(trainingUserId))
+                    && (activityType == null || activityType == trainingActivity)
+                    && (trainingUserId != null || trainingActivity != null);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import com.capgemini.wsb.fitnesstracker.coalescing.api.SingleFlight;
+import com.capgemini.wsb.fitnesstracker.coalescing.api.SingleFlightFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.io.IOException;
+
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties({TrainingArchiveProperties.class, TrainingJournalProperties.class, TrainingQueryCacheProperties.class,
+                                TrainingStreamProperties.class, TrainingImportProperties.class})
+class TrainingConfig {
+
+    @Bean
+    SingleFlight<TrainingQuery> trainingQueries(SingleFlightFactory singleFlightFactory) {
+        return singleFlightFactory.create("trainings");
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "training.journal", name = "enabled", havingValue = "true")
+    TrainingJournal trainingJournal(TrainingJournalProperties properties) throws IOException {
+        return new TrainingJournal(properties.getDirectory(), properties.getSegmentSize());
+    }
+
+}
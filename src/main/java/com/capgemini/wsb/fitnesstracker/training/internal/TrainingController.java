@@ -5,8 +5,11 @@ import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.Date;
 import java.util.List;
@@ -24,20 +27,47 @@ import java.util.Optional;
 public class TrainingController {
 
     private final TrainingServiceImpl trainingService;
+    private final TrainingChangeFeed trainingChangeFeed;
+    private final TrainingFileImporter trainingFileImporter;
 
     /**
      * Endpoint for creating a new training session. This method takes a CreateTrainingDto object,
-     * processes it, and returns the created TrainingDto.
+     * processes it, and returns the created TrainingDto. If the training was only accepted into the ingest journal
+     * and not inserted yet, the response has the {@link HttpStatus#ACCEPTED} status and no body.
+     * A retried upload, with the same {@code Idempotency-Key} header or the same user, start time and activity type,
+     * does not create another training: the training uploaded before is returned with the {@link HttpStatus#OK} status.
      *
      * @param trainingDto Data transfer object containing all necessary details to create a new training session.
+     * @param idempotencyKey Optional key of the upload chosen by the client, unique per user.
      * @return ResponseEntity containing the created TrainingDto and the HTTP status code.
      */
     @PostMapping
-    public ResponseEntity<TrainingDto> createTraining(@RequestBody CreateTrainingDto trainingDto) {
-        return ResponseEntity.status(HttpStatus.CREATED)
-                .body(trainingService.createTraining(trainingDto));
+    public ResponseEntity<TrainingDto> createTraining(@RequestBody CreateTrainingDto trainingDto,
+                                                      @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
+        TrainingCreation creation = trainingService.createTraining(trainingDto, idempotencyKey);
+        if (creation.isJournaled()) {
+            return ResponseEntity.accepted().build();
+        }
+        if (creation.duplicate()) {
+            return ResponseEntity.ok(creation.training());
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(creation.training());
     }
 
+    /**
+     * Endpoint importing workout files recorded by other applications: GPX and TCX files, uploaded directly or packed
+     * in zip archives. Every GPX track and TCX activity becomes a training of the user; trainings uploaded before are
+     * skipped. Files that cannot be parsed are listed in the result, the other files are imported anyway.
+     *
+     * @param userId ID of the user the trainings are created for.
+     * @param files  Uploaded GPX, TCX and zip files, as {@code multipart/form-data} parts named {@code files}.
+     * @return ResponseEntity containing the numbers of created and duplicate trainings and the rejected files.
+     */
+    @PostMapping(path = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<TrainingImportResult> importTrainings(@RequestParam Long userId,
+                                                                @RequestParam("files") List<MultipartFile> files) {
+        return ResponseEntity.ok(trainingFileImporter.importFiles(userId, files));
+    }
 
     /**
      * Endpoint to retrieve all training sessions stored in the database.
@@ -86,6 +116,23 @@ public class TrainingController {
         return ResponseEntity.ok(trainings);
     }
 
+    /**
+     * Endpoint streaming the changes of training sessions as Server-Sent Events named {@code created}, {@code updated}
+     * and {@code deleted}. A client reconnecting with the {@code Last-Event-ID} header receives the events it missed, or
+     * a {@code gap} event if they are no longer available.
+     *
+     * @param userId       Optional ID of the user whose training changes are streamed.
+     * @param activityType Optional activity type of the streamed training changes.
+     * @param lastEventId  ID of the last event received before reconnecting.
+     * @return SseEmitter sending the training changes.
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTrainings(@RequestParam(required = false) Long userId,
+                                      @RequestParam(required = false) ActivityType activityType,
+                                      @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+        return trainingChangeFeed.subscribe(userId, activityType, lastEventId);
+    }
+
     /**
      * Endpoint for updating an existing training session with new data.
      *
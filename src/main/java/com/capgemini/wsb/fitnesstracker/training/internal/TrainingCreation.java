@@ -0,0 +1,29 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
+import jakarta.annotation.Nullable;
+
+/**
+ * Result of a training upload.
+ *
+ * @param training  created training, or the training uploaded before if the upload is a duplicate; {@code null} if the
+ *                  training was only accepted into the ingest journal and is inserted later
+ * @param duplicate whether the training was uploaded before, with the same idempotency key or the same user, start time
+ *                  and activity type
+ */
+record TrainingCreation(@Nullable TrainingDto training, boolean duplicate) {
+
+    /**
+     * @return result of an upload accepted into the ingest journal, but not inserted yet
+     */
+    static TrainingCreation journaled() {
+        return new TrainingCreation(null, false);
+    }
+
+    /**
+     * @return whether the training was only accepted into the ingest journal
+     */
+    boolean isJournaled() {
+        return training == null;
+    }
+}
@@ -0,0 +1,65 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import com.capgemini.wsb.fitnesstracker.sharding.api.ShardRouter;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.Date;
+import java.util.function.Consumer;
+
+/**
+ * Constant memory reader of all trainings of a user, for exports. Archived trainings are decoded segment by segment,
+ * stored trainings are read on the shard of the user with a JDBC cursor fetching {@value #FETCH_SIZE} rows at a time,
+ * bypassing the persistence context which would otherwise keep every read entity.
+ */
+@Component
+class TrainingCursor {
+
+    private static final int FETCH_SIZE = 1_000;
+    private static final ActivityType[] ACTIVITY_TYPES = ActivityType.values();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TrainingArchive trainingArchive;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate readOnlyTransaction;
+
+    TrainingCursor(JdbcTemplate jdbcTemplate, TrainingArchive trainingArchive, ShardRouter shardRouter,
+                   PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.trainingArchive = trainingArchive;
+        this.shardRouter = shardRouter;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    void forEachOfUser(long userId, Consumer<TrainingDto> action) {
+        trainingArchive.forEachByUserId(userId, training -> action.accept(new TrainingDto(
+                training.id(), null, new Date(training.startTime()), new Date(training.endTime()),
+                training.activityType(), training.distance(), training.averageSpeed())));
+        shardRouter.onShardOf(userId, () -> readOnlyTransaction.execute(status -> {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement("""
+                        select id, start_time, end_time, activity_type, distance, average_speed
+                          from trainings
+                         where user_id = ?
+                         order by id""");
+                statement.setLong(1, userId);
+                statement.setFetchSize(FETCH_SIZE);
+                return statement;
+            }, resultSet -> {
+                action.accept(new TrainingDto(resultSet.getLong(1),
+                                              null,
+                                              resultSet.getTimestamp(2),
+                                              resultSet.getTimestamp(3),
+                                              ACTIVITY_TYPES[resultSet.getInt(4)],
+                                              resultSet.getDouble(5),
+                                              resultSet.getDouble(6)));
+            });
+            return null;
+        }));
+    }
+}
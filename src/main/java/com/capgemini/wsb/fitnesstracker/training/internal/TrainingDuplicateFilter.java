@@ -0,0 +1,210 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import com.capgemini.wsb.fitnesstracker.sharding.api.ShardRouter;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingChangedEvent;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-user Bloom filters of the uploaded trainings, keyed by start time and activity type and by idempotency key. A
+ * negative answer means the training was certainly not uploaded before, so a new upload is inserted without reading
+ * the database first; a positive answer has to be confirmed by a query. Trainings inserted by the other application
+ * instances are not in the filters, the unique indexes of the trainings table stay the authoritative check.
+ * <p>
+ * Every user has a scalable filter: a chain of segments with {@value #BITS_PER_ELEMENT} bits per element (about 1 %
+ * false positives each), a new segment of double capacity is chained once the last one is full. The first segment is
+ * sized by the number of trainings of the user when the filters are built.
+ * <p>
+ * The filters are built from a streaming scan of the trainings of every shard when the application is ready; until then
+ * every check answers "maybe". Deleted trainings stay in the filters and only cost a query.
+ */
+@Component
+@Slf4j
+class TrainingDuplicateFilter {
+
+    private static final int BITS_PER_ELEMENT = 10;
+    private static final int HASH_FUNCTIONS = 7;
+    private static final int MIN_CAPACITY = 16;
+    private static final int FETCH_SIZE = 1_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private volatile Map<Long, UserFilter> filters = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    TrainingDuplicateFilter(JdbcTemplate jdbcTemplate, ShardRouter shardRouter) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        Map<Long, UserFilter> rebuilt = new ConcurrentHashMap<>();
+        long[] trainings = {0};
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            shardRouter.onShard(shard, () -> {
+                Map<Long, Integer> counts = new HashMap<>();
+                jdbcTemplate.query("select user_id, count(*) from trainings where user_id is not null group by user_id",
+                                   resultSet -> {
+                                       counts.put(resultSet.getLong(1), resultSet.getInt(2));
+                                   });
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(
+                            "select user_id, start_time, activity_type, idempotency_key from trainings where user_id is not null");
+                    statement.setFetchSize(FETCH_SIZE);
+                    return statement;
+                }, resultSet -> {
+                    long userId = resultSet.getLong(1);
+                    UserFilter filter = rebuilt.computeIfAbsent(userId, user -> new UserFilter(2 * counts.getOrDefault(user, 0)));
+                    filter.add(contentHash(resultSet.getTimestamp(2).getTime(), resultSet.getInt(3)));
+                    String idempotencyKey = resultSet.getString(4);
+                    if (idempotencyKey != null) {
+                        filter.add(keyHash(idempotencyKey));
+                    }
+                    trainings[0]++;
+                });
+                return null;
+            });
+        }
+        filters = rebuilt;
+        ready = true;
+        log.info("Built duplicate filters of {} trainings in {} ms", trainings[0], (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @EventListener
+    public void onTrainingChanged(TrainingChangedEvent event) {
+        TrainingDto training = event.current();
+        if (training != null && training.user() != null && training.startTime() != null && training.activityType() != null) {
+            add(training.user().getId(), training.startTime().getTime(), training.activityType());
+        }
+    }
+
+    /**
+     * @return {@code false} if the user certainly has no training with the start time and activity type
+     */
+    boolean mightContain(long userId, long startTime, ActivityType activityType) {
+        return mightContain(userId, contentHash(startTime, activityType.ordinal()));
+    }
+
+    /**
+     * @return {@code false} if the user certainly has no training uploaded with the idempotency key
+     */
+    boolean mightContainKey(long userId, String idempotencyKey) {
+        return mightContain(userId, keyHash(idempotencyKey));
+    }
+
+    void add(long userId, long startTime, ActivityType activityType) {
+        filters.computeIfAbsent(userId, user -> new UserFilter(0)).add(contentHash(startTime, activityType.ordinal()));
+    }
+
+    void addKey(long userId, String idempotencyKey) {
+        filters.computeIfAbsent(userId, user -> new UserFilter(0)).add(keyHash(idempotencyKey));
+    }
+
+    private boolean mightContain(long userId, long hash) {
+        if (!ready) {
+            return true;
+        }
+        UserFilter filter = filters.get(userId);
+        return filter != null && filter.mightContain(hash);
+    }
+
+    private static long contentHash(long startTime, int activityType) {
+        return mix(startTime * 31 + activityType);
+    }
+
+    /**
+     * 64-bit FNV-1a of the key.
+     */
+    private static long keyHash(String idempotencyKey) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < idempotencyKey.length(); i++) {
+            hash = (hash ^ idempotencyKey.charAt(i)) * 0x100000001b3L;
+        }
+        return mix(~hash);
+    }
+
+    /**
+     * Finalizer of MurmurHash3, spreading every input bit over the whole hash.
+     */
+    private static long mix(long value) {
+        long hash = value;
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * Scalable Bloom filter of a single user.
+     */
+    private static final class UserFilter {
+
+        private long[][] segments;
+        private int[] capacities;
+        private int lastSize;
+
+        private UserFilter(int capacity) {
+            int segmentCapacity = Math.max(MIN_CAPACITY, capacity);
+            segments = new long[][]{new long[words(segmentCapacity)]};
+            capacities = new int[]{segmentCapacity};
+        }
+
+        private synchronized void add(long hash) {
+            int last = segments.length - 1;
+            if (lastSize >= capacities[last]) {
+                segments = Arrays.copyOf(segments, last + 2);
+                capacities = Arrays.copyOf(capacities, last + 2);
+                capacities[last + 1] = capacities[last] * 2;
+                segments[last + 1] = new long[words(capacities[last + 1])];
+                lastSize = 0;
+                last++;
+            }
+            long[] bits = segments[last];
+            long size = (long) bits.length * Long.SIZE;
+            int first = (int) hash;
+            int second = (int) (hash >>> 32);
+            for (int i = 0; i < HASH_FUNCTIONS; i++) {
+                long bit = Integer.toUnsignedLong(first + i * second) % size;
+                bits[(int) (bit >>> 6)] |= 1L << bit;
+            }
+            lastSize++;
+        }
+
+        private synchronized boolean mightContain(long hash) {
+            int first = (int) hash;
+            int second = (int) (hash >>> 32);
+            for (long[] bits : segments) {
+                if (contains(bits, first, second)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean contains(long[] bits, int first, int second) {
+            long size = (long) bits.length * Long.SIZE;
+            for (int i = 0; i < HASH_FUNCTIONS; i++) {
+                long bit = Integer.toUnsignedLong(first + i * second) % size;
+                if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int words(int capacity) {
+            return (int) (((long) capacity * BITS_PER_ELEMENT + Long.SIZE - 1) / Long.SIZE);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
+import jakarta.annotation.Nullable;
+
+import java.util.Date;
+
+/**
+ * Data of a training change sent to the subscribers of the {@link TrainingChangeFeed}. The user is referenced by its ID
+ * only, and a deleted training is sent in its last state.
+ *
+ * @param type         {@code created}, {@code updated} or {@code deleted}
+ * @param id           ID of the training
+ * @param userId       ID of the user of the training
+ * @param startTime    start time of the training
+ * @param endTime      end time of the training
+ * @param activityType type of the activity
+ * @param distance     distance in kilometers
+ * @param averageSpeed average speed in km/h
+ */
+record TrainingFeedEvent(String type,
+                         @Nullable Long id,
+                         @Nullable Long userId,
+                         Date startTime,
+                         Date endTime,
+                         ActivityType activityType,
+                         double distance,
+                         double averageSpeed) {
+
+    static TrainingFeedEvent of(String type, TrainingDto training) {
+        return new TrainingFeedEvent(type,
+                                     training.id(),
+                                     training.user() != null ? training.user().getId() : null,
+                                     training.startTime(),
+                                     training.endTime(),
+                                     training.activityType(),
+                                     training.distance(),
+                                     training.averageSpeed());
+    }
+}
@@ -0,0 +1,288 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import com.capgemini.wsb.fitnesstracker.exception.api.BusinessException;
+import com.capgemini.wsb.fitnesstracker.training.api.CreateTrainingDto;
+import com.capgemini.wsb.fitnesstracker.user.api.UserNotFoundException;
+import com.capgemini.wsb.fitnesstracker.user.api.UserProvider;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Import of GPX and TCX workout files, uploaded one by one or packed in zip archives, into trainings of a user.
+ * <p>
+ * Files are parsed in parallel by {@link TrainingImportProperties#getThreads()} threads shared by all imports, each
+ * with the streaming {@link TrainingFileParser}. A zip archive is stored in a temporary file, so that its entries can be
+ * read and parsed in parallel as well. The parsed trainings are collected in file order and created by batch inserts of
+ * {@link TrainingImportProperties#getBatchSize()} trainings while the remaining files are still being parsed.
+ * <p>
+ * A file which cannot be parsed is reported in the result and does not stop the import of the other files, and so is
+ * an archive which is not a valid zip file and an entry larger than {@link TrainingImportProperties#getMaxEntrySize()}
+ * once uncompressed, whatever size its header declares.
+ */
+@Component
+@Slf4j
+class TrainingFileImporter implements DisposableBean {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final TrainingFileParser parser;
+    private final TrainingServiceImpl trainingService;
+    private final UserProvider userProvider;
+    private final TrainingImportProperties properties;
+    private final ExecutorService executor;
+
+    TrainingFileImporter(TrainingFileParser parser, TrainingServiceImpl trainingService, UserProvider userProvider,
+                         TrainingImportProperties properties) {
+        this.parser = parser;
+        this.trainingService = trainingService;
+        this.userProvider = userProvider;
+        this.properties = properties;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(properties.getThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "training-import-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Imports the trainings of the files for the user.
+     *
+     * @throws UserNotFoundException if the user does not exist
+     * @throws BusinessException     if there is no file or too many files
+     */
+    TrainingImportResult importFiles(Long userId, List<MultipartFile> files) {
+        userProvider.getUser(userId).orElseThrow(() -> new UserNotFoundException(userId));
+        if (files.isEmpty()) {
+            throw new BusinessException("No workout file was uploaded");
+        }
+        long start = System.nanoTime();
+        List<ZipFile> archives = new ArrayList<>();
+        List<Path> temporaryFiles = new ArrayList<>();
+        List<TrainingImportResult.RejectedFile> rejected = new ArrayList<>();
+        try {
+            List<WorkoutFile> workoutFiles = new ArrayList<>();
+            for (MultipartFile file : files) {
+                if (isZip(file)) {
+                    Path temporaryFile = Files.createTempFile("training-import-", ".zip");
+                    temporaryFiles.add(temporaryFile);
+                    file.transferTo(temporaryFile);
+                    ZipFile archive;
+                    try {
+                        archive = new ZipFile(temporaryFile.toFile());
+                    } catch (ZipException e) {
+                        log.info("Archive {} was rejected: {}", name(file), e.toString());
+                        rejected.add(new TrainingImportResult.RejectedFile(name(file), "File is not a valid zip archive"));
+                        continue;
+                    }
+                    archives.add(archive);
+                    addEntries(name(file), archive, workoutFiles);
+                } else {
+                    workoutFiles.add(new WorkoutFile(name(file), file::getInputStream));
+                }
+                if (workoutFiles.size() > properties.getMaxFiles()) {
+                    throw new BusinessException("Import is limited to %d workout files".formatted(properties.getMaxFiles()));
+                }
+            }
+            TrainingImportResult result = importWorkoutFiles(userId, workoutFiles, rejected);
+            log.info("Imported {} trainings of user {} from {} files in {} ms", result.created(), userId, result.files(),
+                     (System.nanoTime() - start) / 1_000_000);
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            archives.forEach(TrainingFileImporter::closeQuietly);
+            temporaryFiles.forEach(TrainingFileImporter::deleteQuietly);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Imports the workout files, adding the rejected ones to the archives rejected already.
+     */
+    private TrainingImportResult importWorkoutFiles(Long userId, List<WorkoutFile> workoutFiles,
+                                                    List<TrainingImportResult.RejectedFile> rejected) {
+        int unreadableArchives = rejected.size();
+        List<Future<List<CreateTrainingDto>>> parsed = new ArrayList<>(workoutFiles.size());
+        for (WorkoutFile workoutFile : workoutFiles) {
+            parsed.add(executor.submit(() -> {
+                try (InputStream input = new BufferedInputStream(workoutFile.content().open(), BUFFER_SIZE)) {
+                    return parser.parse(input, userId);
+                }
+            }));
+        }
+        List<CreateTrainingDto> batch = new ArrayList<>(properties.getBatchSize());
+        int[] counts = {0, 0};
+        try {
+            for (int i = 0; i < parsed.size(); i++) {
+                List<CreateTrainingDto> trainings = parsed(workoutFiles.get(i), parsed.get(i), rejected);
+                for (CreateTrainingDto training : trainings) {
+                    batch.add(training);
+                    if (batch.size() == properties.getBatchSize()) {
+                        insert(userId, batch, counts);
+                    }
+                }
+            }
+            insert(userId, batch, counts);
+        } finally {
+            parsed.forEach(future -> future.cancel(true));
+        }
+        return new TrainingImportResult(unreadableArchives + workoutFiles.size(), counts[0], counts[1], rejected);
+    }
+
+    private static List<CreateTrainingDto> parsed(WorkoutFile workoutFile, Future<List<CreateTrainingDto>> parsed,
+                                                  List<TrainingImportResult.RejectedFile> rejected) {
+        try {
+            List<CreateTrainingDto> trainings = parsed.get();
+            if (trainings.isEmpty()) {
+                rejected.add(new TrainingImportResult.RejectedFile(workoutFile.name(), "File has no track with time"));
+            }
+            return trainings;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Training import was interrupted", e);
+        } catch (ExecutionException e) {
+            log.info("Workout file {} was rejected: {}", workoutFile.name(), e.getCause().toString());
+            rejected.add(new TrainingImportResult.RejectedFile(workoutFile.name(), String.valueOf(e.getCause().getMessage())));
+            return List.of();
+        }
+    }
+
+    /**
+     * Creates the trainings of the batch and clears it, counting created trainings in {@code counts[0]} and duplicates
+     * in {@code counts[1]}.
+     */
+    private void insert(Long userId, List<CreateTrainingDto> batch, int[] counts) {
+        int created = trainingService.createTrainings(userId, batch).size();
+        counts[0] += created;
+        counts[1] += batch.size() - created;
+        batch.clear();
+    }
+
+    private void addEntries(String archiveName, ZipFile archive, List<WorkoutFile> workoutFiles) {
+        long maxEntrySize = properties.getMaxEntrySize().toBytes();
+        Enumeration<? extends ZipEntry> entries = archive.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (!entry.isDirectory() && isWorkoutFile(entry.getName()) && !entry.getName().startsWith("__MACOSX/")) {
+                workoutFiles.add(new WorkoutFile(archiveName + "/" + entry.getName(), () -> {
+                    if (entry.getSize() > maxEntrySize) {
+                        throw new BusinessException(entryTooLarge(maxEntrySize));
+                    }
+                    return new SizeLimitedInputStream(archive.getInputStream(entry), maxEntrySize);
+                }));
+            }
+        }
+    }
+
+    private static String entryTooLarge(long maxEntrySize) {
+        return "File is larger than %d bytes uncompressed".formatted(maxEntrySize);
+    }
+
+    private static boolean isZip(MultipartFile file) {
+        String name = name(file).toLowerCase(Locale.ROOT);
+        return name.endsWith(".zip") || "application/zip".equals(file.getContentType())
+                || "application/x-zip-compressed".equals(file.getContentType());
+    }
+
+    private static boolean isWorkoutFile(String name) {
+        String lowerCaseName = name.toLowerCase(Locale.ROOT);
+        return lowerCaseName.endsWith(".gpx") || lowerCaseName.endsWith(".tcx");
+    }
+
+    private static String name(MultipartFile file) {
+        return file.getOriginalFilename() != null && !file.getOriginalFilename().isEmpty() ? file.getOriginalFilename() : file.getName();
+    }
+
+    private static void closeQuietly(ZipFile archive) {
+        try {
+            archive.close();
+        } catch (IOException e) {
+            log.warn("{} could not be closed", archive.getName(), e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("{} could not be deleted", file, e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Content {
+
+        InputStream open() throws IOException;
+
+    }
+
+    private record WorkoutFile(String name, Content content) {
+
+    }
+
+    /**
+     * Fails the read of an entry inflating to more bytes than allowed.
+     */
+    private static final class SizeLimitedInputStream extends FilterInputStream {
+
+        private final long maxSize;
+        private long size;
+
+        SizeLimitedInputStream(InputStream input, long maxSize) {
+            super(input);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                count(1);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        private void count(int read) throws IOException {
+            size += read;
+            if (size > maxSize) {
+                throw new IOException(entryTooLarge(maxSize));
+            }
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import com.capgemini.wsb.fitnesstracker.exception.api.BusinessException;
+import com.capgemini.wsb.fitnesstracker.training.api.CreateTrainingDto;
+import jakarta.annotation.Nullable;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parser of GPX and TCX workout files into trainings, one per GPX track ({@code trk}) or TCX activity ({@code Activity}).
+ * <p>
+ * Files are read with a StAX cursor in a single pass, keeping only the previous track point, so the memory used does not
+ * depend on the size of the file. Start and end time are the times of the first and the last track point. The distance
+ * is the sum of the great-circle distances between consecutive points of a track segment; a TCX file recording distances
+ * itself is trusted instead, lap totals first, then the cumulative distance of the track points. The average speed is
+ * the distance over the elapsed time.
+ * <p>
+ * The activity type is taken from the GPX {@code type} or the TCX {@code Sport} when it names a known activity, and is
+ * inferred from the average speed otherwise.
+ */
+@Component
+class TrainingFileParser {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_008.8;
+    private static final double CYCLING_MIN_SPEED = 15.0;
+    private static final double RUNNING_MIN_SPEED = 6.5;
+
+    private final XMLInputFactory inputFactory;
+
+    TrainingFileParser() {
+        inputFactory = XMLInputFactory.newFactory();
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * Parses the trainings of a GPX or TCX file.
+     *
+     * @param input  content of the file, not closed
+     * @param userId user the trainings are created for
+     * @return trainings of the tracks or activities with at least one timed point
+     * @throws BusinessException  if the file is neither GPX nor TCX
+     * @throws XMLStreamException if the file is not well-formed
+     */
+    List<CreateTrainingDto> parse(InputStream input, Long userId) throws XMLStreamException {
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(input);
+        try {
+            while (reader.hasNext() && reader.next() != XMLStreamConstants.START_ELEMENT) {
+                // skips the prolog
+            }
+            if (!reader.isStartElement()) {
+                throw new BusinessException("File has no root element");
+            }
+            return switch (reader.getLocalName()) {
+                case "gpx" -> parseGpx(reader, userId);
+                case "TrainingCenterDatabase" -> parseTcx(reader, userId);
+                default -> throw new BusinessException("File with root element %s is neither GPX nor TCX".formatted(reader.getLocalName()));
+            };
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static List<CreateTrainingDto> parseGpx(XMLStreamReader reader, Long userId) throws XMLStreamException {
+        List<CreateTrainingDto> trainings = new ArrayList<>();
+        Track track = null;
+        Point point = null;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "trk" -> track = new Track();
+                    case "trkseg" -> {
+                        if (track != null) {
+                            track.breakSegment();
+                        }
+                    }
+                    case "trkpt" -> point = new Point(coordinate(reader, "lat"), coordinate(reader, "lon"));
+                    case "time" -> {
+                        if (point != null) {
+                            point.time = parseTime(reader.getElementText());
+                        }
+                    }
+                    case "type" -> {
+                        if (track != null && point == null) {
+                            track.sport = reader.getElementText();
+                        }
+                    }
+                    default -> {
+                        // other elements carry nothing a training needs
+                    }
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "trkpt" -> {
+                        if (track != null && point != null) {
+                            track.add(point);
+                        }
+                        point = null;
+                    }
+                    case "trk" -> {
+                        if (track != null && track.hasTime()) {
+                            trainings.add(track.toTraining(userId));
+                        }
+                        track = null;
+                    }
+                    default -> {
+                        // only points and tracks are completed
+                    }
+                }
+            }
+        }
+        return trainings;
+    }
+
+    private static List<CreateTrainingDto> parseTcx(XMLStreamReader reader, Long userId) throws XMLStreamException {
+        List<CreateTrainingDto> trainings = new ArrayList<>();
+        Track track = null;
+        Point point = null;
+        boolean inLap = false;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "Activity" -> {
+                        track = new Track();
+                        track.sport = reader.getAttributeValue(null, "Sport");
+                    }
+                    case "Lap" -> {
+                        inLap = track != null;
+                        String startTime = reader.getAttributeValue(null, "StartTime");
+                        if (inLap && startTime != null && track.lapStartTime < 0) {
+                            track.lapStartTime = parseTime(startTime);
+                        }
+                    }
+                    case "Track" -> {
+                        if (track != null) {
+                            track.breakSegment();
+                        }
+                    }
+                    case "Trackpoint" -> point = new Point(Double.NaN, Double.NaN);
+                    case "Time" -> {
+                        if (point != null) {
+                            point.time = parseTime(reader.getElementText());
+                        }
+                    }
+                    case "LatitudeDegrees" -> {
+                        if (point != null) {
+                            point.latitude = Double.parseDouble(reader.getElementText().trim());
+                        }
+                    }
+                    case "LongitudeDegrees" -> {
+                        if (point != null) {
+                            point.longitude = Double.parseDouble(reader.getElementText().trim());
+                        }
+                    }
+                    case "DistanceMeters" -> {
+                        double meters = Double.parseDouble(reader.getElementText().trim());
+                        if (point != null) {
+                            point.recordedMeters = meters;
+                        } else if (inLap) {
+                            track.lapMeters += meters;
+                        }
+                    }
+                    case "TotalTimeSeconds" -> {
+                        double seconds = Double.parseDouble(reader.getElementText().trim());
+                        if (point == null && inLap) {
+                            track.lapSeconds += seconds;
+                        }
+                    }
+                    default -> {
+                        // other elements carry nothing a training needs
+                    }
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "Trackpoint" -> {
+                        if (track != null && point != null) {
+                            track.add(point);
+                        }
+                        point = null;
+                    }
+                    case "Lap" -> inLap = false;
+                    case "Activity" -> {
+                        if (track != null && track.hasTime()) {
+                            trainings.add(track.toTraining(userId));
+                        }
+                        track = null;
+                    }
+                    default -> {
+                        // only points, laps and activities are completed
+                    }
+                }
+            }
+        }
+        return trainings;
+    }
+
+    /**
+     * Infers the activity type from the sport named by the file, or from the average speed in km/h.
+     */
+    static ActivityType activityType(@Nullable String sport, double averageSpeed) {
+        String name = sport != null ? sport.toLowerCase(Locale.ROOT) : "";
+        if (name.contains("run") || name.contains("jog")) {
+            return ActivityType.RUNNING;
+        } else if (name.contains("bik") || name.contains("cycl") || name.contains("ride")) {
+            return ActivityType.CYCLING;
+        } else if (name.contains("walk") || name.contains("hik")) {
+            return ActivityType.WALKING;
+        } else if (name.contains("swim")) {
+            return ActivityType.SWIMMING;
+        } else if (name.contains("tennis")) {
+            return ActivityType.TENNIS;
+        } else if (averageSpeed >= CYCLING_MIN_SPEED) {
+            return ActivityType.CYCLING;
+        } else if (averageSpeed >= RUNNING_MIN_SPEED) {
+            return ActivityType.RUNNING;
+        }
+        return ActivityType.WALKING;
+    }
+
+    /**
+     * Great-circle distance in meters by the haversine formula.
+     */
+    static double distance(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double latitudeDelta = Math.toRadians(latitude2 - latitude1);
+        double longitudeDelta = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(latitudeDelta / 2) * Math.sin(latitudeDelta / 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+                * Math.sin(longitudeDelta / 2) * Math.sin(longitudeDelta / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static double coordinate(XMLStreamReader reader, String attribute) {
+        String value = reader.getAttributeValue(null, attribute);
+        return value != null ? Double.parseDouble(value.trim()) : Double.NaN;
+    }
+
+    /**
+     * Parses an ISO date-time; a time without offset is taken as UTC, as GPX and TCX times are.
+     */
+    private static long parseTime(String text) {
+        TemporalAccessor time = DateTimeFormatter.ISO_DATE_TIME.parseBest(text.trim(), OffsetDateTime::from, LocalDateTime::from);
+        return time instanceof OffsetDateTime offsetTime
+                ? offsetTime.toInstant().toEpochMilli()
+                : ((LocalDateTime) time).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static final class Point {
+
+        private double latitude;
+        private double longitude;
+        private long time = -1;
+        private double recordedMeters = Double.NaN;
+
+        private Point(double latitude, double longitude) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+    }
+
+    /**
+     * Running totals of a track; only the previous point is kept.
+     */
+    private static final class Track {
+
+        private String sport;
+        private long firstTime = -1;
+        private long lastTime = -1;
+        private double meters;
+        private double recordedMeters;
+        private long lapStartTime = -1;
+        private double lapSeconds;
+        private double lapMeters;
+        private double previousLatitude = Double.NaN;
+        private double previousLongitude = Double.NaN;
+
+        private void add(Point point) {
+            if (point.time >= 0) {
+                if (firstTime < 0 || point.time < firstTime) {
+                    firstTime = point.time;
+                }
+                lastTime = Math.max(lastTime, point.time);
+            }
+            if (!Double.isNaN(point.recordedMeters)) {
+                recordedMeters = Math.max(recordedMeters, point.recordedMeters);
+            }
+            if (Double.isNaN(point.latitude) || Double.isNaN(point.longitude)) {
+                return;
+            }
+            if (!Double.isNaN(previousLatitude)) {
+                meters += distance(previousLatitude, previousLongitude, point.latitude, point.longitude);
+            }
+            previousLatitude = point.latitude;
+            previousLongitude = point.longitude;
+        }
+
+        /**
+         * Starts a new segment: the gap to the previous segment is a pause, not a distance covered.
+         */
+        private void breakSegment() {
+            previousLatitude = Double.NaN;
+            previousLongitude = Double.NaN;
+        }
+
+        private boolean hasTime() {
+            return firstTime >= 0 || lapStartTime >= 0;
+        }
+
+        private CreateTrainingDto toTraining(Long userId) {
+            long startTime = firstTime >= 0 ? firstTime : lapStartTime;
+            long endTime = firstTime >= 0 ? lastTime : lapStartTime + Math.round(lapSeconds * 1000);
+            double totalMeters = lapMeters > 0 ? lapMeters : recordedMeters > 0 ? recordedMeters : meters;
+            double distance = Math.round(totalMeters) / 1000.0;
+            double hours = (endTime - startTime) / 3_600_000.0;
+            double averageSpeed = hours > 0 ? Math.round(distance / hours * 100) / 100.0 : 0;
+            return new CreateTrainingDto(null, userId, new Date(startTime), new Date(endTime),
+                                         activityType(sport, averageSpeed), distance, averageSpeed);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Configuration of the import of workout files ({@link TrainingFileImporter}).
+ */
+@ConfigurationProperties(prefix = "training.import")
+@Getter
+@Setter
+class TrainingImportProperties {
+
+    /**
+     * Number of files parsed at the same time, shared by all imports of this instance.
+     */
+    private int threads = 4;
+
+    /**
+     * Number of trainings inserted by a single batch insert.
+     */
+    private int batchSize = 500;
+
+    /**
+     * Maximum number of workout files of a single import, counting the entries of zip archives.
+     */
+    private int maxFiles = 1_000;
+
+    /**
+     * Maximum uncompressed size of a workout file packed in a zip archive; larger entries are rejected.
+     */
+    private DataSize maxEntrySize = DataSize.ofMegabytes(64);
+
+}
@@ -0,0 +1,22 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import java.util.List;
+
+/**
+ * Result of an import of workout files.
+ *
+ * @param files      number of parsed workout files, counting the entries of zip archives
+ * @param created    number of created trainings
+ * @param duplicates number of trainings which were uploaded before, by start time and activity type
+ * @param rejected   files which could not be imported
+ */
+record TrainingImportResult(int files, int created, int duplicates, List<RejectedFile> rejected) {
+
+    /**
+     * @param name   name of the file, {@code <archive>/<entry>} for an entry of a zip archive
+     * @param reason why the file could not be imported
+     */
+    record RejectedFile(String name, String reason) {
+
+    }
+}
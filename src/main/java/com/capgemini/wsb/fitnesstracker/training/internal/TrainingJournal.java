@@ -0,0 +1,323 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import com.capgemini.wsb.fitnesstracker.training.api.Training;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal of accepted trainings, backed by memory-mapped segment files.
+ * <p>
+ * Entries have a fixed size, so appending is a bounds check and a few puts into the mapped buffer. Durability uses group
+ * commit: {@link #awaitDurable(long)} lets the first waiting thread force the mapped pages to disk on behalf of every entry
+ * appended so far, while the threads queued behind it usually find their entries already durable and return without
+ * another {@code fsync}.
+ * <p>
+ * Every entry carries its sequence number and a CRC32. On start the tail of the newest segment is scanned and the log is
+ * cut at the first missing or torn entry, so the journal always contains a gapless prefix of the appended sequence.
+ * Entries are consumed by {@link TrainingJournalDrainer} and whole segments are deleted once they were applied.
+ * <p>
+ * Entry layout: {@code sequence, userId, startTime, endTime, activityType, distance, averageSpeed, idempotencyKeyLength,
+ * idempotencyKey, crc32}. The idempotency key is stored as UTF-8 in a fixed field large enough for the longest key,
+ * a length of {@code 0} stands for an upload without a key.
+ */
+@Slf4j
+final class TrainingJournal implements Closeable {
+
+    /**
+     * Size of the idempotency key field: every char of a key takes at most three bytes in UTF-8.
+     */
+    static final int KEY_SIZE = Training.MAX_IDEMPOTENCY_KEY_LENGTH * 3;
+    static final int ENTRY_SIZE = 8 + 8 + 8 + 8 + 1 + 8 + 8 + 2 + KEY_SIZE + 4;
+
+    private static final int CHECKSUMMED_SIZE = ENTRY_SIZE - 4;
+    private static final int KEY_LENGTH_OFFSET = 49;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final ActivityType[] ACTIVITY_TYPES = ActivityType.values();
+
+    private final Path directory;
+    private final int entriesPerSegment;
+    private final NavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    private final Object appendLock = new Object();
+    private final Object flushLock = new Object();
+
+    private volatile Segment current;
+    private long lastSequence;
+    private volatile long durableSequence;
+
+    /**
+     * Opens the journal in the given directory, recovering all complete entries written before a crash.
+     *
+     * @param directory   directory holding the journal segments
+     * @param segmentSize size of a single segment file in bytes
+     * @throws IOException if the segments could not be opened
+     */
+    TrainingJournal(Path directory, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.entriesPerSegment = segmentSize / ENTRY_SIZE;
+        if (entriesPerSegment < 1) {
+            throw new IllegalArgumentException("Journal segment size %d is smaller than a single entry".formatted(segmentSize));
+        }
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                Segment segment = openSegment(file, firstSequenceOf(file));
+                segments.put(segment.firstSequence(), segment);
+            }
+        }
+        if (segments.isEmpty()) {
+            current = createSegment(1);
+            lastSequence = 0;
+        } else {
+            current = segments.lastEntry().getValue();
+            lastSequence = recoverTail(current);
+        }
+        durableSequence = lastSequence;
+        log.info("Opened training journal in {}, last sequence {}", directory, lastSequence);
+    }
+
+    /**
+     * Appends the training to the journal. The entry is visible to readers only after it is durable.
+     *
+     * @param idempotencyKey key of the upload chosen by the client, if any
+     * @return sequence number of the appended entry, to be passed to {@link #awaitDurable(long)}
+     * @throws IllegalArgumentException if the idempotency key is longer than {@link Training#MAX_IDEMPOTENCY_KEY_LENGTH}
+     */
+    long append(long userId, long startTime, long endTime, ActivityType activityType, double distance, double averageSpeed,
+                @Nullable String idempotencyKey) {
+        byte[] key = idempotencyKey != null ? idempotencyKey.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if (idempotencyKey != null && (key.length == 0 || idempotencyKey.length() > Training.MAX_IDEMPOTENCY_KEY_LENGTH)) {
+            throw new IllegalArgumentException("Idempotency key must have 1 to %d characters".formatted(Training.MAX_IDEMPOTENCY_KEY_LENGTH));
+        }
+        synchronized (appendLock) {
+            long sequence = lastSequence + 1;
+            int index = (int) (sequence - current.firstSequence());
+            if (index >= entriesPerSegment) {
+                rollOver(sequence);
+                index = 0;
+            }
+            ByteBuffer entry = current.buffer().duplicate().position(index * ENTRY_SIZE).limit((index + 1) * ENTRY_SIZE).slice();
+            entry.putLong(sequence)
+                    .putLong(userId)
+                    .putLong(startTime)
+                    .putLong(endTime)
+                    .put((byte) activityType.ordinal())
+                    .putDouble(distance)
+                    .putDouble(averageSpeed)
+                    .putShort((short) key.length)
+                    .put(key)
+                    .position(CHECKSUMMED_SIZE);
+            entry.putInt(checksum(entry, 0));
+            lastSequence = sequence;
+            return sequence;
+        }
+    }
+
+    /**
+     * Blocks until the entry with the given sequence number is persisted on disk.
+     *
+     * @param sequence sequence number returned by {@link #append}
+     */
+    void awaitDurable(long sequence) {
+        if (durableSequence >= sequence) {
+            return;
+        }
+        synchronized (flushLock) {
+            if (durableSequence >= sequence) {
+                return;
+            }
+            long target;
+            Segment segment;
+            synchronized (appendLock) {
+                target = lastSequence;
+                segment = current;
+            }
+            segment.buffer().force();
+            durableSequence = target;
+        }
+    }
+
+    /**
+     * @return sequence number of the newest durable entry, {@code 0} if the journal was never written
+     */
+    long getDurableSequence() {
+        return durableSequence;
+    }
+
+    /**
+     * Reads durable entries following the given sequence number.
+     *
+     * @param afterSequence sequence number of the last consumed entry
+     * @param limit         maximum number of entries to be returned
+     * @return entries in sequence order, empty if there is nothing new
+     */
+    List<JournaledTraining> read(long afterSequence, int limit) {
+        long durable = durableSequence;
+        List<JournaledTraining> entries = new ArrayList<>();
+        long sequence = Math.max(afterSequence + 1, segments.isEmpty() ? 1 : segments.firstKey());
+        while (sequence <= durable && entries.size() < limit) {
+            Map.Entry<Long, Segment> segment = segments.floorEntry(sequence);
+            if (segment == null) {
+                break;
+            }
+            int index = (int) (sequence - segment.getKey());
+            JournaledTraining entry = readEntry(segment.getValue().buffer(), index);
+            if (entry == null || entry.sequence() != sequence) {
+                throw new IllegalStateException("Training journal is corrupted at sequence %d".formatted(sequence));
+            }
+            entries.add(entry);
+            sequence++;
+        }
+        return entries;
+    }
+
+    /**
+     * Deletes segments whose entries were all applied.
+     *
+     * @param appliedSequence sequence number of the last entry applied to the database
+     */
+    void release(long appliedSequence) {
+        for (Map.Entry<Long, Segment> entry : segments.headMap(current.firstSequence()).entrySet()) {
+            Long next = segments.higherKey(entry.getKey());
+            if (next == null || next - 1 > appliedSequence) {
+                return;
+            }
+            segments.remove(entry.getKey());
+            try {
+                Files.deleteIfExists(entry.getValue().path());
+            } catch (IOException e) {
+                log.warn("Could not delete applied journal segment {}", entry.getValue().path(), e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        long sequence;
+        synchronized (appendLock) {
+            sequence = lastSequence;
+        }
+        awaitDurable(sequence);
+    }
+
+    private void rollOver(long firstSequence) {
+        current.buffer().force();
+        try {
+            current = createSegment(firstSequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create training journal segment", e);
+        }
+    }
+
+    private Segment createSegment(long firstSequence) throws IOException {
+        Path file = directory.resolve("%s%020d%s".formatted(SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        Segment segment = openSegment(file, firstSequence);
+        segments.put(firstSequence, segment);
+        return segment;
+    }
+
+    private Segment openSegment(Path file, long firstSequence) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                    StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) entriesPerSegment * ENTRY_SIZE);
+            return new Segment(file, firstSequence, buffer);
+        }
+    }
+
+    /**
+     * Finds the last complete entry of the segment and wipes every entry after it, so that neither a torn write nor
+     * an entry that outlived its unflushed predecessor is ever replayed.
+     */
+    private long recoverTail(Segment segment) {
+        long expected = segment.firstSequence();
+        int index = 0;
+        while (index < entriesPerSegment) {
+            JournaledTraining entry = readEntry(segment.buffer(), index);
+            if (entry == null || entry.sequence() != expected) {
+                break;
+            }
+            expected++;
+            index++;
+        }
+        int torn = 0;
+        for (int stale = index; stale < entriesPerSegment; stale++) {
+            int position = stale * ENTRY_SIZE;
+            if (segment.buffer().getLong(position) != 0 || segment.buffer().getInt(position + CHECKSUMMED_SIZE) != 0) {
+                for (int offset = 0; offset < ENTRY_SIZE; offset++) {
+                    segment.buffer().put(position + offset, (byte) 0);
+                }
+                torn++;
+            }
+        }
+        if (torn > 0) {
+            segment.buffer().force();
+            log.warn("Discarded {} incomplete training journal entries after sequence {}", torn, expected - 1);
+        }
+        return expected - 1;
+    }
+
+    private static JournaledTraining readEntry(ByteBuffer buffer, int index) {
+        ByteBuffer entry = buffer.duplicate().position(index * ENTRY_SIZE).limit((index + 1) * ENTRY_SIZE).slice();
+        long sequence = entry.getLong(0);
+        if (sequence == 0 || entry.getInt(CHECKSUMMED_SIZE) != checksum(entry, 0)) {
+            return null;
+        }
+        int activityType = entry.get(32);
+        if (activityType < 0 || activityType >= ACTIVITY_TYPES.length) {
+            return null;
+        }
+        int keyLength = entry.getShort(KEY_LENGTH_OFFSET);
+        if (keyLength < 0 || keyLength > KEY_SIZE) {
+            return null;
+        }
+        String idempotencyKey = null;
+        if (keyLength > 0) {
+            byte[] key = new byte[keyLength];
+            entry.get(KEY_LENGTH_OFFSET + 2, key);
+            idempotencyKey = new String(key, StandardCharsets.UTF_8);
+        }
+        return new JournaledTraining(
+                sequence,
+                entry.getLong(8),
+                entry.getLong(16),
+                entry.getLong(24),
+                ACTIVITY_TYPES[activityType],
+                entry.getDouble(33),
+                entry.getDouble(41),
+                idempotencyKey);
+    }
+
+    private static int checksum(ByteBuffer entry, int offset) {
+        CRC32 crc = new CRC32();
+        crc.update(entry.duplicate().position(offset).limit(offset + CHECKSUMMED_SIZE));
+        return (int) crc.getValue();
+    }
+
+    private static long firstSequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private record Segment(Path path, long firstSequence, MappedByteBuffer buffer) {
+
+    }
+}
@@ -0,0 +1,36 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Sequence number of the last {@link TrainingJournal} entry applied to the database. It is updated in the same transaction
+ * as the inserted trainings, which makes replaying the journal after a crash idempotent.
+ */
+@Entity
+@Table(name = "training_journal_checkpoints")
+@Getter
+@Setter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+class TrainingJournalCheckpoint {
+
+    @Id
+    @Column(name = "journal_name")
+    private String journalName;
+
+    @Column(name = "applied_sequence", nullable = false)
+    private long appliedSequence;
+
+    TrainingJournalCheckpoint(final String journalName) {
+        this.journalName = journalName;
+    }
+
+}
@@ -0,0 +1,184 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import com.capgemini.wsb.fitnesstracker.sharding.api.ShardRouter;
+import com.capgemini.wsb.fitnesstracker.training.api.Training;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingChangedEvent;
+import com.capgemini.wsb.fitnesstracker.user.api.User;
+import com.capgemini.wsb.fitnesstracker.user.internal.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Background worker applying {@link TrainingJournal} entries to the {@code trainings} table.
+ * <p>
+ * Entries are inserted in batches of {@link TrainingJournalProperties#getBatchSize()}, each batch in a single transaction
+ * together with the {@link TrainingJournalCheckpoint} update. After a crash the drainer continues from the committed
+ * checkpoint, so every accepted training is inserted exactly once. With sharding, the trainings are inserted on the shard
+ * of their user ({@link ShardRouter}). Entries duplicating a stored training, or an earlier
+ * entry of the batch, by user and idempotency key or by user, start time and activity type are skipped.
+ * {@link TrainingChangedEvent}s for the inserted trainings are published after the batch is committed.
+ */
+@Component
+@ConditionalOnProperty(prefix = "training.journal", name = "enabled", havingValue = "true")
+@Slf4j
+class TrainingJournalDrainer {
+
+    private final TrainingJournal journal;
+    private final TrainingRepository trainingRepository;
+    private final UserRepository userRepository;
+    private final TrainingJournalCheckpointRepository checkpointRepository;
+    private final TrainingMapper trainingMapper;
+    private final ShardRouter shardRouter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final String journalName;
+    private final int batchSize;
+
+    private long appliedSequence;
+
+    TrainingJournalDrainer(TrainingJournal journal,
+                           TrainingRepository trainingRepository,
+                           UserRepository userRepository,
+                           TrainingJournalCheckpointRepository checkpointRepository,
+                           TrainingMapper trainingMapper,
+                           ShardRouter shardRouter,
+                           ApplicationEventPublisher eventPublisher,
+                           PlatformTransactionManager transactionManager,
+                           TrainingJournalProperties properties) {
+        this.journal = journal;
+        this.trainingRepository = trainingRepository;
+        this.userRepository = userRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.trainingMapper = trainingMapper;
+        this.shardRouter = shardRouter;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.journalName = properties.getName();
+        this.batchSize = properties.getBatchSize();
+    }
+
+    /**
+     * Applies all durable journal entries that were not applied yet.
+     *
+     * @return number of inserted trainings, without the skipped duplicates
+     */
+    @Scheduled(fixedDelayString = "${training.journal.drain-delay:200}")
+    int drain() {
+        int drained = 0;
+        Batch batch;
+        do {
+            batch = drainBatch();
+            drained += batch.inserted().size();
+        } while (batch.consumed() > 0);
+        if (drained > 0) {
+            log.debug("Applied {} journaled trainings", drained);
+        }
+        return drained;
+    }
+
+    /**
+     * Applies the next batch of entries. A batch of duplicates only inserts nothing, but is consumed all the same.
+     * <p>
+     * Entries are inserted on the shard of their user. The other shards are written first, each in its own transaction;
+     * the entries of shard {@code 0} are inserted in the transaction advancing the checkpoint, which lives on shard
+     * {@code 0}. If the drainer stops in between, the batch is applied again and the entries already inserted on the
+     * other shards are skipped as duplicates. Without sharding the whole batch is a single transaction.
+     */
+    private Batch drainBatch() {
+        long checkpoint = shardRouter.onShard(0, () -> checkpointRepository.findById(journalName)
+                .map(TrainingJournalCheckpoint::getAppliedSequence)
+                .orElse(0L));
+        List<JournaledTraining> entries = journal.read(checkpoint, batchSize);
+        if (entries.isEmpty()) {
+            return new Batch(0, List.of());
+        }
+        long lastSequence = entries.get(entries.size() - 1).sequence();
+        Map<Integer, List<JournaledTraining>> byShard = entries.stream()
+                .collect(Collectors.groupingBy(entry -> shardRouter.shardOf(entry.userId()), TreeMap::new, Collectors.toList()));
+        List<Training> inserted = new ArrayList<>();
+        byShard.forEach((shard, shardEntries) -> {
+            if (shard != 0) {
+                inserted.addAll(shardRouter.onShard(shard, () -> transactionTemplate.execute(status -> insert(shardEntries))));
+            }
+        });
+        inserted.addAll(shardRouter.onShard(0, () -> transactionTemplate.execute(status -> {
+            List<Training> trainings = insert(byShard.getOrDefault(0, List.of()));
+            TrainingJournalCheckpoint current = checkpointRepository.findById(journalName)
+                    .orElseGet(() -> new TrainingJournalCheckpoint(journalName));
+            current.setAppliedSequence(lastSequence);
+            checkpointRepository.save(current);
+            return trainings;
+        })));
+        appliedSequence = lastSequence;
+        inserted.forEach(training -> eventPublisher.publishEvent(TrainingChangedEvent.created(trainingMapper.toDto(training))));
+        journal.release(appliedSequence);
+        return new Batch(entries.size(), inserted);
+    }
+
+    /**
+     * Inserts the entries of a single shard, skipping the duplicates. Runs in a transaction on that shard.
+     */
+    private List<Training> insert(List<JournaledTraining> entries) {
+        if (entries.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, User> users = userRepository.findAllById(entries.stream().map(JournaledTraining::userId).distinct().toList())
+                .stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        Set<UploadKey> uploaded = trainingRepository.findByUserIdInAndStartTimeIn(
+                        users.keySet(), entries.stream().map(entry -> new Date(entry.startTime())).distinct().toList())
+                .stream()
+                .map(training -> new UploadKey(training.getUser().getId(), training.getStartTime().getTime(), training.getActivityType()))
+                .collect(Collectors.toCollection(HashSet::new));
+        List<String> idempotencyKeys = entries.stream().map(JournaledTraining::idempotencyKey).filter(Objects::nonNull).distinct().toList();
+        Set<KeyedUpload> keyed = (idempotencyKeys.isEmpty() ? List.<Training>of()
+                : trainingRepository.findByUserIdInAndIdempotencyKeyIn(users.keySet(), idempotencyKeys))
+                .stream()
+                .map(training -> new KeyedUpload(training.getUser().getId(), training.getIdempotencyKey()))
+                .collect(Collectors.toCollection(HashSet::new));
+        return trainingRepository.saveAll(entries.stream()
+                                                  .filter(entry -> entry.idempotencyKey() == null
+                                                          || keyed.add(new KeyedUpload(entry.userId(), entry.idempotencyKey())))
+                                                  .filter(entry -> uploaded.add(new UploadKey(entry.userId(), entry.startTime(), entry.activityType())))
+                                                  .map(entry -> {
+                                                      Training training = new Training(
+                                                              users.get(entry.userId()),
+                                                              new Date(entry.startTime()),
+                                                              new Date(entry.endTime()),
+                                                              entry.activityType(),
+                                                              entry.distance(),
+                                                              entry.averageSpeed());
+                                                      training.setIdempotencyKey(entry.idempotencyKey());
+                                                      return training;
+                                                  })
+                                                  .toList());
+    }
+
+    private record Batch(int consumed, List<Training> inserted) {
+
+    }
+
+    private record UploadKey(long userId, long startTime, ActivityType activityType) {
+
+    }
+
+    private record KeyedUpload(long userId, String idempotencyKey) {
+
+    }
+}
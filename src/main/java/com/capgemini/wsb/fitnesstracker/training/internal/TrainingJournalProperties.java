@@ -0,0 +1,42 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+/**
+ * Configuration of the journaled ingest mode ({@link TrainingJournal}, {@link TrainingJournalDrainer}).
+ */
+@ConfigurationProperties(prefix = "training.journal")
+@Getter
+@Setter
+class TrainingJournalProperties {
+
+    /**
+     * Whether created trainings should be acknowledged after they are appended to the journal instead of after the insert.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Name of the journal, unique for every application instance sharing the database.
+     */
+    private String name = "default";
+
+    /**
+     * Directory holding the journal segment files.
+     */
+    private Path directory = Path.of("data", "journal");
+
+    /**
+     * Size of a single journal segment file in bytes.
+     */
+    private int segmentSize = 64 * 1024 * 1024;
+
+    /**
+     * Maximum number of journal entries applied to the database in a single transaction.
+     */
+    private int batchSize = 500;
+
+}
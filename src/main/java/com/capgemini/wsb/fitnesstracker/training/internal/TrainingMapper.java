@@ -7,10 +7,17 @@ import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
 import com.capgemini.wsb.fitnesstracker.user.api.User;
 import com.capgemini.wsb.fitnesstracker.user.internal.UserRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.hibernate.proxy.HibernateProxy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Component responsible for mapping between {@link Training} entities and {@link TrainingDto} data transfer objects.
@@ -45,6 +52,53 @@ class TrainingMapper {
                 training.getAverageSpeed());
     }
 
+    /**
+     * Replaces a lazy user proxy of the training by the loaded user, so that the training can be used outside of the
+     * persistence context it was read in, e.g. by other threads. Has to be called while that context is still open.
+     *
+     * @param training The training whose user should be loaded.
+     * @return The training with a loaded user, the same instance if there was nothing to load.
+     */
+    TrainingDto withLoadedUser(TrainingDto training) {
+        if (training.user() == null || !(training.user() instanceof HibernateProxy)) {
+            return training;
+        }
+        return new TrainingDto(
+                training.id(),
+                (User) Hibernate.unproxy(training.user()),
+                training.startTime(),
+                training.endTime(),
+                training.activityType(),
+                training.distance(),
+                training.averageSpeed());
+    }
+
+    /**
+     * Converts archived trainings into {@link TrainingDto} objects. The users referenced by the trainings are resolved
+     * with a single batch lookup instead of one query per training.
+     *
+     * @param trainings The archived trainings to be converted.
+     * @return The corresponding TrainingDto list, in the order of the given trainings.
+     */
+    List<TrainingDto> toDtos(List<ArchivedTraining> trainings) {
+        if (trainings.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, User> users = userRepository.findAllById(trainings.stream().map(ArchivedTraining::userId).distinct().toList())
+                .stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return trainings.stream()
+                .map(training -> new TrainingDto(
+                        training.id(),
+                        users.get(training.userId()),
+                        new Date(training.startTime()),
+                        new Date(training.endTime()),
+                        training.activityType(),
+                        training.distance(),
+                        training.averageSpeed()))
+                .toList();
+    }
+
     /**
      * Converts a {@link TrainingDto} back to a {@link Training} entity.
      * This method is used when an existing DTO needs to be persisted or updated in the database as an entity.
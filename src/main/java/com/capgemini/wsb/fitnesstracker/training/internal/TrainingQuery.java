@@ -0,0 +1,38 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
+import jakarta.annotation.Nullable;
+
+import java.util.Objects;
+
+/**
+ * Identifies identical training reads for coalescing.
+ *
+ * @param method   name of the read method
+ * @param argument argument of the read method, {@code null} if it has none
+ */
+record TrainingQuery(String method, @Nullable Object argument) {
+
+    /**
+     * @param training state of a training before or after a change
+     * @return whether the training is or was part of the result of this read
+     */
+    boolean isAffectedBy(TrainingDto training) {
+        return switch (method) {
+            case "getTraining" -> Objects.equals(argument, training.id());
+            case "findTrainingsByUserId" -> Objects.equals(argument, training.user().getId());
+            case "findTrainingsByActivity" -> argument == training.activityType();
+            case "findCompletedTrainingsAfter" -> argument == null || training.endTime().getTime() > (Long) argument;
+            default -> true;
+        };
+    }
+
+    /**
+     * @param userId ID of a changed user
+     * @return whether the result of this read may contain trainings of the user
+     */
+    boolean isAffectedByUser(Long userId) {
+        return !"findTrainingsByUserId".equals(method) || Objects.equals(argument, userId);
+    }
+
+}
@@ -0,0 +1,193 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import com.capgemini.wsb.fitnesstracker.coherence.api.CacheInvalidationBroadcaster;
+import com.capgemini.wsb.fitnesstracker.coherence.api.RemoteCacheInvalidationEvent;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingChangedEvent;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
+import com.capgemini.wsb.fitnesstracker.user.api.UserChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.Nullable;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Result cache of the training list queries which dashboards repeat with the same few parameters:
+ * {@link TrainingServiceImpl#findTrainingsByActivity} and {@link TrainingServiceImpl#findCompletedTrainingsAfter}.
+ * <p>
+ * Results are held in a size bounded Caffeine cache (W-TinyLFU eviction) keyed by query and parameters. Invalidation is
+ * precise: a training change drops only the results of its activity type(s) and the "completed after" results whose
+ * date is before its end time, i.e. exactly the results the training was or is part of. A user change drops the
+ * results containing the user.
+ * <p>
+ * The same invalidations are broadcast to the other application instances ({@link CacheInvalidationBroadcaster}) as keys
+ * {@code activity:<type>}, {@code completedBefore:<end time>} and {@code user:<id>} of the {@value #REGION} region.
+ * <p>
+ * A query racing with a write could otherwise store a result read before the write committed after the write already
+ * invalidated the cache. Every invalidation therefore increments {@link #writes} before dropping entries, and a loaded
+ * result is stored only if no invalidation started since the query began. The check and the store are guarded by the
+ * read lock of {@link #invalidationLock} and the invalidations by its write lock, so a stored result is either dropped
+ * by the invalidation that follows it or never stored at all; it is never visible in between.
+ * <p>
+ * Hit and miss counts are exported as the {@code cache.*} metrics with the {@code cache=trainingQueries} tag, the hit
+ * ratio as {@code training.query.cache.hit.ratio}.
+ */
+@Component
+class TrainingQueryCache {
+
+    static final String REGION = "trainingQueries";
+
+    private static final String ACTIVITY_KEY = "activity:";
+    private static final String COMPLETED_BEFORE_KEY = "completedBefore:";
+    private static final String USER_KEY = "user:";
+
+    private final boolean enabled;
+    private final Cache<QueryKey, List<TrainingDto>> cache;
+    private final AtomicLong writes = new AtomicLong();
+    private final ReadWriteLock invalidationLock = new ReentrantReadWriteLock();
+    private final CacheInvalidationBroadcaster broadcaster;
+
+    TrainingQueryCache(TrainingQueryCacheProperties properties, MeterRegistry meterRegistry,
+                       CacheInvalidationBroadcaster broadcaster) {
+        this.enabled = properties.isEnabled();
+        this.broadcaster = broadcaster;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "trainingQueries");
+        Gauge.builder("training.query.cache.hit.ratio", cache, queries -> queries.stats().hitRate())
+                .description("Share of training list queries answered from the cache")
+                .register(meterRegistry);
+    }
+
+    List<TrainingDto> trainingsByActivity(ActivityType activityType, Supplier<List<TrainingDto>> query) {
+        return get(new ByActivity(activityType), query);
+    }
+
+    List<TrainingDto> completedTrainingsAfter(Date date, Supplier<List<TrainingDto>> query) {
+        return get(new CompletedAfter(date.getTime()), query);
+    }
+
+    CacheStats stats() {
+        return cache.stats();
+    }
+
+    void invalidateAll() {
+        invalidating(cache::invalidateAll);
+    }
+
+    @EventListener
+    public void onTrainingChanged(TrainingChangedEvent event) {
+        invalidating(() -> {
+            invalidate(event.previous());
+            invalidate(event.current());
+        });
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        invalidating(() -> invalidateUser(event.userId()));
+        broadcaster.broadcast(REGION, USER_KEY + event.userId());
+    }
+
+    @EventListener
+    public void onRemoteInvalidation(RemoteCacheInvalidationEvent event) {
+        if (event.appliesTo(REGION)) {
+            invalidating(() -> invalidateRemote(event));
+        }
+    }
+
+    private void invalidateRemote(RemoteCacheInvalidationEvent event) {
+        if (event.wholeRegion()) {
+            cache.invalidateAll();
+            return;
+        }
+        for (String key : event.keys()) {
+            if (key.startsWith(ACTIVITY_KEY)) {
+                cache.invalidate(new ByActivity(ActivityType.valueOf(key.substring(ACTIVITY_KEY.length()))));
+            } else if (key.startsWith(COMPLETED_BEFORE_KEY)) {
+                invalidateCompletedBefore(Long.parseLong(key.substring(COMPLETED_BEFORE_KEY.length())));
+            } else if (key.startsWith(USER_KEY)) {
+                invalidateUser(Long.valueOf(key.substring(USER_KEY.length())));
+            } else {
+                cache.invalidateAll();
+            }
+        }
+    }
+
+    private List<TrainingDto> get(QueryKey key, Supplier<List<TrainingDto>> query) {
+        if (!enabled) {
+            return query.get();
+        }
+        List<TrainingDto> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long writesBefore = writes.get();
+        List<TrainingDto> result = query.get();
+        invalidationLock.readLock().lock();
+        try {
+            if (writes.get() == writesBefore) {
+                cache.put(key, result);
+            }
+        } finally {
+            invalidationLock.readLock().unlock();
+        }
+        return result;
+    }
+
+    private void invalidating(Runnable invalidation) {
+        invalidationLock.writeLock().lock();
+        try {
+            writes.incrementAndGet();
+            invalidation.run();
+        } finally {
+            invalidationLock.writeLock().unlock();
+        }
+    }
+
+    private void invalidate(@Nullable TrainingDto training) {
+        if (training == null) {
+            return;
+        }
+        cache.invalidate(new ByActivity(training.activityType()));
+        long endTime = training.endTime() != null ? training.endTime().getTime() : Long.MAX_VALUE;
+        invalidateCompletedBefore(endTime);
+        broadcaster.broadcast(REGION, ACTIVITY_KEY + training.activityType().name());
+        broadcaster.broadcast(REGION, COMPLETED_BEFORE_KEY + endTime);
+    }
+
+    private void invalidateCompletedBefore(long endTime) {
+        cache.asMap().keySet().removeIf(key -> key instanceof CompletedAfter completedAfter && completedAfter.afterTime() < endTime);
+    }
+
+    private void invalidateUser(@Nullable Long userId) {
+        cache.asMap().values().removeIf(trainings -> trainings.stream()
+                .anyMatch(training -> training.user() != null && Objects.equals(training.user().getId(), userId)));
+    }
+
+    private sealed interface QueryKey permits ByActivity, CompletedAfter {
+
+    }
+
+    private record ByActivity(ActivityType activityType) implements QueryKey {
+
+    }
+
+    private record CompletedAfter(long afterTime) implements QueryKey {
+
+    }
+}
@@ -0,0 +1,26 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the {@link TrainingQueryCache}.
+ */
+@ConfigurationProperties(prefix = "training.query-cache")
+@Getter
+@Setter
+class TrainingQueryCacheProperties {
+
+    /**
+     * Whether results of the training list queries should be cached. Trainings written to the database directly
+     * (bypassing {@link TrainingServiceImpl}) are not seen by cached queries.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Maximum number of cached query results.
+     */
+    private long maximumSize = 1_000;
+
+}
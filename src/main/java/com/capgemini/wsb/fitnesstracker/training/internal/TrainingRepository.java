@@ -1,8 +1,61 @@
 package com.capgemini.wsb.fitnesstracker.training.internal;
 
 import com.capgemini.wsb.fitnesstracker.training.api.Training;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
 
 interface TrainingRepository extends JpaRepository<Training, Long> {
 
+    /**
+     * Keyset pagination over the trainings of one month which ended before the given time, used to move a whole month
+     * to the archive tier at once.
+     *
+     * @param time    upper bound (exclusive) of the training end time
+     * @param from    lower bound (inclusive) of the training start time
+     * @param to      upper bound (exclusive) of the training start time
+     * @param afterId ID of the last training of the previous page, {@code 0} for the first page
+     * @param page    size of the page, the page number is ignored
+     * @return next page of trainings which ended before the given time and started in {@code [from, to)}, ordered by ID
+     */
+    @Query("""
+            select t from Training t
+             where t.endTime < :time and t.startTime >= :from and t.startTime < :to and t.id > :afterId
+             order by t.id""")
+    List<Training> findEndedBeforeStartedBetweenAfterId(Date time, Date from, Date to, Long afterId, Pageable page);
+
+    /**
+     * @param time upper bound (exclusive) of the training end time
+     * @return start time of the earliest training which ended before the given time
+     */
+    @Query("select min(t.startTime) from Training t where t.endTime < :time")
+    Optional<Date> findFirstStartTimeEndedBefore(Date time);
+
+    /**
+     * @param time upper bound (exclusive) of the training end time
+     * @param from lower bound (inclusive) of the training start time
+     * @return start time of the earliest training which started at or after {@code from} and ended before {@code time}
+     */
+    @Query("select min(t.startTime) from Training t where t.endTime < :time and t.startTime >= :from")
+    Optional<Date> findFirstStartTimeEndedBefore(Date time, Date from);
+
+    List<Training> findByUserIdOrderByIdAsc(Long userId);
+
+    List<Training> findByActivityTypeOrderByIdAsc(ActivityType activityType);
+
+    List<Training> findByEndTimeAfterOrderByIdAsc(Date time);
+
+    Optional<Training> findByUserIdAndStartTimeAndActivityType(Long userId, Date startTime, ActivityType activityType);
+
+    Optional<Training> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+    List<Training> findByUserIdInAndStartTimeIn(Collection<Long> userIds, Collection<Date> startTimes);
+
+    List<Training> findByUserIdInAndIdempotencyKeyIn(Collection<Long> userIds, Collection<String> idempotencyKeys);
+
 }
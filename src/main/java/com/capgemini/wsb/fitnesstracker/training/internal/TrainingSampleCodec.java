@@ -0,0 +1,170 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingSample;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Compact binary encoding of {@link TrainingSample} sequences.
+ * <p>
+ * Values are quantized to integers (coordinates to 1e-7 degree, pace to 1/1000 minute per kilometer) and every column
+ * is stored as a zig-zag varint delta to the previous sample. Consecutive per-second samples differ only slightly, so a
+ * sample usually takes 6 to 9 bytes instead of the ~40 bytes of its raw form, and a 10k sample workout fits in a single
+ * blob of well under 100 KB.
+ * <p>
+ * Layout: {@code version, sampleCount, (timestamp, latitude, longitude, heartRate, pace) deltas * sampleCount}
+ */
+final class TrainingSampleCodec {
+
+    private static final byte VERSION = 1;
+    private static final double COORDINATE_SCALE = 1e7;
+    private static final double PACE_SCALE = 1e3;
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final int FIELDS = 5;
+
+    /**
+     * Encoded samples together with the summary computed in the same pass.
+     *
+     * @param data         encoded samples
+     * @param sampleCount  number of encoded samples
+     * @param distance     distance along the recorded positions in kilometers
+     * @param averageSpeed average speed between the first and the last sample in km/h
+     */
+    record EncodedSamples(byte[] data, int sampleCount, double distance, double averageSpeed) {
+
+    }
+
+    private TrainingSampleCodec() {
+    }
+
+    /**
+     * Encodes the samples in chronological order, computing the distance and average speed on the way.
+     *
+     * @param samples samples to be encoded, in any order
+     * @return encoded samples with their summary
+     */
+    static EncodedSamples encode(List<TrainingSample> samples) {
+        TrainingSample[] sorted = samples.toArray(TrainingSample[]::new);
+        Arrays.sort(sorted, Comparator.comparing(TrainingSample::timestamp));
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 + VarInts.MAX_LENGTH + sorted.length * FIELDS * VarInts.MAX_LENGTH);
+        buffer.put(VERSION);
+        VarInts.putVarLong(buffer, sorted.length);
+
+        long previousTimestamp = 0;
+        long previousLatitude = 0;
+        long previousLongitude = 0;
+        long previousHeartRate = 0;
+        long previousPace = 0;
+        double distance = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            long timestamp = sorted[i].timestamp().toEpochMilli();
+            long latitude = Math.round(sorted[i].latitude() * COORDINATE_SCALE);
+            long longitude = Math.round(sorted[i].longitude() * COORDINATE_SCALE);
+            long heartRate = sorted[i].heartRate();
+            long pace = Math.round(sorted[i].pace() * PACE_SCALE);
+
+            VarInts.putVarLong(buffer, timestamp - previousTimestamp);
+            VarInts.putVarLong(buffer, latitude - previousLatitude);
+            VarInts.putVarLong(buffer, longitude - previousLongitude);
+            VarInts.putVarLong(buffer, heartRate - previousHeartRate);
+            VarInts.putVarLong(buffer, pace - previousPace);
+
+            if (i > 0) {
+                distance += haversine(previousLatitude, previousLongitude, latitude, longitude);
+            }
+            previousTimestamp = timestamp;
+            previousLatitude = latitude;
+            previousLongitude = longitude;
+            previousHeartRate = heartRate;
+            previousPace = pace;
+        }
+
+        double hours = sorted.length < 2
+                ? 0
+                : (sorted[sorted.length - 1].timestamp().toEpochMilli() - sorted[0].timestamp().toEpochMilli()) / 3_600_000.0;
+        double averageSpeed = hours > 0 ? distance / hours : 0;
+        return new EncodedSamples(Arrays.copyOf(buffer.array(), buffer.position()), sorted.length, distance, averageSpeed);
+    }
+
+    /**
+     * Lazily decodes the samples, one at a time.
+     *
+     * @param data encoded samples
+     * @return stream of samples in chronological order
+     */
+    static Stream<TrainingSample> decode(byte[] data) {
+        SampleIterator iterator = new SampleIterator(data);
+        return StreamSupport.stream(Spliterators.spliterator(iterator, iterator.remaining,
+                                                             Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE),
+                                    false);
+    }
+
+    private static void checkVersion(ByteBuffer buffer) {
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalStateException("Unsupported training sample encoding version %d".formatted(version));
+        }
+    }
+
+    private static double haversine(long latitude1, long longitude1, long latitude2, long longitude2) {
+        double phi1 = Math.toRadians(latitude1 / COORDINATE_SCALE);
+        double phi2 = Math.toRadians(latitude2 / COORDINATE_SCALE);
+        double deltaPhi = phi2 - phi1;
+        double deltaLambda = Math.toRadians((longitude2 - longitude1) / COORDINATE_SCALE);
+        double a = Math.sin(deltaPhi / 2) * Math.sin(deltaPhi / 2)
+                + Math.cos(phi1) * Math.cos(phi2) * Math.sin(deltaLambda / 2) * Math.sin(deltaLambda / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static final class SampleIterator implements Iterator<TrainingSample> {
+
+        private final ByteBuffer buffer;
+        private int remaining;
+        private long timestamp;
+        private long latitude;
+        private long longitude;
+        private long heartRate;
+        private long pace;
+
+        private SampleIterator(byte[] data) {
+            this.buffer = ByteBuffer.wrap(data);
+            checkVersion(buffer);
+            this.remaining = (int) VarInts.getVarLong(buffer);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public TrainingSample next() {
+            if (remaining == 0) {
+                throw new NoSuchElementException();
+            }
+            remaining--;
+            timestamp += VarInts.getVarLong(buffer);
+            latitude += VarInts.getVarLong(buffer);
+            longitude += VarInts.getVarLong(buffer);
+            heartRate += VarInts.getVarLong(buffer);
+            pace += VarInts.getVarLong(buffer);
+            return new TrainingSample(
+                    Instant.ofEpochMilli(timestamp),
+                    latitude / COORDINATE_SCALE,
+                    longitude / COORDINATE_SCALE,
+                    (int) heartRate,
+                    pace / PACE_SCALE);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingSample;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * REST controller for the per-second sample data (GPS position, heart rate, pace) of a training session.
+ *
+ * @see TrainingSampleServiceImpl
+ */
+@RestController
+@RequestMapping("/v1/trainings/{trainingId}/samples")
+@RequiredArgsConstructor
+class TrainingSampleController {
+
+    private final TrainingSampleServiceImpl trainingSampleService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Endpoint for uploading the samples of a training session. Distance and average speed of the training are
+     * recalculated from the samples.
+     *
+     * @param trainingId The ID of the training the samples belong to.
+     * @param samples    The samples recorded during the training.
+     * @return ResponseEntity containing the updated TrainingDto and the HTTP status code.
+     */
+    @PostMapping
+    public ResponseEntity<TrainingDto> saveSamples(@PathVariable Long trainingId, @RequestBody List<TrainingSample> samples) {
+        return ResponseEntity.ok(trainingSampleService.saveSamples(trainingId, samples));
+    }
+
+    /**
+     * Endpoint streaming all samples of a training session as a JSON array, without building the whole list in memory.
+     *
+     * @param trainingId The ID of the training.
+     * @return ResponseEntity streaming the samples.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getSamples(@PathVariable Long trainingId) {
+        Stream<TrainingSample> samples = trainingSampleService.streamSamples(trainingId);
+        StreamingResponseBody body = outputStream -> {
+            try (samples; JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                Iterator<TrainingSample> iterator = samples.iterator();
+                while (iterator.hasNext()) {
+                    objectMapper.writeValue(generator, iterator.next());
+                }
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Endpoint retrieving the samples of a training session reduced to at most the given number of points, for charting.
+     *
+     * @param trainingId The ID of the training.
+     * @param maxPoints  The maximum number of returned points.
+     * @return ResponseEntity containing the downsampled samples and the HTTP status code.
+     */
+    @GetMapping("/downsampled")
+    public ResponseEntity<List<TrainingSample>> getDownsampledSamples(@PathVariable Long trainingId,
+                                                                      @RequestParam(defaultValue = "500") int maxPoints) {
+        return ResponseEntity.ok(trainingSampleService.findDownsampledSamples(trainingId, maxPoints));
+    }
+}
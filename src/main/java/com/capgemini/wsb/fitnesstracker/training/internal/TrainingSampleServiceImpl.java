@@ -0,0 +1,157 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import com.capgemini.wsb.fitnesstracker.exception.api.BusinessException;
+import com.capgemini.wsb.fitnesstracker.sharding.api.ShardRouter;
+import com.capgemini.wsb.fitnesstracker.training.api.Training;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingChangedEvent;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingNotFoundException;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingSample;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingSampleService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.stream.Stream;
+
+/**
+ * The samples of a training are stored on the shard holding the training ({@link TrainingShardLocator}), so every
+ * operation first finds that shard and then runs there, in a transaction of its own. The change event is published after
+ * the shard transaction committed.
+ */
+@Service
+@Slf4j
+class TrainingSampleServiceImpl implements TrainingSampleService {
+
+    private final TrainingRepository trainingRepository;
+    private final EncodedTrainingSamplesRepository samplesRepository;
+    private final TrainingMapper trainingMapper;
+    private final ShardRouter shardRouter;
+    private final TrainingShardLocator shardLocator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transaction;
+
+    TrainingSampleServiceImpl(TrainingRepository trainingRepository,
+                              EncodedTrainingSamplesRepository samplesRepository,
+                              TrainingMapper trainingMapper,
+                              ShardRouter shardRouter,
+                              TrainingShardLocator shardLocator,
+                              ApplicationEventPublisher eventPublisher,
+                              PlatformTransactionManager transactionManager) {
+        this.trainingRepository = trainingRepository;
+        this.samplesRepository = samplesRepository;
+        this.trainingMapper = trainingMapper;
+        this.shardRouter = shardRouter;
+        this.shardLocator = shardLocator;
+        this.eventPublisher = eventPublisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public TrainingDto saveSamples(Long trainingId, List<TrainingSample> samples) {
+        validate(samples);
+        int shard = shardLocator.shardHolding(trainingId).orElseThrow(() -> new TrainingNotFoundException(trainingId));
+        TrainingSampleCodec.EncodedSamples encoded = TrainingSampleCodec.encode(samples);
+        log.info("Saving {} samples ({} bytes) of Training {}", encoded.sampleCount(), encoded.data().length, trainingId);
+
+        TrainingChangedEvent changed = shardRouter.onShard(shard, () -> transaction.execute(status -> {
+            Training training = trainingRepository.findById(trainingId)
+                    .orElseThrow(() -> new TrainingNotFoundException(trainingId));
+            samplesRepository.save(new EncodedTrainingSamples(trainingId, encoded.sampleCount(), encoded.data()));
+            TrainingDto previousTraining = trainingMapper.withLoadedUser(trainingMapper.toDto(training));
+            training.setDistance(encoded.distance());
+            training.setAverageSpeed(encoded.averageSpeed());
+            return TrainingChangedEvent.updated(previousTraining,
+                                                trainingMapper.withLoadedUser(trainingMapper.toDto(trainingRepository.save(training))));
+        }));
+        eventPublisher.publishEvent(changed);
+        return changed.current();
+    }
+
+    @Override
+    public Stream<TrainingSample> streamSamples(Long trainingId) {
+        return findSamples(trainingId)
+                .map(samples -> TrainingSampleCodec.decode(samples.getData()))
+                .orElseGet(Stream::empty);
+    }
+
+    @Override
+    public List<TrainingSample> findDownsampledSamples(Long trainingId, int maxPoints) {
+        if (maxPoints < 1) {
+            throw new BusinessException("Number of points must be positive");
+        }
+        return findSamples(trainingId)
+                .map(samples -> downsample(samples, maxPoints))
+                .orElseGet(List::of);
+    }
+
+    private Optional<EncodedTrainingSamples> findSamples(Long trainingId) {
+        OptionalInt shard = shardLocator.shardHolding(trainingId);
+        return shard.isPresent()
+                ? shardRouter.onShard(shard.getAsInt(), () -> samplesRepository.findById(trainingId))
+                : Optional.empty();
+    }
+
+    /**
+     * Rejects the samples the codec cannot encode faithfully. An empty list is rejected as well: it would reset the
+     * distance and average speed of the training to zero.
+     */
+    private static void validate(List<TrainingSample> samples) {
+        if (samples == null || samples.isEmpty()) {
+            throw new BusinessException("At least one sample is required");
+        }
+        for (TrainingSample sample : samples) {
+            if (sample == null || sample.timestamp() == null) {
+                throw new BusinessException("Every sample must have a timestamp");
+            }
+            if (!(Math.abs(sample.latitude()) <= 90) || !(Math.abs(sample.longitude()) <= 180)) {
+                throw new BusinessException("Sample at %s has an invalid position".formatted(sample.timestamp()));
+            }
+            if (sample.heartRate() < 0 || !Double.isFinite(sample.pace()) || sample.pace() < 0) {
+                throw new BusinessException("Sample at %s has an invalid heart rate or pace".formatted(sample.timestamp()));
+            }
+        }
+    }
+
+    /**
+     * Splits the samples into at most {@code maxPoints} consecutive buckets and emits one point per bucket: the first
+     * timestamp, the middle position and the average heart rate and pace of the bucket. Samples are decoded in one pass.
+     */
+    private static List<TrainingSample> downsample(EncodedTrainingSamples samples, int maxPoints) {
+        int bucketSize = Math.max(1, (samples.getSampleCount() + maxPoints - 1) / maxPoints);
+        List<TrainingSample> points = new ArrayList<>(Math.min(maxPoints, samples.getSampleCount()));
+        try (Stream<TrainingSample> stream = TrainingSampleCodec.decode(samples.getData())) {
+            Iterator<TrainingSample> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                Instant start = null;
+                TrainingSample middle = null;
+                long heartRateSum = 0;
+                double paceSum = 0;
+                int count = 0;
+                while (count < bucketSize && iterator.hasNext()) {
+                    TrainingSample sample = iterator.next();
+                    if (count == 0) {
+                        start = sample.timestamp();
+                    }
+                    if (count == bucketSize / 2 || middle == null) {
+                        middle = sample;
+                    }
+                    heartRateSum += sample.heartRate();
+                    paceSum += sample.pace();
+                    count++;
+                }
+                points.add(new TrainingSample(start, middle.latitude(), middle.longitude(),
+                                              (int) Math.round((double) heartRateSum / count), paceSum / count));
+            }
+        }
+        return points;
+    }
+}
@@ -0,0 +1,255 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Immutable, columnar segment file holding archived trainings of a single month.
+ * <p>
+ * Every column is stored separately so that a scan only touches the bytes it needs. Monotonic columns (id, start time)
+ * are delta encoded and all integral columns use zig-zag varints, which keeps a typical row well below a quarter of its
+ * JDBC size. The header carries the row count, the set of activity types, the end time range and the user id range, so
+ * whole segments can be skipped without decoding a single row. Segments are read back through a read-only
+ * {@link MappedByteBuffer}.
+ * <p>
+ * Layout: {@code magic, version, rowCount, activityMask, minEndTime, maxEndTime, minUserId, maxUserId, columnOffsets[7],
+ * columns...}. Segments of version 1 have no user id range and are never skipped by user.
+ */
+final class TrainingSegment {
+
+    private static final int MAGIC = 0x54524731;
+    private static final int VERSION = 2;
+    private static final int COLUMNS = 7;
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 4 + 8 + 8 + 8 + 8 + COLUMNS * 4;
+
+    private static final int ID = 0;
+    private static final int USER_ID = 1;
+    private static final int START_TIME = 2;
+    private static final int DURATION = 3;
+    private static final int ACTIVITY_TYPE = 4;
+    private static final int DISTANCE = 5;
+    private static final int AVERAGE_SPEED = 6;
+
+    private static final ActivityType[] ACTIVITY_TYPES = ActivityType.values();
+
+    /**
+     * Row level predicate evaluated on the decoded primitive columns, before any object is allocated for the row.
+     */
+    @FunctionalInterface
+    interface RowFilter {
+
+        RowFilter ALL = (userId, startTime, endTime, activityType) -> true;
+
+        boolean test(long userId, long startTime, long endTime, ActivityType activityType);
+    }
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final int rowCount;
+    private final int activityMask;
+    private final long maxEndTime;
+    private final long minUserId;
+    private final long maxUserId;
+    private final int[] columnOffsets = new int[COLUMNS];
+
+    private TrainingSegment(Path path, ByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer;
+        int version = buffer.getInt(4);
+        if (buffer.getInt(0) != MAGIC || version < 1 || version > VERSION) {
+            throw new IllegalStateException("File %s is not a training segment".formatted(path));
+        }
+        this.rowCount = buffer.getInt(8);
+        this.activityMask = buffer.getInt(12);
+        this.maxEndTime = buffer.getLong(24);
+        int columnOffsetsStart;
+        if (version == 1) {
+            this.minUserId = Long.MIN_VALUE;
+            this.maxUserId = Long.MAX_VALUE;
+            columnOffsetsStart = 32;
+        } else {
+            this.minUserId = buffer.getLong(32);
+            this.maxUserId = buffer.getLong(40);
+            columnOffsetsStart = 48;
+        }
+        for (int column = 0; column < COLUMNS; column++) {
+            columnOffsets[column] = buffer.getInt(columnOffsetsStart + column * 4);
+        }
+    }
+
+    /**
+     * Maps an existing segment file into memory.
+     *
+     * @param path segment file
+     * @return opened segment
+     * @throws IOException if the file could not be mapped
+     */
+    static TrainingSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new TrainingSegment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the given trainings as a new segment. The file is first written next to the target and then atomically moved
+     * in place, so readers never observe a partially written segment.
+     *
+     * @param path      target segment file
+     * @param trainings trainings to be stored, in any order
+     * @return the written segment, already mapped for reading
+     * @throws IOException if the file could not be written
+     */
+    static TrainingSegment write(Path path, List<ArchivedTraining> trainings) throws IOException {
+        List<ArchivedTraining> rows = new ArrayList<>(trainings);
+        rows.sort(Comparator.comparingLong(ArchivedTraining::id));
+
+        ByteBuffer[] columns = new ByteBuffer[COLUMNS];
+        columns[ID] = ByteBuffer.allocate(rows.size() * VarInts.MAX_LENGTH);
+        columns[USER_ID] = ByteBuffer.allocate(rows.size() * VarInts.MAX_LENGTH);
+        columns[START_TIME] = ByteBuffer.allocate(rows.size() * VarInts.MAX_LENGTH);
+        columns[DURATION] = ByteBuffer.allocate(rows.size() * VarInts.MAX_LENGTH);
+        columns[ACTIVITY_TYPE] = ByteBuffer.allocate(rows.size());
+        columns[DISTANCE] = ByteBuffer.allocate(rows.size() * 8);
+        columns[AVERAGE_SPEED] = ByteBuffer.allocate(rows.size() * 8);
+
+        int activityMask = 0;
+        long minEndTime = Long.MAX_VALUE;
+        long maxEndTime = Long.MIN_VALUE;
+        long minUserId = Long.MAX_VALUE;
+        long maxUserId = Long.MIN_VALUE;
+        long previousId = 0;
+        long previousStartTime = 0;
+        for (ArchivedTraining row : rows) {
+            VarInts.putVarLong(columns[ID], row.id() - previousId);
+            VarInts.putVarLong(columns[USER_ID], row.userId());
+            VarInts.putVarLong(columns[START_TIME], row.startTime() - previousStartTime);
+            VarInts.putVarLong(columns[DURATION], row.endTime() - row.startTime());
+            columns[ACTIVITY_TYPE].put((byte) row.activityType().ordinal());
+            columns[DISTANCE].putDouble(row.distance());
+            columns[AVERAGE_SPEED].putDouble(row.averageSpeed());
+
+            previousId = row.id();
+            previousStartTime = row.startTime();
+            activityMask |= 1 << row.activityType().ordinal();
+            minEndTime = Math.min(minEndTime, row.endTime());
+            maxEndTime = Math.max(maxEndTime, row.endTime());
+            minUserId = Math.min(minUserId, row.userId());
+            maxUserId = Math.max(maxUserId, row.userId());
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(rows.size()).putInt(activityMask)
+                .putLong(minEndTime).putLong(maxEndTime).putLong(minUserId).putLong(maxUserId);
+        int offset = HEADER_SIZE;
+        for (ByteBuffer column : columns) {
+            header.putInt(offset);
+            offset += column.position();
+            column.flip();
+        }
+        header.flip();
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header);
+            for (ByteBuffer column : columns) {
+                writeFully(channel, column);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return open(path);
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @param activityType activity type to check
+     * @return {@code false} if the segment certainly holds no training of the given type
+     */
+    boolean mayContain(ActivityType activityType) {
+        return (activityMask & (1 << activityType.ordinal())) != 0;
+    }
+
+    /**
+     * @param time epoch milliseconds
+     * @return {@code false} if no training of the segment ended after the given time
+     */
+    boolean mayEndAfter(long time) {
+        return rowCount > 0 && maxEndTime > time;
+    }
+
+    /**
+     * @param fromUserId lowest user id of the range
+     * @param toUserId   user id following the range
+     * @return {@code false} if the segment certainly holds no training of a user with id in {@code [fromUserId, toUserId)}
+     */
+    boolean mayContainUsers(long fromUserId, long toUserId) {
+        return rowCount > 0 && minUserId < toUserId && maxUserId >= fromUserId;
+    }
+
+    /**
+     * Decodes the segment and returns rows accepted by the filter.
+     *
+     * @param filter predicate evaluated on the primitive column values
+     * @return matching rows ordered by id
+     */
+    List<ArchivedTraining> scan(RowFilter filter) {
+        List<ArchivedTraining> result = new ArrayList<>();
+        forEach(filter, result::add);
+        return result;
+    }
+
+    /**
+     * Decodes the segment and passes rows accepted by the filter to the action, ordered by id, without collecting them.
+     *
+     * @param filter predicate evaluated on the primitive column values
+     * @param action receiver of the matching rows
+     */
+    void forEach(RowFilter filter, Consumer<ArchivedTraining> action) {
+        ByteBuffer ids = column(ID);
+        ByteBuffer userIds = column(USER_ID);
+        ByteBuffer startTimes = column(START_TIME);
+        ByteBuffer durations = column(DURATION);
+        ByteBuffer activityTypes = column(ACTIVITY_TYPE);
+        ByteBuffer distances = column(DISTANCE);
+        ByteBuffer averageSpeeds = column(AVERAGE_SPEED);
+
+        long id = 0;
+        long startTime = 0;
+        for (int row = 0; row < rowCount; row++) {
+            id += VarInts.getVarLong(ids);
+            long userId = VarInts.getVarLong(userIds);
+            startTime += VarInts.getVarLong(startTimes);
+            long endTime = startTime + VarInts.getVarLong(durations);
+            ActivityType activityType = ACTIVITY_TYPES[activityTypes.get()];
+            double distance = distances.getDouble();
+            double averageSpeed = averageSpeeds.getDouble();
+            if (filter.test(userId, startTime, endTime, activityType)) {
+                action.accept(new ArchivedTraining(id, userId, startTime, endTime, activityType, distance, averageSpeed));
+            }
+        }
+    }
+
+    private ByteBuffer column(int column) {
+        return buffer.duplicate().position(columnOffsets[column]);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
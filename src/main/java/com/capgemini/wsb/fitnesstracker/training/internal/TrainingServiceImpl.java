@@ -1,96 +1,468 @@
 package com.capgemini.wsb.fitnesstracker.training.internal;
 
+import com.capgemini.wsb.fitnesstracker.coalescing.api.SingleFlight;
+import com.capgemini.wsb.fitnesstracker.coherence.api.RemoteCacheInvalidationEvent;
+import com.capgemini.wsb.fitnesstracker.exception.api.BusinessException;
+import com.capgemini.wsb.fitnesstracker.sharding.api.ShardRouter;
 import com.capgemini.wsb.fitnesstracker.training.api.*;
-import lombok.RequiredArgsConstructor;
+import com.capgemini.wsb.fitnesstracker.user.api.UserChangedEvent;
+import jakarta.annotation.Nullable;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+/**
+ * Trainings are stored on the shard of their user ({@link ShardRouter}). Queries of a single user run on its shard,
+ * the other queries run on all shards and merge the results by id. A transaction never spans shards, so every shard
+ * query runs in its own read-only transaction and the change events are published after the shard work finished.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 class TrainingServiceImpl implements TrainingService, TrainingProvider {
 
+    private static final Comparator<TrainingDto> BY_ID = Comparator.comparing(TrainingDto::id);
+
     private final TrainingRepository trainingRepository;
     private final TrainingMapper trainingMapper;
+    private final TrainingArchive trainingArchive;
+    private final TrainingQueryCache queryCache;
+    private final SingleFlight<TrainingQuery> singleFlight;
+    private final Optional<TrainingJournal> trainingJournal;
+    private final EncodedTrainingSamplesRepository samplesRepository;
+    private final ShardRouter shardRouter;
+    private final TrainingShardLocator shardLocator;
+    private final TrainingDuplicateFilter duplicateFilter;
+    private final TrainingCursor trainingCursor;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate readOnlyTransaction;
+
+    TrainingServiceImpl(TrainingRepository trainingRepository,
+                        TrainingMapper trainingMapper,
+                        TrainingArchive trainingArchive,
+                        TrainingQueryCache queryCache,
+                        SingleFlight<TrainingQuery> singleFlight,
+                        Optional<TrainingJournal> trainingJournal,
+                        EncodedTrainingSamplesRepository samplesRepository,
+                        ShardRouter shardRouter,
+                        TrainingShardLocator shardLocator,
+                        TrainingDuplicateFilter duplicateFilter,
+                        TrainingCursor trainingCursor,
+                        JdbcTemplate jdbcTemplate,
+                        ApplicationEventPublisher eventPublisher,
+                        PlatformTransactionManager transactionManager) {
+        this.trainingRepository = trainingRepository;
+        this.trainingMapper = trainingMapper;
+        this.trainingArchive = trainingArchive;
+        this.queryCache = queryCache;
+        this.singleFlight = singleFlight;
+        this.trainingJournal = trainingJournal;
+        this.samplesRepository = samplesRepository;
+        this.shardRouter = shardRouter;
+        this.shardLocator = shardLocator;
+        this.duplicateFilter = duplicateFilter;
+        this.trainingCursor = trainingCursor;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Override
+    public void forEachTrainingOfUser(Long userId, Consumer<TrainingDto> action) {
+        trainingCursor.forEachOfUser(userId, action);
+    }
+
+    @Override
+    public void forEachArchivedTraining(long fromUserId, long toUserId, ArchivedTrainingAction action) {
+        trainingArchive.forEachByUserRange(fromUserId, toUserId, training -> action.accept(
+                training.userId(), training.startTime(), training.endTime(), training.activityType(),
+                training.distance(), training.averageSpeed()));
+    }
 
     @Override
     public Optional<TrainingDto> getTraining(final Long trainingId) {
-        Optional<Training> training = trainingRepository.findById(trainingId);
-        return training.map(trainingMapper::toDto).or(Optional::empty);
+        return singleFlight.execute(new TrainingQuery("getTraining", trainingId), () -> onShardHolding(
+                trainingId, () -> readOnly(() -> trainingRepository.findById(trainingId)
+                        .map(trainingMapper::toDto)
+                        .map(trainingMapper::withLoadedUser))));
     }
 
+    /**
+     * Bypasses the ingest journal, so that the caller always gets the inserted training with its ID.
+     */
     @Override
     public TrainingDto createTraining(CreateTrainingDto newTrainingDto) {
+        return createTraining(newTrainingDto, null, false).training();
+    }
+
+    /**
+     * Creates the training unless it was uploaded before, either with the same idempotency key or with the same user,
+     * start time and activity type; the training uploaded before is returned then.
+     * <p>
+     * The {@link TrainingDuplicateFilter} answers for most new uploads that they are not duplicates, which are then
+     * inserted without any read. Otherwise the duplicate is looked up first. The unique indexes of the trainings table
+     * are the authoritative check: if the insert violates one, the upload is a duplicate inserted concurrently or by
+     * another instance, and the training inserted before is looked up.
+     *
+     * New trainings are only appended to the ingest journal when it is enabled ({@link #journalTraining}).
+     *
+     * @param newTrainingDto training to create
+     * @param idempotencyKey key of the upload chosen by the client, unique per user, if any
+     * @return created training, or the training uploaded before; no training if it was only accepted into the journal
+     */
+    TrainingCreation createTraining(CreateTrainingDto newTrainingDto, @Nullable String idempotencyKey) {
+        return createTraining(newTrainingDto, idempotencyKey, true);
+    }
+
+    private TrainingCreation createTraining(CreateTrainingDto newTrainingDto, @Nullable String idempotencyKey, boolean journaled) {
         log.info("Creating Training {}", newTrainingDto);
         log.info("User {}", newTrainingDto.userId());
         if (newTrainingDto.id() != null) {
             throw new IllegalArgumentException("User has already DB ID, update is not permitted!");
         }
-        Training createdTraining = trainingRepository.save(trainingMapper.toEntity(newTrainingDto));
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > Training.MAX_IDEMPOTENCY_KEY_LENGTH)) {
+            throw new BusinessException("Idempotency key must have 1 to %d characters".formatted(Training.MAX_IDEMPOTENCY_KEY_LENGTH));
+        }
+        Optional<TrainingDto> uploaded = findUploaded(newTrainingDto, idempotencyKey, true);
+        if (uploaded.isPresent()) {
+            log.info("Training {} was uploaded before as {}", newTrainingDto, uploaded.get().id());
+            return new TrainingCreation(uploaded.get(), true);
+        }
+        if (journaled && trainingJournal.isPresent()) {
+            journalTraining(trainingJournal.get(), newTrainingDto, idempotencyKey);
+            return TrainingCreation.journaled();
+        }
+        int shard = newTrainingDto.userId() != null ? shardRouter.shardOf(newTrainingDto.userId()) : 0;
+        TrainingDto createdTrainingDto;
+        try {
+            createdTrainingDto = shardRouter.onShard(shard, () -> transaction.execute(status -> {
+                Training training = trainingMapper.toEntity(newTrainingDto);
+                training.setIdempotencyKey(idempotencyKey);
+                return trainingMapper.toDto(trainingRepository.save(training));
+            }));
+        } catch (DataIntegrityViolationException e) {
+            return findUploaded(newTrainingDto, idempotencyKey, false)
+                    .map(training -> new TrainingCreation(training, true))
+                    .orElseThrow(() -> e);
+        }
+        if (idempotencyKey != null && newTrainingDto.userId() != null) {
+            duplicateFilter.addKey(newTrainingDto.userId(), idempotencyKey);
+        }
+        eventPublisher.publishEvent(TrainingChangedEvent.created(createdTrainingDto));
+        return new TrainingCreation(createdTrainingDto, false);
+    }
 
-        return trainingMapper.toDto(createdTraining);
+    /**
+     * Creates trainings of one user with a single JDBC batch insert on the shard of the user, skipping the trainings
+     * uploaded before and repeated trainings of the list, by start time and activity type. The ingest journal is
+     * bypassed, the list is a batch already.
+     * <p>
+     * If the insert violates a unique index, some of the trainings were uploaded concurrently, and they are created one
+     * by one instead.
+     *
+     * @param userId       user of all trainings
+     * @param newTrainings trainings to create
+     * @return created trainings, sorted by id
+     */
+    List<TrainingDto> createTrainings(Long userId, List<CreateTrainingDto> newTrainings) {
+        if (newTrainings.isEmpty()) {
+            return List.of();
+        }
+        List<TrainingDto> created;
+        try {
+            created = shardRouter.onShardOf(userId, () -> transaction.execute(status -> insertBatch(userId, newTrainings)));
+        } catch (DataIntegrityViolationException e) {
+            log.info("Batch of {} trainings of user {} was uploaded concurrently, creating them one by one", newTrainings.size(), userId);
+            return newTrainings.stream()
+                    .map(newTraining -> createTraining(newTraining, null, false))
+                    .filter(creation -> !creation.duplicate())
+                    .map(TrainingCreation::training)
+                    .toList();
+        }
+        created.forEach(training -> eventPublisher.publishEvent(TrainingChangedEvent.created(training)));
+        return created;
     }
 
-    @Override
-    public List<TrainingDto> findAllTrainings() {
-        return trainingRepository.findAll()
+    private List<TrainingDto> insertBatch(Long userId, List<CreateTrainingDto> newTrainings) {
+        Set<UploadKey> uploaded = trainingRepository.findByUserIdInAndStartTimeIn(
+                        List.of(userId), newTrainings.stream().map(CreateTrainingDto::startTime).distinct().toList())
                 .stream()
+                .map(training -> new UploadKey(training.getStartTime().getTime(), training.getActivityType()))
+                .collect(Collectors.toCollection(HashSet::new));
+        List<CreateTrainingDto> inserted = newTrainings.stream()
+                .filter(training -> uploaded.add(new UploadKey(training.startTime().getTime(), training.activityType())))
+                .toList();
+        if (inserted.isEmpty()) {
+            return List.of();
+        }
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement("""
+                                         insert into trainings (user_id, start_time, end_time, activity_type, distance, average_speed)
+                                         values (?, ?, ?, ?, ?, ?)""", Statement.RETURN_GENERATED_KEYS),
+                                 new BatchPreparedStatementSetter() {
+
+                                     @Override
+                                     public void setValues(PreparedStatement statement, int i) throws SQLException {
+                                         CreateTrainingDto training = inserted.get(i);
+                                         statement.setLong(1, userId);
+                                         statement.setTimestamp(2, new Timestamp(training.startTime().getTime()));
+                                         statement.setTimestamp(3, new Timestamp(training.endTime().getTime()));
+                                         statement.setInt(4, training.activityType().ordinal());
+                                         statement.setDouble(5, training.distance());
+                                         statement.setDouble(6, training.averageSpeed());
+                                     }
+
+                                     @Override
+                                     public int getBatchSize() {
+                                         return inserted.size();
+                                     }
+                                 },
+                                 keys);
+        List<Long> ids = keys.getKeyList().stream()
+                .map(key -> ((Number) key.values().iterator().next()).longValue())
+                .toList();
+        return trainingRepository.findAllById(ids).stream()
                 .map(trainingMapper::toDto)
+                .map(trainingMapper::withLoadedUser)
+                .sorted(BY_ID)
                 .toList();
     }
 
+    /**
+     * Looks up the training uploaded before with the idempotency key or with the same user, start time and activity
+     * type. With {@code filtered}, the lookups the {@link TrainingDuplicateFilter} rules out are skipped.
+     */
+    private Optional<TrainingDto> findUploaded(CreateTrainingDto newTrainingDto, @Nullable String idempotencyKey, boolean filtered) {
+        Long userId = newTrainingDto.userId();
+        if (userId == null) {
+            return Optional.empty();
+        }
+        boolean byKey = idempotencyKey != null && (!filtered || duplicateFilter.mightContainKey(userId, idempotencyKey));
+        boolean byContent = newTrainingDto.startTime() != null && newTrainingDto.activityType() != null
+                && (!filtered || duplicateFilter.mightContain(userId, newTrainingDto.startTime().getTime(), newTrainingDto.activityType()));
+        if (!byKey && !byContent) {
+            return Optional.empty();
+        }
+        return shardRouter.onShardOf(userId, () -> readOnly(() -> {
+            Optional<Training> training = byKey ? trainingRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey) : Optional.empty();
+            if (training.isEmpty() && byContent) {
+                training = trainingRepository.findByUserIdAndStartTimeAndActivityType(
+                        userId, newTrainingDto.startTime(), newTrainingDto.activityType());
+            }
+            return training.map(trainingMapper::toDto).map(trainingMapper::withLoadedUser);
+        }));
+    }
+
+    /**
+     * Acknowledges the training as soon as it is durable in the journal. The insert is done later by
+     * {@link TrainingJournalDrainer}, which skips the entry if a training with the same idempotency key, or the same
+     * user, start time and activity type, was inserted meanwhile.
+     */
+    private void journalTraining(TrainingJournal journal, CreateTrainingDto newTrainingDto, @Nullable String idempotencyKey) {
+        if (newTrainingDto.userId() == null || newTrainingDto.startTime() == null
+                || newTrainingDto.endTime() == null || newTrainingDto.activityType() == null) {
+            throw new IllegalArgumentException("Training must have user, start time, end time and activity type!");
+        }
+        long sequence = journal.append(
+                newTrainingDto.userId(),
+                newTrainingDto.startTime().getTime(),
+                newTrainingDto.endTime().getTime(),
+                newTrainingDto.activityType(),
+                newTrainingDto.distance(),
+                newTrainingDto.averageSpeed(),
+                idempotencyKey);
+        journal.awaitDurable(sequence);
+    }
+
+    @Override
+    public List<TrainingDto> findAllTrainings() {
+        return singleFlight.execute(new TrainingQuery("findAllTrainings", null), () -> withArchived(
+                trainingArchive.findAll(), onAllShards(() -> trainingRepository.findAll(Sort.by("id")))));
+    }
+
     @Override
     public List<TrainingDto> findTrainingsByUserId(Long userId) {
-        return trainingRepository.findAll()
-                .stream()
-                .filter(training -> Objects.equals(training.getUser().getId(), userId))
-                .map(trainingMapper::toDto)
-                .toList();
+        return singleFlight.execute(new TrainingQuery("findTrainingsByUserId", userId), () -> withArchived(
+                trainingArchive.findByUserId(userId), shardRouter.onShardOf(userId, () -> readOnly(
+                        () -> toLoadedDtos(trainingRepository.findByUserIdOrderByIdAsc(userId))))));
     }
 
     @Override
     public List<TrainingDto> findTrainingsByActivity(ActivityType activityType) {
-        return trainingRepository.findAll().stream()
-                .filter(training -> Objects.equals(training.getActivityType(), activityType))
-                .map(trainingMapper::toDto)
-                .toList();
+        return singleFlight.execute(new TrainingQuery("findTrainingsByActivity", activityType), () -> queryCache.trainingsByActivity(
+                activityType, () -> withArchived(
+                        trainingArchive.findByActivity(activityType),
+                        onAllShards(() -> trainingRepository.findByActivityTypeOrderByIdAsc(activityType)))));
     }
 
     @Override
     public List<TrainingDto> findCompletedTrainingsAfter(Date date) {
-        return trainingRepository.findAll()
-                .stream()
-                .filter(training -> training.getEndTime().compareTo(date) > 0)
+        return singleFlight.execute(new TrainingQuery("findCompletedTrainingsAfter", date.getTime()), () -> queryCache.completedTrainingsAfter(
+                date, () -> withArchived(
+                        trainingArchive.findEndedAfter(date),
+                        onAllShards(() -> trainingRepository.findByEndTimeAfterOrderByIdAsc(date)))));
+    }
+
+    /**
+     * Lets reads arriving after a write start a new query instead of sharing a result read before the write. Only the
+     * reads whose result contains the training before or after the change are affected.
+     */
+    @EventListener
+    public void forgetInFlightQueries(TrainingChangedEvent event) {
+        singleFlight.forgetInFlight(query -> (event.previous() != null && query.isAffectedBy(event.previous()))
+                || (event.current() != null && query.isAffectedBy(event.current())));
+    }
+
+    /**
+     * Trainings embed their user, so the reads which may contain trainings of a changed user are affected.
+     */
+    @EventListener
+    public void forgetInFlightQueries(UserChangedEvent event) {
+        singleFlight.forgetInFlight(query -> query.isAffectedByUser(event.userId()));
+    }
+
+    /**
+     * Writes of the other instances are not described in detail, so all reads in flight are affected.
+     */
+    @EventListener(RemoteCacheInvalidationEvent.class)
+    public void forgetInFlightQueries() {
+        singleFlight.forgetInFlight();
+    }
+
+    /**
+     * Prepends matching trainings from the archive tier to the result of a hot table query.
+     * Archived trainings are always older than the hot ones, so the result keeps its chronological order.
+     * Results may be shared with other threads (coalesced reads, query cache), so the users are loaded
+     * instead of being left as lazy proxies bound to this persistence context.
+     */
+    private List<TrainingDto> withArchived(List<ArchivedTraining> archived, List<TrainingDto> hot) {
+        List<TrainingDto> result = new ArrayList<>(archived.size() + hot.size());
+        result.addAll(trainingMapper.toDtos(archived));
+        result.addAll(hot);
+        return result.stream()
+                .map(trainingMapper::withLoadedUser)
+                .toList();
+    }
+
+    /**
+     * Runs the query, returning trainings sorted by id, on every shard and merges the results.
+     */
+    private List<TrainingDto> onAllShards(Supplier<List<Training>> query) {
+        return shardRouter.fanOut(shard -> readOnly(() -> toLoadedDtos(query.get())), BY_ID).toList();
+    }
+
+    /**
+     * Runs the work on the shard holding the training.
+     */
+    private <T> Optional<T> onShardHolding(Long trainingId, Supplier<Optional<T>> work) {
+        OptionalInt shard = shardLocator.shardHolding(trainingId);
+        return shard.isPresent() ? shardRouter.onShard(shard.getAsInt(), work) : Optional.empty();
+    }
+
+    private <T> T readOnly(Supplier<T> query) {
+        return readOnlyTransaction.execute(status -> query.get());
+    }
+
+    private List<TrainingDto> toLoadedDtos(List<Training> trainings) {
+        return trainings.stream()
                 .map(trainingMapper::toDto)
+                .map(trainingMapper::withLoadedUser)
                 .toList();
     }
 
+    /**
+     * Updates the training on its shard. Assigning the training to a user of another shard is rejected, since the
+     * training would have to be moved there and get an ID of the target shard's range, and clients keep the old ID.
+     * <p>
+     * An update colliding with another training of the user starting at the same time with the same activity type is
+     * rejected as well.
+     */
     @Override
     public Optional<TrainingDto> updateTraining(Long trainingId, CreateTrainingDto newTrainingDto) {
+        OptionalInt shard = shardLocator.shardHolding(trainingId);
+        if (shard.isEmpty()) {
+            return Optional.empty();
+        }
+        if (newTrainingDto.userId() != null && shardRouter.shardOf(newTrainingDto.userId()) != shard.getAsInt()) {
+            throw new BusinessException("Training %d cannot be assigned to user %d, whose trainings are stored on another shard"
+                                                .formatted(trainingId, newTrainingDto.userId()));
+        }
+        Optional<TrainingChangedEvent> changed;
+        try {
+            changed = shardRouter.onShard(shard.getAsInt(), () -> transaction.execute(status -> updateInPlace(trainingId, newTrainingDto)));
+        } catch (DataIntegrityViolationException e) {
+            throw new BusinessException("User %d already has a %s training starting at %s"
+                                                .formatted(newTrainingDto.userId(), newTrainingDto.activityType(), newTrainingDto.startTime()));
+        }
+        changed.ifPresent(eventPublisher::publishEvent);
+        return changed.map(TrainingChangedEvent::current);
+    }
+
+    private Optional<TrainingChangedEvent> updateInPlace(Long trainingId, CreateTrainingDto newTrainingDto) {
         Training newTraining = trainingMapper.toEntity(newTrainingDto);
         return trainingRepository.findById(trainingId).map(
                 training -> {
+                    TrainingDto previousTraining = trainingMapper.toDto(training);
                     training.setUser(newTraining.getUser());
                     training.setStartTime(newTraining.getStartTime());
                     training.setEndTime(newTraining.getEndTime());
                     training.setActivityType(newTraining.getActivityType());
                     training.setDistance(newTraining.getDistance());
                     training.setAverageSpeed(newTraining.getAverageSpeed());
-                    return trainingMapper.toDto(trainingRepository.save(training));
+                    TrainingDto updatedTraining = trainingMapper.toDto(trainingRepository.save(training));
+                    return TrainingChangedEvent.updated(previousTraining, updatedTraining);
                 });
     }
 
     @Override
     public boolean deleteTraining(Long id) {
-        if (trainingRepository.existsById(id)) {
-            trainingRepository.deleteById(id);
+        OptionalInt shard = shardLocator.shardHolding(id);
+        if (shard.isEmpty()) {
+            return false;
+        }
+        Optional<Training> training = shardRouter.onShard(shard.getAsInt(), () -> readOnly(() -> trainingRepository.findById(id)));
+        if (training.isPresent()) {
+            shardRouter.onShard(shard.getAsInt(), () -> transaction.execute(status -> {
+                samplesRepository.deleteById(id);
+                // a bulk delete, since removing the entity would cascade to its user
+                trainingRepository.deleteAllByIdInBatch(List.of(id));
+                return null;
+            }));
+            eventPublisher.publishEvent(TrainingChangedEvent.deleted(trainingMapper.toDto(training.get())));
             return true;
         }
         return false;
     }
+
+    private record UploadKey(long startTime, ActivityType activityType) {
+
+    }
 }
@@ -0,0 +1,39 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import com.capgemini.wsb.fitnesstracker.sharding.api.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.OptionalInt;
+
+/**
+ * Finds the shard holding a training by its id. The rows of a training (the training itself and its samples) live on the
+ * same shard, so the lookup serves every table keyed by the training id.
+ */
+@Component
+@RequiredArgsConstructor
+class TrainingShardLocator {
+
+    private final ShardRouter shardRouter;
+    private final TrainingRepository trainingRepository;
+
+    /**
+     * Finds the shard holding the training, starting with the shard on which it was inserted.
+     *
+     * @param trainingId ID of the training
+     * @return shard number, empty if no shard holds the training
+     */
+    OptionalInt shardHolding(Long trainingId) {
+        int home = shardRouter.shardOfId(trainingId);
+        if (shardRouter.shardCount() == 1 || shardRouter.onShard(home, () -> trainingRepository.existsById(trainingId))) {
+            return OptionalInt.of(home);
+        }
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            if (shard != home && shardRouter.onShard(shard, () -> trainingRepository.existsById(trainingId))) {
+                return OptionalInt.of(shard);
+            }
+        }
+        return OptionalInt.empty();
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when the {@link TrainingChangeFeed} of this instance has no room for another subscriber.
+ * Will resolve to the {@link HttpStatus#SERVICE_UNAVAILABLE}, the client should retry later or on another instance.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+class TrainingStreamCapacityException extends RuntimeException {
+
+    TrainingStreamCapacityException(int maxSubscribers) {
+        super("Training stream is limited to %d subscribers".formatted(maxSubscribers));
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the live change feed of trainings ({@link TrainingChangeFeed}). The heartbeat delay is configured in
+ * milliseconds as {@code training.stream.heartbeat-delay}.
+ */
+@ConfigurationProperties(prefix = "training.stream")
+@Getter
+@Setter
+class TrainingStreamProperties {
+
+    /**
+     * Maximum number of subscribers connected to this instance.
+     */
+    private int maxSubscribers = 10_000;
+
+    /**
+     * Number of events queued for a single subscriber; a subscriber falling further behind is disconnected.
+     */
+    private int bufferSize = 256;
+
+    /**
+     * Number of recent events kept for subscribers resuming with the {@code Last-Event-ID} header.
+     */
+    private int replaySize = 1_024;
+
+    /**
+     * Number of threads writing the queued events to the subscribers.
+     */
+    private int dispatchThreads = 4;
+
+    /**
+     * Time after which a subscription is closed; clients reconnect and resume from their last event.
+     */
+    private Duration timeout = Duration.ofMinutes(30);
+
+}
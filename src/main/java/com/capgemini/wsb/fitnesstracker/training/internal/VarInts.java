@@ -0,0 +1,39 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Zig-zag variable length encoding of {@code long} values shared by the compact training storage formats.
+ * Small magnitudes (typical for deltas) take a single byte, while any value takes at most ten bytes.
+ */
+final class VarInts {
+
+    /**
+     * Maximum number of bytes a single encoded value can take.
+     */
+    static final int MAX_LENGTH = 10;
+
+    private VarInts() {
+    }
+
+    static void putVarLong(ByteBuffer buffer, long value) {
+        long zigZag = (value << 1) ^ (value >> 63);
+        while ((zigZag & ~0x7FL) != 0) {
+            buffer.put((byte) ((zigZag & 0x7F) | 0x80));
+            zigZag >>>= 7;
+        }
+        buffer.put((byte) zigZag);
+    }
+
+    static long getVarLong(ByteBuffer buffer) {
+        long zigZag = 0;
+        int shift = 0;
+        byte current;
+        do {
+            current = buffer.get();
+            zigZag |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+        return (zigZag >>> 1) ^ -(zigZag & 1);
+    }
+}
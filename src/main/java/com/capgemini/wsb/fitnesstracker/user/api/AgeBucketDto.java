@@ -0,0 +1,12 @@
+package com.capgemini.wsb.fitnesstracker.user.api;
+
+/**
+ * Number of users whose age falls into an age range.
+ *
+ * @param fromAge lowest age in the bucket, inclusive
+ * @param toAge   highest age in the bucket, exclusive
+ * @param users   number of users in the bucket
+ */
+public record AgeBucketDto(int fromAge, int toAge, long users) {
+
+}
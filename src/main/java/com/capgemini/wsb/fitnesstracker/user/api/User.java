@@ -16,7 +16,7 @@ import java.time.LocalDate;
  * @see jakarta.persistence.Entity
  */
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "idx_users_birthdate", columnList = "birthdate, id"))
 @Getter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString
@@ -0,0 +1,33 @@
+package com.capgemini.wsb.fitnesstracker.user.api;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Application event published after a user was created, updated or deleted.
+ * Lets other modules keep derived data (caches, indexes) up to date without depending on the user internals.
+ *
+ * @param previous State of the user before the change, {@code null} if the user was created.
+ * @param current  State of the user after the change, {@code null} if the user was deleted.
+ */
+public record UserChangedEvent(@Nullable UserDto previous, @Nullable UserDto current) {
+
+    public static UserChangedEvent created(UserDto user) {
+        return new UserChangedEvent(null, user);
+    }
+
+    public static UserChangedEvent updated(UserDto previous, UserDto current) {
+        return new UserChangedEvent(previous, current);
+    }
+
+    public static UserChangedEvent deleted(UserDto user) {
+        return new UserChangedEvent(user, null);
+    }
+
+    /**
+     * @return ID of the changed user
+     */
+    public Long userId() {
+        return current != null ? current.id() : previous.id();
+    }
+
+}
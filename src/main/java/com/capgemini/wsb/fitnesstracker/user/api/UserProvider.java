@@ -30,4 +30,22 @@ public interface UserProvider {
      */
     List<UserDto> findAllUsers();
 
+    /**
+     * Searches users by fragments of their first name, last name or email, e.g. for typeahead.
+     * Every word of the query has to occur in one of these fields; the best matches are returned first.
+     *
+     * @param query searched text
+     * @param limit maximum number of returned users
+     * @return matching users ordered by relevance, empty if none matched
+     */
+    List<UserDto> searchUsers(String query, int limit);
+
+    /**
+     * Counts users per age range, e.g. 0-10, 10-20, ... for {@code bucketSize} 10. Empty ranges are omitted.
+     *
+     * @param bucketSize width of the age ranges in years
+     * @return user counts per age range, ordered by age
+     */
+    List<AgeBucketDto> countUsersByAge(int bucketSize);
+
 }
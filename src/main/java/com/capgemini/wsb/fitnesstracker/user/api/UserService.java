@@ -1,5 +1,6 @@
 package com.capgemini.wsb.fitnesstracker.user.api;
 
+import jakarta.annotation.Nullable;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
@@ -46,4 +47,16 @@ public interface UserService {
      */
     List<UserDto> findUsersOlderThan(LocalDate time);
 
+    /**
+     * Finds a page of users who are older than a specified date, continuing after the given user.
+     * Users are ordered by birthdate (oldest first) and ID; the next page starts after the last user of this one.
+     *
+     * @param time           the date to compare users' birthdate against.
+     * @param afterBirthdate birthdate of the last user of the previous page, {@code null} for the first page.
+     * @param afterId        ID of the last user of the previous page, {@code null} for the first page.
+     * @param size           maximum number of returned users.
+     * @return a list of UserDto representing the next page of users who are older than the specified date.
+     */
+    List<UserDto> findUsersOlderThan(LocalDate time, @Nullable LocalDate afterBirthdate, @Nullable Long afterId, int size);
+
 }
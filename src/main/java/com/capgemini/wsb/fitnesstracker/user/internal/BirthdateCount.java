@@ -0,0 +1,13 @@
+package com.capgemini.wsb.fitnesstracker.user.internal;
+
+import java.time.LocalDate;
+
+/**
+ * Number of users born on the given day.
+ *
+ * @param birthdate day of birth
+ * @param users     number of users
+ */
+record BirthdateCount(LocalDate birthdate, long users) {
+
+}
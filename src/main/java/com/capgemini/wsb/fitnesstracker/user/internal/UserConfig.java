@@ -0,0 +1,16 @@
+package com.capgemini.wsb.fitnesstracker.user.internal;
+
+import com.capgemini.wsb.fitnesstracker.coalescing.api.SingleFlight;
+import com.capgemini.wsb.fitnesstracker.coalescing.api.SingleFlightFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+class UserConfig {
+
+    @Bean
+    SingleFlight<UserQuery> userQueries(SingleFlightFactory singleFlightFactory) {
+        return singleFlightFactory.create("users");
+    }
+
+}
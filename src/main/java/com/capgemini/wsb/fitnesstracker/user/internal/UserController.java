@@ -1,6 +1,8 @@
 package com.capgemini.wsb.fitnesstracker.user.internal;
 
+import com.capgemini.wsb.fitnesstracker.user.api.AgeBucketDto;
 import com.capgemini.wsb.fitnesstracker.user.api.UserDto;
+import jakarta.annotation.Nullable;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -99,18 +101,52 @@ class UserController {
     }
 
     /**
-     * Retrieves all users who are older than a specified date.
+     * Searches users by fragments of their first name, last name or email.
      *
-     * @param time the date in "yyyy-MM-dd" format to compare against the users' birthdates.
+     * @param q     the searched text, every word of it has to match.
+     * @param limit the maximum number of returned users.
+     * @return ResponseEntity containing a list of UserDto ordered by relevance and the HTTP status code.
+     */
+    @GetMapping(value = "/search", produces = "application/json")
+    public ResponseEntity<List<UserDto>> searchUsers(@RequestParam String q, @RequestParam(defaultValue = "20") int limit) {
+        List<UserDto> users = userService.searchUsers(q, limit);
+        return ResponseEntity.ok(users);
+    }
+
+    /**
+     * Retrieves users who are older than a specified date, ordered by birthdate (oldest first) and ID.
+     * Without {@code size} all such users are returned. With {@code size} a single page is returned; the next page is
+     * requested with the birthdate and ID of the last user of the page as {@code afterBirthdate} and {@code afterId}.
+     *
+     * @param time           the date in "yyyy-MM-dd" format to compare against the users' birthdates.
+     * @param afterBirthdate the birthdate of the last user of the previous page.
+     * @param afterId        the ID of the last user of the previous page.
+     * @param size           the maximum number of users in the page.
      * @return ResponseEntity containing a list of UserDto for users older than the specified date and the HTTP status code.
      */
     @GetMapping(value = "/older/{time}", produces = "application/json")
-    public ResponseEntity<List<UserDto>> getUsersOlderThan(@PathVariable String time) {
+    public ResponseEntity<List<UserDto>> getUsersOlderThan(@PathVariable String time,
+                                                           @RequestParam(required = false) @Nullable LocalDate afterBirthdate,
+                                                           @RequestParam(required = false) @Nullable Long afterId,
+                                                           @RequestParam(required = false) @Nullable Integer size) {
         LocalDate localDate = LocalDate.parse(time);
-        List<UserDto> users = userService.findUsersOlderThan(localDate);
+        List<UserDto> users = size == null
+                ? userService.findUsersOlderThan(localDate)
+                : userService.findUsersOlderThan(localDate, afterBirthdate, afterId, size);
         return ResponseEntity.ok(users);
     }
 
+    /**
+     * Counts users per age range.
+     *
+     * @param bucketSize the width of the age ranges in years.
+     * @return ResponseEntity containing the user counts per age range, ordered by age, and the HTTP status code.
+     */
+    @GetMapping(value = "/age-buckets", produces = "application/json")
+    public ResponseEntity<List<AgeBucketDto>> getUserCountsByAge(@RequestParam(defaultValue = "10") int bucketSize) {
+        return ResponseEntity.ok(userService.countUsersByAge(bucketSize));
+    }
+
     /**
      * Updates an existing user's information based on the provided user DTO.
      *
@@ -0,0 +1,28 @@
+package com.capgemini.wsb.fitnesstracker.user.internal;
+
+import com.capgemini.wsb.fitnesstracker.user.api.UserDto;
+import jakarta.annotation.Nullable;
+
+import java.util.Objects;
+
+/**
+ * Identifies identical user reads for coalescing.
+ *
+ * @param method   name of the read method
+ * @param argument argument of the read method, {@code null} if it has none
+ */
+record UserQuery(String method, @Nullable Object argument) {
+
+    /**
+     * @param user state of a user before or after a change
+     * @return whether the user is or was part of the result of this read
+     */
+    boolean isAffectedBy(UserDto user) {
+        return switch (method) {
+            case "getUser" -> Objects.equals(argument, user.id());
+            case "getUserByEmail" -> Objects.equals(argument, user.email());
+            default -> true;
+        };
+    }
+
+}
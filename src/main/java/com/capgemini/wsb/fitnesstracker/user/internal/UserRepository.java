@@ -1,8 +1,12 @@
 package com.capgemini.wsb.fitnesstracker.user.internal;
 
 import com.capgemini.wsb.fitnesstracker.user.api.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -20,4 +24,48 @@ public interface UserRepository extends JpaRepository<User, Long> {
                         .findFirst();
     }
 
+    /**
+     * Query searching users born before the given date, served by the birthdate index.
+     *
+     * @param birthdate exclusive upper bound of the birthdate
+     * @return users ordered by birthdate (oldest first) and ID
+     */
+    List<User> findByBirthdateBeforeOrderByBirthdateAscIdAsc(LocalDate birthdate);
+
+    /**
+     * First page of {@link #findByBirthdateBeforeOrderByBirthdateAscIdAsc(LocalDate)}.
+     *
+     * @param birthdate exclusive upper bound of the birthdate
+     * @param page      size of the page, the page number is ignored
+     * @return the oldest users ordered by birthdate and ID
+     */
+    List<User> findByBirthdateBeforeOrderByBirthdateAscIdAsc(LocalDate birthdate, Pageable page);
+
+    /**
+     * Keyset pagination over users born before the given date: returns the users following the one with the given
+     * birthdate and ID in (birthdate, ID) order. The position is looked up in the birthdate index, so the cost of a
+     * page does not grow with the number of preceding pages as with offset pagination.
+     *
+     * @param birthdate      exclusive upper bound of the birthdate
+     * @param afterBirthdate birthdate of the last user of the previous page
+     * @param afterId        ID of the last user of the previous page
+     * @param page           size of the page, the page number is ignored
+     * @return next page of users
+     */
+    @Query("""
+            select u from User u
+             where u.birthdate < :birthdate
+               and (u.birthdate > :afterBirthdate or (u.birthdate = :afterBirthdate and u.id > :afterId))
+             order by u.birthdate, u.id""")
+    List<User> findBornBeforeAfterKey(LocalDate birthdate, LocalDate afterBirthdate, Long afterId, Pageable page);
+
+    /**
+     * Counts users per birthdate with a single GROUP BY over the birthdate index, reading one row per distinct
+     * birthdate instead of one row per user.
+     *
+     * @return user counts per birthdate
+     */
+    @Query("select new com.capgemini.wsb.fitnesstracker.user.internal.BirthdateCount(u.birthdate, count(u)) from User u group by u.birthdate")
+    List<BirthdateCount> countByBirthdate();
+
 }
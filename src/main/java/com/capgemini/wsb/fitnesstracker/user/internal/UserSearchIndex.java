@@ -0,0 +1,400 @@
+package com.capgemini.wsb.fitnesstracker.user.internal;
+
+import com.capgemini.wsb.fitnesstracker.coherence.api.CacheInvalidationBroadcaster;
+import com.capgemini.wsb.fitnesstracker.coherence.api.RemoteCacheInvalidationEvent;
+import com.capgemini.wsb.fitnesstracker.user.api.UserChangedEvent;
+import com.capgemini.wsb.fitnesstracker.user.api.UserDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory n-gram index of users by first name, last name and email, answering fragment and typeahead searches
+ * without scanning the users table.
+ * <p>
+ * Values are normalized (lower case, diacritics removed) and split into words on non-alphanumeric characters. Every word
+ * contributes its trigrams and its one and two letter prefixes to the posting lists. A query term of three or more letters
+ * selects the users having all of its trigrams, which are then verified against the words; shorter terms are answered
+ * from the prefix lists directly. All terms of a query have to match.
+ * <p>
+ * Documents are appended with increasing numbers, so posting lists are sorted without any work and are intersected
+ * starting from the shortest one. Removed and updated users leave a tombstone behind, which is skipped by searches. Once
+ * more than {@value #MAX_TOMBSTONE_RATIO} of the documents are tombstones (and at least {@value #MIN_TOMBSTONES} of them),
+ * the live documents are renumbered into fresh posting lists, so the memory follows the number of users, not the churn.
+ * <p>
+ * The index is rebuilt from a streaming scan of the users table when the application is ready and kept current with
+ * {@link UserChangedEvent}s afterwards. Changes made by the other application instances arrive as
+ * {@link RemoteCacheInvalidationEvent}s of the {@value #REGION} region keyed by user id, the users are then re-read from
+ * the database.
+ */
+@Component
+@Slf4j
+class UserSearchIndex {
+
+    static final String REGION = "userSearch";
+
+    private static final int GRAM_LENGTH = 3;
+    private static final String PREFIX_MARKER = "^";
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern WORD_SEPARATORS = Pattern.compile("[^\\p{Alnum}]+");
+    private static final int FETCH_SIZE = 1_000;
+    private static final double MAX_TOMBSTONE_RATIO = 0.25;
+    private static final int MIN_TOMBSTONES = 1_024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheInvalidationBroadcaster broadcaster;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<Long, Integer> documentsByUser = new HashMap<>();
+    private final BitSet removed = new BitSet();
+    private UserDto[] users = new UserDto[1024];
+    private String[][] nameWords = new String[1024][];
+    private String[][] emailWords = new String[1024][];
+    private int documentCount;
+
+    UserSearchIndex(JdbcTemplate jdbcTemplate, CacheInvalidationBroadcaster broadcaster) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.broadcaster = broadcaster;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            clear();
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement("select id, first_name, last_name, birthdate, email from users");
+                statement.setFetchSize(FETCH_SIZE);
+                return statement;
+            }, resultSet -> {
+                add(new UserDto(resultSet.getLong(1),
+                                resultSet.getString(2),
+                                resultSet.getString(3),
+                                resultSet.getDate(4).toLocalDate(),
+                                resultSet.getString(5)));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Indexed {} users for search in {} ms", documentsByUser.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (event.previous() != null) {
+                remove(event.previous().id());
+            }
+            if (event.current() != null) {
+                add(event.current());
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        broadcaster.broadcast(REGION, String.valueOf(event.userId()));
+    }
+
+    @EventListener
+    public void onRemoteInvalidation(RemoteCacheInvalidationEvent event) {
+        if (!event.appliesTo(REGION)) {
+            return;
+        }
+        if (event.wholeRegion()) {
+            rebuild();
+            return;
+        }
+        for (String key : event.keys()) {
+            Long userId = Long.valueOf(key);
+            List<UserDto> current = jdbcTemplate.query("select id, first_name, last_name, birthdate, email from users where id = ?",
+                                                       (resultSet, rowNumber) -> new UserDto(resultSet.getLong(1),
+                                                                                             resultSet.getString(2),
+                                                                                             resultSet.getString(3),
+                                                                                             resultSet.getDate(4).toLocalDate(),
+                                                                                             resultSet.getString(5)),
+                                                       userId);
+            lock.writeLock().lock();
+            try {
+                remove(userId);
+                current.forEach(this::add);
+                compactIfNeeded();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Finds users whose first name, last name or email contain every word of the query. Users with an exact or
+     * prefix match of a word rank before users where it only occurs inside a word, name matches before email matches.
+     *
+     * @param query searched text
+     * @param limit maximum number of returned users
+     * @return matching users, best match first
+     */
+    List<UserDto> search(String query, int limit) {
+        String[] terms = words(query);
+        if (terms.length == 0 || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            int[] candidates = candidates(terms);
+            PriorityQueue<Match> best = new PriorityQueue<>(Match.WORST_FIRST);
+            for (int document : candidates) {
+                if (removed.get(document)) {
+                    continue;
+                }
+                int score = score(document, terms);
+                if (score > 0) {
+                    best.add(new Match(document, users[document].id(), score));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+            List<UserDto> result = new ArrayList<>(best.size());
+            best.stream()
+                    .sorted(Match.WORST_FIRST.reversed())
+                    .forEach(match -> result.add(users[match.document()]));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int[] candidates(String[] terms) {
+        List<Postings> lists = new ArrayList<>();
+        for (String term : terms) {
+            for (String gram : queryGrams(term)) {
+                Postings list = postings.get(gram);
+                if (list == null) {
+                    return new int[0];
+                }
+                lists.add(list);
+            }
+        }
+        lists.sort(Comparator.comparingInt(Postings::size));
+        int[] candidates = Arrays.copyOf(lists.get(0).documents, lists.get(0).size);
+        int size = candidates.length;
+        for (int i = 1; i < lists.size() && size > 0; i++) {
+            size = intersect(candidates, size, lists.get(i));
+        }
+        return Arrays.copyOf(candidates, size);
+    }
+
+    /**
+     * Keeps the documents of {@code candidates} which are also in {@code list}, galloping through the longer list.
+     *
+     * @return number of kept documents, moved to the beginning of {@code candidates}
+     */
+    private static int intersect(int[] candidates, int size, Postings list) {
+        int kept = 0;
+        int from = 0;
+        for (int i = 0; i < size && from < list.size; i++) {
+            int document = candidates[i];
+            int step = 1;
+            int to = from;
+            while (to < list.size && list.documents[to] < document) {
+                from = to;
+                to += step;
+                step <<= 1;
+            }
+            int found = Arrays.binarySearch(list.documents, from, Math.min(to + 1, list.size), document);
+            if (found >= 0) {
+                candidates[kept++] = document;
+                from = found + 1;
+            } else {
+                from = -found - 1;
+            }
+        }
+        return kept;
+    }
+
+    private int score(int document, String[] terms) {
+        int score = 0;
+        for (String term : terms) {
+            int termScore = Math.max(2 * wordScore(nameWords[document], term), wordScore(emailWords[document], term));
+            if (termScore == 0) {
+                return 0;
+            }
+            score += termScore;
+        }
+        return score;
+    }
+
+    private static int wordScore(String[] words, String term) {
+        int best = 0;
+        for (String word : words) {
+            if (word.equals(term)) {
+                return 3;
+            } else if (word.startsWith(term)) {
+                best = Math.max(best, 2);
+            } else if (word.contains(term)) {
+                best = Math.max(best, 1);
+            }
+        }
+        return best;
+    }
+
+    private void add(UserDto user) {
+        remove(user.id());
+        int document = documentCount++;
+        if (document == users.length) {
+            users = Arrays.copyOf(users, document * 2);
+            nameWords = Arrays.copyOf(nameWords, document * 2);
+            emailWords = Arrays.copyOf(emailWords, document * 2);
+        }
+        users[document] = user;
+        nameWords[document] = concat(words(user.firstName()), words(user.lastName()));
+        emailWords[document] = words(user.email());
+        documentsByUser.put(user.id(), document);
+
+        Set<String> grams = new HashSet<>();
+        for (String word : nameWords[document]) {
+            addGrams(word, grams);
+        }
+        for (String word : emailWords[document]) {
+            addGrams(word, grams);
+        }
+        for (String gram : grams) {
+            postings.computeIfAbsent(gram, key -> new Postings()).add(document);
+        }
+    }
+
+    private void remove(Long userId) {
+        Integer document = documentsByUser.remove(userId);
+        if (document != null) {
+            removed.set(document);
+            users[document] = null;
+            nameWords[document] = null;
+            emailWords[document] = null;
+        }
+    }
+
+    int tombstones() {
+        lock.readLock().lock();
+        try {
+            return documentCount - documentsByUser.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Re-adds the live documents in their current order, which keeps the posting lists sorted. Called with the write
+     * lock held.
+     */
+    private void compactIfNeeded() {
+        int tombstones = documentCount - documentsByUser.size();
+        if (tombstones < MIN_TOMBSTONES || tombstones <= documentCount * MAX_TOMBSTONE_RATIO) {
+            return;
+        }
+        long start = System.nanoTime();
+        UserDto[] documents = Arrays.copyOf(users, documentCount);
+        clear();
+        for (UserDto user : documents) {
+            if (user != null) {
+                add(user);
+            }
+        }
+        log.debug("Compacted {} tombstones of the user search index in {} ms", tombstones, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void clear() {
+        postings.clear();
+        documentsByUser.clear();
+        removed.clear();
+        users = new UserDto[1024];
+        nameWords = new String[1024][];
+        emailWords = new String[1024][];
+        documentCount = 0;
+    }
+
+    private static void addGrams(String word, Set<String> grams) {
+        grams.add(PREFIX_MARKER + word.substring(0, 1));
+        if (word.length() >= 2) {
+            grams.add(PREFIX_MARKER + word.substring(0, 2));
+        }
+        for (int i = 0; i + GRAM_LENGTH <= word.length(); i++) {
+            grams.add(word.substring(i, i + GRAM_LENGTH));
+        }
+    }
+
+    private static List<String> queryGrams(String term) {
+        if (term.length() < GRAM_LENGTH) {
+            return List.of(PREFIX_MARKER + term);
+        }
+        List<String> grams = new ArrayList<>(term.length() - GRAM_LENGTH + 1);
+        for (int i = 0; i + GRAM_LENGTH <= term.length(); i++) {
+            grams.add(term.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    private static String[] words(String value) {
+        if (value == null) {
+            return new String[0];
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        return Arrays.stream(WORD_SEPARATORS.split(normalized))
+                .filter(word -> !word.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    private static String[] concat(String[] first, String[] second) {
+        String[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    /**
+     * Growable sorted list of document numbers.
+     */
+    private static final class Postings {
+
+        private int[] documents = new int[4];
+        private int size;
+
+        private void add(int document) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+            }
+            documents[size++] = document;
+        }
+
+        private int size() {
+            return size;
+        }
+    }
+
+    private record Match(int document, long userId, int score) {
+
+        private static final Comparator<Match> WORST_FIRST = Comparator.comparingInt(Match::score)
+                .thenComparing(Comparator.comparingLong(Match::userId).reversed());
+
+    }
+}
@@ -1,16 +1,28 @@
 package com.capgemini.wsb.fitnesstracker.user.internal;
 
+import com.capgemini.wsb.fitnesstracker.coalescing.api.SingleFlight;
+import com.capgemini.wsb.fitnesstracker.coherence.api.RemoteCacheInvalidationEvent;
+import com.capgemini.wsb.fitnesstracker.exception.api.BusinessException;
+import com.capgemini.wsb.fitnesstracker.user.api.AgeBucketDto;
 import com.capgemini.wsb.fitnesstracker.user.api.User;
+import com.capgemini.wsb.fitnesstracker.user.api.UserChangedEvent;
 import com.capgemini.wsb.fitnesstracker.user.api.UserDto;
 import com.capgemini.wsb.fitnesstracker.user.api.UserProvider;
 import com.capgemini.wsb.fitnesstracker.user.api.UserService;
+import jakarta.annotation.Nullable;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.time.Period;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 
 @Service
 @RequiredArgsConstructor
@@ -19,6 +31,9 @@ class UserServiceImpl implements UserService, UserProvider {
 
     private final UserRepository userRepository;
     private final UserMapper userMapper;
+    private final UserSearchIndex userSearchIndex;
+    private final SingleFlight<UserQuery> singleFlight;
+    private final ApplicationEventPublisher eventPublisher;
 
     public UserDto createUser(UserDto newUserDto) {
         log.info("Creating User {}", newUserDto);
@@ -28,13 +43,16 @@ class UserServiceImpl implements UserService, UserProvider {
         }
         User createdUser = userRepository.save(userMapper.toEntity(newUserDto));
 
-        return userMapper.toDto(createdUser);
+        UserDto createdUserDto = userMapper.toDto(createdUser);
+        eventPublisher.publishEvent(UserChangedEvent.created(createdUserDto));
+        return createdUserDto;
     }
 
     @Override
     public Optional<UserDto> getUser(final Long userId) {
         log.info("getUser()");
-        Optional<User> user = userRepository.findById(userId);
+        Optional<UserDto> user = singleFlight.execute(new UserQuery("getUser", userId), () -> userRepository.findById(userId)
+                .map(userMapper::toDto));
         if (user.isPresent())
         {
             log.info("user present");
@@ -43,27 +61,52 @@ class UserServiceImpl implements UserService, UserProvider {
         {
             log.info("user NULL");
         }
-        return user.map(userMapper::toDto).or(Optional::empty);
+        return user;
     }
 
     @Override
     public Optional<UserDto> getUserByEmail(final String email) {
-        Optional<User> user = userRepository.findByEmail(email);
-        return user.map(userMapper::toDto).or(Optional::empty);
+        return singleFlight.execute(new UserQuery("getUserByEmail", email), () -> userRepository.findByEmail(email)
+                .map(userMapper::toDto));
     }
 
     @Override
     public List<UserDto> findAllUsers() {
-        return userRepository.findAll()
+        return singleFlight.execute(new UserQuery("findAllUsers", null), () -> userRepository.findAll()
                 .stream()
                 .map(userMapper::toDto)
-                .toList();
+                .toList());
+    }
+
+    /**
+     * Lets reads arriving after a write start a new query instead of sharing a result read before the write. Only the
+     * reads whose result contains the user before or after the change are affected.
+     */
+    @EventListener
+    public void forgetInFlightQueries(UserChangedEvent event) {
+        singleFlight.forgetInFlight(query -> (event.previous() != null && query.isAffectedBy(event.previous()))
+                || (event.current() != null && query.isAffectedBy(event.current())));
+    }
+
+    /**
+     * Writes of the other instances are not described in detail, so all reads in flight are affected.
+     */
+    @EventListener(RemoteCacheInvalidationEvent.class)
+    public void forgetInFlightQueries() {
+        singleFlight.forgetInFlight();
+    }
+
+    @Override
+    public List<UserDto> searchUsers(String query, int limit) {
+        return userSearchIndex.search(query, limit);
     }
 
     @Override
     public boolean deleteUser(Long id) {
-        if (userRepository.existsById(id)) {
+        Optional<User> user = userRepository.findById(id);
+        if (user.isPresent()) {
             userRepository.deleteById(id);
+            eventPublisher.publishEvent(UserChangedEvent.deleted(userMapper.toDto(user.get())));
             return true;
         }
         return false;
@@ -72,20 +115,53 @@ class UserServiceImpl implements UserService, UserProvider {
     @Override
     public Optional<UserDto> updateUser(Long id, UserDto newUserDto) {
         return userRepository.findById(id).map(user -> {
+            UserDto previousUser = userMapper.toDto(user);
             user.setFirstName(newUserDto.firstName());
             user.setLastName(newUserDto.lastName());
             user.setBirthdate(newUserDto.birthdate());
             user.setEmail(newUserDto.email());
-            return userMapper.toDto(userRepository.save(user));
+            UserDto updatedUser = userMapper.toDto(userRepository.save(user));
+            eventPublisher.publishEvent(UserChangedEvent.updated(previousUser, updatedUser));
+            return updatedUser;
         });
     }
 
     @Override
     public List<UserDto> findUsersOlderThan(LocalDate time) {
-        return userRepository.findAll()
+        return userRepository.findByBirthdateBeforeOrderByBirthdateAscIdAsc(time)
                 .stream()
-                .filter(user -> time.isAfter(user.getBirthdate()))
                 .map(userMapper::toDto)
                 .toList();
     }
+
+    @Override
+    public List<UserDto> findUsersOlderThan(LocalDate time, @Nullable LocalDate afterBirthdate, @Nullable Long afterId, int size) {
+        if (size < 1) {
+            throw new BusinessException("Page size must be positive!");
+        }
+        List<User> users = afterBirthdate == null
+                ? userRepository.findByBirthdateBeforeOrderByBirthdateAscIdAsc(time, PageRequest.of(0, size))
+                : userRepository.findBornBeforeAfterKey(time, afterBirthdate, afterId != null ? afterId : Long.MAX_VALUE,
+                                                        PageRequest.of(0, size));
+        return users.stream()
+                .map(userMapper::toDto)
+                .toList();
+    }
+
+    @Override
+    public List<AgeBucketDto> countUsersByAge(int bucketSize) {
+        if (bucketSize < 1) {
+            throw new BusinessException("Age bucket size must be positive!");
+        }
+        LocalDate today = LocalDate.now();
+        Map<Integer, Long> buckets = new TreeMap<>();
+        for (BirthdateCount count : userRepository.countByBirthdate()) {
+            int age = Math.max(0, Period.between(count.birthdate(), today).getYears());
+            buckets.merge(age / bucketSize, count.users(), Long::sum);
+        }
+        return buckets.entrySet()
+                .stream()
+                .map(bucket -> new AgeBucketDto(bucket.getKey() * bucketSize, (bucket.getKey() + 1) * bucketSize, bucket.getValue()))
+                .toList();
+    }
 }
\ No newline at end of file
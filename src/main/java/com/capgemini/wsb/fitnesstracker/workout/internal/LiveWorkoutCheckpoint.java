@@ -0,0 +1,65 @@
+package com.capgemini.wsb.fitnesstracker.workout.internal;
+
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.Instant;
+
+/**
+ * Aggregates of an idle live workout session evicted from memory. The row exists only while the session is not held by
+ * any instance: it is deleted when the session is resumed, ended or finished after {@link LiveWorkoutProperties#getFinishAfter()}.
+ */
+@Entity
+@Table(name = "live_workout_checkpoints")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+class LiveWorkoutCheckpoint {
+
+    @Id
+    @Column(name = "session_id")
+    private String sessionId;
+
+    @Column(name = "user_id", nullable = false)
+    private long userId;
+
+    @Enumerated(EnumType.ORDINAL)
+    @Column(name = "activity_type", nullable = false)
+    private ActivityType activityType;
+
+    @Column(name = "start_time", nullable = false)
+    private long startTime;
+
+    @Column(name = "last_time", nullable = false)
+    private long lastTime;
+
+    @Column(name = "distance", nullable = false)
+    private double distance;
+
+    @Column(name = "current_speed", nullable = false)
+    private double currentSpeed;
+
+    @Column(name = "checkpointed_at", nullable = false)
+    private Instant checkpointedAt;
+
+    LiveWorkoutCheckpoint(LiveWorkoutSession.Snapshot session, Instant checkpointedAt) {
+        this.sessionId = session.sessionId();
+        this.userId = session.userId();
+        this.activityType = session.activityType();
+        this.startTime = session.startTime();
+        this.lastTime = session.lastTime();
+        this.distance = session.distance();
+        this.currentSpeed = session.currentSpeed();
+        this.checkpointedAt = checkpointedAt;
+    }
+
+}
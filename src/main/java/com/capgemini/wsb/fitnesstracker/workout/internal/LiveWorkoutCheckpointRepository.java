@@ -0,0 +1,27 @@
+package com.capgemini.wsb.fitnesstracker.workout.internal;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+interface LiveWorkoutCheckpointRepository extends JpaRepository<LiveWorkoutCheckpoint, String> {
+
+    /**
+     * Deletes the checkpoint of the session; the instance which deleted it is the only one allowed to continue the
+     * session.
+     *
+     * @return {@code 1} if the checkpoint was deleted, {@code 0} if it did not exist
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from LiveWorkoutCheckpoint c where c.sessionId = :sessionId")
+    int claim(@Param("sessionId") String sessionId);
+
+    List<LiveWorkoutCheckpoint> findTop100ByCheckpointedAtBeforeOrderByCheckpointedAt(Instant checkpointedBefore);
+
+}
@@ -0,0 +1,26 @@
+package com.capgemini.wsb.fitnesstracker.workout.internal;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@ConditionalOnProperty(prefix = "workout.live", name = "enabled", havingValue = "true")
+@EnableWebSocket
+@EnableConfigurationProperties(LiveWorkoutProperties.class)
+class LiveWorkoutConfig implements WebSocketConfigurer {
+
+    private final LiveWorkoutHandler handler;
+
+    LiveWorkoutConfig(LiveWorkoutHandler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(handler, "/v1/workouts/live").setAllowedOriginPatterns("*");
+    }
+}
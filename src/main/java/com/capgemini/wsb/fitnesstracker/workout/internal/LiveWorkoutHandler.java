@@ -0,0 +1,107 @@
+package com.capgemini.wsb.fitnesstracker.workout.internal;
+
+import com.capgemini.wsb.fitnesstracker.exception.api.NotFoundException;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+
+/**
+ * WebSocket endpoint {@code /v1/workouts/live} receiving the progress of workouts in progress as JSON
+ * {@link LiveWorkoutMessage}s. A connection may carry any number of sessions; a session may continue on a new connection.
+ * <p>
+ * Messages are handled on the thread of the connection: a progress message updates the {@link LiveWorkoutSessions} table
+ * in memory and is not replied to, {@code start} and {@code end} are replied to with the session aggregates. Invalid
+ * messages are replied to with an {@code error} and do not close the connection.
+ * <p>
+ * Received messages are counted as {@code workout.live.messages}, rejected ones as {@code workout.live.rejected}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "workout.live", name = "enabled", havingValue = "true")
+@Slf4j
+class LiveWorkoutHandler extends TextWebSocketHandler {
+
+    private final LiveWorkoutSessions sessions;
+    private final ObjectReader messageReader;
+    private final ObjectWriter replyWriter;
+    private final Counter messages;
+    private final Counter rejected;
+
+    LiveWorkoutHandler(LiveWorkoutSessions sessions, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.sessions = sessions;
+        this.messageReader = objectMapper.readerFor(LiveWorkoutMessage.class);
+        this.replyWriter = objectMapper.writerFor(LiveWorkoutReply.class);
+        this.messages = Counter.builder("workout.live.messages")
+                .description("Messages received from devices during workouts")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("workout.live.rejected")
+                .description("Invalid messages received from devices during workouts")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession connection, TextMessage text) throws IOException {
+        messages.increment();
+        LiveWorkoutMessage message = null;
+        try {
+            message = messageReader.readValue(text.getPayload());
+            LiveWorkoutReply reply = handle(message);
+            if (reply != null) {
+                send(connection, reply);
+            }
+        } catch (JsonProcessingException e) {
+            reject(connection, null, "Malformed message: " + e.getOriginalMessage());
+        } catch (IllegalArgumentException | NotFoundException e) {
+            reject(connection, message != null ? message.sessionId() : null, e.getMessage());
+        } catch (RuntimeException e) {
+            log.warn("Could not handle workout message {}", message, e);
+            reject(connection, message != null ? message.sessionId() : null, "Internal error");
+        }
+    }
+
+    @Nullable
+    private LiveWorkoutReply handle(LiveWorkoutMessage message) {
+        if (message.sessionId() == null || message.sessionId().isBlank()) {
+            throw new IllegalArgumentException("Message must have a session ID");
+        }
+        switch (String.valueOf(message.type())) {
+            case LiveWorkoutMessage.PROGRESS -> {
+                sessions.progress(message.sessionId(), message.timestamp(), message.distance());
+                return null;
+            }
+            case LiveWorkoutMessage.START -> {
+                if (message.userId() == null || message.activityType() == null) {
+                    throw new IllegalArgumentException("Start message must have user ID and activity type");
+                }
+                return LiveWorkoutReply.started(sessions.start(message.sessionId(), message.userId(), message.activityType(),
+                                                               message.timestamp()));
+            }
+            case LiveWorkoutMessage.END -> {
+                TrainingDto training = sessions.end(message.sessionId(), message.timestamp(), message.distance());
+                return LiveWorkoutReply.ended(message.sessionId(), training);
+            }
+            default -> throw new IllegalArgumentException("Unknown message type " + message.type());
+        }
+    }
+
+    private void reject(WebSocketSession connection, @Nullable String sessionId, String reason) throws IOException {
+        rejected.increment();
+        send(connection, LiveWorkoutReply.error(sessionId, reason));
+    }
+
+    private void send(WebSocketSession connection, LiveWorkoutReply reply) throws IOException {
+        connection.sendMessage(new TextMessage(replyWriter.writeValueAsString(reply)));
+    }
+}
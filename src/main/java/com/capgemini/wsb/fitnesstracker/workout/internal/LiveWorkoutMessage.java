@@ -0,0 +1,27 @@
+package com.capgemini.wsb.fitnesstracker.workout.internal;
+
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
+import jakarta.annotation.Nullable;
+
+/**
+ * Message sent by a device during a workout.
+ *
+ * @param type         {@code start}, {@code progress} or {@code end}
+ * @param sessionId    ID of the workout session chosen by the device, e.g. a UUID
+ * @param userId       ID of the user, required by {@code start}
+ * @param activityType type of the activity, required by {@code start}
+ * @param timestamp    time of the measurement in milliseconds since the epoch
+ * @param distance     distance covered since the start of the workout in kilometers
+ */
+record LiveWorkoutMessage(String type,
+                          String sessionId,
+                          @Nullable Long userId,
+                          @Nullable ActivityType activityType,
+                          long timestamp,
+                          double distance) {
+
+    static final String START = "start";
+    static final String PROGRESS = "progress";
+    static final String END = "end";
+
+}
@@ -0,0 +1,38 @@
+package com.capgemini.wsb.fitnesstracker.workout.internal;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the live workout ingestion ({@link LiveWorkoutHandler}, {@link LiveWorkoutSessions}). The checkpoint
+ * delay is configured in milliseconds as {@code workout.live.checkpoint-delay}.
+ */
+@ConfigurationProperties(prefix = "workout.live")
+@Getter
+@Setter
+class LiveWorkoutProperties {
+
+    /**
+     * Whether the {@code /v1/workouts/live} WebSocket endpoint is available.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Number of independently locked shards of the session table.
+     */
+    private int shards = 64;
+
+    /**
+     * Time without progress after which a session is written to the database and evicted from memory.
+     */
+    private Duration idleTimeout = Duration.ofMinutes(2);
+
+    /**
+     * Time after which a checkpointed session which was not resumed is ended and stored as a training.
+     */
+    private Duration finishAfter = Duration.ofHours(6);
+
+}
@@ -0,0 +1,45 @@
+package com.capgemini.wsb.fitnesstracker.workout.internal;
+
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
+import com.capgemini.wsb.fitnesstracker.workout.internal.LiveWorkoutSession.Snapshot;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.annotation.Nullable;
+
+/**
+ * Message sent to a device in reply to {@code start} and {@code end}, or to a rejected message. Progress messages are not
+ * replied to.
+ *
+ * @param type         {@code started}, {@code ended} or {@code error}
+ * @param sessionId    ID of the workout session
+ * @param distance     distance covered in kilometers
+ * @param duration     duration in milliseconds
+ * @param currentSpeed current speed in km/h
+ * @param averageSpeed average speed in km/h
+ * @param trainingId   ID of the stored training, sent with {@code ended} unless the training was only accepted for a later insert
+ * @param message      reason of an {@code error}
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+record LiveWorkoutReply(String type,
+                        @Nullable String sessionId,
+                        @Nullable Double distance,
+                        @Nullable Long duration,
+                        @Nullable Double currentSpeed,
+                        @Nullable Double averageSpeed,
+                        @Nullable Long trainingId,
+                        @Nullable String message) {
+
+    static LiveWorkoutReply started(Snapshot session) {
+        return new LiveWorkoutReply("started", session.sessionId(), session.distance(), session.duration(),
+                                    session.currentSpeed(), session.averageSpeed(), null, null);
+    }
+
+    static LiveWorkoutReply ended(String sessionId, TrainingDto training) {
+        return new LiveWorkoutReply("ended", sessionId, training.distance(),
+                                    training.endTime().getTime() - training.startTime().getTime(),
+                                    null, training.averageSpeed(), training.id(), null);
+    }
+
+    static LiveWorkoutReply error(@Nullable String sessionId, String message) {
+        return new LiveWorkoutReply("error", sessionId, null, null, null, null, null, message);
+    }
+}
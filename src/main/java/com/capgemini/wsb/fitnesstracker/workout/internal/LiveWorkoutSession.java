@@ -0,0 +1,99 @@
+package com.capgemini.wsb.fitnesstracker.workout.internal;
+
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
+
+/**
+ * Running aggregates of a workout in progress. Not thread-safe, guarded by the lock of its {@link LiveWorkoutSessions}
+ * shard.
+ */
+final class LiveWorkoutSession {
+
+    /**
+     * Weight of the latest sample in the smoothed current speed.
+     */
+    private static final double SPEED_SMOOTHING = 0.25;
+    private static final double MILLIS_PER_HOUR = 3_600_000;
+
+    private final String sessionId;
+    private final long userId;
+    private final ActivityType activityType;
+    private final long startTime;
+    private long lastTime;
+    private double distance;
+    private double currentSpeed;
+    private long lastSeen;
+    private long version;
+
+    LiveWorkoutSession(String sessionId, long userId, ActivityType activityType, long startTime, long now) {
+        this.sessionId = sessionId;
+        this.userId = userId;
+        this.activityType = activityType;
+        this.startTime = startTime;
+        this.lastTime = startTime;
+        this.lastSeen = now;
+    }
+
+    LiveWorkoutSession(LiveWorkoutCheckpoint checkpoint, long now) {
+        this(checkpoint.getSessionId(), checkpoint.getUserId(), checkpoint.getActivityType(), checkpoint.getStartTime(), now);
+        this.lastTime = checkpoint.getLastTime();
+        this.distance = checkpoint.getDistance();
+        this.currentSpeed = checkpoint.getCurrentSpeed();
+    }
+
+    /**
+     * Adds a measurement. Measurements older than the latest one, e.g. resent after a reconnect, are ignored.
+     *
+     * @param timestamp time of the measurement in milliseconds since the epoch
+     * @param distance  distance covered since the start in kilometers
+     */
+    void record(long timestamp, double distance, long now) {
+        lastSeen = now;
+        version++;
+        if (timestamp <= lastTime || distance < this.distance) {
+            return;
+        }
+        double speed = (distance - this.distance) / ((timestamp - lastTime) / MILLIS_PER_HOUR);
+        currentSpeed = currentSpeed == 0 ? speed : SPEED_SMOOTHING * speed + (1 - SPEED_SMOOTHING) * currentSpeed;
+        this.distance = distance;
+        this.lastTime = timestamp;
+    }
+
+    void touch(long now) {
+        lastSeen = now;
+        version++;
+    }
+
+    boolean idleSince(long time) {
+        return lastSeen < time;
+    }
+
+    Snapshot snapshot() {
+        long duration = lastTime - startTime;
+        double averageSpeed = duration > 0 ? distance / (duration / MILLIS_PER_HOUR) : 0;
+        return new Snapshot(sessionId, userId, activityType, startTime, lastTime, distance, currentSpeed, averageSpeed, version);
+    }
+
+    /**
+     * Copy of the aggregates of a session, readable outside the shard lock.
+     *
+     * @param version number of updates of the session, used to detect progress made after the copy was taken
+     */
+    record Snapshot(String sessionId,
+                    long userId,
+                    ActivityType activityType,
+                    long startTime,
+                    long lastTime,
+                    double distance,
+                    double currentSpeed,
+                    double averageSpeed,
+                    long version) {
+
+        static Snapshot of(LiveWorkoutCheckpoint checkpoint) {
+            return new LiveWorkoutSession(checkpoint, 0).snapshot();
+        }
+
+        long duration() {
+            return lastTime - startTime;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.capgemini.wsb.fitnesstracker.workout.internal;
+
+import com.capgemini.wsb.fitnesstracker.training.api.CreateTrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingService;
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
+import com.capgemini.wsb.fitnesstracker.user.api.UserNotFoundException;
+import com.capgemini.wsb.fitnesstracker.user.api.UserProvider;
+import com.capgemini.wsb.fitnesstracker.workout.internal.LiveWorkoutSession.Snapshot;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory table of the workouts in progress on this instance, updated by every progress message without touching the
+ * database.
+ * <p>
+ * The table is split into {@link LiveWorkoutProperties#getShards()} shards by session id, each a plain hash map guarded
+ * by its own lock, so concurrent devices rarely contend and an update is a hash lookup and a few arithmetic operations.
+ * <p>
+ * Sessions without progress for {@link LiveWorkoutProperties#getIdleTimeout()} are written to
+ * {@link LiveWorkoutCheckpoint}s and evicted, as are all sessions on shutdown. A device sending to an evicted session,
+ * on this or any other instance, resumes it from the checkpoint, which is deleted by the instance resuming it. A session
+ * is stored as a training once, when it ends: either by an {@code end} message, or when its checkpoint was not resumed
+ * for {@link LiveWorkoutProperties#getFinishAfter()}.
+ * <p>
+ * The number of sessions in memory is exported as {@code workout.live.sessions}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "workout.live", name = "enabled", havingValue = "true")
+@Slf4j
+class LiveWorkoutSessions implements DisposableBean {
+
+    private final TrainingService trainingService;
+    private final UserProvider userProvider;
+    private final LiveWorkoutCheckpointRepository checkpointRepository;
+    private final LiveWorkoutProperties properties;
+    private final Shard[] shards;
+    private final AtomicInteger size = new AtomicInteger();
+
+    LiveWorkoutSessions(TrainingService trainingService, UserProvider userProvider,
+                        LiveWorkoutCheckpointRepository checkpointRepository, LiveWorkoutProperties properties,
+                        MeterRegistry meterRegistry) {
+        this.trainingService = trainingService;
+        this.userProvider = userProvider;
+        this.checkpointRepository = checkpointRepository;
+        this.properties = properties;
+        this.shards = new Shard[Math.max(1, properties.getShards())];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard();
+        }
+        Gauge.builder("workout.live.sessions", size, AtomicInteger::get)
+                .description("Workouts in progress held in memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts a session, or continues it if it exists already, e.g. when the device reconnected.
+     *
+     * @return aggregates of the session
+     * @throws UserNotFoundException if the user does not exist
+     */
+    Snapshot start(String sessionId, long userId, ActivityType activityType, long timestamp) {
+        Snapshot existing = update(sessionId, session -> session.touch(now()));
+        if (existing != null) {
+            return existing;
+        }
+        if (userProvider.getUser(userId).isEmpty()) {
+            throw new UserNotFoundException(userId);
+        }
+        Shard shard = shard(sessionId);
+        shard.lock.lock();
+        try {
+            LiveWorkoutSession session = shard.sessions.get(sessionId);
+            if (session == null) {
+                session = new LiveWorkoutSession(sessionId, userId, activityType, timestamp, now());
+                shard.sessions.put(sessionId, session);
+                size.incrementAndGet();
+            }
+            return session.snapshot();
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a measurement to a session.
+     *
+     * @throws IllegalArgumentException if the session does not exist
+     */
+    void progress(String sessionId, long timestamp, double distance) {
+        if (update(sessionId, session -> session.record(timestamp, distance, now())) == null) {
+            throw new IllegalArgumentException("Unknown workout session " + sessionId);
+        }
+    }
+
+    /**
+     * Ends a session with its last measurement and stores it as a training.
+     *
+     * @throws IllegalArgumentException if the session does not exist
+     */
+    TrainingDto end(String sessionId, long timestamp, double distance) {
+        Snapshot ended = remove(sessionId, timestamp, distance);
+        if (ended == null) {
+            throw new IllegalArgumentException("Unknown workout session " + sessionId);
+        }
+        return store(ended);
+    }
+
+    /**
+     * @return aggregates of the session, {@code null} if it does not exist
+     */
+    @Nullable
+    Snapshot find(String sessionId) {
+        return update(sessionId, session -> {
+        });
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    @Scheduled(fixedDelayString = "${workout.live.checkpoint-delay:10000}")
+    public void checkpointIdle() {
+        checkpointIdleSince(now() - properties.getIdleTimeout().toMillis());
+    }
+
+    @Scheduled(fixedDelayString = "${workout.live.checkpoint-delay:10000}")
+    public void finishAbandoned() {
+        Instant checkpointedBefore = Instant.now().minus(properties.getFinishAfter());
+        List<LiveWorkoutCheckpoint> abandoned;
+        do {
+            abandoned = checkpointRepository.findTop100ByCheckpointedAtBeforeOrderByCheckpointedAt(checkpointedBefore);
+            for (LiveWorkoutCheckpoint checkpoint : abandoned) {
+                if (checkpointRepository.claim(checkpoint.getSessionId()) != 1) {
+                    continue;
+                }
+                log.info("Finishing abandoned workout session {}", checkpoint.getSessionId());
+                try {
+                    store(Snapshot.of(checkpoint));
+                } catch (RuntimeException e) {
+                    log.warn("Could not store abandoned workout session {}", checkpoint.getSessionId(), e);
+                }
+            }
+        } while (abandoned.size() == 100);
+    }
+
+    /**
+     * Checkpoints all sessions, so that the devices can continue them on the other instances.
+     */
+    @Override
+    public void destroy() {
+        checkpointIdleSince(Long.MAX_VALUE);
+    }
+
+    /**
+     * Writes the sessions idle since the time to the database and evicts them. The database is written outside the shard
+     * locks, a session which made progress meanwhile stays in memory and its checkpoint is deleted again.
+     */
+    int checkpointIdleSince(long time) {
+        List<Snapshot> idle = new ArrayList<>();
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                for (LiveWorkoutSession session : shard.sessions.values()) {
+                    if (session.idleSince(time)) {
+                        idle.add(session.snapshot());
+                    }
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        if (idle.isEmpty()) {
+            return 0;
+        }
+        Instant checkpointedAt = Instant.now();
+        checkpointRepository.saveAll(idle.stream().map(session -> new LiveWorkoutCheckpoint(session, checkpointedAt)).toList());
+
+        List<String> resumed = new ArrayList<>();
+        for (Snapshot snapshot : idle) {
+            Shard shard = shard(snapshot.sessionId());
+            shard.lock.lock();
+            try {
+                LiveWorkoutSession session = shard.sessions.get(snapshot.sessionId());
+                if (session != null && session.snapshot().version() == snapshot.version()) {
+                    shard.sessions.remove(snapshot.sessionId());
+                    size.decrementAndGet();
+                } else {
+                    resumed.add(snapshot.sessionId());
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        checkpointRepository.deleteAllById(resumed);
+        log.debug("Checkpointed {} idle workout sessions", idle.size() - resumed.size());
+        return idle.size() - resumed.size();
+    }
+
+    /**
+     * Applies the update to the session in memory, resuming it from its checkpoint first if needed.
+     *
+     * @return aggregates after the update, {@code null} if the session does not exist
+     */
+    @Nullable
+    private Snapshot update(String sessionId, SessionUpdate update) {
+        Shard shard = shard(sessionId);
+        shard.lock.lock();
+        try {
+            LiveWorkoutSession session = shard.sessions.get(sessionId);
+            if (session != null) {
+                update.apply(session);
+                return session.snapshot();
+            }
+        } finally {
+            shard.lock.unlock();
+        }
+        LiveWorkoutSession resumed = resume(sessionId);
+        shard.lock.lock();
+        try {
+            LiveWorkoutSession session = shard.sessions.get(sessionId);
+            if (session == null && resumed != null) {
+                session = resumed;
+                shard.sessions.put(sessionId, session);
+                size.incrementAndGet();
+            }
+            if (session == null) {
+                return null;
+            }
+            update.apply(session);
+            return session.snapshot();
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    @Nullable
+    private Snapshot remove(String sessionId, long timestamp, double distance) {
+        if (update(sessionId, session -> session.record(timestamp, distance, now())) == null) {
+            return null;
+        }
+        Shard shard = shard(sessionId);
+        shard.lock.lock();
+        try {
+            LiveWorkoutSession session = shard.sessions.remove(sessionId);
+            if (session == null) {
+                return null;
+            }
+            size.decrementAndGet();
+            return session.snapshot();
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    @Nullable
+    private LiveWorkoutSession resume(String sessionId) {
+        return checkpointRepository.findById(sessionId)
+                .filter(checkpoint -> checkpointRepository.claim(sessionId) == 1)
+                .map(checkpoint -> new LiveWorkoutSession(checkpoint, now()))
+                .orElse(null);
+    }
+
+    /**
+     * Stores the ended session as a training. If that fails, the session is checkpointed again to be retried by
+     * {@link #finishAbandoned()}.
+     */
+    private TrainingDto store(Snapshot session) {
+        try {
+            CreateTrainingDto training = new CreateTrainingDto(null, session.userId(),
+                                                               new Date(session.startTime()),
+                                                               new Date(session.lastTime()),
+                                                               session.activityType(),
+                                                               session.distance(),
+                                                               session.averageSpeed());
+            return trainingService.createTraining(training);
+        } catch (RuntimeException e) {
+            checkpointRepository.save(new LiveWorkoutCheckpoint(session, Instant.now()));
+            throw e;
+        }
+    }
+
+    private Shard shard(String sessionId) {
+        return shards[Math.floorMod(sessionId.hashCode() * 0x9E3779B9, shards.length)];
+    }
+
+    private static long now() {
+        return System.currentTimeMillis();
+    }
+
+    @FunctionalInterface
+    private interface SessionUpdate {
+
+        void apply(LiveWorkoutSession session);
+
+    }
+
+    private static final class Shard {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, LiveWorkoutSession> sessions = new HashMap<>();
+
+    }
+}
@@ -1,5 +1,6 @@
 package com.capgemini.wsb.fitnesstracker;
 
+import com.capgemini.wsb.fitnesstracker.statistics.api.Statistics;
 import com.capgemini.wsb.fitnesstracker.training.api.Training;
 import com.capgemini.wsb.fitnesstracker.user.api.User;
 import org.junit.Before;
@@ -21,8 +22,12 @@ public abstract class IntegrationTestBase {
     @Autowired
     private JpaRepository<Training, Long> trainingRepository;
 
+    @Autowired
+    private JpaRepository<Statistics, Long> statisticsRepository;
+
     @AfterEach
     void cleanUpDB() {
+        statisticsRepository.deleteAll();
         trainingRepository.deleteAll();
         userRepository.deleteAll();
 
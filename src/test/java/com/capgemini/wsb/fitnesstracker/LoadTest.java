@@ -0,0 +1,18 @@
+package com.capgemini.wsb.fitnesstracker;
+
+import org.junit.jupiter.api.Tag;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Long running load tests, excluded from the default build and run with {@code mvn -Pload-test test}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Tag("LoadTest")
+public @interface LoadTest {
+
+}
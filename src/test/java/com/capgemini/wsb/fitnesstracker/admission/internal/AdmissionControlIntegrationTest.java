@@ -0,0 +1,95 @@
+package com.capgemini.wsb.fitnesstracker.admission.internal;
+
+import com.capgemini.wsb.fitnesstracker.IntegrationTest;
+import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@IntegrationTest
+@TestPropertySource(properties = {
+        "admission.enabled=true",
+        "admission.capacity=40",
+        "admission.tokens-per-second=0.01",
+        "admission.api-keys=greedy,exhausted,polite,mixed",
+        "admission.trusted-proxies=127.0.0.1"})
+class AdmissionControlIntegrationTest extends IntegrationTestBase {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void shouldRejectWithRetryAfter_whenClientBucketIsEmpty() throws Exception {
+        mockMvc.perform(get("/v1/trainings").header("X-API-Key", "greedy")).andExpect(status().isOk());
+        mockMvc.perform(get("/v1/trainings").header("X-API-Key", "greedy")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/v1/trainings").header("X-API-Key", "greedy"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"));
+    }
+
+    @Test
+    void shouldAdmitOtherClients_whenOneClientBucketIsEmpty() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/v1/trainings").header("X-API-Key", "exhausted"));
+        }
+        mockMvc.perform(get("/v1/trainings").header("X-API-Key", "exhausted")).andExpect(status().isTooManyRequests());
+
+        mockMvc.perform(get("/v1/trainings").header("X-API-Key", "polite")).andExpect(status().isOk());
+        mockMvc.perform(get("/v1/users/simple").header("X-API-Key", "polite")).andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldChargeLookupsLessThanLists_whenBucketIsAlmostEmpty() throws Exception {
+        mockMvc.perform(get("/v1/trainings").header("X-API-Key", "mixed")).andExpect(status().isOk());
+        mockMvc.perform(get("/v1/users/simple").header("X-API-Key", "mixed")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/v1/trainings").header("X-API-Key", "mixed")).andExpect(status().isTooManyRequests());
+        mockMvc.perform(get("/v1/users/{id}", 1).header("X-API-Key", "mixed")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldShareAddressBucket_whenApiKeysAreNotIssued() throws Exception {
+        mockMvc.perform(get("/v1/trainings").header("X-API-Key", "forged-1").header("X-Forwarded-For", "203.0.113.7"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/v1/trainings").header("X-API-Key", "forged-2").header("X-Forwarded-For", "203.0.113.7"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/v1/trainings").header("X-API-Key", "forged-3").header("X-Forwarded-For", "203.0.113.7"))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void shouldKeyOnForwardedAddress_whenRequestComesFromTrustedProxy() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/v1/trainings").header("X-Forwarded-For", "198.51.100.1, 203.0.113.8"));
+        }
+        mockMvc.perform(get("/v1/trainings").header("X-Forwarded-For", "198.51.100.2, 203.0.113.8"))
+                .andExpect(status().isTooManyRequests());
+
+        mockMvc.perform(get("/v1/trainings").header("X-Forwarded-For", "203.0.113.9")).andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldIgnoreForwardedAddress_whenRequestComesFromUntrustedAddress() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/v1/trainings").header("X-Forwarded-For", "203.0.113.1" + i).with(remoteAddress("192.0.2.1")));
+        }
+
+        mockMvc.perform(get("/v1/trainings").header("X-Forwarded-For", "203.0.113.12").with(remoteAddress("192.0.2.1")))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    private static RequestPostProcessor remoteAddress(String address) {
+        return request -> {
+            request.setRemoteAddr(address);
+            return request;
+        };
+    }
+}
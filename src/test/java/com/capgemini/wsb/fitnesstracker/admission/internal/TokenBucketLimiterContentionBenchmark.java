@@ -0,0 +1,68 @@
+package com.capgemini.wsb.fitnesstracker.admission.internal;
+
+import com.capgemini.wsb.fitnesstracker.LoadTest;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the cost of an admission decision when many threads hit the limiter at once, either all for the same client
+ * (every decision is a compare-and-set on the same bucket) or each for its own clients. Run with {@code mvn -Pload-test test}.
+ */
+@LoadTest
+class TokenBucketLimiterContentionBenchmark {
+
+    private static final int WARMUP_OPERATIONS = 200_000;
+    private static final int MEASURED_OPERATIONS = 1_000_000;
+    private static final long MAX_NANOS_PER_DECISION = 2_000;
+
+    @ParameterizedTest(name = "{0} threads, shared client: {1}")
+    @CsvSource({"1, true", "4, true", "16, true", "4, false", "16, false"})
+    void shouldDecideWithinMicroseconds_whenThreadsContend(int threads, boolean sharedClient) throws Exception {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1_000, 1_000_000);
+        run(limiter, threads, sharedClient, WARMUP_OPERATIONS);
+
+        long elapsed = run(limiter, threads, sharedClient, MEASURED_OPERATIONS);
+
+        double nanosPerDecision = (double) elapsed * threads / MEASURED_OPERATIONS;
+        System.out.printf(Locale.ROOT, "%d threads, shared client %s: %.0f ns per decision, %.2f M decisions/s%n",
+                          threads, sharedClient, nanosPerDecision, MEASURED_OPERATIONS / (elapsed / 1_000.0));
+        assertThat(nanosPerDecision).isLessThan(MAX_NANOS_PER_DECISION);
+    }
+
+    private static long run(TokenBucketLimiter limiter, int threads, boolean sharedClient, int operations) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            String[] clients = new String[64];
+            for (int i = 0; i < clients.length; i++) {
+                clients[i] = sharedClient ? "key:shared" : "key:%d-%d".formatted(thread, i);
+            }
+            workers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < operations / threads; i++) {
+                    limiter.tryAcquire(clients[i & (clients.length - 1)], 1, System.nanoTime());
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        long elapsed = System.nanoTime() - begin;
+        executor.shutdown();
+        return elapsed;
+    }
+}
@@ -0,0 +1,123 @@
+package com.capgemini.wsb.fitnesstracker.coalescing;
+
+import com.capgemini.wsb.fitnesstracker.IntegrationTest;
+import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
+import com.capgemini.wsb.fitnesstracker.coalescing.api.SingleFlight;
+import com.capgemini.wsb.fitnesstracker.coalescing.api.SingleFlightFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+@IntegrationTest
+class SingleFlightIntegrationTest extends IntegrationTestBase {
+
+    @Autowired
+    private SingleFlightFactory singleFlightFactory;
+
+    @Test
+    void shouldRunCallOnce_whenIdenticalCallsAreConcurrent() throws Exception {
+        SingleFlight<String> singleFlight = singleFlightFactory.create("test");
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+
+        Future<Integer> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+            calls.incrementAndGet();
+            awaitUninterruptibly(release);
+            return 42;
+        }));
+        await().until(() -> calls.get() == 1);
+        List<Future<Integer>> followers = new ArrayList<>();
+        for (int i = 0; i < 15; i++) {
+            followers.add(executor.submit(() -> singleFlight.execute("key", () -> {
+                calls.incrementAndGet();
+                return -1;
+            })));
+        }
+        Thread.sleep(100);
+        release.countDown();
+
+        assertThat(leader.get()).isEqualTo(42);
+        for (Future<Integer> follower : followers) {
+            assertThat(follower.get()).isEqualTo(42);
+        }
+        assertThat(calls).hasValue(1);
+        executor.shutdown();
+    }
+
+    @Test
+    void shouldRunCallAgain_whenPreviousCallCompleted() {
+        SingleFlight<String> singleFlight = singleFlightFactory.create("test");
+        AtomicInteger calls = new AtomicInteger();
+
+        singleFlight.execute("key", calls::incrementAndGet);
+        singleFlight.execute("key", calls::incrementAndGet);
+
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void shouldPropagateFailureToWaitingCalls_whenLeaderFails() throws Exception {
+        SingleFlight<String> singleFlight = singleFlightFactory.create("test");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        Future<Object> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+            started.countDown();
+            awaitUninterruptibly(release);
+            throw new IllegalStateException("query failed");
+        }));
+        started.await();
+        Future<Object> follower = executor.submit(() -> singleFlight.execute("key", () -> "not coalesced"));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertThatThrownBy(leader::get).isInstanceOf(ExecutionException.class).hasRootCauseMessage("query failed");
+        assertThatThrownBy(follower::get).isInstanceOf(ExecutionException.class).hasRootCauseMessage("query failed");
+        executor.shutdown();
+    }
+
+    @Test
+    void shouldStartNewCall_whenInFlightCallsWereForgotten() throws Exception {
+        SingleFlight<String> singleFlight = singleFlightFactory.create("test");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        Future<String> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+            started.countDown();
+            awaitUninterruptibly(release);
+            return "before write";
+        }));
+        started.await();
+        singleFlight.forgetInFlight();
+
+        assertThat(singleFlight.execute("key", () -> "after write")).isEqualTo("after write");
+        release.countDown();
+        assertThat(leader.get()).isEqualTo("before write");
+        executor.shutdown();
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
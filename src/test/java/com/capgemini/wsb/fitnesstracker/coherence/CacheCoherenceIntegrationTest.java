@@ -0,0 +1,102 @@
+package com.capgemini.wsb.fitnesstracker.coherence;
+
+import com.capgemini.wsb.FitnessTracker;
+import com.capgemini.wsb.fitnesstracker.IntegrationTest;
+import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
+import com.capgemini.wsb.fitnesstracker.training.api.CreateTrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingService;
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
+import com.capgemini.wsb.fitnesstracker.user.api.UserDto;
+import com.capgemini.wsb.fitnesstracker.user.api.UserProvider;
+import com.capgemini.wsb.fitnesstracker.user.api.UserService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Duration;
+import java.util.Date;
+
+import static java.time.LocalDate.now;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Runs a second application instance on the same database next to the test context and checks that changes made on one
+ * instance reach the caches of the other.
+ */
+@IntegrationTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=" + CacheCoherenceIntegrationTest.DATABASE_URL,
+        "coherence.enabled=true",
+        "coherence.flush-delay=50",
+        "coherence.poll-delay=50",
+        "training.query-cache.enabled=true"})
+class CacheCoherenceIntegrationTest extends IntegrationTestBase {
+
+    static final String DATABASE_URL = "jdbc:h2:mem:coherence;DB_CLOSE_DELAY=-1";
+
+    private static ConfigurableApplicationContext secondInstance;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TrainingService trainingService;
+
+    @BeforeEach
+    void startSecondInstance() {
+        if (secondInstance == null) {
+            secondInstance = new SpringApplicationBuilder(FitnessTracker.class)
+                    .web(WebApplicationType.NONE)
+                    .properties("spring.datasource.url=" + DATABASE_URL,
+                                "spring.jpa.hibernate.ddl-auto=none",
+                                "coherence.enabled=true",
+                                "coherence.flush-delay=50",
+                                "coherence.poll-delay=50",
+                                "training.query-cache.enabled=true")
+                    .run();
+        }
+    }
+
+    @AfterAll
+    static void stopSecondInstance() {
+        if (secondInstance != null) {
+            secondInstance.close();
+            secondInstance = null;
+        }
+    }
+
+    @Test
+    void shouldFindUserOnOtherInstance_whenUserWasCreated() {
+        String unique = "coherent" + randomUUID().toString().replace("-", "");
+        UserProvider otherUsers = secondInstance.getBean(UserProvider.class);
+        assertThat(otherUsers.searchUsers(unique, 10)).isEmpty();
+
+        UserDto created = userService.createUser(new UserDto(null, "Ada", unique, now().minusYears(30), unique + "@domain.com"));
+
+        await().atMost(Duration.ofSeconds(10))
+                .untilAsserted(() -> assertThat(otherUsers.searchUsers(unique, 10)).extracting(UserDto::id).containsExactly(created.id()));
+    }
+
+    @Test
+    void shouldDropCachedQueryOnOtherInstance_whenTrainingWasCreated() {
+        UserDto user = userService.createUser(new UserDto(null, "Ada", "Lovelace", now().minusYears(30), randomUUID() + "@domain.com"));
+        TrainingService otherTrainings = secondInstance.getBean(TrainingService.class);
+        assertThat(otherTrainings.findTrainingsByActivity(ActivityType.TENNIS)).isEmpty();
+
+        trainingService.createTraining(new CreateTrainingDto(null, user.id(), new Date(0), new Date(3_600_000),
+                                                             ActivityType.TENNIS, 5, 5));
+
+        await().atMost(Duration.ofSeconds(10))
+                .untilAsserted(() -> assertThat(otherTrainings.findTrainingsByActivity(ActivityType.TENNIS))
+                        .extracting(TrainingDto::activityType)
+                        .containsExactly(ActivityType.TENNIS));
+    }
+}
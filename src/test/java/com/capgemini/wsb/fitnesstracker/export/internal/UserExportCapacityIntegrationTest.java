@@ -0,0 +1,52 @@
+package com.capgemini.wsb.fitnesstracker.export.internal;
+
+import com.capgemini.wsb.fitnesstracker.IntegrationTest;
+import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
+import com.capgemini.wsb.fitnesstracker.user.api.User;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+
+import static java.time.LocalDate.now;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@IntegrationTest
+@TestPropertySource(properties = {
+        "export.directory=target/test-exports",
+        "export.max-streaming=0"})
+class UserExportCapacityIntegrationTest extends IntegrationTestBase {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void shouldWriteExportInBackground_whenStreamingExportsAreExhausted() throws Exception {
+        User user = existingUser(generateUser());
+
+        MockHttpServletResponse accepted = mockMvc.perform(get("/v1/users/{id}/export", user.getId()))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("PENDING"))
+                .andReturn().getResponse();
+        String exportId = JsonPath.read(accepted.getContentAsString(), "$.id");
+        assertThat(accepted.getHeader("Location")).endsWith("/v1/users/%d/exports/%s".formatted(user.getId(), exportId));
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+                mockMvc.perform(get("/v1/users/{id}/exports/{exportId}", user.getId(), exportId))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.status").value("READY")));
+    }
+
+    private static User generateUser() {
+        return new User(randomUUID().toString(), randomUUID().toString(), now().minusYears(30), randomUUID().toString());
+    }
+}
@@ -0,0 +1,154 @@
+package com.capgemini.wsb.fitnesstracker.export.internal;
+
+import com.capgemini.wsb.fitnesstracker.IntegrationTest;
+import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
+import com.capgemini.wsb.fitnesstracker.training.api.CreateTrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingService;
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
+import com.capgemini.wsb.fitnesstracker.user.api.User;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static java.time.LocalDate.now;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@IntegrationTest
+@TestPropertySource(properties = "export.directory=target/test-exports")
+class UserExportIntegrationTest extends IntegrationTestBase {
+
+    private static final long START = 1_700_000_000_000L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TrainingService trainingService;
+
+    @Test
+    void shouldStreamProfileAndAllTrainingsAsGzippedNdjson() throws Exception {
+        User user = existingUser(generateUser());
+        persistTrainings(user, 250);
+
+        MvcResult started = mockMvc.perform(get("/v1/users/{id}/export", user.getId()).param("format", "ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/gzip"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"user-%d.ndjson.gz\"".formatted(user.getId())))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        List<String> lines;
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            lines = new String(input.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        }
+        assertThat(lines).hasSize(251);
+        assertThat((String) JsonPath.read(lines.get(0), "$.type")).isEqualTo("user");
+        assertThat((String) JsonPath.read(lines.get(0), "$.email")).isEqualTo(user.getEmail());
+        assertThat(lines.subList(1, lines.size())).allSatisfy(line -> assertThat((String) JsonPath.read(line, "$.type")).isEqualTo("training"));
+    }
+
+    @Test
+    void shouldWriteProfileAndTrainingsAsSeparateCsvEntries_whenZipIsRequested() throws Exception {
+        User user = existingUser(new User("Anna, Maria", "O\"Neil", now().minusYears(25), randomUUID() + "@domain.com"));
+        persistTrainings(user, 3);
+
+        MvcResult started = mockMvc.perform(get("/v1/users/{id}/export", user.getId()).param("format", "csv").param("compression", "zip"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/zip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        Map<String, List<String>> entries = unzip(body);
+        assertThat(entries).containsOnlyKeys("profile.csv", "trainings.csv");
+        assertThat(entries.get("profile.csv")).containsExactly(
+                "id,first_name,last_name,birthdate,email",
+                "%d,\"Anna, Maria\",\"O\"\"Neil\",%s,%s".formatted(user.getId(), user.getBirthdate(), user.getEmail()));
+        assertThat(entries.get("trainings.csv")).hasSize(4)
+                .first().isEqualTo("id,start_time,end_time,activity_type,distance,average_speed");
+    }
+
+    @Test
+    void shouldRejectExport_whenUserOrFormatIsUnknown() throws Exception {
+        User user = existingUser(generateUser());
+
+        mockMvc.perform(get("/v1/users/{id}/export", user.getId() + 1000)).andExpect(status().isNotFound());
+        mockMvc.perform(get("/v1/users/{id}/export", user.getId()).param("format", "xml")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v1/users/{id}/exports/{exportId}", user.getId(), "not-an-export")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldWriteExportInBackground_andServeItForDownload() throws Exception {
+        User user = existingUser(generateUser());
+        persistTrainings(user, 10);
+
+        String accepted = mockMvc.perform(post("/v1/users/{id}/exports", user.getId()).param("compression", "gzip"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andExpect(jsonPath("$.status").value("PENDING"))
+                .andReturn().getResponse().getContentAsString();
+        String exportId = JsonPath.read(accepted, "$.id");
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+                mockMvc.perform(get("/v1/users/{id}/exports/{exportId}", user.getId(), exportId))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.status").value("READY")));
+
+        byte[] body = mockMvc.perform(get("/v1/users/{id}/exports/{exportId}/download", user.getId(), exportId))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertThat(new String(input.readAllBytes(), StandardCharsets.UTF_8).lines()).hasSize(11);
+        }
+    }
+
+    private void persistTrainings(User user, int count) {
+        for (int i = 0; i < count; i++) {
+            trainingService.createTraining(new CreateTrainingDto(null, user.getId(), new Date(START + i * 86_400_000L),
+                                                                 new Date(START + i * 86_400_000L + 3_600_000), ActivityType.RUNNING, 10, 10));
+        }
+    }
+
+    private static Map<String, List<String>> unzip(byte[] archive) throws IOException {
+        Map<String, List<String>> entries = new LinkedHashMap<>();
+        try (ZipInputStream input = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            ZipEntry entry;
+            while ((entry = input.getNextEntry()) != null) {
+                entries.put(entry.getName(), new String(input.readAllBytes(), StandardCharsets.UTF_8).lines().toList());
+            }
+        }
+        return entries;
+    }
+
+    private static User generateUser() {
+        return new User(randomUUID().toString(), randomUUID().toString(), now().minusYears(30), randomUUID().toString());
+    }
+}
@@ -0,0 +1,95 @@
+package com.capgemini.wsb.fitnesstracker.jfr.internal;
+
+import com.capgemini.wsb.fitnesstracker.IntegrationTest;
+import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
+import com.capgemini.wsb.fitnesstracker.training.api.Training;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingService;
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
+import com.capgemini.wsb.fitnesstracker.user.api.User;
+import com.capgemini.wsb.fitnesstracker.user.api.UserProvider;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+import static java.time.LocalDate.now;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@IntegrationTest
+@Transactional
+class JfrEventsIntegrationTest extends IntegrationTestBase {
+
+    @TempDir
+    Path recordingDirectory;
+
+    @Autowired
+    private TrainingService trainingService;
+
+    @Autowired
+    private UserProvider userProvider;
+
+    @Test
+    void shouldRecordServiceCallsAndRepositoryQueries_whenRecordingIsEnabled() throws Exception {
+        User user = existingUser(new User(randomUUID().toString(), randomUUID().toString(), now(), randomUUID().toString()));
+        persistTraining(new Training(user, new Date(0), new Date(1000), ActivityType.SWIMMING, 1, 2));
+        persistTraining(new Training(user, new Date(2000), new Date(3000), ActivityType.SWIMMING, 1, 2));
+
+        List<RecordedEvent> events = record(() -> {
+            trainingService.findTrainingsByUserId(user.getId());
+            userProvider.getUser(user.getId());
+        });
+
+        assertThat(events)
+                .filteredOn(event -> event.getEventType().getName().equals("com.capgemini.wsb.fitnesstracker.ServiceCall"))
+                .anySatisfy(event -> {
+                    assertThat(event.getString("service")).isEqualTo("TrainingService");
+                    assertThat(event.getString("method")).isEqualTo("findTrainingsByUserId");
+                    assertThat(event.getLong("userId")).isEqualTo(user.getId());
+                    assertThat(event.getInt("resultCount")).isEqualTo(2);
+                    assertThat(event.getBoolean("failed")).isFalse();
+                })
+                .anySatisfy(event -> {
+                    assertThat(event.getString("service")).isEqualTo("UserService");
+                    assertThat(event.getString("method")).isEqualTo("getUser");
+                    assertThat(event.getLong("userId")).isEqualTo(user.getId());
+                    assertThat(event.getInt("resultCount")).isEqualTo(1);
+                });
+        assertThat(events)
+                .filteredOn(event -> event.getEventType().getName().equals("com.capgemini.wsb.fitnesstracker.RepositoryQuery"))
+                .anySatisfy(event -> {
+                    assertThat(event.getString("repository")).isEqualTo("TrainingRepository");
+                    assertThat(event.getLong("rowCount")).isEqualTo(2);
+                });
+    }
+
+    @Test
+    void shouldNotEmitEvents_whenNoRecordingIsRunning() {
+        assertThat(new ServiceCallEvent().isEnabled()).isFalse();
+        assertThat(new RepositoryQueryEvent().isEnabled()).isFalse();
+
+        assertThat(trainingService.findAllTrainings()).isEmpty();
+    }
+
+    private List<RecordedEvent> record(Runnable calls) throws Exception {
+        try (Recording recording = new Recording()) {
+            for (String event : List.of("ServiceCall", "RepositoryQuery", "MailSend")) {
+                recording.enable("com.capgemini.wsb.fitnesstracker." + event).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            calls.run();
+            recording.stop();
+            Path file = recordingDirectory.resolve("recording.jfr");
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.capgemini.wsb.fitnesstracker.jobs.internal;
+
+import com.capgemini.wsb.fitnesstracker.IntegrationTest;
+import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
+import com.capgemini.wsb.fitnesstracker.jobs.api.ClusterJobs;
+import com.capgemini.wsb.fitnesstracker.jobs.api.PartitionedJob;
+import com.capgemini.wsb.fitnesstracker.user.api.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static java.time.LocalDate.now;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@IntegrationTest
+@TestPropertySource(properties = {
+        "jobs.enabled=true",
+        "jobs.partition-size=2",
+        "jobs.claim-delay=50"})
+class ClusterJobsIntegrationTest extends IntegrationTestBase {
+
+    private static final String JOB = "test-job";
+    private static final long FAILING_RANGE_FROM = -100;
+
+    @Autowired
+    private ClusterJobs clusterJobs;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ClusterJobsProperties properties;
+
+    @Autowired
+    private RecordingJob recordingJob;
+
+    @AfterEach
+    void cleanUpJobs() {
+        jdbcTemplate.update("delete from job_partitions");
+        jdbcTemplate.update("delete from job_leases");
+        recordingJob.ranges.clear();
+    }
+
+    @Test
+    void shouldRunJobOnOneInstanceOnly_whenInstancesRaceForTheLease() throws Exception {
+        ClusterJobs first = instance("first");
+        ClusterJobs second = instance("second");
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> firstRun = CompletableFuture.supplyAsync(() -> first.runExclusively(
+                "exclusive", Duration.ofHours(1), Duration.ofHours(1), () -> {
+                    running.countDown();
+                    awaitQuietly(release);
+                }));
+        assertThat(running.await(10, TimeUnit.SECONDS)).isTrue();
+        boolean secondRunWhileRunning = second.runExclusively("exclusive", Duration.ofHours(1), Duration.ofHours(1), () -> { });
+        release.countDown();
+
+        assertThat(firstRun.get(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(secondRunWhileRunning).isFalse();
+        assertThat(second.runExclusively("exclusive", Duration.ofHours(1), Duration.ofHours(1), () -> { })).isFalse();
+    }
+
+    @Test
+    void shouldTakeOverLease_whenLeaseOfCrashedInstanceExpired() {
+        Instant past = Instant.now().minusSeconds(60);
+        jdbcTemplate.update("insert into job_leases (name, owner, lock_token, locked_at, locked_until) values (?, ?, ?, ?, ?)",
+                            "exclusive", "crashed", randomUUID().toString(), Timestamp.from(past.minusSeconds(60)), Timestamp.from(past));
+
+        assertThat(instance("second").runExclusively("exclusive", Duration.ZERO, Duration.ofMinutes(1), () -> { })).isTrue();
+    }
+
+    @Test
+    void shouldProcessEveryUserRangeExactlyOnce_whenPartitionedJobIsScheduled() {
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            userIds.add(existingUser(new User("Ada", "Lovelace", now().minusYears(30), randomUUID() + "@domain.com")).getId());
+        }
+
+        assertThat(clusterJobs.schedulePartitioned(JOB)).isTrue();
+        assertThat(clusterJobs.schedulePartitioned(JOB)).isFalse();
+
+        await().atMost(Duration.ofSeconds(10))
+                .untilAsserted(() -> assertThat(partitionsWithStatus("DONE")).isEqualTo(4));
+        List<long[]> ranges = new ArrayList<>(recordingJob.ranges);
+        ranges.sort(Comparator.comparingLong(range -> range[0]));
+        assertThat(ranges).hasSize(4);
+        assertThat(ranges.get(0)[0]).isEqualTo(userIds.get(0));
+        for (int i = 1; i < ranges.size(); i++) {
+            assertThat(ranges.get(i)[0]).isEqualTo(ranges.get(i - 1)[1]);
+        }
+        assertThat(ranges.get(ranges.size() - 1)[1]).isEqualTo(userIds.get(userIds.size() - 1) + 1);
+    }
+
+    @Test
+    void shouldProcessPartitionAgain_whenItsWorkerCrashed() {
+        Instant past = Instant.now().minusSeconds(60);
+        jdbcTemplate.update("""
+                                    insert into job_partitions (job, run_id, range_from, range_to, status, owner, lease_until, attempts, created_at)
+                                    values (?, ?, 10, 20, 'RUNNING', 'crashed', ?, 1, ?)""",
+                            JOB, randomUUID().toString(), Timestamp.from(past), Timestamp.from(past));
+
+        await().atMost(Duration.ofSeconds(10))
+                .untilAsserted(() -> assertThat(partitionsWithStatus("DONE")).isEqualTo(1));
+        assertThat(recordingJob.ranges).extracting(range -> range[0]).containsExactly(10L);
+        assertThat(jdbcTemplate.queryForObject("select attempts from job_partitions", Integer.class)).isEqualTo(2);
+    }
+
+    @Test
+    void shouldGiveUpPartition_whenItFailedInEveryAttempt() {
+        jdbcTemplate.update("""
+                                    insert into job_partitions (job, run_id, range_from, range_to, status, attempts, created_at)
+                                    values (?, ?, ?, 0, 'PENDING', 0, ?)""",
+                            JOB, randomUUID().toString(), FAILING_RANGE_FROM, Timestamp.from(Instant.now()));
+
+        await().atMost(Duration.ofSeconds(10))
+                .untilAsserted(() -> assertThat(partitionsWithStatus("FAILED")).isEqualTo(1));
+        assertThat(jdbcTemplate.queryForObject("select attempts from job_partitions", Integer.class))
+                .isEqualTo(properties.getMaxAttempts());
+        assertThat(recordingJob.ranges).isEmpty();
+    }
+
+    private ClusterJobs instance(String nodeId) {
+        ClusterJobsProperties instanceProperties = new ClusterJobsProperties();
+        instanceProperties.setNodeId(nodeId);
+        return new ClusterJobsImpl(jdbcTemplate, instanceProperties);
+    }
+
+    private int partitionsWithStatus(String status) {
+        Integer count = jdbcTemplate.queryForObject("select count(*) from job_partitions where status = ?", Integer.class, status);
+        return count == null ? 0 : count;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @TestConfiguration
+    static class RecordingJobConfig {
+
+        @Bean
+        RecordingJob recordingJob() {
+            return new RecordingJob();
+        }
+    }
+
+    static class RecordingJob implements PartitionedJob {
+
+        private final List<long[]> ranges = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String name() {
+            return JOB;
+        }
+
+        @Override
+        public void processPartition(long fromUserId, long toUserId) {
+            if (fromUserId == FAILING_RANGE_FROM) {
+                throw new IllegalStateException("Failing partition");
+            }
+            ranges.add(new long[]{fromUserId, toUserId});
+        }
+    }
+}
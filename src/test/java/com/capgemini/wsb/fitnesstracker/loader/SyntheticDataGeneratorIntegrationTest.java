@@ -0,0 +1,130 @@
+package com.capgemini.wsb.fitnesstracker.loader;
+
+import com.capgemini.wsb.fitnesstracker.IntegrationTest;
+import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@IntegrationTest
+class SyntheticDataGeneratorIntegrationTest extends IntegrationTestBase {
+
+    private static final LocalDate UNTIL = LocalDate.of(2024, 6, 30);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Removes the generated rows with plain JDBC, before the entity based clean-up of the base class runs.
+     */
+    @AfterEach
+    void cleanUpGeneratedData() {
+        cleanUp();
+    }
+
+    @Test
+    void shouldGenerateConfiguredVolumesWithinConfiguredRanges() {
+        DataGeneratorProperties properties = properties(7, 8);
+
+        new SyntheticDataGenerator(jdbcTemplate, properties).generate();
+
+        Map<String, Object> users = jdbcTemplate.queryForMap("""
+                                                                     select count(*) as users, min(birthdate) as oldest, max(birthdate) as youngest
+                                                                       from users""");
+        assertThat(((Number) users.get("users")).intValue()).isEqualTo(properties.getUsers());
+        assertThat(((Date) users.get("oldest")).toLocalDate()).isAfterOrEqualTo(UNTIL.minusYears(81));
+        assertThat(((Date) users.get("youngest")).toLocalDate()).isBeforeOrEqualTo(UNTIL.minusYears(16));
+
+        Map<String, Object> trainings = jdbcTemplate.queryForMap("""
+                                                                         select count(*) as trainings, min(start_time) as first_start,
+                                                                                max(start_time) as last_start,
+                                                                                sum(case when end_time > start_time then 0 else 1 end) as without_duration,
+                                                                                min(distance) as min_distance, min(average_speed) as min_speed
+                                                                           from trainings""");
+        assertThat(((Number) trainings.get("trainings")).longValue()).isEqualTo(properties.getTrainings());
+        assertThat(((Timestamp) trainings.get("first_start")).getTime()).isGreaterThanOrEqualTo(epochMillis(UNTIL.minusDays(properties.getDays())));
+        assertThat(((Timestamp) trainings.get("last_start")).getTime()).isLessThan(epochMillis(UNTIL));
+        assertThat(((Number) trainings.get("without_duration")).intValue()).isZero();
+        assertThat(((Number) trainings.get("min_distance")).doubleValue()).isPositive();
+        assertThat(((Number) trainings.get("min_speed")).doubleValue()).isPositive();
+    }
+
+    @Test
+    void shouldGenerateSameDataSet_whenSeedIsTheSameRegardlessOfThreads() {
+        new SyntheticDataGenerator(jdbcTemplate, properties(7, 8)).generate();
+        List<Map<String, Object>> first = snapshot();
+        cleanUp();
+
+        new SyntheticDataGenerator(jdbcTemplate, properties(7, 1)).generate();
+        List<Map<String, Object>> second = snapshot();
+        cleanUp();
+
+        new SyntheticDataGenerator(jdbcTemplate, properties(8, 8)).generate();
+        List<Map<String, Object>> otherSeed = snapshot();
+
+        assertThat(second).containsExactlyElementsOf(first);
+        assertThat(otherSeed).isNotEqualTo(first);
+    }
+
+    @Test
+    void shouldGenerateDistinctStartTimes_whenFewUsersRecordManyTrainingsOnOneDay() {
+        DataGeneratorProperties properties = properties(7, 8);
+        properties.setUsers(2);
+        properties.setDays(1);
+
+        new SyntheticDataGenerator(jdbcTemplate, properties).generate();
+
+        assertThat(jdbcTemplate.queryForObject("select count(distinct start_time) from trainings", Long.class))
+                .isEqualTo(properties.getTrainings());
+    }
+
+    /**
+     * Rows of both tables with the user ids replaced by their rank, since identities keep counting up between runs.
+     */
+    private List<Map<String, Object>> snapshot() {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("""
+                                                                           select u.first_name, u.last_name, u.birthdate, u.email
+                                                                             from users u
+                                                                            order by u.id""");
+        rows.addAll(jdbcTemplate.queryForList("""
+                                                      select t.user_id - (select min(id) from users) as user_rank,
+                                                             t.start_time, t.end_time, t.activity_type, t.distance, t.average_speed
+                                                        from trainings t
+                                                       order by t.start_time, t.user_id, t.activity_type"""));
+        return rows;
+    }
+
+    private void cleanUp() {
+        jdbcTemplate.update("delete from trainings");
+        jdbcTemplate.update("delete from users");
+    }
+
+    /**
+     * A year of trainings spread over two generator chunks, so that the chunk seeds are covered as well.
+     */
+    private static DataGeneratorProperties properties(long seed, int threads) {
+        DataGeneratorProperties properties = new DataGeneratorProperties();
+        properties.setUsers(200);
+        properties.setTrainings(60_000);
+        properties.setSeed(seed);
+        properties.setDays(365);
+        properties.setUntil(UNTIL);
+        properties.setBatchSize(500);
+        properties.setThreads(threads);
+        return properties;
+    }
+
+    private static long epochMillis(LocalDate day) {
+        return day.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
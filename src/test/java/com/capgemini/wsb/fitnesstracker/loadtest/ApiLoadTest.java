@@ -0,0 +1,77 @@
+package com.capgemini.wsb.fitnesstracker.loadtest;
+
+import com.capgemini.wsb.fitnesstracker.LoadTest;
+import com.capgemini.wsb.fitnesstracker.loader.DataGeneratorProperties;
+import com.capgemini.wsb.fitnesstracker.loader.SyntheticDataGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * End-to-end load test of the REST API: the application runs on a random port with a generated data set and is driven
+ * with a mixed workload over real HTTP connections. The run fails if any operation misses the p99 latency SLO, or the
+ * throughput or error rate SLO is missed. Parameters are described in {@link LoadTestSettings}; the latency
+ * distributions are written to {@code target/loadtest}.
+ */
+@LoadTest
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+class ApiLoadTest {
+
+    private static final long SEED = 42;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUpDB() {
+        jdbcTemplate.update("delete from statistics");
+        jdbcTemplate.update("delete from trainings");
+        jdbcTemplate.update("delete from users");
+    }
+
+    @Test
+    void shouldMeetLatencyAndThroughputSlos_whenDrivingMixedWorkload() throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        generateDataSet(settings);
+        ApiWorkload workload = new ApiWorkload(URI.create("http://localhost:" + port),
+                                               ids("select id from users"), ids("select id from trainings"));
+        LoadDriver driver = new LoadDriver(settings.concurrency(), settings.rate());
+
+        driver.run(workload, settings.warmup(), SEED);
+        LoadReport report = driver.run(workload, settings.duration(), SEED + 1);
+
+        report.print(System.out);
+        report.writeHistograms(Path.of("target", "loadtest"));
+        assertThat(report.errorRate()).isLessThanOrEqualTo(settings.maxErrorRate());
+        assertThat(report.throughput()).isGreaterThanOrEqualTo(settings.minThroughput());
+        assertThat(report.operations()).allSatisfy(operation -> assertThat(operation.p99Millis())
+                .as("p99 of %s", operation.name())
+                .isLessThanOrEqualTo(settings.p99Millis()));
+    }
+
+    private void generateDataSet(LoadTestSettings settings) {
+        DataGeneratorProperties properties = new DataGeneratorProperties();
+        properties.setUsers(settings.users());
+        properties.setTrainings(settings.trainings());
+        properties.setSeed(SEED);
+        properties.setUntil(LocalDate.now());
+        new SyntheticDataGenerator(jdbcTemplate, properties).generate();
+    }
+
+    private long[] ids(String sql) {
+        return jdbcTemplate.queryForList(sql, Long.class).stream().mapToLong(Long::longValue).toArray();
+    }
+}
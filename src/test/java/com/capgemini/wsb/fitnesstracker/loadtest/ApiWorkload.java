@@ -0,0 +1,101 @@
+package com.capgemini.wsb.fitnesstracker.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Mixed workload of the users and trainings API: point reads, list queries, creates and updates in fixed proportions.
+ * Requests reference the users and trainings of the generated data set.
+ */
+class ApiWorkload {
+
+    private static final String[] ACTIVITY_TYPES = {"RUNNING", "CYCLING", "WALKING", "SWIMMING", "TENNIS"};
+    private static final long DAY = 86_400_000L;
+
+    private final URI baseUri;
+    private final long[] userIds;
+    private final long[] trainingIds;
+    private final List<Operation> operations;
+    private final int totalWeight;
+
+    ApiWorkload(URI baseUri, long[] userIds, long[] trainingIds) {
+        this.baseUri = baseUri;
+        this.userIds = userIds;
+        this.trainingIds = trainingIds;
+        this.operations = List.of(
+                new Operation("getUser", 25, random -> get("/v1/users/" + pick(random, userIds))),
+                new Operation("getUserTrainings", 25, random -> get("/v1/trainings/" + pick(random, userIds))),
+                new Operation("getFinishedTrainings", 5, random -> get("/v1/trainings/finished/" + LocalDate.now().minusDays(3))),
+                new Operation("getTrainingsByActivity", 2, random -> get("/v1/trainings/activityType?activityType=TENNIS")),
+                new Operation("createUser", 5, random -> send("POST", "/v1/users", userJson(random))),
+                new Operation("updateUser", 5, random -> send("PUT", "/v1/users/" + pick(random, userIds), userJson(random))),
+                new Operation("createTraining", 20, random -> send("POST", "/v1/trainings", trainingJson(random))),
+                new Operation("updateTraining", 13, random -> send("PUT", "/v1/trainings/" + pick(random, trainingIds), trainingJson(random))));
+        this.totalWeight = operations.stream().mapToInt(Operation::weight).sum();
+    }
+
+    List<Operation> operations() {
+        return operations;
+    }
+
+    Operation next(SplittableRandom random) {
+        int value = random.nextInt(totalWeight);
+        for (Operation operation : operations) {
+            value -= operation.weight();
+            if (value < 0) {
+                return operation;
+            }
+        }
+        throw new IllegalStateException("Operation weights do not add up");
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path)).GET().build();
+    }
+
+    private HttpRequest send(String method, String path, String json) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private static String userJson(SplittableRandom random) {
+        String name = UUID.randomUUID().toString().substring(0, 8);
+        return """
+                {"firstName":"%s","lastName":"%s","birthdate":"%s","email":"%s@domain.com"}"""
+                .formatted(name, name, LocalDate.now().minusYears(18 + random.nextInt(50)), name);
+    }
+
+    private String trainingJson(SplittableRandom random) {
+        long start = System.currentTimeMillis() - random.nextLong(30 * DAY);
+        return String.format(Locale.ROOT, """
+                {"userId":%d,"startTime":%d,"endTime":%d,"activityType":"%s","distance":%.2f,"averageSpeed":%.1f}""",
+                pick(random, userIds), start, start + 3_600_000, ACTIVITY_TYPES[random.nextInt(ACTIVITY_TYPES.length)],
+                1 + random.nextDouble() * 20, 5 + random.nextDouble() * 15);
+    }
+
+    private static long pick(SplittableRandom random, long[] ids) {
+        return ids[random.nextInt(ids.length)];
+    }
+
+    /**
+     * @param name    name of the operation in the report
+     * @param weight  relative frequency of the operation
+     * @param request creates the next request of the operation
+     */
+    record Operation(String name, int weight, RequestFactory request) {
+
+    }
+
+    @FunctionalInterface
+    interface RequestFactory {
+
+        HttpRequest create(SplittableRandom random);
+    }
+}
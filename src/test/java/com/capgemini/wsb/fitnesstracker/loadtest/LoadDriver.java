@@ -0,0 +1,123 @@
+package com.capgemini.wsb.fitnesstracker.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives an {@link ApiWorkload} with a fixed number of workers.
+ * <p>
+ * With a target rate the load follows an open model: request {@code n} is due at {@code start + n / rate} and its
+ * latency is measured from that intended start, not from the moment a worker got to send it. A stalled server therefore
+ * shows up as queueing delay in the percentiles instead of silently lowering the offered load (coordinated omission).
+ * Without a rate every worker sends requests back to back.
+ */
+class LoadDriver {
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final HttpClient httpClient;
+    private final int concurrency;
+    private final double rate;
+
+    LoadDriver(int concurrency, double rate) {
+        this.concurrency = concurrency;
+        this.rate = rate;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    LoadReport run(ApiWorkload workload, Duration duration, long seed) throws Exception {
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long interval = rate > 0 ? (long) (1_000_000_000 / rate) : 0;
+        AtomicLong sequence = new AtomicLong();
+
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        List<Future<Map<String, WorkerResult>>> results = new ArrayList<>();
+        for (int worker = 0; worker < concurrency; worker++) {
+            SplittableRandom random = new SplittableRandom(seed * 31 + worker);
+            results.add(workers.submit(() -> drive(workload, random, sequence, start, end, interval)));
+        }
+        Map<String, WorkerResult> merged = new HashMap<>();
+        try {
+            for (Future<Map<String, WorkerResult>> result : results) {
+                result.get().forEach((operation, workerResult) -> merged.merge(operation, workerResult, WorkerResult::add));
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        List<LoadReport.OperationReport> operations = workload.operations().stream()
+                .filter(operation -> merged.containsKey(operation.name()))
+                .map(operation -> {
+                    WorkerResult result = merged.get(operation.name());
+                    return new LoadReport.OperationReport(operation.name(), result.histogram, result.errors);
+                })
+                .toList();
+        return new LoadReport(operations, elapsed);
+    }
+
+    private Map<String, WorkerResult> drive(ApiWorkload workload, SplittableRandom random, AtomicLong sequence,
+                                            long start, long end, long interval) {
+        Map<String, WorkerResult> results = new HashMap<>();
+        while (true) {
+            long intendedStart = interval > 0 ? start + sequence.getAndIncrement() * interval : System.nanoTime();
+            if (intendedStart >= end) {
+                return results;
+            }
+            long now;
+            while ((now = System.nanoTime()) < intendedStart) {
+                LockSupport.parkNanos(intendedStart - now);
+            }
+            ApiWorkload.Operation operation = workload.next(random);
+            HttpRequest request = operation.request().create(random);
+            boolean failed;
+            try {
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                failed = response.statusCode() >= 300;
+            } catch (IOException e) {
+                failed = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return results;
+            }
+            long latency = Math.min(System.nanoTime() - intendedStart, MAX_LATENCY_NANOS);
+            WorkerResult result = results.computeIfAbsent(operation.name(), name -> new WorkerResult());
+            result.histogram.recordValue(latency);
+            if (failed) {
+                result.errors++;
+            }
+        }
+    }
+
+    private static final class WorkerResult {
+
+        private final Histogram histogram = new Histogram(MAX_LATENCY_NANOS, 3);
+        private long errors;
+
+        private WorkerResult add(WorkerResult other) {
+            histogram.add(other.histogram);
+            errors += other.errors;
+            return this;
+        }
+    }
+}
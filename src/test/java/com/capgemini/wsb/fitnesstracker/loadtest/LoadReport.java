@@ -0,0 +1,76 @@
+package com.capgemini.wsb.fitnesstracker.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Latencies and errors of a load test run, per operation.
+ *
+ * @param operations   results of the individual operations
+ * @param elapsedNanos duration of the run
+ */
+record LoadReport(List<OperationReport> operations, long elapsedNanos) {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    long requests() {
+        return operations.stream().mapToLong(operation -> operation.histogram().getTotalCount()).sum();
+    }
+
+    long errors() {
+        return operations.stream().mapToLong(OperationReport::errors).sum();
+    }
+
+    double throughput() {
+        return requests() / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    double errorRate() {
+        return requests() == 0 ? 0 : (double) errors() / requests();
+    }
+
+    void print(PrintStream out) {
+        out.printf(Locale.ROOT, "%-24s %10s %8s %10s %10s %10s %10s%n", "operation", "requests", "errors", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (OperationReport operation : operations) {
+            Histogram histogram = operation.histogram();
+            out.printf(Locale.ROOT, "%-24s %10d %8d %10.2f %10.2f %10.2f %10.2f%n",
+                       operation.name(), histogram.getTotalCount(), operation.errors(),
+                       histogram.getValueAtPercentile(50) / NANOS_PER_MILLI,
+                       histogram.getValueAtPercentile(99) / NANOS_PER_MILLI,
+                       histogram.getValueAtPercentile(99.9) / NANOS_PER_MILLI,
+                       histogram.getMaxValue() / NANOS_PER_MILLI);
+        }
+        out.printf(Locale.ROOT, "%d requests, %d errors, %.1f requests/s%n", requests(), errors(), throughput());
+    }
+
+    /**
+     * Writes the full percentile distribution of every operation as {@code <operation>.hgrm}, the format read by the
+     * HdrHistogram plotter, so runs can be compared beyond the asserted percentiles.
+     */
+    void writeHistograms(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (OperationReport operation : operations) {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(operation.name() + ".hgrm")))) {
+                operation.histogram().outputPercentileDistribution(out, NANOS_PER_MILLI);
+            }
+        }
+    }
+
+    /**
+     * @param name      name of the operation
+     * @param histogram latencies in nanoseconds
+     * @param errors    number of failed requests
+     */
+    record OperationReport(String name, Histogram histogram, long errors) {
+
+        double p99Millis() {
+            return histogram.getValueAtPercentile(99) / NANOS_PER_MILLI;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.capgemini.wsb.fitnesstracker.loadtest;
+
+import java.time.Duration;
+
+/**
+ * Parameters of a load test run, read from {@code loadtest.*} system properties, e.g.
+ * {@code mvn -Pload-test test -Dloadtest.rate=500 -Dloadtest.concurrency=64}.
+ *
+ * @param users             number of generated users
+ * @param trainings         number of generated trainings
+ * @param concurrency       maximum number of requests in flight
+ * @param rate              target arrival rate in requests per second, {@code 0} to send requests back to back
+ * @param warmup            duration of the warm-up phase, whose results are discarded
+ * @param duration          duration of the measured phase
+ * @param p99Millis         SLO for the 99th percentile latency of every operation
+ * @param minThroughput     SLO for the completed requests per second
+ * @param maxErrorRate      SLO for the share of failed requests
+ */
+record LoadTestSettings(
+        int users,
+        long trainings,
+        int concurrency,
+        double rate,
+        Duration warmup,
+        Duration duration,
+        long p99Millis,
+        double minThroughput,
+        double maxErrorRate) {
+
+    static LoadTestSettings fromSystemProperties() {
+        double rate = Double.parseDouble(System.getProperty("loadtest.rate", "200"));
+        return new LoadTestSettings(
+                Integer.getInteger("loadtest.users", 1_000),
+                Long.getLong("loadtest.trainings", 20_000L),
+                Integer.getInteger("loadtest.concurrency", 32),
+                rate,
+                Duration.parse(System.getProperty("loadtest.warmup", "PT10S")),
+                Duration.parse(System.getProperty("loadtest.duration", "PT30S")),
+                Long.getLong("loadtest.slo.p99-millis", 250L),
+                Double.parseDouble(System.getProperty("loadtest.slo.min-throughput", String.valueOf(rate > 0 ? rate * 0.95 : 100))),
+                Double.parseDouble(System.getProperty("loadtest.slo.max-error-rate", "0.001")));
+    }
+}
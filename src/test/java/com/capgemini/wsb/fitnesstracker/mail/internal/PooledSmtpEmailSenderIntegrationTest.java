@@ -0,0 +1,118 @@
+package com.capgemini.wsb.fitnesstracker.mail.internal;
+
+import com.capgemini.wsb.fitnesstracker.IntegrationTest;
+import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
+import com.capgemini.wsb.fitnesstracker.mail.api.EmailDto;
+import com.capgemini.wsb.fitnesstracker.mail.api.EmailSender;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mail.MailSendException;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@IntegrationTest
+@TestPropertySource(properties = {
+        "spring.mail.host=localhost",
+        "spring.mail.port=3025",
+        "mail.from=noreply@fitness-tracker.com",
+        "mail.pool.max-connections=4",
+        "mail.pool.initial-backoff=10ms",
+        "mail.pool.max-backoff=50ms"
+})
+class PooledSmtpEmailSenderIntegrationTest extends IntegrationTestBase {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    private EmailSender emailSender;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void shouldDeliverWholeBatchOverFewConnections() throws Exception {
+        double openedBefore = counter("mail.smtp.connections.opened");
+        List<EmailDto> emails = emails(200);
+
+        List<EmailDto> failed = emailSender.send(emails);
+
+        assertThat(failed).isEmpty();
+        assertThat(greenMail.waitForIncomingEmail(5_000, 200)).isTrue();
+        assertThat(greenMail.getReceivedMessages()).hasSize(200);
+        assertThat(greenMail.getReceivedMessages())
+                .extracting(message -> message.getAllRecipients()[0].toString())
+                .containsExactlyInAnyOrderElementsOf(emails.stream().map(EmailDto::toAddress).toList());
+        assertThat(counter("mail.smtp.connections.opened") - openedBefore).isBetween(1.0, 4.0);
+        assertThat(meterRegistry.find("mail.smtp.messages").tag("outcome", "sent").counters())
+                .isNotEmpty()
+                .allSatisfy(perConnection -> assertThat(perConnection.getId().getTag("connection")).isNotNull());
+    }
+
+    @Test
+    void shouldDeliverSingleEmail() throws Exception {
+        emailSender.send(new EmailDto("athlete@domain.com", "Weekly summary", "You trained 5 times this week."));
+
+        assertThat(greenMail.waitForIncomingEmail(5_000, 1)).isTrue();
+        assertThat(greenMail.getReceivedMessages()[0].getSubject()).isEqualTo("Weekly summary");
+        assertThat(greenMail.getReceivedMessages()[0].getFrom()[0].toString()).isEqualTo("noreply@fitness-tracker.com");
+        assertThat(GreenMailUtil.getBody(greenMail.getReceivedMessages()[0])).isEqualTo("You trained 5 times this week.");
+    }
+
+    @Test
+    void shouldRetryOverNewConnection_whenServerDroppedPooledConnections() {
+        assertThat(emailSender.send(emails(20))).isEmpty();
+        greenMail.reset();
+
+        List<EmailDto> failed = emailSender.send(emails(20));
+
+        assertThat(failed).isEmpty();
+        assertThat(greenMail.waitForIncomingEmail(5_000, 20)).isTrue();
+    }
+
+    @Test
+    void shouldReturnOnlyInvalidEmail_whenAddressCannotBeParsed() {
+        List<EmailDto> emails = emails(10);
+        EmailDto invalid = new EmailDto("not an address", "Weekly summary", "content");
+        List<EmailDto> batch = new ArrayList<>(emails);
+        batch.add(5, invalid);
+
+        List<EmailDto> failed = emailSender.send(batch);
+
+        assertThat(failed).containsExactly(invalid);
+        assertThat(greenMail.waitForIncomingEmail(5_000, 10)).isTrue();
+    }
+
+    @Test
+    void shouldReturnAllEmailsAsFailed_whenServerIsDown() {
+        greenMail.stop();
+        List<EmailDto> emails = emails(6);
+
+        List<EmailDto> failed = emailSender.send(emails);
+
+        assertThat(failed).containsExactlyElementsOf(emails);
+        assertThatThrownBy(() -> emailSender.send(emails.get(0))).isInstanceOf(MailSendException.class);
+    }
+
+    private double counter(String name) {
+        return meterRegistry.find(name).counters().stream().mapToDouble(Counter::count).sum();
+    }
+
+    private static List<EmailDto> emails(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new EmailDto("athlete%d@domain.com".formatted(i), "Weekly summary " + i, "Content " + i))
+                .toList();
+    }
+}
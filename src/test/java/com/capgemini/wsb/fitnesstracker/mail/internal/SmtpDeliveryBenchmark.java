@@ -0,0 +1,86 @@
+package com.capgemini.wsb.fitnesstracker.mail.internal;
+
+import com.capgemini.wsb.fitnesstracker.LoadTest;
+import com.capgemini.wsb.fitnesstracker.mail.api.EmailDto;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the throughput of sending a batch of emails to a local GreenMail server with one SMTP connection per message
+ * ({@link JavaMailSenderImpl} used directly) and with the {@link PooledSmtpEmailSender}. Run with
+ * {@code mvn -Pload-test test}.
+ */
+@LoadTest
+class SmtpDeliveryBenchmark {
+
+    private static final int WARMUP_MESSAGES = 500;
+    private static final int MEASURED_MESSAGES = 5_000;
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Test
+    void shouldSendFasterOverPooledConnections_thanWithConnectionPerMessage() throws Exception {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(ServerSetupTest.SMTP.getPort());
+        SmtpPoolProperties properties = new SmtpPoolProperties();
+        SmtpConnectionPool pool = new SmtpConnectionPool(mailSender, properties, new SimpleMeterRegistry());
+        PooledSmtpEmailSender pooledSender = new PooledSmtpEmailSender(pool, "noreply@fitness-tracker.com", properties,
+                                                                       new SimpleMeterRegistry());
+        try {
+            perMessage(mailSender, emails(WARMUP_MESSAGES));
+            pooled(pooledSender, emails(WARMUP_MESSAGES));
+            greenMail.purgeEmailFromAllMailboxes();
+
+            double perMessageRate = MEASURED_MESSAGES / seconds(() -> perMessage(mailSender, emails(MEASURED_MESSAGES)));
+            greenMail.purgeEmailFromAllMailboxes();
+            double pooledRate = MEASURED_MESSAGES / seconds(() -> pooled(pooledSender, emails(MEASURED_MESSAGES)));
+
+            System.out.printf(Locale.ROOT, "connection per message: %.0f msgs/s, %d pooled connections: %.0f msgs/s (%.1fx)%n",
+                              perMessageRate, pool.size(), pooledRate, pooledRate / perMessageRate);
+            assertThat(pooledRate).isGreaterThan(perMessageRate);
+        } finally {
+            pooledSender.destroy();
+            pool.close();
+        }
+    }
+
+    private static void perMessage(JavaMailSenderImpl mailSender, List<EmailDto> emails) {
+        for (EmailDto email : emails) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setFrom("noreply@fitness-tracker.com");
+            message.setTo(email.toAddress());
+            message.setSubject(email.subject());
+            message.setText(email.content());
+            mailSender.send(message);
+        }
+    }
+
+    private static void pooled(PooledSmtpEmailSender sender, List<EmailDto> emails) {
+        assertThat(sender.send(emails)).isEmpty();
+    }
+
+    private static double seconds(Runnable run) {
+        long start = System.nanoTime();
+        run.run();
+        return (System.nanoTime() - start) / 1e9;
+    }
+
+    private static List<EmailDto> emails(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new EmailDto("athlete%d@domain.com".formatted(i), "Weekly summary " + i, "Content " + i))
+                .toList();
+    }
+}
@@ -0,0 +1,190 @@
+package com.capgemini.wsb.fitnesstracker.sharding.internal;
+
+import com.capgemini.wsb.fitnesstracker.IntegrationTest;
+import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
+import com.capgemini.wsb.fitnesstracker.exception.api.BusinessException;
+import com.capgemini.wsb.fitnesstracker.training.api.CreateTrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingProvider;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingService;
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
+import com.capgemini.wsb.fitnesstracker.user.api.UserDto;
+import com.capgemini.wsb.fitnesstracker.user.api.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.time.LocalDate.now;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@IntegrationTest
+@TestPropertySource(properties = {
+        "sharding.enabled=true",
+        "sharding.shards[0].url=jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1",
+        "sharding.shards[1].url=jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1"})
+class ShardingIntegrationTest extends IntegrationTestBase {
+
+    private static final AtomicLong START_TIMES = new AtomicLong(System.currentTimeMillis());
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TrainingService trainingService;
+
+    @Autowired
+    private TrainingProvider trainingProvider;
+
+    @Autowired
+    private ShardRouterImpl shardRouter;
+
+    @Autowired
+    private ShardDataSources shards;
+
+    @Autowired
+    private Resharder resharder;
+
+    @AfterEach
+    void cleanUpShards() {
+        for (int shard = 1; shard < shards.count(); shard++) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(shards.get(shard));
+            jdbcTemplate.update("delete from trainings");
+            jdbcTemplate.update("delete from users");
+        }
+    }
+
+    @Test
+    void shouldStoreTrainingsOnShardOfTheirUser_whenTrainingsAreCreated() {
+        List<UserDto> users = usersOnEveryShard();
+
+        for (UserDto user : users) {
+            trainingService.createTraining(training(user, ActivityType.RUNNING));
+            trainingService.createTraining(training(user, ActivityType.SWIMMING));
+        }
+
+        for (UserDto user : users) {
+            int shard = shardRouter.shardOf(user.id());
+            assertThat(trainingsOnShard(shard, user.id())).isEqualTo(2);
+            assertThat(trainingService.findTrainingsByUserId(user.id()))
+                    .hasSize(2)
+                    .allSatisfy(training -> assertThat(training.user().getId()).isEqualTo(user.id()));
+        }
+    }
+
+    @Test
+    void shouldMergeTrainingsOfAllShardsById_whenQueryingAllShards() {
+        List<UserDto> users = usersOnEveryShard();
+        for (int i = 0; i < 3; i++) {
+            for (UserDto user : users) {
+                trainingService.createTraining(training(user, i % 2 == 0 ? ActivityType.CYCLING : ActivityType.WALKING));
+            }
+        }
+
+        List<TrainingDto> all = trainingService.findAllTrainings();
+        List<TrainingDto> cycling = trainingService.findTrainingsByActivity(ActivityType.CYCLING);
+
+        assertThat(all).hasSize(3 * users.size()).isSortedAccordingTo(Comparator.comparing(TrainingDto::id));
+        assertThat(all).extracting(training -> training.user().getId())
+                .containsAll(users.stream().map(UserDto::id).toList());
+        assertThat(cycling).hasSize(2 * users.size())
+                .isSortedAccordingTo(Comparator.comparing(TrainingDto::id))
+                .allSatisfy(training -> assertThat(training.activityType()).isEqualTo(ActivityType.CYCLING));
+        assertThat(trainingService.findCompletedTrainingsAfter(new Date(0))).hasSize(3 * users.size());
+    }
+
+    @Test
+    void shouldGetAndDeleteTraining_whenTrainingIsNotOnFirstShard() {
+        UserDto user = usersOnEveryShard().stream()
+                .filter(candidate -> shardRouter.shardOf(candidate.id()) != 0)
+                .findFirst()
+                .orElseThrow();
+        TrainingDto created = trainingService.createTraining(training(user, ActivityType.TENNIS));
+
+        assertThat(shardRouter.shardOfId(created.id())).isEqualTo(shardRouter.shardOf(user.id()));
+        assertThat(trainingProvider.getTraining(created.id())).map(TrainingDto::activityType).contains(ActivityType.TENNIS);
+
+        assertThat(trainingService.deleteTraining(created.id())).isTrue();
+        assertThat(trainingProvider.getTraining(created.id())).isEmpty();
+        assertThat(trainingsOnShard(shardRouter.shardOf(user.id()), user.id())).isZero();
+    }
+
+    @Test
+    void shouldRejectUpdate_whenTrainingIsAssignedToUserOfAnotherShard() {
+        List<UserDto> users = usersOnEveryShard();
+        UserDto owner = users.get(0);
+        UserDto other = users.stream()
+                .filter(candidate -> shardRouter.shardOf(candidate.id()) != shardRouter.shardOf(owner.id()))
+                .findFirst()
+                .orElseThrow();
+        TrainingDto created = trainingService.createTraining(training(owner, ActivityType.RUNNING));
+
+        assertThatThrownBy(() -> trainingService.updateTraining(created.id(), training(other, ActivityType.RUNNING)))
+                .isInstanceOf(BusinessException.class);
+        assertThat(trainingProvider.getTraining(created.id()))
+                .hasValueSatisfying(training -> assertThat(training.user().getId()).isEqualTo(owner.id()));
+    }
+
+    @Test
+    void shouldMoveMisplacedTrainingsToShardOfTheirUser_whenResharding() {
+        List<UserDto> users = usersOnEveryShard();
+        JdbcTemplate primary = new JdbcTemplate(shards.get(0));
+        for (UserDto user : users) {
+            primary.update("""
+                                   insert into trainings (user_id, start_time, end_time, activity_type, distance, average_speed)
+                                   values (?, ?, ?, ?, ?, ?)""",
+                           user.id(), new Timestamp(0), new Timestamp(3_600_000), ActivityType.RUNNING.ordinal(), 10.0, 10.0);
+        }
+        long misplaced = users.stream().filter(user -> shardRouter.shardOf(user.id()) != 0).count();
+
+        assertThat(resharder.reshard()).isEqualTo(misplaced);
+        assertThat(resharder.reshard()).isZero();
+
+        for (UserDto user : users) {
+            assertThat(trainingsOnShard(shardRouter.shardOf(user.id()), user.id())).isEqualTo(1);
+            assertThat(trainingService.findTrainingsByUserId(user.id())).hasSize(1);
+        }
+        assertThat(trainingService.findAllTrainings()).hasSize(users.size());
+    }
+
+    /**
+     * Creates users until every shard holds at least one of them.
+     */
+    private List<UserDto> usersOnEveryShard() {
+        List<UserDto> users = new ArrayList<>();
+        boolean[] covered = new boolean[shardRouter.shardCount()];
+        int remaining = covered.length;
+        while (remaining > 0) {
+            UserDto user = userService.createUser(new UserDto(null, "Ada", "Lovelace", now().minusYears(30), randomUUID() + "@domain.com"));
+            users.add(user);
+            int shard = shardRouter.shardOf(user.id());
+            if (!covered[shard]) {
+                covered[shard] = true;
+                remaining--;
+            }
+        }
+        return users;
+    }
+
+    private int trainingsOnShard(int shard, long userId) {
+        Integer count = new JdbcTemplate(shards.get(shard))
+                .queryForObject("select count(*) from trainings where user_id = ?", Integer.class, userId);
+        return count == null ? 0 : count;
+    }
+
+    private static CreateTrainingDto training(UserDto user, ActivityType activityType) {
+        long startTime = START_TIMES.incrementAndGet();
+        return new CreateTrainingDto(null, user.id(), new Date(startTime), new Date(startTime + 3_600_000),
+                                     activityType, 5, 10);
+    }
+}
@@ -0,0 +1,156 @@
+package com.capgemini.wsb.fitnesstracker.similarity.internal;
+
+import com.capgemini.wsb.fitnesstracker.IntegrationTest;
+import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
+import com.capgemini.wsb.fitnesstracker.training.api.CreateTrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingService;
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
+import com.capgemini.wsb.fitnesstracker.user.api.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static java.time.LocalDate.now;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@IntegrationTest
+@TestPropertySource(properties = "similarity.enabled=true")
+class SimilarAthleteIntegrationTest extends IntegrationTestBase {
+
+    private static final long START = 1_700_000_000_000L;
+    private static final long TWO_DAYS = 2 * 86_400_000L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SimilarAthleteIndex similarAthleteIndex;
+
+    @Autowired
+    private TrainingService trainingService;
+
+    @Test
+    void shouldReturnAthletesWithSimilarTrainingProfile_mostSimilarFirst() throws Exception {
+        User runner = existingUser(generateUser(30));
+        User similarRunner = existingUser(generateUser(31));
+        User olderRunner = existingUser(generateUser(55));
+        User cyclist = existingUser(generateUser(30));
+        persistTrainings(runner, ActivityType.RUNNING, 10.0, 12);
+        persistTrainings(similarRunner, ActivityType.RUNNING, 10.5, 12);
+        persistTrainings(olderRunner, ActivityType.RUNNING, 9.0, 12);
+        persistTrainings(cyclist, ActivityType.CYCLING, 25.0, 12);
+        similarAthleteIndex.rebuild();
+
+        mockMvc.perform(get("/v1/users/{id}/similar", runner.getId()).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].userId").value(similarRunner.getId()))
+                .andExpect(jsonPath("$[0].firstName").value(similarRunner.getFirstName()))
+                .andExpect(jsonPath("$[1].userId").value(olderRunner.getId()));
+    }
+
+    @Test
+    void shouldUpdateProfiles_whenTrainingsArrive() throws Exception {
+        User runner = existingUser(generateUser(30));
+        User cyclist = existingUser(generateUser(30));
+        User newcomer = existingUser(generateUser(30));
+        persistTrainings(runner, ActivityType.RUNNING, 10.0, 6);
+        persistTrainings(cyclist, ActivityType.CYCLING, 25.0, 6);
+        similarAthleteIndex.rebuild();
+
+        assertThat(similarAthleteIndex.similar(runner.getId(), 5)).extracting(SimilarAthleteIndex.SimilarAthlete::userId)
+                .containsExactly(cyclist.getId());
+
+        for (int i = 0; i < 6; i++) {
+            mockMvc.perform(post("/v1/trainings").contentType(MediaType.APPLICATION_JSON).content("""
+                                    {"userId": %d, "startTime": %d, "endTime": %d, "activityType": "RUNNING", "distance": 10, "averageSpeed": 10}"""
+                                                                                                    .formatted(newcomer.getId(), START + i * TWO_DAYS, START + i * TWO_DAYS + 3_600_000)))
+                    .andExpect(status().isCreated());
+        }
+
+        List<SimilarAthleteIndex.SimilarAthlete> similar = similarAthleteIndex.similar(runner.getId(), 5);
+        assertThat(similar).extracting(SimilarAthleteIndex.SimilarAthlete::userId).containsExactly(newcomer.getId(), cyclist.getId());
+        assertThat(similar.get(0).distance()).isLessThan(0.01);
+        assertThat(similarAthleteIndex.similar(newcomer.getId(), 1)).extracting(SimilarAthleteIndex.SimilarAthlete::userId)
+                .containsExactly(runner.getId());
+    }
+
+    @Test
+    void shouldReturnEmptyList_whenUserHasNoTraining() throws Exception {
+        User runner = existingUser(generateUser(30));
+        User idle = existingUser(generateUser(30));
+        persistTrainings(runner, ActivityType.RUNNING, 10.0, 3);
+        similarAthleteIndex.rebuild();
+
+        mockMvc.perform(get("/v1/users/{id}/similar", idle.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isEmpty());
+    }
+
+    @Test
+    void shouldRejectRequest_whenUserIsUnknownOrLimitIsInvalid() throws Exception {
+        User runner = existingUser(generateUser(30));
+
+        mockMvc.perform(get("/v1/users/{id}/similar", runner.getId() + 1000)).andExpect(status().isNotFound());
+        mockMvc.perform(get("/v1/users/{id}/similar", runner.getId()).param("limit", "0")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v1/users/{id}/similar", runner.getId()).param("limit", "1000")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldFindNearDuplicateVectorsAmongFewCandidates_whenSearchingHashTables() {
+        int vectorCount = 20_000;
+        int dimensions = AthleteProfiles.DIMENSIONS;
+        SplittableRandom random = new SplittableRandom(7);
+        float[] vectors = new float[(vectorCount + 1) * dimensions];
+        for (int i = 0; i < vectorCount * dimensions; i++) {
+            vectors[i] = (float) random.nextDouble();
+        }
+        RandomProjectionIndex index = new RandomProjectionIndex(16, 6, dimensions, 0.5f, 42);
+        for (int slot = 0; slot < vectorCount; slot++) {
+            index.insert(slot, vectors);
+        }
+
+        int found = 0;
+        long candidates = 0;
+        for (int query = 0; query < 100; query++) {
+            int twin = random.nextInt(vectorCount);
+            for (int dimension = 0; dimension < dimensions; dimension++) {
+                vectors[vectorCount * dimensions + dimension] = vectors[twin * dimensions + dimension] + (float) (random.nextDouble() - 0.5) * 0.02f;
+            }
+            BitSet result = index.candidates(vectors, vectorCount * dimensions, 40);
+            found += result.get(twin) ? 1 : 0;
+            candidates += result.cardinality();
+        }
+
+        assertThat(found).isGreaterThanOrEqualTo(98);
+        assertThat(candidates / 100).isLessThan(vectorCount / 20);
+
+        index.remove(0);
+        assertThat(index.size()).isEqualTo(vectorCount - 1);
+        assertThat(index.candidates(vectors, 0, 0).get(0)).isFalse();
+    }
+
+    private void persistTrainings(User user, ActivityType activityType, double speed, int count) {
+        for (int i = 0; i < count; i++) {
+            long startTime = START + i * TWO_DAYS;
+            trainingService.createTraining(new CreateTrainingDto(null, user.getId(), new Date(startTime), new Date(startTime + 3_600_000),
+                                                                 activityType, speed, speed));
+        }
+    }
+
+    private static User generateUser(int age) {
+        return new User(randomUUID().toString(), randomUUID().toString(), now().minusYears(age), randomUUID().toString());
+    }
+}
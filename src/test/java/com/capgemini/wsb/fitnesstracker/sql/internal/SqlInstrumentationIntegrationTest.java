@@ -0,0 +1,89 @@
+package com.capgemini.wsb.fitnesstracker.sql.internal;
+
+import com.capgemini.wsb.fitnesstracker.IntegrationTest;
+import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@IntegrationTest
+@TestPropertySource(properties = {
+        "sql.instrumentation.enabled=true",
+        "management.endpoints.web.exposure.include=sql"})
+class SqlInstrumentationIntegrationTest extends IntegrationTestBase {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SqlStatementRecorder recorder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void resetStatistics() {
+        recorder.reset();
+    }
+
+    @Test
+    void shouldAttributeStatementsToEndpointAndServiceMethod_whenRequestIsHandled() throws Exception {
+        mockMvc.perform(get("/v1/trainings")).andExpect(status().isOk());
+        mockMvc.perform(get("/v1/trainings")).andExpect(status().isOk());
+
+        assertThat(recorder.endpoints())
+                .filteredOn(endpoint -> endpoint.endpoint().equals("GET /v1/trainings"))
+                .singleElement()
+                .satisfies(endpoint -> {
+                    assertThat(endpoint.requests()).isEqualTo(2);
+                    assertThat(endpoint.statements()).isPositive();
+                });
+        assertThat(recorder.shapes(100))
+                .filteredOn(shape -> shape.shape().contains("from trainings"))
+                .flatExtracting(SqlStatementRecorder.ShapeSnapshot::callers)
+                .anyMatch(caller -> caller.startsWith("TrainingServiceImpl."));
+    }
+
+    @Test
+    void shouldMaskStringParameters_whenDescribingSlowStatement() {
+        String description = SqlStatementRecorder.describe(new Object[]{42L, "jan.kowalski@domain.com", true,
+                                                                        LocalDate.of(2024, 1, 2), new byte[]{1, 2}, null});
+
+        assertThat(description).isEqualTo("1=Long:42, 2=String:***(23 chars), 3=Boolean:true, 4=LocalDate:2024-01-02, "
+                                                  + "5=byte[]:***, 6=null");
+    }
+
+    @Test
+    void shouldShareShape_whenStatementsDifferOnlyInLiterals() {
+        jdbcTemplate.queryForList("select id from users where id = 1 and email = 'a@b.c'");
+        jdbcTemplate.queryForList("select id from users where id = 22 and email = 'x'");
+        jdbcTemplate.queryForList("select id from users where id in (1, 2, 3)");
+        jdbcTemplate.queryForList("select id from users where id in (4, 5)");
+
+        assertThat(recorder.shapes(100))
+                .extracting(SqlStatementRecorder.ShapeSnapshot::shape, SqlStatementRecorder.ShapeSnapshot::count)
+                .contains(tuple("select id from users where id = ? and email = ?", 2L),
+                          tuple("select id from users where id in (?...)", 2L));
+    }
+
+    @Test
+    void shouldExposeStatistics_whenActuatorEndpointIsRead() throws Exception {
+        mockMvc.perform(get("/v1/users/simple")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/sql"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.shapes").isNotEmpty())
+                .andExpect(jsonPath("$.endpoints[?(@.endpoint == 'GET /v1/users/simple')].requests").value(1));
+    }
+}
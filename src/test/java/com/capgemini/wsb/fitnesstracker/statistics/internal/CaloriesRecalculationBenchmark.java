@@ -0,0 +1,122 @@
+package com.capgemini.wsb.fitnesstracker.statistics.internal;
+
+import com.capgemini.wsb.fitnesstracker.LoadTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the batch recalculation of the statistics over a production sized trainings table: by default 10 million
+ * trainings of 100 000 users ({@code -Drecalculation.trainings=...}), which have to be recalculated within
+ * {@code -Drecalculation.max-seconds} (30 by default). Run with {@code mvn -Pload-test test}.
+ */
+@LoadTest
+@SpringBootTest
+class CaloriesRecalculationBenchmark {
+
+    private static final long TRAININGS = Long.getLong("recalculation.trainings", 10_000_000);
+    private static final int USERS = 100_000;
+    private static final long MAX_SECONDS = Long.getLong("recalculation.max-seconds", 30);
+    private static final int BATCH_SIZE = 5_000;
+    private static final long FIRST_START_TIME = 1_600_000_000_000L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CaloriesRecalculation caloriesRecalculation;
+
+    @AfterEach
+    void cleanUpDB() {
+        jdbcTemplate.update("delete from statistics");
+        jdbcTemplate.update("delete from trainings");
+        jdbcTemplate.update("delete from users");
+    }
+
+    @Test
+    void shouldRecalculateMillionsOfTrainingsWithinSeconds() {
+        List<Long> userIds = insertUsers();
+        insertTrainings(userIds);
+
+        long start = System.nanoTime();
+        long processed = caloriesRecalculation.recalculate();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf(Locale.ROOT, "Recalculated %d trainings of %d users in %.1f s (%.2f M trainings/s)%n",
+                          processed, userIds.size(), seconds, processed / seconds / 1e6);
+        assertThat(processed).isEqualTo(TRAININGS);
+        assertThat(jdbcTemplate.queryForObject("select sum(total_trainings) from statistics", Long.class)).isEqualTo(TRAININGS);
+        assertThat(seconds).isLessThan(MAX_SECONDS);
+    }
+
+    private List<Long> insertUsers() {
+        SplittableRandom random = new SplittableRandom(7);
+        LocalDate today = LocalDate.now();
+        for (int from = 0; from < USERS; from += BATCH_SIZE) {
+            int batchStart = from;
+            jdbcTemplate.batchUpdate("insert into users (first_name, last_name, birthdate, email) values (?, ?, ?, ?)",
+                                     new BatchPreparedStatementSetter() {
+
+                                         @Override
+                                         public void setValues(PreparedStatement statement, int i) throws SQLException {
+                                             statement.setString(1, "First");
+                                             statement.setString(2, "Last");
+                                             statement.setDate(3, Date.valueOf(today.minusDays(random.nextInt(16 * 365, 80 * 365))));
+                                             statement.setString(4, "user%d@domain.com".formatted(batchStart + i));
+                                         }
+
+                                         @Override
+                                         public int getBatchSize() {
+                                             return Math.min(BATCH_SIZE, USERS - batchStart);
+                                         }
+                                     });
+        }
+        return jdbcTemplate.queryForList("select id from users order by id", Long.class);
+    }
+
+    /**
+     * Inserts the trainings a minute apart, so that no two trainings collide on user, start time and activity type.
+     */
+    private void insertTrainings(List<Long> userIds) {
+        SplittableRandom random = new SplittableRandom(11);
+        for (long from = 0; from < TRAININGS; from += BATCH_SIZE) {
+            long batchStart = from;
+            jdbcTemplate.batchUpdate("""
+                                             insert into trainings (user_id, start_time, end_time, activity_type, distance, average_speed)
+                                             values (?, ?, ?, ?, ?, ?)""",
+                                     new BatchPreparedStatementSetter() {
+
+                                         @Override
+                                         public void setValues(PreparedStatement statement, int i) throws SQLException {
+                                             long training = batchStart + i;
+                                             long startTime = FIRST_START_TIME + training * 60_000;
+                                             statement.setLong(1, userIds.get(random.nextInt(userIds.size())));
+                                             statement.setTimestamp(2, new Timestamp(startTime));
+                                             statement.setTimestamp(3, new Timestamp(startTime + random.nextLong(600_000, 7_200_000)));
+                                             statement.setInt(4, random.nextInt(5));
+                                             statement.setDouble(5, random.nextDouble(1, 40));
+                                             statement.setDouble(6, random.nextDouble(2, 35));
+                                         }
+
+                                         @Override
+                                         public int getBatchSize() {
+                                             return (int) Math.min(BATCH_SIZE, TRAININGS - batchStart);
+                                         }
+                                     });
+        }
+    }
+}
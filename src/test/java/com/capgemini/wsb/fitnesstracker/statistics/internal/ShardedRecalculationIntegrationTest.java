@@ -0,0 +1,122 @@
+package com.capgemini.wsb.fitnesstracker.statistics.internal;
+
+import com.capgemini.wsb.fitnesstracker.IntegrationTest;
+import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
+import com.capgemini.wsb.fitnesstracker.sharding.api.ShardRouter;
+import com.capgemini.wsb.fitnesstracker.statistics.api.Statistics;
+import com.capgemini.wsb.fitnesstracker.training.api.CreateTrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingService;
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
+import com.capgemini.wsb.fitnesstracker.user.api.UserDto;
+import com.capgemini.wsb.fitnesstracker.user.api.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static java.time.LocalDate.now;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@IntegrationTest
+@TestPropertySource(properties = {
+        "sharding.enabled=true",
+        "sharding.shards[0].url=jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1"})
+class ShardedRecalculationIntegrationTest extends IntegrationTestBase {
+
+    private static final Instant START = Instant.parse("2024-01-01T10:00:00Z");
+    private static final long HOUR = 3_600_000L;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TrainingService trainingService;
+
+    @Autowired
+    private StatisticsRepository statisticsRepository;
+
+    @Autowired
+    private CaloriesRecalculation caloriesRecalculation;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUpShards() {
+        for (int shard = 1; shard < shardRouter.shardCount(); shard++) {
+            shardRouter.onShard(shard, () -> {
+                jdbcTemplate.update("delete from trainings");
+                return jdbcTemplate.update("delete from users");
+            });
+        }
+    }
+
+    @Test
+    void shouldCountTrainingsOfEveryShard_whenStatisticsAreRecalculated() {
+        List<UserDto> users = usersOnEveryShard();
+        int created = 0;
+        for (UserDto user : users) {
+            for (int day = 0; day < 3; day++) {
+                trainingService.createTraining(training(user, day, day % 2 == 0 ? ActivityType.RUNNING : ActivityType.CYCLING));
+                created++;
+            }
+        }
+        Map<Long, Statistics> incremental = statisticsByUser();
+        jdbcTemplate.update("update statistics set total_trainings = 0, total_distance = 0, total_calories_burned = 0");
+
+        assertThat(caloriesRecalculation.recalculate()).isEqualTo(created);
+
+        Map<Long, Statistics> recalculated = statisticsByUser();
+        assertThat(recalculated.keySet()).containsExactlyInAnyOrderElementsOf(incremental.keySet());
+        incremental.forEach((userId, expected) -> {
+            Statistics actual = recalculated.get(userId);
+            assertThat(actual.getTotalTrainings()).isEqualTo(3);
+            assertThat(actual.getTotalDistance()).isCloseTo(expected.getTotalDistance(), within(1e-6));
+            assertThat(actual.getTotalCaloriesBurned()).isEqualTo(expected.getTotalCaloriesBurned());
+        });
+    }
+
+    /**
+     * Creates users until every shard holds at least one of them.
+     */
+    private List<UserDto> usersOnEveryShard() {
+        List<UserDto> users = new ArrayList<>();
+        boolean[] covered = new boolean[shardRouter.shardCount()];
+        int remaining = covered.length;
+        while (remaining > 0) {
+            UserDto user = userService.createUser(new UserDto(null, "Ada", "Lovelace", now().minusYears(30), randomUUID() + "@domain.com"));
+            users.add(user);
+            int shard = shardRouter.shardOf(user.id());
+            if (!covered[shard]) {
+                covered[shard] = true;
+                remaining--;
+            }
+        }
+        return users;
+    }
+
+    private Map<Long, Statistics> statisticsByUser() {
+        return statisticsRepository.findAll().stream()
+                .collect(Collectors.toMap(statistics -> statistics.getUser().getId(), Function.identity()));
+    }
+
+    private static CreateTrainingDto training(UserDto user, int day, ActivityType activityType) {
+        Instant startTime = START.plusSeconds(day * 86_400L);
+        return new CreateTrainingDto(null, user.id(), Date.from(startTime), new Date(startTime.toEpochMilli() + HOUR),
+                                     activityType, 10, 10);
+    }
+}
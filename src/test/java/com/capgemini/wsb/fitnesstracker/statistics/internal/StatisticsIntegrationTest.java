@@ -0,0 +1,181 @@
+package com.capgemini.wsb.fitnesstracker.statistics.internal;
+
+import com.capgemini.wsb.fitnesstracker.IntegrationTest;
+import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
+import com.capgemini.wsb.fitnesstracker.statistics.api.Statistics;
+import com.capgemini.wsb.fitnesstracker.training.api.CreateTrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingService;
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
+import com.capgemini.wsb.fitnesstracker.user.api.User;
+import com.capgemini.wsb.fitnesstracker.user.api.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@IntegrationTest
+class StatisticsIntegrationTest extends IntegrationTestBase {
+
+    private static final Instant START = Instant.parse("2024-01-01T10:00:00Z");
+    private static final long HOUR = 3_600_000L;
+
+    @Autowired
+    private TrainingService trainingService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private StatisticsRepository statisticsRepository;
+
+    @Autowired
+    private CaloriesRecalculation caloriesRecalculation;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void shouldEstimateCaloriesFromMetValueReferenceWeightDurationAndAge() {
+        assertThat(CalorieCalculator.calories(ActivityType.RUNNING.ordinal(), HOUR, 10, 30)).isCloseTo(11.0 * 70, within(1e-9));
+        assertThat(CalorieCalculator.calories(ActivityType.RUNNING.ordinal(), HOUR / 2, 0, 30)).isCloseTo(11.0 * 70 / 2, within(1e-9));
+        assertThat(CalorieCalculator.calories(ActivityType.CYCLING.ordinal(), HOUR, 40, 90)).isCloseTo(15.8 * 70 * 0.75, within(1e-9));
+        assertThat(CalorieCalculator.calories(ActivityType.WALKING.ordinal(), HOUR, 7, 20)).isCloseTo(7.0 * 70 * 1.05, within(1e-9));
+        assertThat(CalorieCalculator.calories(ActivityType.SWIMMING.ordinal(), HOUR, 2.5, 50)).isCloseTo(7.0 * 70 * 0.9, within(1e-9));
+        assertThat(CalorieCalculator.calories(ActivityType.TENNIS.ordinal(), 0, 5, 30)).isZero();
+
+        long birthEpochDay = LocalDate.of(1990, 6, 15).toEpochDay();
+        assertThat(CalorieCalculator.ageAt(birthEpochDay, epochMillis(LocalDate.of(2020, 6, 15)))).isEqualTo(30);
+        assertThat(CalorieCalculator.ageAt(birthEpochDay, epochMillis(LocalDate.of(2020, 6, 14)))).isEqualTo(29);
+        assertThat(CalorieCalculator.ageAt(birthEpochDay, epochMillis(LocalDate.of(1980, 1, 1)))).isZero();
+    }
+
+    @Test
+    void shouldAddAndSubtractTrainings_whenTrainingsAreCreatedUpdatedAndDeleted() {
+        User user = existingUser(generateUser(LocalDate.of(1990, 6, 15)));
+
+        TrainingDto run = trainingService.createTraining(training(user, 0, HOUR, ActivityType.RUNNING, 10, 10));
+        assertStatistics(user, 1, 10, 758);
+
+        trainingService.updateTraining(run.id(), training(user, 0, 2 * HOUR, ActivityType.CYCLING, 40, 20));
+        assertStatistics(user, 1, 40, 1103);
+
+        TrainingDto walk = trainingService.createTraining(training(user, 1, HOUR, ActivityType.WALKING, 5, 5));
+        assertStatistics(user, 2, 45, 1399);
+
+        trainingService.deleteTraining(run.id());
+        assertStatistics(user, 1, 5, 296);
+
+        trainingService.deleteTraining(walk.id());
+        assertStatistics(user, 0, 0, 0);
+    }
+
+    @Test
+    void shouldKeepSingleStatisticsRow_whenFirstTrainingsOfUserAreCreatedConcurrently() throws Exception {
+        User user = existingUser(generateUser(LocalDate.of(1985, 3, 1)));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<TrainingDto>> created = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            int day = i;
+            created.add(executor.submit(() -> trainingService.createTraining(training(user, day, HOUR, ActivityType.RUNNING, 10, 10))));
+        }
+        for (Future<TrainingDto> training : created) {
+            training.get();
+        }
+        executor.shutdown();
+
+        assertThat(statisticsOf(user)).hasSize(1);
+        assertStatistics(user, 16, 160, 16 * 739);
+    }
+
+    @Test
+    void shouldReproduceIncrementalStatistics_whenStatisticsAreRecalculated() {
+        SplittableRandom random = new SplittableRandom(29);
+        List<User> users = List.of(existingUser(generateUser(LocalDate.of(1960, 2, 29))),
+                                   existingUser(generateUser(LocalDate.of(1995, 11, 3))),
+                                   existingUser(generateUser(LocalDate.of(2004, 7, 21))));
+        for (int day = 0; day < 60; day++) {
+            User user = users.get(random.nextInt(users.size()));
+            ActivityType activityType = ActivityType.values()[random.nextInt(ActivityType.values().length)];
+            trainingService.createTraining(training(user, day, random.nextLong(HOUR / 4, 3 * HOUR), activityType,
+                                                    random.nextDouble(1, 50), random.nextDouble(0, 30)));
+        }
+        Map<Long, Statistics> incremental = statisticsByUser();
+        jdbcTemplate.update("update statistics set total_trainings = 0, total_distance = 0, total_calories_burned = 0");
+        jdbcTemplate.update("delete from statistics where user_id = ?", users.get(0).getId());
+
+        assertThat(caloriesRecalculation.recalculate()).isEqualTo(60);
+
+        Map<Long, Statistics> recalculated = statisticsByUser();
+        assertThat(recalculated.keySet()).containsExactlyInAnyOrderElementsOf(incremental.keySet());
+        incremental.forEach((userId, expected) -> {
+            Statistics actual = recalculated.get(userId);
+            assertThat(actual.getTotalTrainings()).isEqualTo(expected.getTotalTrainings());
+            assertThat(actual.getTotalDistance()).isCloseTo(expected.getTotalDistance(), within(1e-6));
+            assertThat(actual.getTotalCaloriesBurned()).isEqualTo(expected.getTotalCaloriesBurned());
+        });
+    }
+
+    @Test
+    void shouldDeleteStatistics_whenUserIsDeleted() {
+        User user = existingUser(generateUser(LocalDate.of(1990, 6, 15)));
+        TrainingDto training = trainingService.createTraining(training(user, 0, HOUR, ActivityType.RUNNING, 10, 10));
+        trainingService.deleteTraining(training.id());
+        assertThat(statisticsOf(user)).hasSize(1);
+
+        assertThat(userService.deleteUser(user.getId())).isTrue();
+
+        assertThat(statisticsOf(user)).isEmpty();
+    }
+
+    private void assertStatistics(User user, int trainings, double distance, int calories) {
+        assertThat(statisticsOf(user)).singleElement().satisfies(statistics -> {
+            assertThat(statistics.getTotalTrainings()).isEqualTo(trainings);
+            assertThat(statistics.getTotalDistance()).isCloseTo(distance, within(1e-9));
+            assertThat(statistics.getTotalCaloriesBurned()).isEqualTo(calories);
+        });
+    }
+
+    private List<Statistics> statisticsOf(User user) {
+        return statisticsRepository.findAll().stream()
+                .filter(statistics -> user.getId().equals(statistics.getUser().getId()))
+                .toList();
+    }
+
+    private Map<Long, Statistics> statisticsByUser() {
+        return statisticsRepository.findAll().stream()
+                .collect(Collectors.toMap(statistics -> statistics.getUser().getId(), Function.identity()));
+    }
+
+    private static CreateTrainingDto training(User user, int day, long duration, ActivityType activityType,
+                                              double distance, double averageSpeed) {
+        Instant startTime = START.plusSeconds(day * 86_400L);
+        return new CreateTrainingDto(null, user.getId(), Date.from(startTime), new Date(startTime.toEpochMilli() + duration),
+                                     activityType, distance, averageSpeed);
+    }
+
+    private static User generateUser(LocalDate birthdate) {
+        return new User(randomUUID().toString(), randomUUID().toString(), birthdate, randomUUID() + "@domain.com");
+    }
+
+    private static long epochMillis(LocalDate day) {
+        return day.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
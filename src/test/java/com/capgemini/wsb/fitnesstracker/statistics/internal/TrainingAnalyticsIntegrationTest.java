@@ -0,0 +1,237 @@
+package com.capgemini.wsb.fitnesstracker.statistics.internal;
+
+import com.capgemini.wsb.fitnesstracker.IntegrationTest;
+import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
+import com.capgemini.wsb.fitnesstracker.user.api.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static java.time.LocalDate.now;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.hamcrest.Matchers.closeTo;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@IntegrationTest
+@TestPropertySource(properties = "statistics.sketches.enabled=true")
+class TrainingAnalyticsIntegrationTest extends IntegrationTestBase {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TrainingSketches trainingSketches;
+
+    @Autowired
+    private TrainingSketchRepository trainingSketchRepository;
+
+    private int createdTrainings;
+
+    @AfterEach
+    void cleanUpSketches() {
+        trainingSketches.flush();
+        trainingSketchRepository.deleteAll();
+    }
+
+    @Test
+    void shouldCountDistinctActiveUsersPerDayAndPeriod() throws Exception {
+        LocalDate firstDay = LocalDate.of(2024, 3, 4);
+        User runner = existingUser(generateUser());
+        User cyclist = existingUser(generateUser());
+        User walker = existingUser(generateUser());
+        createTraining(runner, firstDay, ActivityType.RUNNING, 10, 10);
+        createTraining(runner, firstDay, ActivityType.RUNNING, 5, 11);
+        createTraining(cyclist, firstDay, ActivityType.RUNNING, 8, 9);
+        createTraining(cyclist, firstDay.plusDays(1), ActivityType.CYCLING, 40, 25);
+        createTraining(walker, firstDay.plusDays(1), ActivityType.WALKING, 4, 5);
+
+        mockMvc.perform(get("/v1/statistics/active-users").param("from", "2024-03-04").param("to", "2024-03-06"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.distinctUsers").value(3))
+                .andExpect(jsonPath("$.days.length()").value(3))
+                .andExpect(jsonPath("$.days[0].day").value("2024-03-04"))
+                .andExpect(jsonPath("$.days[0].activeUsers").value(2))
+                .andExpect(jsonPath("$.days[0].trainings").value(3))
+                .andExpect(jsonPath("$.days[1].activeUsers").value(2))
+                .andExpect(jsonPath("$.days[2].activeUsers").value(0));
+
+        mockMvc.perform(get("/v1/statistics/active-users").param("from", "2024-03-04").param("to", "2024-03-05")
+                                .param("activityType", "RUNNING"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.activityType").value("RUNNING"))
+                .andExpect(jsonPath("$.distinctUsers").value(2))
+                .andExpect(jsonPath("$.days[1].activeUsers").value(0));
+    }
+
+    @Test
+    void shouldEstimatePercentilesPerActivityType() throws Exception {
+        LocalDate day = LocalDate.of(2024, 4, 8);
+        User runner = existingUser(generateUser());
+        for (int distance = 1; distance <= 100; distance++) {
+            createTraining(runner, day, ActivityType.RUNNING, distance, 8 + distance / 25.0);
+        }
+        createTraining(runner, day, ActivityType.SWIMMING, 2, 2.5);
+
+        mockMvc.perform(get("/v1/statistics/percentiles").param("from", "2024-04-08"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].activityType").value("RUNNING"))
+                .andExpect(jsonPath("$[0].trainings").value(100))
+                .andExpect(jsonPath("$[0].distance.p50").value(closeTo(50.5, 1.5)))
+                .andExpect(jsonPath("$[0].distance.p90").value(closeTo(90.5, 1.5)))
+                .andExpect(jsonPath("$[0].distance.p99").value(closeTo(99.5, 1.0)))
+                .andExpect(jsonPath("$[0].averageSpeed.p50").value(closeTo(10.0, 0.1)))
+                .andExpect(jsonPath("$[1].activityType").value("SWIMMING"))
+                .andExpect(jsonPath("$[1].distance.p99").value(2.0));
+    }
+
+    @Test
+    void shouldMergeSketchesOfAllInstances_whenSketchesWereWritten() throws Exception {
+        LocalDate day = LocalDate.of(2024, 5, 13);
+        User runner = existingUser(generateUser());
+        createTraining(runner, day, ActivityType.RUNNING, 10, 10);
+        trainingSketches.flush();
+        createTraining(runner, day, ActivityType.RUNNING, 20, 12);
+
+        TrainingSketch otherInstance = new TrainingSketch(12, 100);
+        otherInstance.add(runner.getId() + 1_000_000, 30, 14);
+        otherInstance.add(runner.getId() + 2_000_000, 40, 16);
+        TrainingSketchRow row = new TrainingSketchRow(day, ActivityType.RUNNING, "other-instance");
+        row.update(otherInstance, Instant.now());
+        trainingSketchRepository.save(row);
+
+        mockMvc.perform(get("/v1/statistics/active-users").param("from", "2024-05-13"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.distinctUsers").value(3))
+                .andExpect(jsonPath("$.days[0].trainings").value(4));
+
+        trainingSketches.flush();
+        assertThat(trainingSketchRepository.findByDayBetween(day, day)).hasSize(2)
+                .allSatisfy(written -> assertThat(written.getTrainings()).isEqualTo(2));
+        mockMvc.perform(get("/v1/statistics/percentiles").param("from", "2024-05-13").param("activityType", "RUNNING"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].trainings").value(4))
+                .andExpect(jsonPath("$[0].distance.p99").value(closeTo(40, 0.5)));
+    }
+
+    @Test
+    void shouldMergeStaleRowsIntoCompactedRow_whenCompacting() throws Exception {
+        LocalDate day = LocalDate.of(2024, 6, 3);
+        User runner = existingUser(generateUser());
+        createTraining(runner, day, ActivityType.RUNNING, 10, 10);
+        trainingSketches.flush();
+        Instant stale = Instant.now().minus(Duration.ofDays(2));
+        for (int instance = 1; instance <= 2; instance++) {
+            TrainingSketch pastInstance = new TrainingSketch(12, 100);
+            pastInstance.add(runner.getId() + instance * 1_000_000L, 20 * instance, 12);
+            TrainingSketchRow row = new TrainingSketchRow(day, ActivityType.RUNNING, "past-instance-" + instance);
+            row.update(pastInstance, stale);
+            trainingSketchRepository.save(row);
+        }
+
+        assertThat(trainingSketches.compact(Instant.now().minus(Duration.ofDays(1)))).isEqualTo(2);
+        assertThat(trainingSketches.compact(Instant.now().minus(Duration.ofDays(1)))).isZero();
+
+        assertThat(trainingSketchRepository.findByDayBetween(day, day))
+                .extracting(TrainingSketchRow::getNodeId)
+                .hasSize(2)
+                .contains(TrainingSketches.COMPACTED_NODE_ID);
+        mockMvc.perform(get("/v1/statistics/active-users").param("from", "2024-06-03"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.distinctUsers").value(3))
+                .andExpect(jsonPath("$.days[0].trainings").value(3));
+    }
+
+    @Test
+    void shouldWriteRecordedSketches_whenShuttingDown() throws Exception {
+        LocalDate day = LocalDate.of(2024, 6, 10);
+        createTraining(existingUser(generateUser()), day, ActivityType.WALKING, 4, 5);
+
+        trainingSketches.destroy();
+
+        assertThat(trainingSketchRepository.findByDayBetween(day, day)).singleElement()
+                .satisfies(row -> assertThat(row.getTrainings()).isEqualTo(1));
+    }
+
+    @Test
+    void shouldRejectInvalidPeriod() throws Exception {
+        mockMvc.perform(get("/v1/statistics/active-users").param("from", "2024-03-04").param("to", "2024-03-01"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v1/statistics/percentiles").param("from", "2020-01-01").param("to", "2024-01-01"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldEstimateDistinctCountsAndQuantilesWithinErrorBounds_whenSketchesAreMerged() {
+        SplittableRandom random = new SplittableRandom(11);
+        HyperLogLog[] users = {new HyperLogLog(12), new HyperLogLog(12), new HyperLogLog(12)};
+        TDigest[] speeds = {new TDigest(100), new TDigest(100), new TDigest(100)};
+        double[] values = new double[300_000];
+        for (int i = 0; i < values.length; i++) {
+            users[i % 3].add(i / 2);
+            values[i] = Math.exp(random.nextDouble() * 3);
+            speeds[i % 3].add(values[i]);
+        }
+        Arrays.sort(values);
+
+        HyperLogLog allUsers = new HyperLogLog(12).merge(users[0]).merge(users[1]).merge(users[2]);
+        TDigest allSpeeds = new TDigest(100).merge(speeds[0]).merge(speeds[1]).merge(speeds[2]);
+
+        assertThat((double) allUsers.estimate()).isCloseTo(150_000, within(150_000 * 0.05));
+        for (double quantile : new double[]{0.5, 0.9, 0.99}) {
+            double exact = values[(int) (quantile * values.length)];
+            assertThat(allSpeeds.quantile(quantile)).isCloseTo(exact, within(exact * 0.02));
+        }
+    }
+
+    @Test
+    void shouldKeepSketchOfQuietDayCompact_whenSerialized() {
+        TrainingSketch sketch = new TrainingSketch(12, 100);
+        sketch.add(1, 5, 10);
+        sketch.add(2, 7, 11);
+        sketch.add(2, 9, 12);
+
+        byte[] data = sketch.toBytes();
+        TrainingSketch read = TrainingSketch.fromBytes(data);
+
+        assertThat(data.length).isLessThan(128);
+        assertThat(read.trainings()).isEqualTo(3);
+        assertThat(read.users().estimate()).isEqualTo(2);
+        assertThat(read.distances().quantile(0.5)).isEqualTo(7);
+        assertThat(read.averageSpeeds().quantile(1)).isEqualTo(12);
+    }
+
+    /**
+     * Creates the training at noon of the day, a minute after the previous one, so that it is not taken for a repeated
+     * upload of the same training.
+     */
+    private void createTraining(User user, LocalDate day, ActivityType activityType, double distance, double averageSpeed) throws Exception {
+        long startTime = day.atTime(LocalTime.NOON).plusMinutes(createdTrainings++).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        mockMvc.perform(post("/v1/trainings").contentType(MediaType.APPLICATION_JSON).content("""
+                                {"userId": %d, "startTime": %d, "endTime": %d, "activityType": "%s", "distance": %s, "averageSpeed": %s}"""
+                                                                                                .formatted(user.getId(), startTime, startTime + 3_600_000,
+                                                                                                           activityType, distance, averageSpeed)))
+                .andExpect(status().isCreated());
+    }
+
+    private static User generateUser() {
+        return new User(randomUUID().toString(), randomUUID().toString(), now().minusYears(30), randomUUID().toString());
+    }
+}
@@ -109,7 +109,7 @@ class TrainingApiIntegrationTest extends IntegrationTestBase {
         User user1 = existingUser(generateClient());
         Training training1 = persistTraining(generateTrainingWithActivityType(user1, ActivityType.RUNNING));
         Training training2 = persistTraining(generateTrainingWithActivityType(user1, ActivityType.TENNIS));
-        Training training3 = persistTraining(generateTrainingWithActivityType(user1, ActivityType.TENNIS));
+        Training training3 = persistTraining(generateTrainingWithDetails(user1, "2024-01-20 08:00:00", "2024-01-20 09:30:00", ActivityType.TENNIS, 0, 0));
 
         mockMvc.perform(get("/v1/trainings/activityType").param("activityType", "TENNIS").contentType(MediaType.APPLICATION_JSON))
                 .andDo(log())
@@ -0,0 +1,138 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import com.capgemini.wsb.fitnesstracker.IntegrationTest;
+import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
+import com.capgemini.wsb.fitnesstracker.training.api.CreateTrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.api.Training;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingProvider;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingService;
+import com.capgemini.wsb.fitnesstracker.user.api.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import static java.time.LocalDate.now;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@IntegrationTest
+@TestPropertySource(properties = {
+        "training.archive.enabled=true",
+        "training.archive.directory=target/test-archive/${random.uuid}",
+        "training.archive.batch-size=2"})
+class TrainingArchiveIntegrationTest extends IntegrationTestBase {
+
+    @TempDir
+    Path segmentDirectory;
+
+    @Autowired
+    private TrainingArchive trainingArchive;
+
+    @Autowired
+    private TrainingService trainingService;
+
+    @Autowired
+    private TrainingProvider trainingProvider;
+
+    @Autowired
+    private TrainingRepository trainingRepository;
+
+    @Autowired
+    private EncodedTrainingSamplesRepository samplesRepository;
+
+    @Test
+    void shouldReadBackAllRows_whenSegmentIsWrittenAndReopened() throws Exception {
+        SplittableRandom random = new SplittableRandom(7);
+        List<ArchivedTraining> trainings = new ArrayList<>();
+        long startTime = Instant.parse("2023-01-01T00:00:00Z").toEpochMilli();
+        for (int i = 0; i < 1_000; i++) {
+            startTime += random.nextLong(0, 86_400_000L);
+            trainings.add(new ArchivedTraining((1L << 40) + i * 3L, random.nextLong(1, Long.MAX_VALUE), startTime,
+                                               startTime + random.nextLong(0, 36_000_000L),
+                                               ActivityType.values()[i % 3], random.nextDouble() * 100, random.nextDouble() * 40));
+        }
+        List<ArchivedTraining> shuffled = new ArrayList<>(trainings);
+        Collections.shuffle(shuffled, new Random(3));
+
+        Path file = segmentDirectory.resolve("trainings-2023-01.seg");
+        TrainingSegment.write(file, shuffled);
+        TrainingSegment segment = TrainingSegment.open(file);
+
+        assertThat(segment.getRowCount()).isEqualTo(trainings.size());
+        assertThat(segment.scan(TrainingSegment.RowFilter.ALL)).containsExactlyElementsOf(trainings);
+        assertThat(segment.scan((userId, start, end, activityType) -> activityType == ActivityType.WALKING))
+                .containsExactlyElementsOf(trainings.stream().filter(training -> training.activityType() == ActivityType.WALKING).toList());
+        assertThat(segment.mayContain(ActivityType.CYCLING)).isTrue();
+        assertThat(segment.mayContain(ActivityType.TENNIS)).isFalse();
+        long maxEndTime = trainings.stream().mapToLong(ArchivedTraining::endTime).max().orElseThrow();
+        assertThat(segment.mayEndAfter(maxEndTime - 1)).isTrue();
+        assertThat(segment.mayEndAfter(maxEndTime)).isFalse();
+        long minUserId = trainings.stream().mapToLong(ArchivedTraining::userId).min().orElseThrow();
+        long maxUserId = trainings.stream().mapToLong(ArchivedTraining::userId).max().orElseThrow();
+        assertThat(segment.mayContainUsers(minUserId, minUserId + 1)).isTrue();
+        assertThat(segment.mayContainUsers(maxUserId, Long.MAX_VALUE)).isTrue();
+        assertThat(segment.mayContainUsers(0, minUserId)).isFalse();
+        assertThat(segment.mayContainUsers(maxUserId + 1, Long.MAX_VALUE)).isFalse();
+    }
+
+    @Test
+    void shouldMergeArchivedAndHotTrainings_whenOldTrainingsWereArchived() {
+        User user = existingUser(generateUser());
+        Instant now = Instant.now();
+        List<TrainingDto> old = new ArrayList<>();
+        for (int days = 400; days > 200; days -= 40) {
+            old.add(trainingService.createTraining(training(user, now.minus(days, ChronoUnit.DAYS), days % 80 == 0 ? ActivityType.TENNIS : ActivityType.RUNNING)));
+        }
+        TrainingDto recent = trainingService.createTraining(training(user, now.minus(2, ChronoUnit.DAYS), ActivityType.TENNIS));
+        samplesRepository.save(new EncodedTrainingSamples(old.get(0).id(), 1, new byte[]{1}));
+        List<Long> allIds = new ArrayList<>(old.stream().map(TrainingDto::id).toList());
+        allIds.add(recent.id());
+
+        int archived = trainingArchive.archiveEndedBefore(Date.from(now.minus(180, ChronoUnit.DAYS)));
+
+        assertThat(archived).isEqualTo(old.size());
+        assertThat(trainingRepository.findAllById(allIds)).extracting(Training::getId).containsExactly(recent.id());
+        assertThat(samplesRepository.findById(old.get(0).id())).isEmpty();
+        assertThat(trainingService.findTrainingsByUserId(user.getId()))
+                .extracting(TrainingDto::id)
+                .containsExactlyElementsOf(allIds);
+        assertThat(trainingService.findTrainingsByActivity(ActivityType.TENNIS))
+                .filteredOn(training -> training.user() != null && user.getId().equals(training.user().getId()))
+                .extracting(TrainingDto::id)
+                .containsExactly(old.get(0).id(), old.get(2).id(), old.get(4).id(), recent.id());
+        assertThat(trainingService.findCompletedTrainingsAfter(Date.from(now.minus(300, ChronoUnit.DAYS))))
+                .filteredOn(training -> training.user() != null && user.getId().equals(training.user().getId()))
+                .isSortedAccordingTo(Comparator.comparing(TrainingDto::endTime))
+                .hasSize(3);
+        List<Long> archivedStartTimes = new ArrayList<>();
+        trainingProvider.forEachArchivedTraining(user.getId(), user.getId() + 1,
+                                                 (userId, startTime, endTime, activityType, distance, averageSpeed) -> archivedStartTimes.add(startTime));
+        assertThat(archivedStartTimes).containsExactlyInAnyOrderElementsOf(old.stream().map(training -> training.startTime().getTime()).toList());
+        trainingProvider.forEachArchivedTraining(user.getId() + 1, Long.MAX_VALUE,
+                                                 (userId, startTime, endTime, activityType, distance, averageSpeed) -> assertThat(userId).isNotEqualTo(user.getId()));
+
+        assertThat(trainingArchive.archiveEndedBefore(Date.from(now.minus(180, ChronoUnit.DAYS)))).isZero();
+    }
+
+    private static User generateUser() {
+        return new User(randomUUID().toString(), randomUUID().toString(), now().minusYears(30), randomUUID() + "@domain.com");
+    }
+
+    private static CreateTrainingDto training(User user, Instant startTime, ActivityType activityType) {
+        return new CreateTrainingDto(null, user.getId(), Date.from(startTime), Date.from(startTime.plus(1, ChronoUnit.HOURS)),
+                                     activityType, 10, 10);
+    }
+}
@@ -0,0 +1,92 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import com.capgemini.wsb.fitnesstracker.IntegrationTest;
+import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
+import com.capgemini.wsb.fitnesstracker.coalescing.api.SingleFlight;
+import com.capgemini.wsb.fitnesstracker.training.api.CreateTrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingProvider;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingService;
+import com.capgemini.wsb.fitnesstracker.user.api.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static java.time.LocalDate.now;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@IntegrationTest
+class TrainingCoalescingIntegrationTest extends IntegrationTestBase {
+
+    private static final long DAY = 86_400_000L;
+
+    @Autowired
+    private TrainingService trainingService;
+
+    @Autowired
+    private TrainingProvider trainingProvider;
+
+    @Autowired
+    private SingleFlight<TrainingQuery> trainingQueries;
+
+    /**
+     * A read of training A is held in flight with a marker result. A read through the provider joins it despite a write
+     * of training B, and only a write of training A lets the next read run its own query.
+     */
+    @Test
+    void shouldForgetOnlyAffectedReads_whenTrainingIsWritten() throws Exception {
+        User user = existingUser(generateUser());
+        User otherUser = existingUser(generateUser());
+        TrainingDto training = trainingService.createTraining(training(user, ActivityType.RUNNING, 10));
+        TrainingDto otherTraining = trainingService.createTraining(training(otherUser, ActivityType.CYCLING, 10));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        Future<Optional<TrainingDto>> leader = executor.submit(() -> trainingQueries.execute(
+                new TrainingQuery("getTraining", training.id()), () -> {
+                    started.countDown();
+                    awaitUninterruptibly(release);
+                    return Optional.<TrainingDto>empty();
+                }));
+        started.await();
+        trainingService.updateTraining(otherTraining.id(), training(otherUser, ActivityType.CYCLING, 11));
+        Future<Optional<TrainingDto>> coalesced = executor.submit(() -> trainingProvider.getTraining(training.id()));
+        Thread.sleep(100);
+
+        trainingService.updateTraining(training.id(), training(user, ActivityType.RUNNING, 11));
+        Optional<TrainingDto> afterWrite = trainingProvider.getTraining(training.id());
+        release.countDown();
+
+        assertThat(leader.get()).isEmpty();
+        assertThat(coalesced.get()).isEmpty();
+        assertThat(afterWrite).hasValueSatisfying(read -> assertThat(read.endTime()).hasSameTimeAs(new Date(11 * DAY)));
+        executor.shutdown();
+    }
+
+    private static CreateTrainingDto training(User user, ActivityType activityType, int endDay) {
+        return new CreateTrainingDto(null, user.getId(), new Date(endDay * DAY - 3_600_000), new Date(endDay * DAY),
+                                     activityType, 10, 10);
+    }
+
+    private static User generateUser() {
+        return new User(randomUUID().toString(), randomUUID().toString(), now().minusYears(30), randomUUID().toString());
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
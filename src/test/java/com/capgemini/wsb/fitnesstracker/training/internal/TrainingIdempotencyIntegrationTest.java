@@ -0,0 +1,147 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import com.capgemini.wsb.fitnesstracker.IntegrationTest;
+import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
+import com.capgemini.wsb.fitnesstracker.training.api.CreateTrainingDto;
+import com.capgemini.wsb.fitnesstracker.user.api.User;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.time.LocalDate.now;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@IntegrationTest
+class TrainingIdempotencyIntegrationTest extends IntegrationTestBase {
+
+    private static final long START = 1_700_000_000_000L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TrainingServiceImpl trainingService;
+
+    @Autowired
+    private TrainingDuplicateFilter duplicateFilter;
+
+    @Test
+    void shouldReturnOriginalTraining_whenSameTrainingIsUploadedAgain() throws Exception {
+        User user = existingUser(generateUser());
+        String body = body(user, START, "RUNNING", 5.0);
+
+        String created = mockMvc.perform(post("/v1/trainings").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Integer id = JsonPath.read(created, "$.id");
+
+        mockMvc.perform(post("/v1/trainings").contentType(MediaType.APPLICATION_JSON).content(body(user, START, "RUNNING", 7.0)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(id))
+                .andExpect(jsonPath("$.distance").value(5.0));
+        mockMvc.perform(post("/v1/trainings").contentType(MediaType.APPLICATION_JSON).content(body(user, START, "CYCLING", 5.0)))
+                .andExpect(status().isCreated());
+
+        assertThat(getAllTrainings()).hasSize(2);
+    }
+
+    @Test
+    void shouldReturnOriginalTraining_whenIdempotencyKeyIsReused() throws Exception {
+        User user = existingUser(generateUser());
+        String key = randomUUID().toString();
+
+        String created = mockMvc.perform(post("/v1/trainings").header("Idempotency-Key", key)
+                                                 .contentType(MediaType.APPLICATION_JSON).content(body(user, START, "WALKING", 3.0)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Integer id = JsonPath.read(created, "$.id");
+
+        mockMvc.perform(post("/v1/trainings").header("Idempotency-Key", key)
+                                .contentType(MediaType.APPLICATION_JSON).content(body(user, START + 60_000, "WALKING", 3.5)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(id));
+
+        assertThat(getAllTrainings()).hasSize(1);
+    }
+
+    @Test
+    void shouldRejectUpdate_whenUpdatedTrainingCollidesWithAnotherTraining() throws Exception {
+        User user = existingUser(generateUser());
+        mockMvc.perform(post("/v1/trainings").contentType(MediaType.APPLICATION_JSON).content(body(user, START, "RUNNING", 5.0)))
+                .andExpect(status().isCreated());
+        String other = mockMvc.perform(post("/v1/trainings").contentType(MediaType.APPLICATION_JSON)
+                                               .content(body(user, START + 60_000, "RUNNING", 5.0)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Integer id = JsonPath.read(other, "$.id");
+
+        mockMvc.perform(put("/v1/trainings/{trainingId}", id).contentType(MediaType.APPLICATION_JSON)
+                                .content(body(user, START, "RUNNING", 6.0)))
+                .andExpect(status().isBadRequest());
+
+        assertThat(getAllTrainings()).hasSize(2);
+    }
+
+    @Test
+    void shouldInsertSingleTraining_whenDuplicatesAreUploadedConcurrently() throws Exception {
+        User user = existingUser(generateUser());
+        CreateTrainingDto training = new CreateTrainingDto(null, user.getId(), new Date(START), new Date(START + 3_600_000),
+                                                           ActivityType.SWIMMING, 2, 2);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<TrainingCreation>> uploads = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            uploads.add(executor.submit(() -> trainingService.createTraining(training, null)));
+        }
+        List<TrainingCreation> creations = new ArrayList<>();
+        for (Future<TrainingCreation> upload : uploads) {
+            creations.add(upload.get());
+        }
+        executor.shutdown();
+
+        assertThat(creations).filteredOn(creation -> !creation.duplicate()).hasSize(1);
+        assertThat(creations).extracting(creation -> creation.training().id()).containsOnly(creations.get(0).training().id());
+        assertThat(getAllTrainings()).hasSize(1);
+    }
+
+    @Test
+    void shouldRuleOutNewTrainings_whenFilterIsBuilt() {
+        User user = existingUser(generateUser());
+        trainingService.createTraining(new CreateTrainingDto(null, user.getId(), new Date(START), new Date(START + 60_000),
+                                                             ActivityType.TENNIS, 1, 1), "upload-1");
+        duplicateFilter.rebuild();
+
+        assertThat(duplicateFilter.mightContain(user.getId(), START, ActivityType.TENNIS)).isTrue();
+        assertThat(duplicateFilter.mightContainKey(user.getId(), "upload-1")).isTrue();
+        int falsePositives = 0;
+        for (int i = 1; i <= 1_000; i++) {
+            if (duplicateFilter.mightContain(user.getId(), START + i * 60_000L, ActivityType.TENNIS)) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(50);
+    }
+
+    private static String body(User user, long startTime, String activityType, double distance) {
+        return """
+                {"userId": %d, "startTime": %d, "endTime": %d, "activityType": "%s", "distance": %s, "averageSpeed": 10}"""
+                .formatted(user.getId(), startTime, startTime + 3_600_000, activityType, distance);
+    }
+
+    private static User generateUser() {
+        return new User(randomUUID().toString(), randomUUID().toString(), now().minusYears(30), randomUUID().toString());
+    }
+}
@@ -0,0 +1,235 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import com.capgemini.wsb.fitnesstracker.IntegrationTest;
+import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
+import com.capgemini.wsb.fitnesstracker.training.api.Training;
+import com.capgemini.wsb.fitnesstracker.user.api.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockMultipartHttpServletRequestBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static java.time.LocalDate.now;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@IntegrationTest
+@TestPropertySource(properties = "training.import.max-entry-size=64KB")
+class TrainingImportIntegrationTest extends IntegrationTestBase {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void shouldCreateTrainingFromGpxTrack_withDistanceAndTimesOfItsPoints() throws Exception {
+        User user = existingUser(generateUser());
+
+        importFiles(user, file("morning.gpx", gpx("running", "2024-03-01T06:00:00Z", 0.0, 0.01, 10)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.files").value(1))
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.rejected").isEmpty());
+
+        Training training = getAllTrainings().get(0);
+        assertThat(training.getUser().getId()).isEqualTo(user.getId());
+        assertThat(training.getActivityType()).isEqualTo(ActivityType.RUNNING);
+        assertThat(training.getStartTime().toInstant()).isEqualTo(Instant.parse("2024-03-01T06:00:00Z"));
+        assertThat(training.getEndTime().toInstant()).isEqualTo(Instant.parse("2024-03-01T06:10:00Z"));
+        assertThat(training.getDistance()).isCloseTo(11.12, within(0.01));
+        assertThat(training.getAverageSpeed()).isCloseTo(66.7, within(0.1));
+    }
+
+    @Test
+    void shouldInferActivityType_whenFileDoesNotNameIt() throws Exception {
+        User user = existingUser(generateUser());
+
+        importFiles(user,
+                    file("ride.gpx", gpx(null, "2024-03-01T06:00:00Z", 0.0, 0.003, 20)),
+                    file("walk.gpx", gpx(null, "2024-03-02T06:00:00Z", 0.0, 0.0001, 20)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2));
+
+        assertThat(getAllTrainings()).extracting(Training::getActivityType)
+                .containsExactlyInAnyOrder(ActivityType.CYCLING, ActivityType.WALKING);
+    }
+
+    @Test
+    void shouldPreferRecordedLapDistance_whenImportingTcx() throws Exception {
+        User user = existingUser(generateUser());
+
+        importFiles(user, file("ride.tcx", tcx("Biking", "2024-03-01T17:00:00.000+01:00", 25_000)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1));
+
+        Training training = getAllTrainings().get(0);
+        assertThat(training.getActivityType()).isEqualTo(ActivityType.CYCLING);
+        assertThat(training.getStartTime().toInstant()).isEqualTo(Instant.parse("2024-03-01T16:00:00Z"));
+        assertThat(training.getEndTime().toInstant()).isEqualTo(Instant.parse("2024-03-01T17:00:00Z"));
+        assertThat(training.getDistance()).isEqualTo(25.0);
+        assertThat(training.getAverageSpeed()).isEqualTo(25.0);
+    }
+
+    @Test
+    void shouldImportEveryWorkoutFileOfZip_andSkipThemWhenImportedAgain() throws Exception {
+        User user = existingUser(generateUser());
+        byte[] archive = zip(List.of(
+                new Entry("a.gpx", gpx("walking", "2024-04-01T06:00:00Z", 50.0, 0.0005, 30)),
+                new Entry("nested/b.gpx", gpx("hiking", "2024-04-02T06:00:00Z", 50.0, 0.0005, 30)),
+                new Entry("c.tcx", tcx("Running", "2024-04-03T06:00:00Z", 10_000)),
+                new Entry("readme.txt", "not a workout")));
+
+        importFiles(user, new MockMultipartFile("files", "export.zip", "application/zip", archive))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.files").value(3))
+                .andExpect(jsonPath("$.created").value(3))
+                .andExpect(jsonPath("$.duplicates").value(0));
+        importFiles(user, new MockMultipartFile("files", "export.zip", "application/zip", archive))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(0))
+                .andExpect(jsonPath("$.duplicates").value(3));
+
+        assertThat(getAllTrainings()).hasSize(3);
+        assertThat(getAllTrainings().stream().sorted(Comparator.comparing(Training::getStartTime)).map(Training::getActivityType))
+                .containsExactly(ActivityType.WALKING, ActivityType.WALKING, ActivityType.RUNNING);
+    }
+
+    @Test
+    void shouldReportRejectedFile_andImportTheOthers() throws Exception {
+        User user = existingUser(generateUser());
+
+        importFiles(user,
+                    file("broken.gpx", "<gpx><trk><trkseg><trkpt lat=\"1\" lon=\"1\">"),
+                    file("other.xml", "<kml/>"),
+                    file("good.gpx", gpx("running", "2024-03-01T06:00:00Z", 0.0, 0.0001, 5)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.files").value(3))
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.rejected.length()").value(2))
+                .andExpect(jsonPath("$.rejected[0].name").value("broken.gpx"))
+                .andExpect(jsonPath("$.rejected[1].name").value("other.xml"));
+    }
+
+    @Test
+    void shouldReportCorruptArchiveAndOversizedEntry_andImportTheOthers() throws Exception {
+        User user = existingUser(generateUser());
+        byte[] archive = zip(List.of(
+                new Entry("large.gpx", gpx("running", "2024-05-01T06:00:00Z", 50.0, 0.0001, 2_000)),
+                new Entry("small.gpx", gpx("running", "2024-05-02T06:00:00Z", 50.0, 0.0001, 30))));
+
+        importFiles(user,
+                    new MockMultipartFile("files", "corrupt.zip", "application/zip", "not a zip archive".getBytes(StandardCharsets.UTF_8)),
+                    new MockMultipartFile("files", "export.zip", "application/zip", archive))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.files").value(3))
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.rejected.length()").value(2))
+                .andExpect(jsonPath("$.rejected[0].name").value("corrupt.zip"))
+                .andExpect(jsonPath("$.rejected[1].name").value("export.zip/large.gpx"));
+    }
+
+    @Test
+    void shouldRejectImport_whenUserDoesNotExist() throws Exception {
+        User user = existingUser(generateUser());
+
+        mockMvc.perform(multipart("/v1/trainings/import")
+                                .file(file("a.gpx", gpx("running", "2024-03-01T06:00:00Z", 0.0, 0.0001, 5)))
+                                .param("userId", String.valueOf(user.getId() + 1000)))
+                .andExpect(status().isNotFound());
+    }
+
+    private ResultActions importFiles(User user, MockMultipartFile... files) throws Exception {
+        MockMultipartHttpServletRequestBuilder request = multipart("/v1/trainings/import");
+        for (MockMultipartFile file : files) {
+            request.file(file);
+        }
+        return mockMvc.perform(request.param("userId", String.valueOf(user.getId())));
+    }
+
+    private static MockMultipartFile file(String name, String content) {
+        return new MockMultipartFile("files", name, "application/octet-stream", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * GPX track heading north from the latitude by the given step every minute.
+     */
+    private static String gpx(String type, String startTime, double latitude, double step, int minutes) {
+        Instant start = Instant.parse(startTime);
+        StringBuilder gpx = new StringBuilder("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <gpx version="1.1" creator="test" xmlns="http://www.topografix.com/GPX/1/1">
+                  <metadata><time>2000-01-01T00:00:00Z</time></metadata>
+                  <trk>
+                """);
+        if (type != null) {
+            gpx.append("    <type>").append(type).append("</type>\n");
+        }
+        gpx.append("    <trkseg>\n");
+        for (int minute = 0; minute <= minutes; minute++) {
+            gpx.append("      <trkpt lat=\"%s\" lon=\"19.0\"><ele>200</ele><time>%s</time></trkpt>\n"
+                               .formatted(latitude + minute * step, start.plusSeconds(60L * minute)));
+        }
+        return gpx.append("    </trkseg>\n  </trk>\n</gpx>\n").toString();
+    }
+
+    /**
+     * TCX activity of one hour with a single lap recording the distance.
+     */
+    private static String tcx(String sport, String startTime, int meters) {
+        return """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <TrainingCenterDatabase xmlns="http://www.garmin.com/xmlschemas/TrainingCenterDatabase/v2">
+                  <Activities>
+                    <Activity Sport="%1$s">
+                      <Id>%2$s</Id>
+                      <Lap StartTime="%2$s">
+                        <TotalTimeSeconds>3600</TotalTimeSeconds>
+                        <DistanceMeters>%3$d</DistanceMeters>
+                        <Track>
+                          <Trackpoint><Time>%2$s</Time><DistanceMeters>0</DistanceMeters></Trackpoint>
+                          <Trackpoint><Time>%4$s</Time><DistanceMeters>%3$d</DistanceMeters></Trackpoint>
+                        </Track>
+                      </Lap>
+                    </Activity>
+                  </Activities>
+                </TrainingCenterDatabase>
+                """.formatted(sport, startTime, meters,
+                              OffsetDateTime.parse(startTime).plusHours(1));
+    }
+
+    private static byte[] zip(List<Entry> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Entry entry : entries) {
+                zip.putNextEntry(new ZipEntry(entry.name()));
+                zip.write(entry.content().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static User generateUser() {
+        return new User(randomUUID().toString(), randomUUID().toString(), now().minusYears(30), randomUUID().toString());
+    }
+
+    private record Entry(String name, String content) {
+
+    }
+}
@@ -0,0 +1,215 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import com.capgemini.wsb.fitnesstracker.IntegrationTest;
+import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
+import com.capgemini.wsb.fitnesstracker.sharding.api.ShardRouter;
+import com.capgemini.wsb.fitnesstracker.training.api.Training;
+import com.capgemini.wsb.fitnesstracker.user.api.User;
+import com.capgemini.wsb.fitnesstracker.user.internal.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static java.time.LocalDate.now;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@IntegrationTest
+class TrainingJournalCrashRecoveryTest extends IntegrationTestBase {
+
+    private static final int SEGMENT_SIZE = 1024 * 1024;
+
+    @TempDir
+    Path journalDirectory;
+
+    @Autowired
+    private TrainingRepository trainingRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TrainingJournalCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private TrainingMapper trainingMapper;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void shouldKeepAllAcknowledgedEntries_whenJournalIsReopenedWithoutClose() throws Exception {
+        TrainingJournal crashed = new TrainingJournal(journalDirectory, SEGMENT_SIZE);
+        appendDurable(crashed, 100);
+
+        TrainingJournal recovered = new TrainingJournal(journalDirectory, SEGMENT_SIZE);
+
+        List<JournaledTraining> entries = recovered.read(0, 1000);
+        assertThat(entries).hasSize(100);
+        assertThat(entries).extracting(JournaledTraining::sequence).containsExactlyElementsOf(sequences(1, 100));
+        assertThat(entries.get(0).idempotencyKey()).isEqualTo("key-0");
+        assertThat(entries.get(1).idempotencyKey()).isNull();
+        assertThat(recovered.append(1, 0, 1, ActivityType.RUNNING, 1, 1, null)).isEqualTo(101);
+    }
+
+    @Test
+    void shouldDiscardTornEntryAndEverythingAfterIt_whenJournalIsReopened() throws Exception {
+        TrainingJournal crashed = new TrainingJournal(journalDirectory, SEGMENT_SIZE);
+        appendDurable(crashed, 4);
+        corruptEntry(3);
+
+        TrainingJournal recovered = new TrainingJournal(journalDirectory, SEGMENT_SIZE);
+        assertThat(recovered.read(0, 10)).extracting(JournaledTraining::sequence).containsExactly(1L, 2L);
+
+        appendDurable(recovered, 1);
+        TrainingJournal recoveredAgain = new TrainingJournal(journalDirectory, SEGMENT_SIZE);
+        assertThat(recoveredAgain.read(0, 10)).extracting(JournaledTraining::sequence).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void shouldRecoverEntriesAcrossSegments_whenJournalRolledOver() throws Exception {
+        int segmentSize = TrainingJournal.ENTRY_SIZE * 4;
+        TrainingJournal crashed = new TrainingJournal(journalDirectory, segmentSize);
+        appendDurable(crashed, 10);
+
+        TrainingJournal recovered = new TrainingJournal(journalDirectory, segmentSize);
+        assertThat(recovered.read(0, 100)).extracting(JournaledTraining::sequence).containsExactlyElementsOf(sequences(1, 10));
+
+        recovered.release(7);
+        assertThat(segmentFiles()).hasSize(2);
+        assertThat(recovered.read(7, 100)).extracting(JournaledTraining::sequence).containsExactly(8L, 9L, 10L);
+    }
+
+    @Test
+    void shouldAssignUniqueSequences_whenAppendingConcurrently() throws Exception {
+        TrainingJournal journal = new TrainingJournal(journalDirectory, SEGMENT_SIZE);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Long>> acknowledged = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            acknowledged.add(executor.submit(() -> {
+                long sequence = journal.append(1, 0, 1, ActivityType.CYCLING, 2, 3, "upload-" + randomUUID());
+                journal.awaitDurable(sequence);
+                return sequence;
+            }));
+        }
+        Set<Long> sequences = new HashSet<>();
+        for (Future<Long> future : acknowledged) {
+            sequences.add(future.get());
+        }
+        executor.shutdown();
+
+        TrainingJournal recovered = new TrainingJournal(journalDirectory, SEGMENT_SIZE);
+        assertThat(sequences).hasSize(2000);
+        assertThat(recovered.read(0, 5000)).extracting(JournaledTraining::sequence).containsExactlyElementsOf(sequences(1, 2000));
+    }
+
+    @Test
+    void shouldInsertEveryAcceptedTrainingExactlyOnce_whenDrainerIsRestarted() throws Exception {
+        User user = existingUser(new User(randomUUID().toString(), randomUUID().toString(), now(), randomUUID().toString()));
+        String journalName = randomUUID().toString();
+
+        TrainingJournal crashed = new TrainingJournal(journalDirectory, SEGMENT_SIZE);
+        for (int i = 0; i < 25; i++) {
+            crashed.awaitDurable(crashed.append(user.getId(), 1000L * i, 1000L * i + 500, ActivityType.WALKING, i, 5, null));
+        }
+        assertThat(drainer(crashed, journalName).drain()).isEqualTo(25);
+        for (int i = 25; i < 30; i++) {
+            crashed.awaitDurable(crashed.append(user.getId(), 1000L * i, 1000L * i + 500, ActivityType.WALKING, i, 5, null));
+        }
+
+        TrainingJournal recovered = new TrainingJournal(journalDirectory, SEGMENT_SIZE);
+        TrainingJournalDrainer restarted = drainer(recovered, journalName);
+
+        assertThat(restarted.drain()).isEqualTo(5);
+        assertThat(restarted.drain()).isZero();
+        assertThat(getAllTrainings()).hasSize(30);
+        assertThat(getAllTrainings()).extracting(training -> training.getStartTime().getTime())
+                .containsExactlyInAnyOrderElementsOf(Stream.iterate(0L, time -> time + 1000).limit(30).toList());
+    }
+
+    @Test
+    void shouldConsumeAndReleaseBatchOfDuplicates_whenNothingIsInserted() throws Exception {
+        User user = existingUser(new User(randomUUID().toString(), randomUUID().toString(), now(), randomUUID().toString()));
+        String journalName = randomUUID().toString();
+        int segmentSize = TrainingJournal.ENTRY_SIZE * 4;
+        TrainingJournal journal = new TrainingJournal(journalDirectory, segmentSize);
+        journal.awaitDurable(journal.append(user.getId(), 0, 500, ActivityType.RUNNING, 1, 5, null));
+        for (int i = 0; i < 20; i++) {
+            journal.awaitDurable(journal.append(user.getId(), 0, 500, ActivityType.RUNNING, 1, 5, null));
+        }
+        journal.awaitDurable(journal.append(user.getId(), 1000, 1500, ActivityType.RUNNING, 1, 5, null));
+
+        assertThat(drainer(journal, journalName).drain()).isEqualTo(2);
+        assertThat(getAllTrainings()).extracting(training -> training.getStartTime().getTime()).containsExactlyInAnyOrder(0L, 1000L);
+        assertThat(segmentFiles()).hasSize(1);
+    }
+
+    @Test
+    void shouldInsertRetriedUploadOnce_whenSameIdempotencyKeyWasJournaledTwice() throws Exception {
+        User user = existingUser(new User(randomUUID().toString(), randomUUID().toString(), now(), randomUUID().toString()));
+        String journalName = randomUUID().toString();
+        TrainingJournal journal = new TrainingJournal(journalDirectory, SEGMENT_SIZE);
+        journal.awaitDurable(journal.append(user.getId(), 0, 500, ActivityType.RUNNING, 1, 5, "upload-1"));
+        journal.awaitDurable(journal.append(user.getId(), 10, 510, ActivityType.RUNNING, 1, 5, "upload-1"));
+        assertThat(drainer(journal, journalName).drain()).isEqualTo(1);
+
+        journal.awaitDurable(journal.append(user.getId(), 20, 520, ActivityType.RUNNING, 1, 5, "upload-1"));
+        journal.awaitDurable(journal.append(user.getId(), 30, 530, ActivityType.RUNNING, 1, 5, "upload-2"));
+
+        assertThat(drainer(journal, journalName).drain()).isEqualTo(1);
+        assertThat(getAllTrainings()).extracting(Training::getIdempotencyKey).containsExactlyInAnyOrder("upload-1", "upload-2");
+    }
+
+    private TrainingJournalDrainer drainer(TrainingJournal journal, String journalName) {
+        TrainingJournalProperties properties = new TrainingJournalProperties();
+        properties.setName(journalName);
+        properties.setBatchSize(7);
+        return new TrainingJournalDrainer(journal, trainingRepository, userRepository, checkpointRepository,
+                                          trainingMapper, shardRouter, eventPublisher, transactionManager, properties);
+    }
+
+    private static void appendDurable(TrainingJournal journal, int count) {
+        for (int i = 0; i < count; i++) {
+            journal.awaitDurable(journal.append(i, i, i + 1, ActivityType.RUNNING, i, i, i % 2 == 0 ? "key-" + i : null));
+        }
+    }
+
+    private void corruptEntry(long sequence) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentFiles().get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), (sequence - 1) * TrainingJournal.ENTRY_SIZE + 20);
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(journalDirectory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static List<Long> sequences(long from, long to) {
+        return Stream.iterate(from, sequence -> sequence + 1).limit(to - from + 1).toList();
+    }
+}
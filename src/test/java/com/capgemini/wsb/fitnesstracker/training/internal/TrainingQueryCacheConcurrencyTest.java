@@ -0,0 +1,125 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import com.capgemini.wsb.fitnesstracker.IntegrationTest;
+import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
+import com.capgemini.wsb.fitnesstracker.training.api.CreateTrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingService;
+import com.capgemini.wsb.fitnesstracker.user.api.User;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.time.LocalDate.now;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@IntegrationTest
+@TestPropertySource(properties = "training.query-cache.enabled=true")
+class TrainingQueryCacheConcurrencyTest extends IntegrationTestBase {
+
+    private static final long DAY = 86_400_000L;
+
+    @Autowired
+    private TrainingService trainingService;
+
+    @Autowired
+    private TrainingQueryCache queryCache;
+
+    @AfterEach
+    void invalidateCache() {
+        queryCache.invalidateAll();
+    }
+
+    @Test
+    void shouldInvalidateOnlyAffectedEntries_whenTrainingIsCreated() {
+        User user = existingUser(generateUser());
+        trainingService.createTraining(training(user, ActivityType.RUNNING, 10));
+        trainingService.createTraining(training(user, ActivityType.CYCLING, 10));
+        Date beforeNewTraining = new Date(12 * DAY);
+        Date afterNewTraining = new Date(30 * DAY);
+
+        trainingService.findTrainingsByActivity(ActivityType.RUNNING);
+        trainingService.findTrainingsByActivity(ActivityType.CYCLING);
+        trainingService.findCompletedTrainingsAfter(beforeNewTraining);
+        trainingService.findCompletedTrainingsAfter(afterNewTraining);
+        trainingService.createTraining(training(user, ActivityType.RUNNING, 20));
+        CacheStats before = queryCache.stats();
+
+        List<TrainingDto> running = trainingService.findTrainingsByActivity(ActivityType.RUNNING);
+        List<TrainingDto> cycling = trainingService.findTrainingsByActivity(ActivityType.CYCLING);
+        List<TrainingDto> completedBefore = trainingService.findCompletedTrainingsAfter(beforeNewTraining);
+        List<TrainingDto> completedAfter = trainingService.findCompletedTrainingsAfter(afterNewTraining);
+
+        CacheStats stats = queryCache.stats().minus(before);
+        assertThat(stats.hitCount()).isEqualTo(2);
+        assertThat(stats.missCount()).isEqualTo(2);
+        assertThat(running).hasSize(2);
+        assertThat(cycling).hasSize(1);
+        assertThat(completedBefore).hasSize(1);
+        assertThat(completedAfter).isEmpty();
+    }
+
+    @Test
+    void shouldNeverReturnStaleResult_whenTrainingsAreWrittenConcurrently() throws Exception {
+        User user = existingUser(generateUser());
+        int writers = 2;
+        int writesPerWriter = 100;
+        AtomicInteger acknowledged = new AtomicInteger();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        List<Future<?>> writes = new ArrayList<>();
+        for (int writer = 0; writer < writers; writer++) {
+            int firstDay = writer * writesPerWriter + 1;
+            writes.add(executor.submit(() -> {
+                for (int i = 0; i < writesPerWriter; i++) {
+                    trainingService.createTraining(training(user, ActivityType.RUNNING, firstDay + i));
+                    acknowledged.incrementAndGet();
+                }
+            }));
+        }
+        List<Future<?>> reads = new ArrayList<>();
+        for (int reader = 0; reader < 6; reader++) {
+            reads.add(executor.submit(() -> {
+                while (writing.get()) {
+                    int expected = acknowledged.get();
+                    assertThat(trainingService.findTrainingsByActivity(ActivityType.RUNNING)).hasSizeGreaterThanOrEqualTo(expected);
+                    assertThat(trainingService.findCompletedTrainingsAfter(new Date(0))).hasSizeGreaterThanOrEqualTo(expected);
+                }
+            }));
+        }
+        for (Future<?> write : writes) {
+            write.get();
+        }
+        writing.set(false);
+        for (Future<?> read : reads) {
+            read.get();
+        }
+        executor.shutdown();
+
+        assertThat(trainingService.findTrainingsByActivity(ActivityType.RUNNING)).hasSize(writers * writesPerWriter);
+        assertThat(trainingService.findCompletedTrainingsAfter(new Date(0))).hasSize(writers * writesPerWriter);
+        assertThat(queryCache.stats().hitCount()).isPositive();
+    }
+
+    private static CreateTrainingDto training(User user, ActivityType activityType, int endDay) {
+        return new CreateTrainingDto(null, user.getId(), new Date(endDay * DAY - 3_600_000), new Date(endDay * DAY),
+                                     activityType, 10, 10);
+    }
+
+    private static User generateUser() {
+        return new User(randomUUID().toString(), randomUUID().toString(), now().minusYears(30), randomUUID().toString());
+    }
+}
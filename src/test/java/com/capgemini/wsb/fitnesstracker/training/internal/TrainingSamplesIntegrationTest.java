@@ -0,0 +1,164 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import com.capgemini.wsb.fitnesstracker.IntegrationTest;
+import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
+import com.capgemini.wsb.fitnesstracker.training.api.CreateTrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingSample;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingService;
+import com.capgemini.wsb.fitnesstracker.user.api.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static java.time.LocalDate.now;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.hamcrest.Matchers.closeTo;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@IntegrationTest
+class TrainingSamplesIntegrationTest extends IntegrationTestBase {
+
+    private static final Instant START = Instant.parse("2024-06-01T06:00:00Z");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EncodedTrainingSamplesRepository samplesRepository;
+
+    @Autowired
+    private TrainingService trainingService;
+
+    @AfterEach
+    void cleanUpSamples() {
+        samplesRepository.deleteAll();
+    }
+
+    @Test
+    void shouldDecodeEncodedSamplesInChronologicalOrder_whenSamplesAreShuffled() {
+        List<TrainingSample> samples = route(3_600);
+        List<TrainingSample> shuffled = new ArrayList<>(samples);
+        Collections.shuffle(shuffled, new Random(5));
+
+        TrainingSampleCodec.EncodedSamples encoded = TrainingSampleCodec.encode(shuffled);
+
+        assertThat(encoded.sampleCount()).isEqualTo(samples.size());
+        assertThat(encoded.data().length).isLessThan(samples.size() * 10);
+        assertThat(encoded.distance()).isCloseTo(12.006, within(0.01));
+        assertThat(encoded.averageSpeed()).isCloseTo(encoded.distance() / (3599 / 3600.0), within(0.001));
+        try (Stream<TrainingSample> decoded = TrainingSampleCodec.decode(encoded.data())) {
+            assertThat(decoded.toList()).containsExactlyElementsOf(samples);
+        }
+    }
+
+    @Test
+    void shouldRoundTripExtremeValues_whenDeltasAreNegativeOrOverflow() {
+        long[] values = {0, 1, -1, 63, -64, 64, -65, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * VarInts.MAX_LENGTH);
+        for (long value : values) {
+            VarInts.putVarLong(buffer, value);
+        }
+        assertThat(buffer.position()).isLessThanOrEqualTo(values.length * VarInts.MAX_LENGTH);
+        buffer.flip();
+        for (long value : values) {
+            assertThat(VarInts.getVarLong(buffer)).isEqualTo(value);
+        }
+        assertThat(buffer.hasRemaining()).isFalse();
+
+        List<TrainingSample> samples = List.of(
+                new TrainingSample(Instant.ofEpochMilli(-1), 90, 180, 220, 30),
+                new TrainingSample(Instant.ofEpochMilli(0), -90, -180, 0, 0),
+                new TrainingSample(Instant.ofEpochMilli(Long.MAX_VALUE), 0, 0, Integer.MAX_VALUE, 0.001));
+        try (Stream<TrainingSample> decoded = TrainingSampleCodec.decode(TrainingSampleCodec.encode(samples).data())) {
+            assertThat(decoded.toList()).containsExactlyElementsOf(samples);
+        }
+    }
+
+    @Test
+    void shouldUpdateSummaryAndDownsample_whenSamplesAreUploaded() throws Exception {
+        TrainingDto training = trainingOfNewUser();
+
+        mockMvc.perform(post("/v1/trainings/{id}/samples", training.id()).contentType(MediaType.APPLICATION_JSON)
+                                .content(json(route(1_000))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.distance").value(closeTo(3.3, 0.05)));
+
+        mockMvc.perform(get("/v1/trainings/{id}/samples/downsampled", training.id()).param("maxPoints", "300"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(250))
+                .andExpect(jsonPath("$[0].heartRate").value(121))
+                .andExpect(jsonPath("$[249].heartRate").value(121));
+        mockMvc.perform(get("/v1/trainings/{id}/samples/downsampled", training.id()).param("maxPoints", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].pace").value(closeTo(5.0, 0.001)));
+        mockMvc.perform(get("/v1/trainings/{id}/samples/downsampled", training.id()).param("maxPoints", "5000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1000));
+        mockMvc.perform(get("/v1/trainings/{id}/samples/downsampled", training.id()).param("maxPoints", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldRejectSamples_whenListIsEmptyOrSampleIsInvalid() throws Exception {
+        TrainingDto training = trainingOfNewUser();
+
+        for (String samples : List.of("[]",
+                                      "[{\"latitude\": 1, \"longitude\": 1, \"heartRate\": 100, \"pace\": 5}]",
+                                      "[{\"timestamp\": \"2024-06-01T06:00:00Z\", \"latitude\": 91, \"longitude\": 1, \"heartRate\": 100, \"pace\": 5}]",
+                                      "[{\"timestamp\": \"2024-06-01T06:00:00Z\", \"latitude\": 1, \"longitude\": 1, \"heartRate\": -1, \"pace\": 5}]")) {
+            mockMvc.perform(post("/v1/trainings/{id}/samples", training.id()).contentType(MediaType.APPLICATION_JSON).content(samples))
+                    .andExpect(status().isBadRequest());
+        }
+
+        assertThat(samplesRepository.findById(training.id())).isEmpty();
+        assertThat(getAllTrainings()).singleElement().satisfies(unchanged -> assertThat(unchanged.getDistance()).isEqualTo(10));
+    }
+
+    private TrainingDto trainingOfNewUser() {
+        User user = existingUser(new User(randomUUID().toString(), randomUUID().toString(), now().minusYears(30), randomUUID().toString()));
+        return trainingService.createTraining(new CreateTrainingDto(null, user.getId(), Date.from(START), Date.from(START.plusSeconds(3_600)),
+                                                                    ActivityType.RUNNING, 10, 10));
+    }
+
+    /**
+     * Per-second samples of a run heading north at 12 km/h, with the heart rate alternating between 120 and 122. The
+     * latitudes are multiples of the codec resolution, so that they are decoded exactly.
+     */
+    private static List<TrainingSample> route(int seconds) {
+        List<TrainingSample> samples = new ArrayList<>(seconds);
+        for (int i = 0; i < seconds; i++) {
+            samples.add(new TrainingSample(START.plusSeconds(i), (522_297_000L + i * 300L) / 1e7, 21.0122, 120 + (i % 2) * 2, 5.0));
+        }
+        return samples;
+    }
+
+    private static String json(List<TrainingSample> samples) {
+        StringBuilder json = new StringBuilder("[");
+        for (TrainingSample sample : samples) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"timestamp\": \"%s\", \"latitude\": %s, \"longitude\": %s, \"heartRate\": %d, \"pace\": %s}"
+                                .formatted(sample.timestamp(), sample.latitude(), sample.longitude(), sample.heartRate(), sample.pace()));
+        }
+        return json.append(']').toString();
+    }
+}
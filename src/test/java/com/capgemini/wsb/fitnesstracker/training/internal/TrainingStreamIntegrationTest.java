@@ -0,0 +1,120 @@
+package com.capgemini.wsb.fitnesstracker.training.internal;
+
+import com.capgemini.wsb.fitnesstracker.IntegrationTest;
+import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
+import com.capgemini.wsb.fitnesstracker.training.api.CreateTrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingDto;
+import com.capgemini.wsb.fitnesstracker.training.api.TrainingService;
+import com.capgemini.wsb.fitnesstracker.user.api.User;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.time.Duration;
+import java.util.Date;
+
+import static java.time.LocalDate.now;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@IntegrationTest
+class TrainingStreamIntegrationTest extends IntegrationTestBase {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TrainingService trainingService;
+
+    @Autowired
+    private TrainingChangeFeed trainingChangeFeed;
+
+    @Test
+    void shouldStreamOnlyMatchingChanges_whenSubscribedWithFilter() throws Exception {
+        User runner = existingUser(generateUser());
+        User cyclist = existingUser(generateUser());
+        MockHttpServletResponse stream = subscribe(get("/v1/trainings/stream").param("userId", runner.getId().toString()));
+
+        TrainingDto created = trainingService.createTraining(training(runner, ActivityType.RUNNING));
+        trainingService.createTraining(training(cyclist, ActivityType.CYCLING));
+        trainingService.updateTraining(created.id(), new CreateTrainingDto(null, runner.getId(), created.startTime(),
+                                                                           created.endTime(), ActivityType.WALKING, 5, 5));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> stream.getContentAsString().contains("event:updated"));
+        String events = stream.getContentAsString();
+        assertThat(events).contains("event:created", "\"userId\":" + runner.getId(), "\"activityType\":\"WALKING\"");
+        assertThat(events).doesNotContain("\"userId\":" + cyclist.getId(), "CYCLING");
+    }
+
+    @Test
+    void shouldReplayMissedChanges_whenResumedWithLastEventId() throws Exception {
+        User user = existingUser(generateUser());
+        trainingService.createTraining(training(user, ActivityType.RUNNING));
+        long lastEventId = trainingChangeFeed.lastEventId();
+        trainingService.createTraining(training(user, ActivityType.SWIMMING));
+        trainingService.createTraining(training(user, ActivityType.TENNIS));
+
+        MockHttpServletResponse stream = subscribe(get("/v1/trainings/stream").header("Last-Event-ID", lastEventId));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> stream.getContentAsString().contains("TENNIS"));
+        String events = stream.getContentAsString();
+        assertThat(events).contains("id:" + (lastEventId + 1), "SWIMMING", "id:" + (lastEventId + 2));
+        assertThat(events).doesNotContain("RUNNING", "event:gap");
+    }
+
+    @Test
+    void shouldCreateAndDeleteTrainings_whenSubscriberIsConnected() throws Exception {
+        User user = existingUser(generateUser());
+        MockHttpServletResponse stream = subscribe(get("/v1/trainings/stream").param("activityType", "RUNNING"));
+
+        String created = mockMvc.perform(post("/v1/trainings").contentType(MediaType.APPLICATION_JSON).content(body(user)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Integer id = JsonPath.read(created, "$.id");
+        mockMvc.perform(delete("/v1/trainings/{id}", id))
+                .andExpect(status().is2xxSuccessful());
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> stream.getContentAsString().contains("event:deleted"));
+        assertThat(stream.getContentAsString()).contains("event:created");
+    }
+
+    @Test
+    void shouldSendGap_whenLastEventIdIsUnknown() throws Exception {
+        MockHttpServletResponse stream = subscribe(get("/v1/trainings/stream")
+                                                           .header("Last-Event-ID", trainingChangeFeed.lastEventId() + 100));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> stream.getContentAsString().contains("event:gap"));
+    }
+
+    private MockHttpServletResponse subscribe(RequestBuilder requestBuilder) throws Exception {
+        return mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn()
+                .getResponse();
+    }
+
+    private static CreateTrainingDto training(User user, ActivityType activityType) {
+        return new CreateTrainingDto(null, user.getId(), new Date(System.currentTimeMillis() - 3_600_000), new Date(),
+                                     activityType, 10, 10);
+    }
+
+    private static String body(User user) {
+        return """
+                {"userId": %d, "startTime": 0, "endTime": 3600000, "activityType": "RUNNING", "distance": 10, "averageSpeed": 10}"""
+                .formatted(user.getId());
+    }
+
+    private static User generateUser() {
+        return new User(randomUUID().toString(), randomUUID().toString(), now().minusYears(30), randomUUID().toString());
+    }
+}
@@ -3,6 +3,8 @@ package com.capgemini.wsb.fitnesstracker.user.internal;
 import com.capgemini.wsb.fitnesstracker.IntegrationTest;
 import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
 import com.capgemini.wsb.fitnesstracker.user.api.User;
+import com.capgemini.wsb.fitnesstracker.user.api.UserChangedEvent;
+import com.capgemini.wsb.fitnesstracker.user.api.UserDto;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -30,6 +32,9 @@ class UserApiIntegrationTest extends IntegrationTestBase {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private UserSearchIndex userSearchIndex;
+
     @Test
     void shouldReturnAllUsers_whenGettingAllUsers() throws Exception {
         User user1 = existingUser(generateUser());
@@ -202,6 +207,128 @@ class UserApiIntegrationTest extends IntegrationTestBase {
         assertThat(user.getEmail()).isEqualTo(USER_EMAIL);
     }
 
+    @Test
+    void shouldFindUsersByFragments_whenSearchingUsers() throws Exception {
+        String unique = randomUUID().toString().replace("-", "");
+        createUser("Żaneta", "Kowalska" + unique, "zaneta." + unique + "@domain.com");
+        createUser("Jan", "Nowak" + unique, "jan." + unique + "@domain.com");
+
+        mockMvc.perform(get("/v1/users/search").param("q", "zanet " + unique.substring(4, 12)))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].firstName").value("Żaneta"));
+
+        mockMvc.perform(get("/v1/users/search").param("q", "jan." + unique))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].lastName").value("Nowak" + unique));
+
+        mockMvc.perform(get("/v1/users/search").param("q", unique.substring(0, 10)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+
+    @Test
+    void shouldKeepSearchCurrent_whenUpdatingAndDeletingUser() throws Exception {
+        String unique = randomUUID().toString().replace("-", "");
+        createUser("Anna", "Before" + unique, unique + "@domain.com");
+        User user = getAllUsers().stream().filter(existing -> existing.getEmail().startsWith(unique)).findFirst().orElseThrow();
+
+        mockMvc.perform(put("/v1/users/{userId}", user.getId())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(userJson("Anna", "After" + unique, unique + "@domain.com")))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/v1/users/search").param("q", "before" + unique))
+                .andExpect(jsonPath("$", hasSize(0)));
+        mockMvc.perform(get("/v1/users/search").param("q", "after" + unique))
+                .andExpect(jsonPath("$", hasSize(1)));
+
+        mockMvc.perform(delete("/v1/users/{userId}", user.getId()))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/v1/users/search").param("q", "after" + unique))
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    void shouldCompactTombstones_whenUserIsUpdatedRepeatedly() {
+        String unique = randomUUID().toString().replace("-", "");
+        UserDto user = new UserDto(-1L, "Churn", "Version0" + unique, LocalDate.of(1990, 1, 1), unique + "@domain.com");
+        userSearchIndex.onUserChanged(UserChangedEvent.created(user));
+        for (int version = 1; version <= 3_000; version++) {
+            UserDto updated = new UserDto(user.id(), user.firstName(), "Version" + version + unique, user.birthdate(), user.email());
+            userSearchIndex.onUserChanged(UserChangedEvent.updated(user, updated));
+            user = updated;
+        }
+
+        assertThat(userSearchIndex.tombstones()).isLessThanOrEqualTo(1_024);
+        assertThat(userSearchIndex.search("version3000" + unique, 10)).containsExactly(user);
+        assertThat(userSearchIndex.search("version2999" + unique, 10)).isEmpty();
+
+        userSearchIndex.onUserChanged(UserChangedEvent.deleted(user));
+        assertThat(userSearchIndex.search(unique, 10)).isEmpty();
+    }
+
+    @Test
+    void shouldReturnUsersOlderThanPageByPage_whenPagingWithKeyset() throws Exception {
+        User user1 = existingUser(generateUserWithDate(LocalDate.of(1980, 1, 1)));
+        User user2 = existingUser(generateUserWithDate(LocalDate.of(1980, 1, 1)));
+        User user3 = existingUser(generateUserWithDate(LocalDate.of(1990, 5, 5)));
+        existingUser(generateUserWithDate(LocalDate.of(2020, 1, 1)));
+
+        mockMvc.perform(get("/v1/users/older/{time}", LocalDate.of(2000, 1, 1)).param("size", "2"))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").value(user1.getId()))
+                .andExpect(jsonPath("$[1].id").value(user2.getId()));
+
+        mockMvc.perform(get("/v1/users/older/{time}", LocalDate.of(2000, 1, 1))
+                                .param("size", "2")
+                                .param("afterBirthdate", "1980-01-01")
+                                .param("afterId", String.valueOf(user2.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(user3.getId()));
+    }
+
+    @Test
+    void shouldCountUsersPerAgeBucket_whenGettingAgeBuckets() throws Exception {
+        existingUser(generateUserWithDate(LocalDate.now().minusYears(25)));
+        existingUser(generateUserWithDate(LocalDate.now().minusYears(27).minusDays(3)));
+        existingUser(generateUserWithDate(LocalDate.now().minusYears(41)));
+
+        mockMvc.perform(get("/v1/users/age-buckets").param("bucketSize", "10"))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].fromAge").value(20))
+                .andExpect(jsonPath("$[0].toAge").value(30))
+                .andExpect(jsonPath("$[0].users").value(2))
+                .andExpect(jsonPath("$[1].fromAge").value(40))
+                .andExpect(jsonPath("$[1].users").value(1));
+    }
+
+    private void createUser(String firstName, String lastName, String email) throws Exception {
+        mockMvc.perform(post("/v1/users")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(userJson(firstName, lastName, email)))
+                .andExpect(status().isCreated());
+    }
+
+    private static String userJson(String firstName, String lastName, String email) {
+        return """
+                {
+                "firstName": "%s",
+                "lastName": "%s",
+                "birthdate": "1990-01-01",
+                "email": "%s"
+                }
+                """.formatted(firstName, lastName, email);
+    }
+
     public static User generateUser() {
         return new User(randomUUID().toString(), randomUUID().toString(), LocalDate.now(), randomUUID().toString());
     }
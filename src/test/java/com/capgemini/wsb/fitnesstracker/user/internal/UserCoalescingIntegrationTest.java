@@ -0,0 +1,83 @@
+package com.capgemini.wsb.fitnesstracker.user.internal;
+
+import com.capgemini.wsb.fitnesstracker.IntegrationTest;
+import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
+import com.capgemini.wsb.fitnesstracker.coalescing.api.SingleFlight;
+import com.capgemini.wsb.fitnesstracker.user.api.UserDto;
+import com.capgemini.wsb.fitnesstracker.user.api.UserProvider;
+import com.capgemini.wsb.fitnesstracker.user.api.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@IntegrationTest
+class UserCoalescingIntegrationTest extends IntegrationTestBase {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserProvider userProvider;
+
+    @Autowired
+    private SingleFlight<UserQuery> userQueries;
+
+    /**
+     * A read of user A is held in flight with a marker result. A read through the provider joins it despite a write of
+     * user B, and only a write of user A lets the next read run its own query.
+     */
+    @Test
+    void shouldForgetOnlyAffectedReads_whenUserIsWritten() throws Exception {
+        UserDto user = userService.createUser(generateUser("Before"));
+        UserDto otherUser = userService.createUser(generateUser("Other"));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        Future<Optional<UserDto>> leader = executor.submit(() -> userQueries.execute(new UserQuery("getUser", user.id()), () -> {
+            started.countDown();
+            awaitUninterruptibly(release);
+            return Optional.<UserDto>empty();
+        }));
+        started.await();
+        userService.updateUser(otherUser.id(), renamed(otherUser, "Changed"));
+        Future<Optional<UserDto>> coalesced = executor.submit(() -> userProvider.getUser(user.id()));
+        Thread.sleep(100);
+
+        userService.updateUser(user.id(), renamed(user, "After"));
+        Optional<UserDto> afterWrite = userProvider.getUser(user.id());
+        release.countDown();
+
+        assertThat(leader.get()).isEmpty();
+        assertThat(coalesced.get()).isEmpty();
+        assertThat(afterWrite).hasValueSatisfying(read -> assertThat(read.firstName()).isEqualTo("After"));
+        executor.shutdown();
+    }
+
+    private static UserDto generateUser(String firstName) {
+        return new UserDto(null, firstName, randomUUID().toString(), LocalDate.of(1990, 1, 1), randomUUID() + "@domain.com");
+    }
+
+    private static UserDto renamed(UserDto user, String firstName) {
+        return new UserDto(null, firstName, user.lastName(), user.birthdate(), user.email());
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.capgemini.wsb.fitnesstracker.workout.internal;
+
+import com.capgemini.wsb.fitnesstracker.IntegrationTest;
+import com.capgemini.wsb.fitnesstracker.IntegrationTestBase;
+import com.capgemini.wsb.fitnesstracker.training.api.Training;
+import com.capgemini.wsb.fitnesstracker.training.internal.ActivityType;
+import com.capgemini.wsb.fitnesstracker.user.api.User;
+import com.capgemini.wsb.fitnesstracker.user.api.UserNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Duration;
+import java.util.List;
+
+import static java.time.LocalDate.now;
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+@IntegrationTest
+@TestPropertySource(properties = "workout.live.enabled=true")
+class LiveWorkoutIntegrationTest extends IntegrationTestBase {
+
+    private static final long START = 1_700_000_000_000L;
+    private static final long MINUTE = 60_000L;
+
+    @Autowired
+    private LiveWorkoutSessions sessions;
+
+    @Autowired
+    private LiveWorkoutCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private LiveWorkoutProperties properties;
+
+    @AfterEach
+    void cleanUpCheckpoints() {
+        checkpointRepository.deleteAll();
+    }
+
+    @Test
+    void shouldStoreSingleTrainingWithAggregates_whenSessionEnds() {
+        User user = existingUser(generateUser());
+        String sessionId = randomUUID().toString();
+
+        sessions.start(sessionId, user.getId(), ActivityType.RUNNING, START);
+        for (int minute = 1; minute <= 30; minute++) {
+            sessions.progress(sessionId, START + minute * MINUTE, minute * 0.2);
+        }
+        sessions.progress(sessionId, START + 10 * MINUTE, 2.0);
+
+        assertThat(sessions.find(sessionId)).satisfies(session -> {
+            assertThat(session.distance()).isEqualTo(6.0, within(1e-9));
+            assertThat(session.currentSpeed()).isEqualTo(12.0, within(1e-6));
+            assertThat(session.averageSpeed()).isEqualTo(12.0, within(1e-6));
+        });
+
+        sessions.end(sessionId, START + 31 * MINUTE, 6.2);
+
+        List<Training> trainings = getAllTrainings();
+        assertThat(trainings).hasSize(1);
+        assertThat(trainings.get(0).getDistance()).isEqualTo(6.2, within(1e-9));
+        assertThat(trainings.get(0).getAverageSpeed()).isEqualTo(12.0, within(1e-6));
+        assertThat(trainings.get(0).getEndTime().getTime() - trainings.get(0).getStartTime().getTime()).isEqualTo(31 * MINUTE);
+        assertThat(sessions.find(sessionId)).isNull();
+        assertThatThrownBy(() -> sessions.end(sessionId, START + 32 * MINUTE, 6.4)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldResumeSessionFromCheckpoint_whenIdleSessionContinues() {
+        User user = existingUser(generateUser());
+        String sessionId = randomUUID().toString();
+        sessions.start(sessionId, user.getId(), ActivityType.CYCLING, START);
+        sessions.progress(sessionId, START + 60 * MINUTE, 20.0);
+
+        assertThat(sessions.checkpointIdleSince(Long.MAX_VALUE)).isEqualTo(1);
+        assertThat(sessions.size()).isZero();
+        assertThat(checkpointRepository.findById(sessionId)).isPresent();
+
+        sessions.progress(sessionId, START + 90 * MINUTE, 30.0);
+        assertThat(checkpointRepository.findById(sessionId)).isEmpty();
+        sessions.end(sessionId, START + 120 * MINUTE, 40.0);
+
+        assertThat(getAllTrainings()).singleElement().satisfies(training -> {
+            assertThat(training.getDistance()).isEqualTo(40.0, within(1e-9));
+            assertThat(training.getAverageSpeed()).isEqualTo(20.0, within(1e-6));
+        });
+    }
+
+    @Test
+    void shouldStoreAbandonedSession_whenCheckpointIsNotResumed() {
+        User user = existingUser(generateUser());
+        String sessionId = randomUUID().toString();
+        sessions.start(sessionId, user.getId(), ActivityType.WALKING, START);
+        sessions.progress(sessionId, START + 30 * MINUTE, 2.5);
+        sessions.checkpointIdleSince(Long.MAX_VALUE);
+
+        Duration finishAfter = properties.getFinishAfter();
+        properties.setFinishAfter(Duration.ZERO);
+        try {
+            sessions.finishAbandoned();
+        } finally {
+            properties.setFinishAfter(finishAfter);
+        }
+
+        assertThat(checkpointRepository.count()).isZero();
+        assertThat(getAllTrainings()).singleElement()
+                .satisfies(training -> assertThat(training.getDistance()).isEqualTo(2.5, within(1e-9)));
+        assertThatThrownBy(() -> sessions.progress(sessionId, START + 31 * MINUTE, 2.6)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldRejectSession_whenUserDoesNotExist() {
+        assertThatThrownBy(() -> sessions.start(randomUUID().toString(), -1L, ActivityType.RUNNING, START))
+                .isInstanceOf(UserNotFoundException.class);
+        assertThat(sessions.size()).isZero();
+    }
+
+    private static User generateUser() {
+        return new User(randomUUID().toString(), randomUUID().toString(), now().minusYears(30), randomUUID().toString());
+    }
+}